@@ -0,0 +1,104 @@
+package de.tum.cit.aet.valleyday.path;
+
+/**
+ * A* search over a {@link NavGrid} with eight-way movement.
+ * <p>
+ * All per-node state lives in int arrays sized to the grid. Instead of clearing them before
+ * every search, each search bumps a generation counter and a node counts as visited only if its
+ * stamp matches the current generation, so a search costs only the nodes it actually touches.
+ * Diagonal steps are not allowed to cut the corner of a blocked tile, which would let the
+ * player's round hitbox get stuck on it.
+ * </p>
+ * Not thread-safe; the {@link PathService} worker owns one instance.
+ */
+final class AStar {
+
+    static final int STRAIGHT = 10;
+    static final int DIAGONAL = 14;
+
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final NavGrid grid;
+    private final int width;
+    private final int[] gScore;
+    private final int[] cameFrom;
+    /** Generation in which the node was first reached (open set membership). */
+    private final int[] seen;
+    /** Generation in which the node was expanded (closed set membership). */
+    private final int[] closed;
+    private final IntMinHeap open;
+    private int generation;
+
+    AStar(NavGrid grid) {
+        this.grid = grid;
+        this.width = grid.getWidth();
+        this.gScore = new int[grid.size()];
+        this.cameFrom = new int[grid.size()];
+        this.seen = new int[grid.size()];
+        this.closed = new int[grid.size()];
+        this.open = new IntMinHeap(grid.size());
+    }
+
+    /** Octile distance, admissible for eight-way movement with the costs above. */
+    static int heuristic(int x0, int y0, int x1, int y1) {
+        int dx = Math.abs(x0 - x1);
+        int dy = Math.abs(y0 - y1);
+        return STRAIGHT * Math.max(dx, dy) + (DIAGONAL - STRAIGHT) * Math.min(dx, dy);
+    }
+
+    Path find(int startX, int startY, int goalX, int goalY) {
+        if (!grid.isWalkable(startX, startY) || !grid.isWalkable(goalX, goalY)) return Path.NONE;
+
+        generation++;
+        open.clear();
+        int start = startY * width + startX;
+        int goal = goalY * width + goalX;
+        gScore[start] = 0;
+        cameFrom[start] = -1;
+        seen[start] = generation;
+        open.pushOrDecrease(start, heuristic(startX, startY, goalX, goalY));
+
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            if (current == goal) return reconstruct(goal);
+            closed[current] = generation;
+
+            int cx = current % width;
+            int cy = current / width;
+            for (int dir = 0; dir < 8; dir++) {
+                int nx = cx + DX[dir];
+                int ny = cy + DY[dir];
+                if (!grid.isWalkable(nx, ny)) continue;
+                boolean diagonal = dir >= 4;
+                // 斜着走时不能切过障碍物的角
+                if (diagonal && (!grid.isWalkable(cx + DX[dir], cy) || !grid.isWalkable(cx, cy + DY[dir]))) continue;
+
+                int neighbour = ny * width + nx;
+                if (closed[neighbour] == generation) continue;
+                int tentative = gScore[current] + (diagonal ? DIAGONAL : STRAIGHT);
+                if (seen[neighbour] == generation && tentative >= gScore[neighbour]) continue;
+
+                seen[neighbour] = generation;
+                gScore[neighbour] = tentative;
+                cameFrom[neighbour] = current;
+                open.pushOrDecrease(neighbour, tentative + heuristic(nx, ny, goalX, goalY));
+            }
+        }
+        return Path.NONE;
+    }
+
+    private Path reconstruct(int goal) {
+        int length = 0;
+        for (int node = goal; node != -1; node = cameFrom[node]) length++;
+        int[] xs = new int[length];
+        int[] ys = new int[length];
+        int i = length;
+        for (int node = goal; node != -1; node = cameFrom[node]) {
+            i--;
+            xs[i] = node % width;
+            ys[i] = node / width;
+        }
+        return new Path(xs, ys, gScore[goal]);
+    }
+}
@@ -0,0 +1,67 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The objects on the map that are currently changing on their own and need ticking.
+ * <p>
+ * Almost everything on a farm is idle almost all of the time. Instead of ticking every object to find
+ * the few that are doing something, an object {@link #add adds} itself when something starts (debris is
+ * hit, an animation starts) and is dropped again as soon as {@link GameObject#tickActive} reports that it
+ * is idle. A tick therefore costs time in proportion to what is actually moving, not to the size of the map.
+ * </p>
+ * Each object remembers its own position in the set, so adding and removing are O(1) and never search.
+ */
+public final class ActiveSet {
+
+    private final List<GameObject> active = new ArrayList<>();
+
+    /** Starts ticking the object. Does nothing if it is already in the set. */
+    public void add(GameObject object) {
+        if (object.activeIndex >= 0) return;
+        object.activeIndex = active.size();
+        active.add(object);
+    }
+
+    /** Stops ticking the object, e.g. because it was removed from the map. Does nothing if it is not in the set. */
+    public void remove(GameObject object) {
+        int index = object.activeIndex;
+        if (index < 0) return;
+        // 中文：和最后一个交换再删，O(1)，顺序无所谓
+        GameObject last = active.remove(active.size() - 1);
+        if (last != object) {
+            active.set(index, last);
+            last.activeIndex = index;
+        }
+        object.activeIndex = -1;
+    }
+
+    /**
+     * Ticks every active object once and drops the ones that became idle.
+     * Objects added during the tick are ticked in the same pass.
+     */
+    public void tick(float deltaTime) {
+        for (int i = 0; i < active.size(); ) {
+            GameObject object = active.get(i);
+            if (object.tickActive(deltaTime)) {
+                i++;
+            } else {
+                remove(object); // 最后一个挪到了 i，i 不加一
+            }
+        }
+    }
+
+    public boolean isEmpty() {
+        return active.isEmpty();
+    }
+
+    public int size() {
+        return active.size();
+    }
+
+    public void clear() {
+        for (int i = 0; i < active.size(); i++) active.get(i).activeIndex = -1;
+        active.clear();
+    }
+}
@@ -0,0 +1,135 @@
+package de.tum.cit.aet.valleyday.map;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ActiveSetTest {
+
+    /** Stays active for a given number of ticks and counts how often it was ticked. */
+    private static final class Ticker extends GameObject {
+        int ticksLeft;
+        int ticked;
+        /** Added to the set during this object's first tick, if not null. */
+        GameObject spawn;
+        ActiveSet set;
+
+        Ticker(int x, int ticksLeft) {
+            super(x, 0);
+            this.ticksLeft = ticksLeft;
+        }
+
+        @Override
+        boolean tickActive(float deltaTime) {
+            ticked++;
+            if (spawn != null) {
+                set.add(spawn);
+                spawn = null;
+            }
+            return --ticksLeft > 0;
+        }
+
+        @Override
+        public TextureRegion getCurrentAppearance() {
+            return null;
+        }
+    }
+
+    @Test
+    void addIsIdempotent() {
+        ActiveSet set = new ActiveSet();
+        Ticker a = new Ticker(0, 1);
+        set.add(a);
+        set.add(a);
+        assertEquals(1, set.size());
+    }
+
+    @Test
+    void idleObjectsDropOutAndTheRestAreTickedOncePerPass() {
+        ActiveSet set = new ActiveSet();
+        Ticker[] tickers = {new Ticker(0, 1), new Ticker(1, 3), new Ticker(2, 1), new Ticker(3, 2), new Ticker(4, 1)};
+        for (Ticker ticker : tickers) set.add(ticker);
+
+        set.tick(0.1f);
+        // 中文：0、2、4 这一轮就闲下来了；被换到它们位置上的对象也要在同一轮里各 tick 一次
+        for (Ticker ticker : tickers) assertEquals(1, ticker.ticked);
+        assertEquals(2, set.size());
+
+        set.tick(0.1f);
+        assertEquals(2, tickers[1].ticked);
+        assertEquals(2, tickers[3].ticked);
+        assertEquals(1, set.size());
+
+        set.tick(0.1f);
+        assertEquals(3, tickers[1].ticked);
+        assertTrue(set.isEmpty());
+        for (Ticker ticker : tickers) assertEquals(-1, ticker.activeIndex);
+    }
+
+    @Test
+    void lastObjectGoingIdleEndsThePass() {
+        ActiveSet set = new ActiveSet();
+        Ticker first = new Ticker(0, 2);
+        Ticker last = new Ticker(1, 1);
+        set.add(first);
+        set.add(last);
+        set.tick(0.1f);
+        assertEquals(1, first.ticked);
+        assertEquals(1, last.ticked);
+        assertEquals(1, set.size());
+        assertEquals(0, first.activeIndex);
+    }
+
+    @Test
+    void objectsAddedDuringATickAreTickedInTheSamePass() {
+        ActiveSet set = new ActiveSet();
+        Ticker parent = new Ticker(0, 1);
+        Ticker child = new Ticker(1, 2);
+        parent.set = set;
+        parent.spawn = child;
+        set.add(parent);
+
+        set.tick(0.1f);
+        assertEquals(1, parent.ticked);
+        assertEquals(1, child.ticked);
+        assertEquals(1, set.size());
+        assertEquals(0, child.activeIndex);
+    }
+
+    @Test
+    void removeMovesTheLastObjectIntoTheGap() {
+        ActiveSet set = new ActiveSet();
+        Ticker a = new Ticker(0, 5), b = new Ticker(1, 5), c = new Ticker(2, 5);
+        set.add(a);
+        set.add(b);
+        set.add(c);
+
+        set.remove(a);
+        assertEquals(-1, a.activeIndex);
+        assertEquals(0, c.activeIndex);
+        assertEquals(1, b.activeIndex);
+        set.remove(a);
+        assertEquals(2, set.size());
+
+        set.tick(0.1f);
+        assertEquals(0, a.ticked);
+        assertEquals(1, b.ticked);
+        assertEquals(1, c.ticked);
+    }
+
+    @Test
+    void clearResetsEveryIndex() {
+        ActiveSet set = new ActiveSet();
+        Ticker a = new Ticker(0, 5), b = new Ticker(1, 5);
+        set.add(a);
+        set.add(b);
+        set.clear();
+        assertTrue(set.isEmpty());
+        assertEquals(-1, a.activeIndex);
+        assertEquals(-1, b.activeIndex);
+        set.add(b);
+        assertEquals(0, b.activeIndex);
+    }
+}
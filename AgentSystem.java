@@ -0,0 +1,790 @@
+package de.tum.cit.aet.valleyday.map;
+
+import com.badlogic.gdx.math.MathUtils;
+import com.badlogic.gdx.utils.LongArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The crows and farm animals: everything that moves on its own apart from the player.
+ * <p>
+ * Agents have no objects and no Box2D bodies. Their state lives in parallel primitive arrays indexed by agent,
+ * animals are steered against the map's walkability grid and crows fly over it. Every tick
+ * <ol>
+ *     <li>sorts the agents by the {@link #CELL_TILES}-tile cell they are in (one primitive sort of packed
+ *     cell/agent keys, O(n log n) in the agents and independent of the map size), so a neighbour query only
+ *     looks at the 3×3 cells around an agent, found with a binary search per row of cells;</li>
+ *     <li>updates the agents, in parallel chunks of {@link #CHUNK_SIZE} once there are enough of them.
+ *     An agent reads the positions of the previous tick and writes only its own slots, so the result does not
+ *     depend on how the chunks were scheduled and replays stay deterministic;</li>
+ *     <li>applies what changes the map (a crow eating a crop) and drops the crows that left, in agent order.</li>
+ * </ol>
+ * Mature crops are counted per {@link #CROP_CELL_TILES}-tile cell from the map's tile changes, so a crow looking
+ * for food only scans cells that have some. Agents further than {@link #LOD_DISTANCE} tiles from the player can
+ * be updated every {@link #LOD_INTERVAL}th tick with a longer step instead ({@link #setLodEnabled}).
+ * </p>
+ * <p>
+ * Animals lie down when the player stands still and get up again when the player moves close by, and crows leave
+ * after eating, so an idle farm still becomes quiescent ({@link #isSettled()}). Crows are attracted by crops that
+ * ripen while the farm is live; a hibernated farm is not visited.
+ * </p>
+ */
+public final class AgentSystem implements TileChangeListener {
+
+    /* Agent kinds. */
+    public static final byte ANIMAL = 0;
+    public static final byte CROW = 1;
+
+    /* Agent states. */
+    private static final byte WANDER = 0;
+    private static final byte REST = 1;
+    private static final byte ASLEEP = 2;
+    private static final byte SEEK = 3;
+    private static final byte EAT = 4;
+    private static final byte LEAVE = 5;
+    private static final byte GONE = 6;
+
+    /** Hard limit; spawns beyond it are dropped. */
+    public static final int MAX_AGENTS = 16384;
+    /** Agents per parallel task, and below twice this many the update runs on the calling thread. */
+    static final int CHUNK_SIZE = 1024;
+    /** Edge length of a neighbour cell in tiles. */
+    static final int CELL_TILES = 2;
+    /** Edge length of a crop cell in tiles. */
+    static final int CROP_CELL_TILES = 8;
+    /** A crow looks for food this many crop cells around its own. */
+    private static final int SEARCH_CELLS = 3;
+    /** How far an animal on a tile that became blocked is moved at most, see {@link #relocateStranded()}. */
+    private static final int RELOCATE_RADIUS = 8;
+
+    /** With LOD on, agents further from the player than this (in tiles) are updated less often. */
+    public static final float LOD_DISTANCE = 24f;
+    public static final int LOD_INTERVAL = 4;
+
+    private static final float ANIMAL_SPEED = 1f;
+    private static final float CROW_SPEED = 4f;
+    private static final float SEPARATION_RADIUS = 0.75f;
+    private static final float SEPARATION_PUSH = 2f;
+    /** Neighbours looked at per agent and tick; more make no visible difference in a crowd. */
+    private static final int MAX_NEIGHBOURS = 8;
+    /** Chance per second that a wandering animal picks a new heading. */
+    private static final float TURN_RATE = 0.5f;
+    private static final float WAKE_RADIUS = 8f;
+    private static final float SCARE_RADIUS = 2.5f;
+    private static final float EAT_SECONDS = 1.5f;
+    private static final float RETARGET_SECONDS = 0.5f;
+    /** Chance that a crop turning ripe attracts a crow. */
+    private static final float CROW_CHANCE = 0.25f;
+
+    private static final int THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    /** 中文：所有地图共用一个线程池，农场服务器上也不会每个农场都开一组线程 */
+    private static ExecutorService pool;
+
+    private final GameMap map;
+
+    /* Agent state, one slot per agent. x / y are read by everyone during the update, nextX / nextY written by the owner. */
+    private int count;
+    private float[] x = new float[64];
+    private float[] y = new float[64];
+    private float[] nextX = new float[64];
+    private float[] nextY = new float[64];
+    private float[] vx = new float[64];
+    private float[] vy = new float[64];
+    private float[] timer = new float[64];
+    private byte[] kind = new byte[64];
+    private byte[] state = new byte[64];
+    /** Which of the {@link #LOD_INTERVAL} ticks a far-away agent is updated on. */
+    private byte[] lodPhase = new byte[64];
+    /** xorshift state per agent, so random decisions do not depend on the update order. */
+    private int[] rng = new int[64];
+    /** The crop tile a crow is heading for, -1 if none. */
+    private long[] target = new long[64];
+    /** The crop tile a crow finished eating this tick, -1 if none; applied after the parallel part. */
+    private long[] eaten = new long[64];
+
+    /* Neighbour cells: the agents sorted by (cell << 32 | agent), rebuilt every tick. */
+    private int columns;
+    private int rows;
+    private long[] cellKeys = new long[64];
+
+    /* Mature crops, kept up to date from the tile changes. */
+    private int width;
+    private int height;
+    private long[] matureTiles = new long[0];
+    private int cropColumns;
+    private int[] matureInCell = new int[0];
+
+    /** Crop tiles that attracted a crow; the crows are spawned at the start of the next update. */
+    private final LongArray pendingCrows = new LongArray();
+    private int systemRng = 1;
+    private int awake;
+    private long tick;
+    private boolean lodEnabled = true;
+
+    /* Read by the update, set once per tick. */
+    private float playerX;
+    private float playerY;
+    private boolean playerMoving;
+
+    private final List<ChunkTask> chunkTasks = new ArrayList<>();
+    private final List<ChunkTask> scheduled = new ArrayList<>();
+
+    AgentSystem(GameMap map) {
+        this.map = map;
+    }
+
+    /**
+     * Removes every agent and sizes the grids for a newly loaded map.
+     * @param seed the map seed; crows spawn from a random sequence derived from it
+     */
+    void reset(int width, int height, long seed) {
+        this.width = width;
+        this.height = height;
+        count = 0;
+        awake = 0;
+        tick = 0;
+        pendingCrows.clear();
+        systemRng = seedOf(seed, 0x5DEECE66DL);
+        columns = (width + CELL_TILES - 1) / CELL_TILES + 2; // 中文：地图外面各留一圈，给飞进飞出的乌鸦
+        rows = (height + CELL_TILES - 1) / CELL_TILES + 2;
+        matureTiles = new long[(width * height + 63) >>> 6];
+        cropColumns = (width + CROP_CELL_TILES - 1) / CROP_CELL_TILES;
+        matureInCell = new int[cropColumns * ((height + CROP_CELL_TILES - 1) / CROP_CELL_TILES)];
+    }
+
+    private static int seedOf(long seed, long salt) {
+        int s = (int) ((seed ^ salt) ^ ((seed ^ salt) >>> 32));
+        return s == 0 ? 1 : s; // xorshift 不能从 0 开始
+    }
+
+    /**
+     * Puts animals on random walkable tiles.
+     * @param animals how many to add
+     * @param seed the same seed always gives the same herd
+     */
+    public void spawnAnimals(int animals, long seed) {
+        int random = seedOf(seed, 0x2545F4914F6CDD1DL);
+        int attempts = animals * 8;
+        for (int n = 0; n < animals && attempts > 0; attempts--) {
+            random = xorshift(random);
+            int tx = Math.floorMod(random, Math.max(1, width));
+            random = xorshift(random);
+            int ty = Math.floorMod(random, Math.max(1, height));
+            if (!map.isWalkable(tx, ty)) continue;
+            random = xorshift(random);
+            if (spawn(ANIMAL, tx, ty, random) < 0) return;
+            n++;
+        }
+    }
+
+    private int spawn(byte agentKind, float ax, float ay, int seed) {
+        if (count == MAX_AGENTS) return -1;
+        if (count == x.length) grow();
+        int i = count++;
+        x[i] = ax;
+        y[i] = ay;
+        nextX[i] = ax;
+        nextY[i] = ay;
+        vx[i] = 0;
+        vy[i] = 0;
+        kind[i] = agentKind;
+        rng[i] = seed == 0 ? 1 : seed;
+        lodPhase[i] = (byte) Math.floorMod(seed, LOD_INTERVAL);
+        target[i] = -1;
+        eaten[i] = -1;
+        if (agentKind == ANIMAL) {
+            state[i] = WANDER;
+            timer[i] = 3f + 5f * nextFloat(i);
+            pickHeading(i, ANIMAL_SPEED);
+        } else {
+            state[i] = SEEK;
+            timer[i] = 0;
+        }
+        awake++;
+        return i;
+    }
+
+    private void grow() {
+        int capacity = Math.min(MAX_AGENTS, x.length * 2);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        nextX = Arrays.copyOf(nextX, capacity);
+        nextY = Arrays.copyOf(nextY, capacity);
+        vx = Arrays.copyOf(vx, capacity);
+        vy = Arrays.copyOf(vy, capacity);
+        timer = Arrays.copyOf(timer, capacity);
+        kind = Arrays.copyOf(kind, capacity);
+        state = Arrays.copyOf(state, capacity);
+        lodPhase = Arrays.copyOf(lodPhase, capacity);
+        rng = Arrays.copyOf(rng, capacity);
+        target = Arrays.copyOf(target, capacity);
+        eaten = Arrays.copyOf(eaten, capacity);
+        cellKeys = new long[capacity];
+    }
+
+    /**
+     * Advances all agents by one tick. Called by the map on the logic thread.
+     * @param delta tick length in seconds
+     * @param playerX player position in tiles
+     * @param playerY player position in tiles
+     * @param playerMoving whether the player is walking; animals only get up for a moving player
+     */
+    void update(float delta, float playerX, float playerY, boolean playerMoving) {
+        spawnPendingCrows();
+        if (count == 0) return;
+        tick++;
+        this.playerX = playerX;
+        this.playerY = playerY;
+        this.playerMoving = playerMoving;
+
+        buildGrid();
+        if (count < 2 * CHUNK_SIZE) {
+            updateRange(0, count, delta);
+        } else {
+            updateParallel(delta);
+        }
+        float[] swap = x; x = nextX; nextX = swap;
+        swap = y; y = nextY; nextY = swap;
+        applyEffects();
+    }
+
+    private void spawnPendingCrows() {
+        for (int n = 0; n < pendingCrows.size; n++) {
+            long key = pendingCrows.get(n);
+            systemRng = xorshift(systemRng);
+            // 中文：从地图边缘随机一点飞进来
+            int edge = Math.floorMod(systemRng, 4);
+            systemRng = xorshift(systemRng);
+            float along = (systemRng >>> 8) / (float) (1 << 24);
+            float sx, sy;
+            switch (edge) {
+                case 0:  sx = -1;    sy = along * height; break;
+                case 1:  sx = width; sy = along * height; break;
+                case 2:  sx = along * width; sy = -1;     break;
+                default: sx = along * width; sy = height; break;
+            }
+            systemRng = xorshift(systemRng);
+            int i = spawn(CROW, sx, sy, systemRng);
+            if (i >= 0) target[i] = key;
+        }
+        pendingCrows.clear();
+    }
+
+    /** Sorts the agents by neighbour cell; within a cell they stay in index order, whatever the threads do. */
+    private void buildGrid() {
+        for (int i = 0; i < count; i++) {
+            cellKeys[i] = (long) cellOf(x[i], y[i]) << 32 | i;
+        }
+        Arrays.sort(cellKeys, 0, count);
+    }
+
+    /** @return the first position in the sorted keys whose cell is {@code cell} or later */
+    private int firstInCell(int cell) {
+        int i = Arrays.binarySearch(cellKeys, 0, count, (long) cell << 32);
+        return i >= 0 ? i : -i - 1;
+    }
+
+    private int cellOf(float ax, float ay) {
+        int cx = Math.min(columns - 1, Math.max(0, (int) Math.floor(ax / CELL_TILES) + 1));
+        int cy = Math.min(rows - 1, Math.max(0, (int) Math.floor(ay / CELL_TILES) + 1));
+        return cy * columns + cx;
+    }
+
+    private void updateParallel(float delta) {
+        scheduled.clear();
+        for (int start = 0, n = 0; start < count; start += CHUNK_SIZE, n++) {
+            if (n == chunkTasks.size()) chunkTasks.add(new ChunkTask());
+            ChunkTask task = chunkTasks.get(n);
+            task.start = start;
+            task.end = Math.min(count, start + CHUNK_SIZE);
+            task.delta = delta;
+            scheduled.add(task);
+        }
+        try {
+            for (Future<Void> future : pool().invokeAll(scheduled)) {
+                future.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while updating agents", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Agent update failed", e.getCause());
+        }
+    }
+
+    private static synchronized ExecutorService pool() {
+        if (pool == null) {
+            pool = Executors.newFixedThreadPool(THREADS, runnable -> {
+                Thread thread = new Thread(runnable, "Agents");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return pool;
+    }
+
+    private final class ChunkTask implements Callable<Void> {
+        int start;
+        int end;
+        float delta;
+
+        @Override
+        public Void call() {
+            updateRange(start, end, delta);
+            return null;
+        }
+    }
+
+    private void updateRange(int start, int end, float delta) {
+        float lodDistance2 = LOD_DISTANCE * LOD_DISTANCE;
+        int phase = (int) (tick % LOD_INTERVAL);
+        for (int i = start; i < end; i++) {
+            float step = delta;
+            if (lodEnabled) {
+                float dx = x[i] - playerX, dy = y[i] - playerY;
+                if (dx * dx + dy * dy > lodDistance2) {
+                    if (lodPhase[i] != phase) {
+                        nextX[i] = x[i];
+                        nextY[i] = y[i];
+                        continue;
+                    }
+                    step = delta * LOD_INTERVAL; // 中文：远处的少更新几次，每次走得远一点
+                }
+            }
+            if (kind[i] == ANIMAL) {
+                updateAnimal(i, step);
+            } else {
+                updateCrow(i, step);
+            }
+        }
+    }
+
+    private void updateAnimal(int i, float delta) {
+        float px = x[i], py = y[i];
+        nextX[i] = px;
+        nextY[i] = py;
+        switch (state[i]) {
+            case ASLEEP:
+                if (!playerMoving || !isNear(px, py, playerX, playerY, WAKE_RADIUS)) return;
+                startWandering(i);
+                return;
+            case REST:
+                timer[i] -= delta;
+                if (timer[i] > 0) return;
+                if (playerMoving) {
+                    startWandering(i);
+                } else {
+                    state[i] = ASLEEP; // 玩家不动就趴下睡觉，农场才能静止下来
+                }
+                return;
+            default:
+                break;
+        }
+
+        timer[i] -= delta;
+        if (timer[i] <= 0) {
+            state[i] = REST;
+            timer[i] = 2f + 4f * nextFloat(i);
+            return;
+        }
+        if (nextFloat(i) < TURN_RATE * delta) pickHeading(i, ANIMAL_SPEED);
+
+        // 分离：离得太近的同伴互相推开，只看周围 3×3 个格子
+        float pushX = 0, pushY = 0;
+        int seen = 0;
+        int cell = cellOf(px, py);
+        int cx = cell % columns, cy = cell / columns;
+        for (int ny = Math.max(0, cy - 1); ny <= Math.min(rows - 1, cy + 1) && seen < MAX_NEIGHBOURS; ny++) {
+            // 中文：一行里相邻的三个格子在排序后的数组里是连续的一段
+            int end = firstInCell(ny * columns + Math.min(columns - 1, cx + 1) + 1);
+            for (int k = firstInCell(ny * columns + Math.max(0, cx - 1)); k < end && seen < MAX_NEIGHBOURS; k++) {
+                int j = (int) cellKeys[k];
+                if (j == i || kind[j] != ANIMAL) continue;
+                float dx = px - x[j], dy = py - y[j];
+                float d2 = dx * dx + dy * dy;
+                if (d2 >= SEPARATION_RADIUS * SEPARATION_RADIUS || d2 == 0) continue;
+                float d = (float) Math.sqrt(d2);
+                float strength = (SEPARATION_RADIUS - d) / (SEPARATION_RADIUS * d);
+                pushX += dx * strength;
+                pushY += dy * strength;
+                seen++;
+            }
+        }
+        float moveX = vx[i] + pushX * SEPARATION_PUSH;
+        float moveY = vy[i] + pushY * SEPARATION_PUSH;
+        float length = (float) Math.sqrt(moveX * moveX + moveY * moveY);
+        if (length > ANIMAL_SPEED) {
+            moveX *= ANIMAL_SPEED / length;
+            moveY *= ANIMAL_SPEED / length;
+        }
+
+        // 按轴分别试走，撞到不能走的格子就沿这个轴掉头
+        float tx = px + moveX * delta;
+        if (walkable(tx, py)) {
+            px = tx;
+        } else {
+            vx[i] = -vx[i];
+        }
+        float ty = py + moveY * delta;
+        if (walkable(px, ty)) {
+            py = ty;
+        } else {
+            vy[i] = -vy[i];
+        }
+        nextX[i] = px;
+        nextY[i] = py;
+    }
+
+    private void startWandering(int i) {
+        state[i] = WANDER;
+        timer[i] = 3f + 5f * nextFloat(i);
+        pickHeading(i, ANIMAL_SPEED);
+    }
+
+    private void updateCrow(int i, float delta) {
+        float px = x[i], py = y[i];
+        nextX[i] = px;
+        nextY[i] = py;
+        if (state[i] != LEAVE && isNear(px, py, playerX, playerY, SCARE_RADIUS)) {
+            leave(i, px, py);
+        }
+        switch (state[i]) {
+            case SEEK: {
+                timer[i] -= delta;
+                if (target[i] < 0 || !isMature(target[i])) {
+                    if (timer[i] > 0) return;
+                    timer[i] = RETARGET_SECONDS;
+                    target[i] = findCrop(px, py);
+                    if (target[i] < 0) {
+                        leave(i, px, py);
+                        return;
+                    }
+                }
+                float dx = TileKeys.x(target[i]) - px, dy = TileKeys.y(target[i]) - py;
+                float distance = (float) Math.sqrt(dx * dx + dy * dy);
+                float travel = CROW_SPEED * delta;
+                if (distance <= travel) {
+                    nextX[i] = TileKeys.x(target[i]);
+                    nextY[i] = TileKeys.y(target[i]);
+                    state[i] = EAT;
+                    timer[i] = EAT_SECONDS;
+                } else {
+                    nextX[i] = px + dx / distance * travel;
+                    nextY[i] = py + dy / distance * travel;
+                }
+                return;
+            }
+            case EAT:
+                if (!isMature(target[i])) {
+                    state[i] = SEEK; // 别人先吃掉了，或者被玩家收了
+                    timer[i] = 0;
+                    return;
+                }
+                timer[i] -= delta;
+                if (timer[i] <= 0) {
+                    eaten[i] = target[i];
+                    leave(i, px, py);
+                }
+                return;
+            case LEAVE:
+                nextX[i] = px + vx[i] * delta;
+                nextY[i] = py + vy[i] * delta;
+                if (nextX[i] < -2 || nextY[i] < -2 || nextX[i] > width + 1 || nextY[i] > height + 1) {
+                    state[i] = GONE;
+                }
+                return;
+            default:
+                break;
+        }
+    }
+
+    /** 中文：背对玩家飞走 */
+    private void leave(int i, float px, float py) {
+        state[i] = LEAVE;
+        target[i] = -1;
+        float dx = px - playerX, dy = py - playerY;
+        float length = (float) Math.sqrt(dx * dx + dy * dy);
+        if (length < 1e-3f) {
+            dx = 0;
+            dy = 1;
+            length = 1;
+        }
+        vx[i] = dx / length * CROW_SPEED;
+        vy[i] = dy / length * CROW_SPEED;
+    }
+
+    /** @return the nearest mature crop within {@link #SEARCH_CELLS} crop cells, or -1 */
+    private long findCrop(float px, float py) {
+        if (cropColumns == 0) return -1;
+        int cropRows = matureInCell.length / cropColumns;
+        int ccx = Math.min(cropColumns - 1, Math.max(0, (int) px / CROP_CELL_TILES));
+        int ccy = Math.min(cropRows - 1, Math.max(0, (int) py / CROP_CELL_TILES));
+        long best = -1;
+        float bestDistance = Float.MAX_VALUE;
+        for (int cy = Math.max(0, ccy - SEARCH_CELLS); cy <= Math.min(cropRows - 1, ccy + SEARCH_CELLS); cy++) {
+            for (int cx = Math.max(0, ccx - SEARCH_CELLS); cx <= Math.min(cropColumns - 1, ccx + SEARCH_CELLS); cx++) {
+                if (matureInCell[cy * cropColumns + cx] == 0) continue; // 没有熟作物的格子直接跳过
+                int x0 = cx * CROP_CELL_TILES, y0 = cy * CROP_CELL_TILES;
+                for (int ty = y0; ty < Math.min(height, y0 + CROP_CELL_TILES); ty++) {
+                    for (int tx = x0; tx < Math.min(width, x0 + CROP_CELL_TILES); tx++) {
+                        if (!isMatureTile(tx, ty)) continue;
+                        float dx = tx - px, dy = ty - py;
+                        float distance = dx * dx + dy * dy;
+                        if (distance < bestDistance) {
+                            bestDistance = distance;
+                            best = TileKeys.pack(tx, ty);
+                        }
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Moves every animal that stands on a tile that is no longer walkable (a hot reload put a fence on it) to the
+     * closest walkable tile of the nearest ring around it that has one, up to {@link #RELOCATE_RADIUS} tiles away,
+     * and drops it if there is none. Called by the map
+     * on the logic thread after it changed the walkability of tiles.
+     */
+    void relocateStranded() {
+        boolean dropped = false;
+        for (int i = 0; i < count; i++) {
+            if (kind[i] != ANIMAL || walkable(x[i], y[i])) continue;
+            long free = nearestWalkable(Math.round(x[i]), Math.round(y[i]));
+            if (free < 0) {
+                state[i] = GONE;
+                dropped = true;
+                continue;
+            }
+            x[i] = nextX[i] = TileKeys.x(free);
+            y[i] = nextY[i] = TileKeys.y(free);
+        }
+        if (dropped) applyEffects();
+    }
+
+    /** @return the walkable tile closest to the given one, searched ring by ring, or -1 */
+    private long nearestWalkable(int tx, int ty) {
+        for (int r = 1; r <= RELOCATE_RADIUS; r++) {
+            long best = -1;
+            int bestDistance = Integer.MAX_VALUE;
+            for (int dy = -r; dy <= r; dy++) {
+                // 中文：只看这一圈的格子，里面的几圈已经看过了
+                int step = (dy == -r || dy == r) ? 1 : 2 * r;
+                for (int dx = -r; dx <= r; dx += step) {
+                    if (!map.isWalkable(tx + dx, ty + dy)) continue;
+                    int distance = dx * dx + dy * dy;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = TileKeys.pack(tx + dx, ty + dy);
+                    }
+                }
+            }
+            if (best >= 0) return best;
+        }
+        return -1;
+    }
+
+    /** Serial part of the tick: crops eaten by crows, crows that left, and the awake count. */
+    private void applyEffects() {
+        int write = 0;
+        awake = 0;
+        for (int i = 0; i < count; i++) {
+            if (eaten[i] >= 0) {
+                long key = eaten[i];
+                eaten[i] = -1;
+                if (isMature(key)) map.eatCrop(TileKeys.x(key), TileKeys.y(key));
+            }
+            if (state[i] == GONE) continue;
+            if (state[i] != ASLEEP) awake++;
+            if (write != i) moveSlot(i, write);
+            write++;
+        }
+        count = write;
+    }
+
+    private void moveSlot(int from, int to) {
+        x[to] = x[from];
+        y[to] = y[from];
+        vx[to] = vx[from];
+        vy[to] = vy[from];
+        timer[to] = timer[from];
+        kind[to] = kind[from];
+        state[to] = state[from];
+        lodPhase[to] = lodPhase[from];
+        rng[to] = rng[from];
+        target[to] = target[from];
+        eaten[to] = eaten[from];
+    }
+
+    private boolean walkable(float ax, float ay) {
+        return map.isWalkable(Math.round(ax), Math.round(ay));
+    }
+
+    private static boolean isNear(float ax, float ay, float bx, float by, float radius) {
+        float dx = ax - bx, dy = ay - by;
+        return dx * dx + dy * dy < radius * radius;
+    }
+
+    private void pickHeading(int i, float speed) {
+        float angle = nextFloat(i) * MathUtils.PI2;
+        vx[i] = MathUtils.cos(angle) * speed;
+        vy[i] = MathUtils.sin(angle) * speed;
+    }
+
+    private float nextFloat(int i) {
+        rng[i] = xorshift(rng[i]);
+        return (rng[i] >>> 8) / (float) (1 << 24);
+    }
+
+    private static int xorshift(int s) {
+        s ^= s << 13;
+        s ^= s >>> 17;
+        s ^= s << 5;
+        return s;
+    }
+
+    // ----- mature crop index -----
+
+    private boolean isMature(long key) {
+        return isMatureTile(TileKeys.x(key), TileKeys.y(key));
+    }
+
+    private boolean isMatureTile(int tx, int ty) {
+        if (tx < 0 || ty < 0 || tx >= width || ty >= height) return false;
+        int bit = ty * width + tx;
+        return (matureTiles[bit >>> 6] & (1L << bit)) != 0;
+    }
+
+    private void setMature(int tx, int ty, boolean mature) {
+        int bit = ty * width + tx;
+        boolean was = (matureTiles[bit >>> 6] & (1L << bit)) != 0;
+        if (was == mature) return;
+        int cell = (ty / CROP_CELL_TILES) * cropColumns + tx / CROP_CELL_TILES;
+        if (mature) {
+            matureTiles[bit >>> 6] |= 1L << bit;
+            matureInCell[cell]++;
+        } else {
+            matureTiles[bit >>> 6] &= ~(1L << bit);
+            matureInCell[cell]--;
+        }
+    }
+
+    @Override
+    public void onTileChanged(GameMap map, int x, int y) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return;
+        Crop crop = map.getCropAt(x, y);
+        boolean mature = crop != null && crop.isHarvestable();
+        boolean was = isMatureTile(x, y);
+        setMature(x, y, mature);
+        if (mature && !was) {
+            systemRng = xorshift(systemRng);
+            if ((systemRng >>> 8) / (float) (1 << 24) < CROW_CHANCE) pendingCrows.add(TileKeys.pack(x, y));
+        }
+    }
+
+    @Override
+    public void onMapLoaded(GameMap map) {
+        Arrays.fill(matureTiles, 0);
+        Arrays.fill(matureInCell, 0);
+        List<Crop> crops = map.getCrops();
+        for (int i = 0; i < crops.size(); i++) {
+            Crop crop = crops.get(i);
+            int cx = Math.round(crop.getX()), cy = Math.round(crop.getY());
+            if (crop.isHarvestable() && cx >= 0 && cy >= 0 && cx < width && cy < height) setMature(cx, cy, true);
+        }
+    }
+
+    // ----- queries -----
+
+    /**
+     * Whether no agent is doing anything: every animal is asleep and no crow is around or on its way.
+     * See {@link GameMap#isQuiescent()}.
+     */
+    public boolean isSettled() {
+        return awake == 0 && pendingCrows.size == 0;
+    }
+
+    /**
+     * Turns the reduced update rate for far-away agents on or off. With LOD on a replay only matches
+     * a run that had it on as well.
+     */
+    public void setLodEnabled(boolean lodEnabled) {
+        this.lodEnabled = lodEnabled;
+    }
+
+    public boolean isLodEnabled() {
+        return lodEnabled;
+    }
+
+    public int size() { return count; }
+    public byte getKind(int i) { return kind[i]; }
+    public float getX(int i) { return x[i]; }
+    public float getY(int i) { return y[i]; }
+
+    // ----- snapshots -----
+
+    /** The complete agent state at the end of a tick, see {@link MapSnapshot}. */
+    static final class State {
+        final int count;
+        final float[] x, y, vx, vy, timer;
+        final byte[] kind, state, lodPhase;
+        final int[] rng;
+        final long[] target;
+        final long[] pendingCrows;
+        final int systemRng;
+        final int awake;
+        final long tick;
+
+        State(AgentSystem agents) {
+            count = agents.count;
+            x = Arrays.copyOf(agents.x, count);
+            y = Arrays.copyOf(agents.y, count);
+            vx = Arrays.copyOf(agents.vx, count);
+            vy = Arrays.copyOf(agents.vy, count);
+            timer = Arrays.copyOf(agents.timer, count);
+            kind = Arrays.copyOf(agents.kind, count);
+            state = Arrays.copyOf(agents.state, count);
+            lodPhase = Arrays.copyOf(agents.lodPhase, count);
+            rng = Arrays.copyOf(agents.rng, count);
+            target = Arrays.copyOf(agents.target, count);
+            pendingCrows = agents.pendingCrows.toArray();
+            systemRng = agents.systemRng;
+            awake = agents.awake;
+            tick = agents.tick;
+        }
+    }
+
+    State snapshot() {
+        return new State(this);
+    }
+
+    /** Puts the agents back into a captured state; the map must have been loaded with the same size. */
+    void restore(State s) {
+        while (x.length < s.count) grow();
+        count = s.count;
+        System.arraycopy(s.x, 0, x, 0, count);
+        System.arraycopy(s.y, 0, y, 0, count);
+        System.arraycopy(s.vx, 0, vx, 0, count);
+        System.arraycopy(s.vy, 0, vy, 0, count);
+        System.arraycopy(s.timer, 0, timer, 0, count);
+        System.arraycopy(s.kind, 0, kind, 0, count);
+        System.arraycopy(s.state, 0, state, 0, count);
+        System.arraycopy(s.lodPhase, 0, lodPhase, 0, count);
+        System.arraycopy(s.rng, 0, rng, 0, count);
+        System.arraycopy(s.target, 0, target, 0, count);
+        Arrays.fill(eaten, 0, count, -1);
+        pendingCrows.clear();
+        pendingCrows.addAll(s.pendingCrows);
+        systemRng = s.systemRng;
+        awake = s.awake;
+        tick = s.tick;
+    }
+}
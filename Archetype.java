@@ -0,0 +1,227 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * Dense storage for all entities of one kind, registered with an {@link EntityStore}.
+ * <p>
+ * The entities and their tile positions sit in two parallel arrays without gaps, so a loop over an
+ * archetype never skips holes and can read positions without touching the objects. Every entity remembers
+ * its slot ({@link GameObject#entityIndex}), which makes {@link #remove(Object)} O(1): the last entity moves
+ * into the freed slot. The order of the slots is therefore not stable; code that cares about the order, like
+ * the render snapshot, walks {@link #drawOrder()} instead.
+ * </p>
+ * <p>
+ * An archetype can keep more per-entity data in {@link Columns} of its own (the growth state of the crops), which
+ * it keeps in step with the slots through every add and removal.
+ * </p>
+ * It is also a {@link java.util.List}, so code written against the old per-type lists keeps working.
+ * @param <T> the entity class
+ */
+public final class Archetype<T extends GameObject> extends AbstractList<T> implements RandomAccess {
+
+    private final Class<T> type;
+    private final int components;
+    /** What the renderers treat the entities as, see {@link EntityStore#KIND_FLOWERS}. */
+    private final byte kind;
+    /** Extra per-entity data in parallel arrays, or null. */
+    private final Columns<? super T> columns;
+
+    private GameObject[] objects = new GameObject[16];
+    /** Packed tile key ({@link TileKeys}) of each entity, the position component. */
+    private long[] tileKeys = new long[16];
+    private int size;
+
+    /* Slots sorted by position, rebuilt lazily after the archetype changed; see drawOrder(). */
+    private int[] drawOrder = new int[0];
+    private long[] drawOrderKeys = new long[0];
+    private int drawOrderModCount = -1;
+
+    Archetype(Class<T> type, int components, byte kind, Columns<? super T> columns) {
+        this.type = type;
+        this.components = components;
+        this.kind = kind;
+        this.columns = columns;
+        if (columns != null) columns.ensureCapacity(objects.length);
+    }
+
+    public Class<T> getType() {
+        return type;
+    }
+
+    /** @return the {@link EntityStore} component flags every entity of this archetype has */
+    public int getComponents() {
+        return components;
+    }
+
+    /** @return the render kind given at registration, e.g. {@link EntityStore#KIND_CROP} */
+    public byte getKind() {
+        return kind;
+    }
+
+    /** @return the archetype's own per-entity columns, or null */
+    Columns<? super T> getColumns() {
+        return columns;
+    }
+
+    /** @return whether the archetype has all the given component flags */
+    public boolean has(int mask) {
+        return (components & mask) == mask;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        return (T) objects[index];
+    }
+
+    /** @return a counter that goes up with every add and removal, so callers can tell that the archetype changed */
+    public int getModCount() {
+        return modCount;
+    }
+
+    /** @return the packed tile key of the entity in the given slot */
+    public long getTileKey(int index) {
+        if (index >= size) throw new IndexOutOfBoundsException("Index " + index + ", size " + size);
+        return tileKeys[index];
+    }
+
+    /**
+     * Returns the slots sorted top row first and left to right within a row, the order in which sprites that
+     * overlap their neighbours have to be drawn. The result does not depend on the order of adds and removals,
+     * so a removal never swaps two sprites on screen. Only the first {@link #size()} entries are valid.
+     * <p>
+     * Rebuilt (one primitive sort) only after the archetype changed, so while nothing is added or removed this
+     * costs nothing. Not thread-safe, like the rest of the archetype.
+     * </p>
+     */
+    public int[] drawOrder() {
+        if (drawOrderModCount == modCount) return drawOrder;
+        if (drawOrder.length < size) {
+            drawOrder = new int[objects.length];
+            drawOrderKeys = new long[objects.length];
+        }
+        for (int i = 0; i < size; i++) {
+            drawOrderKeys[i] = drawOrderKey(TileKeys.x(tileKeys[i]), TileKeys.y(tileKeys[i]), i);
+        }
+        Arrays.sort(drawOrderKeys, 0, size);
+        for (int i = 0; i < size; i++) {
+            drawOrder[i] = (int) (drawOrderKeys[i] & 0xFFFFFF);
+        }
+        drawOrderModCount = modCount;
+        return drawOrder;
+    }
+
+    /**
+     * Finds where a tile falls in {@link #drawOrder()}: the first position whose entity is at or after the tile
+     * (rows top first, left to right). The entities of row {@code y} with x in {@code [minX, maxX]} are the
+     * positions from {@code drawOrderFrom(minX, y)} up to {@code drawOrderFrom(maxX + 1, y)}, so a caller can walk
+     * the part of the map on screen without looking at the rest.
+     */
+    public int drawOrderFrom(int x, int y) {
+        drawOrder();
+        int i = Arrays.binarySearch(drawOrderKeys, 0, size, drawOrderKey(x, y, 0));
+        return i >= 0 ? i : -i - 1;
+    }
+
+    /** 中文：高位是倒过来的 y（上面的行先画），然后是 x，最低 24 位是槽位 */
+    private static long drawOrderKey(int x, int y, int slot) {
+        return ((long) (0x7FFFF - y) << 44) | ((long) (x & 0xFFFFF) << 24) | slot;
+    }
+
+    @Override
+    public boolean add(T object) {
+        if (size == objects.length) {
+            objects = Arrays.copyOf(objects, size * 2);
+            tileKeys = Arrays.copyOf(tileKeys, size * 2);
+            if (columns != null) columns.ensureCapacity(objects.length);
+        }
+        objects[size] = object;
+        tileKeys[size] = TileKeys.pack(object.x, object.y);
+        if (columns != null) columns.attach(object, size);
+        object.entityIndex = size++;
+        modCount++;
+        return true;
+    }
+
+    /** Removes the entity in the slot; the last entity takes its place. */
+    @Override
+    public T remove(int index) {
+        T removed = get(index);
+        if (columns != null) columns.detach(removed, index);
+        int last = --size;
+        if (index != last) {
+            objects[index] = objects[last];
+            tileKeys[index] = tileKeys[last];
+            if (columns != null) columns.move(last, index);
+            objects[index].entityIndex = index;
+        }
+        objects[last] = null;
+        removed.entityIndex = -1;
+        modCount++;
+        return removed;
+    }
+
+    @Override
+    public boolean remove(Object object) {
+        int index = indexOf(object);
+        if (index < 0) return false;
+        remove(index);
+        return true;
+    }
+
+    @Override
+    public int indexOf(Object object) {
+        if (!(object instanceof GameObject)) return -1;
+        int index = ((GameObject) object).entityIndex;
+        if (index >= 0 && index < size && objects[index] == object) return index;
+        // 中文：同一个对象可能先后放进过两个地图（比如快照里的工具），下标对不上时才退回线性查找
+        for (int i = 0; i < size; i++) {
+            if (objects[i] == object) return i;
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean contains(Object object) {
+        return indexOf(object) >= 0;
+    }
+
+    @Override
+    public void clear() {
+        for (int i = 0; i < size; i++) {
+            if (columns != null) columns.detach(type.cast(objects[i]), i);
+            if (objects[i].entityIndex == i) objects[i].entityIndex = -1;
+            objects[i] = null;
+        }
+        size = 0;
+        modCount++;
+    }
+
+    /**
+     * Per-entity data an archetype stores in arrays of its own, one row per slot. The archetype calls these as
+     * entities come and go, so row {@code i} always belongs to the entity in slot {@code i}.
+     * @param <T> the entity class
+     */
+    interface Columns<T> {
+        /** Makes room for at least {@code capacity} rows, keeping the existing ones. */
+        void ensureCapacity(int capacity);
+
+        /** Takes the entity's state into row {@code slot}; called when it is added. */
+        void attach(T object, int slot);
+
+        /** Hands the state of row {@code slot} back to the entity; called before it is removed. */
+        void detach(T object, int slot);
+
+        /** Copies row {@code from} to row {@code to}; called when the last entity takes a removed one's slot. */
+        void move(int from, int to);
+    }
+}
@@ -0,0 +1,198 @@
+package de.tum.cit.aet.valleyday.map;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArchetypeTest {
+
+    private static final class Marker extends GameObject {
+        Marker(int x, int y) {
+            super(x, y);
+        }
+
+        @Override
+        public TextureRegion getCurrentAppearance() {
+            return null;
+        }
+    }
+
+    private static Archetype<Marker> markers() {
+        return new EntityStore().register(Marker.class, EntityStore.RENDERABLE, EntityStore.KIND_OTHER);
+    }
+
+    private static Archetype<Crop> crops() {
+        return new EntityStore().register(Crop.class, EntityStore.RENDERABLE | EntityStore.GROWABLE,
+                EntityStore.KIND_CROP, new GrowthColumns());
+    }
+
+    @Test
+    void removeMovesTheLastEntityIntoTheSlot() {
+        Archetype<Marker> archetype = markers();
+        Marker a = new Marker(0, 0), b = new Marker(1, 0), c = new Marker(2, 0);
+        archetype.add(a);
+        archetype.add(b);
+        archetype.add(c);
+
+        assertTrue(archetype.remove(a));
+        assertEquals(2, archetype.size());
+        assertSame(c, archetype.get(0));
+        assertSame(b, archetype.get(1));
+        assertEquals(0, c.entityIndex);
+        assertEquals(-1, a.entityIndex);
+        assertEquals(TileKeys.pack(2, 0), archetype.getTileKey(0));
+        assertFalse(archetype.remove(a));
+        assertThrows(IndexOutOfBoundsException.class, () -> archetype.get(2));
+    }
+
+    @Test
+    void removingTheLastEntityMovesNothing() {
+        Archetype<Marker> archetype = markers();
+        Marker a = new Marker(0, 0), b = new Marker(1, 0);
+        archetype.add(a);
+        archetype.add(b);
+        archetype.remove(1);
+        assertEquals(1, archetype.size());
+        assertSame(a, archetype.get(0));
+        assertEquals(0, a.entityIndex);
+        assertEquals(-1, b.entityIndex);
+    }
+
+    @Test
+    void everyChangeBumpsTheModCount() {
+        Archetype<Marker> archetype = markers();
+        int before = archetype.getModCount();
+        Marker a = new Marker(0, 0);
+        archetype.add(a);
+        archetype.remove(a);
+        archetype.clear();
+        assertEquals(before + 3, archetype.getModCount());
+    }
+
+    @Test
+    void drawOrderIsTopRowFirstThenLeftToRight() {
+        Archetype<Marker> archetype = markers();
+        archetype.add(new Marker(3, 0));
+        archetype.add(new Marker(1, 2));
+        archetype.add(new Marker(0, 0));
+        archetype.add(new Marker(2, 2));
+        archetype.add(new Marker(5, 1));
+
+        int[] order = archetype.drawOrder();
+        int[][] expected = {{1, 2}, {2, 2}, {5, 1}, {0, 0}, {3, 0}};
+        for (int i = 0; i < expected.length; i++) {
+            Marker marker = archetype.get(order[i]);
+            assertEquals(expected[i][0], (int) marker.getX());
+            assertEquals(expected[i][1], (int) marker.getY());
+        }
+    }
+
+    @Test
+    void drawOrderDoesNotDependOnRemovals() {
+        Archetype<Marker> archetype = markers();
+        Marker[] markers = new Marker[6];
+        for (int i = 0; i < markers.length; i++) {
+            markers[i] = new Marker(i, i % 2);
+            archetype.add(markers[i]);
+        }
+        archetype.remove(markers[1]);
+        archetype.remove(markers[4]);
+
+        // 中文：删除会打乱槽位，但画的顺序只看位置
+        int[] order = archetype.drawOrder();
+        Marker[] expected = {markers[3], markers[5], markers[0], markers[2]};
+        for (int i = 0; i < expected.length; i++) {
+            assertSame(expected[i], archetype.get(order[i]));
+        }
+    }
+
+    @Test
+    void drawOrderIsRebuiltOnlyAfterAChange() {
+        Archetype<Marker> archetype = markers();
+        archetype.add(new Marker(0, 0));
+        int[] first = archetype.drawOrder();
+        assertSame(first, archetype.drawOrder());
+        archetype.add(new Marker(0, 1));
+        assertSame(archetype.get(1), archetype.get(archetype.drawOrder()[0]));
+    }
+
+    @Test
+    void drawOrderFromFindsTheEntitiesOfARowRange() {
+        Archetype<Marker> archetype = markers();
+        for (int y = 0; y < 4; y++) {
+            for (int x = 0; x < 8; x += 2) archetype.add(new Marker(x, y));
+        }
+        int from = archetype.drawOrderFrom(2, 1);
+        int to = archetype.drawOrderFrom(6 + 1, 1);
+        assertEquals(3, to - from);
+        int[] order = archetype.drawOrder();
+        for (int i = from; i < to; i++) {
+            Marker marker = archetype.get(order[i]);
+            assertEquals(1, (int) marker.getY());
+            assertTrue(marker.getX() >= 2 && marker.getX() <= 6);
+        }
+        // 一行里没有实体的范围是空的
+        assertEquals(archetype.drawOrderFrom(3, 2), archetype.drawOrderFrom(4, 2));
+    }
+
+    @Test
+    void columnsFollowTheirEntityThroughSwapAndRemoval() {
+        Archetype<Crop> archetype = crops();
+        Crop seed = new Crop(0, 0, 0);
+        Crop sprout = new Crop(1, 0, 0);
+        Crop mature = new Crop(2, 0, 0);
+        sprout.advanceTo(7);
+        mature.setGrowthRate(2f, 0);
+        mature.advanceTo(6);
+        archetype.add(seed);
+        archetype.add(sprout);
+        archetype.add(mature);
+        GrowthColumns columns = (GrowthColumns) archetype.getColumns();
+        assertSame(columns, mature.columns);
+        assertEquals(2, GrowthColumns.rowOf(mature));
+
+        archetype.remove(seed);
+        assertEquals(0, GrowthColumns.rowOf(mature));
+        assertEquals(Crop.STAGE_MATURE, columns.stage[0]);
+        assertEquals(2f, columns.growthRate[0]);
+        assertEquals(Crop.STAGE_SPROUT, sprout.getStage());
+        assertEquals(2f, sprout.getStateTimer(), 1e-4f);
+
+        // 删掉以后状态回到作物自己那一行里
+        assertEquals(Crop.STAGE_SEED, seed.getStage());
+        assertEquals(0, GrowthColumns.rowOf(seed));
+        seed.advanceTo(6);
+        assertEquals(Crop.STAGE_SPROUT, seed.getStage());
+        assertEquals(Crop.STAGE_MATURE, mature.getStage());
+    }
+
+    @Test
+    void columnsGrowWithTheArchetype() {
+        Archetype<Crop> archetype = crops();
+        Crop[] crops = new Crop[40];
+        for (int i = 0; i < crops.length; i++) {
+            crops[i] = new Crop(i, 0, i);
+            archetype.add(crops[i]);
+        }
+        for (int i = 0; i < crops.length; i++) {
+            crops[i].advanceTo(i + 6);
+            assertEquals(Crop.STAGE_SPROUT, crops[i].getStage());
+        }
+        archetype.clear();
+        for (Crop crop : crops) {
+            assertEquals(Crop.STAGE_SPROUT, crop.getStage());
+            assertEquals(-1, crop.entityIndex);
+        }
+    }
+
+    @Test
+    void growableKindNeedsGrowthColumns() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new EntityStore().register(Crop.class, EntityStore.GROWABLE, EntityStore.KIND_CROP));
+    }
+}
@@ -0,0 +1,27 @@
+package de.tum.cit.aet.valleyday.net;
+
+/** Reads back what a {@link BitWriter} wrote. */
+final class BitReader {
+
+    private byte[] bytes;
+    private int bitPosition;
+
+    void reset(byte[] bytes) {
+        this.bytes = bytes;
+        this.bitPosition = 0;
+    }
+
+    int read(int bits) {
+        int value = 0;
+        for (int i = 0; i < bits; i++) {
+            int bit = (bytes[bitPosition >>> 3] >>> (7 - (bitPosition & 7))) & 1;
+            value = (value << 1) | bit;
+            bitPosition++;
+        }
+        return value;
+    }
+
+    boolean readBoolean() {
+        return read(1) != 0;
+    }
+}
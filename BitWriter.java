@@ -0,0 +1,44 @@
+package de.tum.cit.aet.valleyday.net;
+
+import java.util.Arrays;
+
+/** Appends values of arbitrary bit width to a growable byte array, most significant bit first. */
+final class BitWriter {
+
+    private byte[] bytes = new byte[256];
+    private int bitLength;
+
+    void reset() {
+        bitLength = 0;
+    }
+
+    /** Writes the lowest {@code bits} bits of {@code value}, 0 to 32 bits. */
+    void write(int value, int bits) {
+        for (int i = bits - 1; i >= 0; i--) {
+            int index = bitLength >>> 3;
+            if (index == bytes.length) bytes = Arrays.copyOf(bytes, bytes.length * 2);
+            int shift = 7 - (bitLength & 7);
+            if (shift == 7) bytes[index] = 0;
+            bytes[index] |= ((value >>> i) & 1) << shift;
+            bitLength++;
+        }
+    }
+
+    void writeBoolean(boolean value) {
+        write(value ? 1 : 0, 1);
+    }
+
+    byte[] bytes() {
+        return bytes;
+    }
+
+    /** @return the number of bytes written, the last one padded with zero bits */
+    int byteLength() {
+        return (bitLength + 7) >>> 3;
+    }
+
+    /** @return the number of bits needed to store values from 0 to {@code max} */
+    static int bitsFor(int max) {
+        return max <= 0 ? 0 : 32 - Integer.numberOfLeadingZeros(max);
+    }
+}
@@ -2,17 +2,16 @@ package de.tum.cit.aet.valleyday.map;
 
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.physics.box2d.*;
-import de.tum.cit.aet.valleyday.texture.Drawable;
 import de.tum.cit.aet.valleyday.texture.Textures;
 
 /**
  * A chest is a static object with a hitbox, so the player cannot walk through it.
  */
-public class Chest implements Drawable {
+public class Chest extends GameObject {
     
-    // We would normally get the position from the hitbox, but since we don't need to move the chest, we can store the position directly.
-    private final float x;
-    private final float y;
+    // We would normally get the position from the hitbox, but since we don't need to move the chest, the tile position of GameObject is enough.
+    /** Kept so that a hot-reloaded map can remove the chest again. */
+    private final Body body;
     
     /**
      * Create a chest at the given position.
@@ -20,18 +19,16 @@ public class Chest implements Drawable {
      * @param x The X position.
      * @param y The Y position.
      */
-    public Chest(World world, float x, float y) {
-        this.x = x;
-        this.y = y;
-        // Since the hitbox never moves, and we never need to change it, we don't need to store a reference to it.
-        createHitbox(world);
+    public Chest(World world, int x, int y) {
+        super(x, y);
+        this.body = createHitbox(world);
     }
     
     /**
      * Create a Box2D body for the chest.
      * @param world The Box2D world to add the body to.
      */
-    private void createHitbox(World world) {
+    private Body createHitbox(World world) {
         // BodyDef is like a blueprint for the movement properties of the body.
         BodyDef bodyDef = new BodyDef();
         // Static bodies never move, but static bodies can collide with them.
@@ -51,20 +48,16 @@ public class Chest implements Drawable {
         box.dispose();
         // Set the chest as the user data of the body so we can look up the chest from the body later.
         body.setUserData(this);
+        return body;
+    }
+
+    /** Destroys the chest's hitbox, e.g. when a reloaded map file no longer contains it. */
+    void remove(World world) {
+        world.destroyBody(body);
     }
     
     @Override
     public TextureRegion getCurrentAppearance() {
         return Textures.CHEST;
     }
-    
-    @Override
-    public float getX() {
-        return x;
-    }
-    
-    @Override
-    public float getY() {
-        return y;
-    }
 }
@@ -0,0 +1,273 @@
+package de.tum.cit.aet.valleyday.screen;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.TimeUtils;
+import de.tum.cit.aet.valleyday.ValleyDayGame;
+import de.tum.cit.aet.valleyday.sim.ChunkVersions;
+import de.tum.cit.aet.valleyday.sim.RenderSnapshot;
+import de.tum.cit.aet.valleyday.sim.TileLooks;
+import de.tum.cit.aet.valleyday.texture.Textures;
+
+import java.util.Arrays;
+
+/**
+ * Draws a zoomed-out map from pre-rendered chunks instead of tile by tile.
+ * <p>
+ * Beyond {@link #LOD_ZOOM} a tile is at most 8 screen pixels, and a whole farm can be millions of sprites.
+ * Instead, every {@link ChunkVersions chunk} is rendered once into a {@value #SLOT_SIZE}² slot of a large
+ * offscreen page, and the view is drawn with one quad per chunk. The further out, the coarser the level,
+ * so a chunk always covers about the same number of screen pixels and the number of quads on screen stays
+ * in the hundreds however big the farm is.
+ * </p>
+ * <p>
+ * A chunk is rebuilt lazily: only when it is on screen and the snapshot says one of its tiles changed
+ * after it was built. Rebuilds are limited to a few milliseconds per frame; a stale chunk is still drawn
+ * until its turn comes. Slots are reused least-recently-drawn first. The player, the animals and the
+ * crows are not part of the chunks and are drawn live on top.
+ * </p>
+ * <p>
+ * Chunks are drawn from the snapshot's {@link TileLooks}, one texture per tile and layer, so the simulation never
+ * copies the static objects for them. Where a tile is smaller than a pixel of the slot, one tile per pixel is
+ * sampled, which bounds a rebuild at {@value #SLOT_SIZE}² tiles whatever the level.
+ * </p>
+ */
+public class ChunkImpostors implements Disposable {
+
+    /** Zoom from which the map is drawn from chunks; at this zoom a tile is 8 screen pixels. */
+    public static final float LOD_ZOOM = 8f;
+
+    private static final int SLOT_SIZE = 128;
+    private static final int PAGE_SIZE = 2048;
+    private static final int SLOTS_PER_ROW = PAGE_SIZE / SLOT_SIZE;
+    private static final int SLOTS_PER_PAGE = SLOTS_PER_ROW * SLOTS_PER_ROW;
+    /** 4 pages of 16 MB; enough for several screens full of chunks. */
+    private static final int MAX_PAGES = 4;
+    private static final long BUILD_BUDGET_NANOS = 4_000_000L;
+
+    private final SpriteBatch spriteBatch;
+    private final Color background;
+    private final FrameBuffer[] pages = new FrameBuffer[MAX_PAGES];
+    private final Matrix4 projection = new Matrix4();
+
+    /* Per slot: the region in its page, which chunk it holds and when it was built and last drawn. */
+    private final TextureRegion[] slotRegions = new TextureRegion[MAX_PAGES * SLOTS_PER_PAGE];
+    private final int[] slotLevel = new int[MAX_PAGES * SLOTS_PER_PAGE];
+    private final int[] slotChunk = new int[MAX_PAGES * SLOTS_PER_PAGE];
+    private final int[] slotBuiltAt = new int[MAX_PAGES * SLOTS_PER_PAGE];
+    private final long[] slotDrawnAt = new long[MAX_PAGES * SLOTS_PER_PAGE];
+    private int slotsInUse;
+    /** Per level and chunk index, the slot holding it or -1. */
+    private final int[][] slotOf = new int[ChunkVersions.LEVELS][0];
+    /** Chunk columns per level of the map the slots were laid out for. */
+    private final int[] columns = new int[ChunkVersions.LEVELS];
+    private long frame;
+
+    /* The chunks on screen, from the last prepare(). */
+    private int level;
+    private int firstColumn, lastColumn, firstRow, lastRow;
+
+    public ChunkImpostors(SpriteBatch spriteBatch, Color background) {
+        this.spriteBatch = spriteBatch;
+        this.background = new Color(background);
+    }
+
+    /** @return the chunk level for a zoom of at least {@link #LOD_ZOOM}: each level halves the detail */
+    static int levelFor(float zoom) {
+        int level = 0;
+        while (level < ChunkVersions.LEVELS - 1 && zoom >= LOD_ZOOM * (2 << level)) level++;
+        return level;
+    }
+
+    /**
+     * Works out which chunks are on screen and rebuilds the ones that are missing or stale, within the budget.
+     * Must be called before the world pass starts, outside of any other framebuffer, since it renders into its own.
+     * @param camera the world camera
+     * @param snapshot the snapshot that is about to be drawn
+     * @param mapWidth map width in tiles
+     * @param mapHeight map height in tiles
+     */
+    public void prepare(OrthographicCamera camera, RenderSnapshot snapshot, int mapWidth, int mapHeight) {
+        frame++;
+        ChunkVersions versions = snapshot.getChunkVersions();
+        if (columns[0] != versions.getColumns(0) || slotOf[0].length != versions.getColumns(0) * versions.getRows(0)) {
+            reset(versions);
+        }
+
+        level = levelFor(camera.zoom);
+        float chunkSize = (ChunkVersions.CHUNK_TILES << level) * ValleyDayGame.PPM;
+        float halfW = camera.viewportWidth * camera.zoom / 2f;
+        float halfH = camera.viewportHeight * camera.zoom / 2f;
+        firstColumn = Math.max(0, (int) Math.floor((camera.position.x - halfW) / chunkSize));
+        lastColumn = Math.min(versions.getColumns(level) - 1, (int) Math.floor((camera.position.x + halfW) / chunkSize));
+        firstRow = Math.max(0, (int) Math.floor((camera.position.y - halfH) / chunkSize));
+        lastRow = Math.min(versions.getRows(level) - 1, (int) Math.floor((camera.position.y + halfH) / chunkSize));
+
+        // 先把屏幕上已有的块标记为在用，免得下面重建时被挤掉
+        int columns = this.columns[level];
+        for (int cy = firstRow; cy <= lastRow; cy++) {
+            for (int cx = firstColumn; cx <= lastColumn; cx++) {
+                int slot = slotOf[level][cy * columns + cx];
+                if (slot >= 0) slotDrawnAt[slot] = frame;
+            }
+        }
+
+        // 中文：先补缺的块，再更新过期的块，时间预算用完就留到下一帧
+        long deadline = TimeUtils.nanoTime() + BUILD_BUDGET_NANOS;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int cy = firstRow; cy <= lastRow; cy++) {
+                for (int cx = firstColumn; cx <= lastColumn; cx++) {
+                    if (TimeUtils.nanoTime() - deadline > 0) return;
+                    int slot = slotOf[level][cy * columns + cx];
+                    boolean missing = slot < 0;
+                    boolean stale = !missing && versions.get(level, cx, cy) > slotBuiltAt[slot];
+                    if (pass == 0 ? !missing : !stale) continue;
+                    if (missing) {
+                        slot = allocateSlot();
+                        if (slot < 0) return; // 所有槽位这一帧都在用
+                        slotOf[level][cy * columns + cx] = slot;
+                        slotLevel[slot] = level;
+                        slotChunk[slot] = cy * columns + cx;
+                        slotDrawnAt[slot] = frame;
+                    }
+                    build(slot, level, cx, cy, snapshot, mapWidth, mapHeight);
+                    slotBuiltAt[slot] = versions.getCounter();
+                }
+            }
+        }
+    }
+
+    /**
+     * Draws the chunks on screen. Must be called between {@code spriteBatch.begin()} and {@code end()},
+     * with the world projection set.
+     */
+    public void draw() {
+        float chunkSize = (ChunkVersions.CHUNK_TILES << level) * ValleyDayGame.PPM;
+        int columns = this.columns[level];
+        for (int cy = firstRow; cy <= lastRow; cy++) {
+            for (int cx = firstColumn; cx <= lastColumn; cx++) {
+                int slot = slotOf[level][cy * columns + cx];
+                if (slot < 0) continue; // 还没来得及画，下一帧再说
+                spriteBatch.draw(slotRegions[slot], cx * chunkSize, cy * chunkSize, chunkSize, chunkSize);
+            }
+        }
+    }
+
+    /** Forgets every chunk, e.g. because a map of a different size was loaded. */
+    private void reset(ChunkVersions versions) {
+        for (int l = 0; l < ChunkVersions.LEVELS; l++) {
+            columns[l] = versions.getColumns(l);
+            slotOf[l] = new int[versions.getColumns(l) * versions.getRows(l)];
+            Arrays.fill(slotOf[l], -1);
+        }
+        slotsInUse = 0;
+    }
+
+    /** @return a free slot, or the one drawn longest ago, or -1 if every slot is on screen */
+    private int allocateSlot() {
+        if (slotsInUse < slotRegions.length) {
+            int slot = slotsInUse++;
+            if (slotRegions[slot] == null) createPage(slot / SLOTS_PER_PAGE);
+            return slot;
+        }
+        int oldest = -1;
+        for (int slot = 0; slot < slotsInUse; slot++) {
+            if (slotDrawnAt[slot] < frame && (oldest < 0 || slotDrawnAt[slot] < slotDrawnAt[oldest])) oldest = slot;
+        }
+        if (oldest >= 0) slotOf[slotLevel[oldest]][slotChunk[oldest]] = -1;
+        return oldest;
+    }
+
+    private void createPage(int page) {
+        pages[page] = new FrameBuffer(Pixmap.Format.RGBA8888, PAGE_SIZE, PAGE_SIZE, false);
+        Texture texture = pages[page].getColorBufferTexture();
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Nearest);
+        for (int i = 0; i < SLOTS_PER_PAGE; i++) {
+            // FrameBuffer 的内容是上下颠倒的，区域要翻转一下
+            TextureRegion region = new TextureRegion(texture,
+                    (i % SLOTS_PER_ROW) * SLOT_SIZE, (i / SLOTS_PER_ROW) * SLOT_SIZE, SLOT_SIZE, SLOT_SIZE);
+            region.flip(false, true);
+            slotRegions[page * SLOTS_PER_PAGE + i] = region;
+        }
+    }
+
+    /** Renders the floor and the looks of every tile that overlaps the chunk into its slot. */
+    private void build(int slot, int level, int cx, int cy, RenderSnapshot snapshot, int mapWidth, int mapHeight) {
+        int chunkTiles = ChunkVersions.CHUNK_TILES << level;
+        float chunkSize = chunkTiles * ValleyDayGame.PPM;
+        float left = cx * chunkSize;
+        float bottom = cy * chunkSize;
+        int local = slot % SLOTS_PER_PAGE;
+        int slotX = (local % SLOTS_PER_ROW) * SLOT_SIZE;
+        int slotY = (local / SLOTS_PER_ROW) * SLOT_SIZE;
+        // 中文：投影让这个块正好落在页面里自己的槽位上，裁剪框挡住伸到邻居槽位的部分
+        float worldPerPixel = chunkSize / SLOT_SIZE;
+        projection.setToOrtho2D(left - slotX * worldPerPixel, bottom - slotY * worldPerPixel,
+                PAGE_SIZE * worldPerPixel, PAGE_SIZE * worldPerPixel);
+
+        FrameBuffer page = pages[slot / SLOTS_PER_PAGE];
+        page.begin();
+        Gdx.gl.glEnable(GL20.GL_SCISSOR_TEST);
+        Gdx.gl.glScissor(slotX, slotY, SLOT_SIZE, SLOT_SIZE);
+        Gdx.gl.glClearColor(background.r, background.g, background.b, background.a);
+        Gdx.gl.glClear(GL20.GL_COLOR_BUFFER_BIT);
+        spriteBatch.setProjectionMatrix(projection);
+        spriteBatch.begin();
+
+        // 中文：一格小于一个像素时，每个像素只取一格来画，每块最多 SLOT_SIZE² 格
+        int step = Math.max(1, chunkTiles / SLOT_SIZE);
+        float tileSize = ValleyDayGame.PPM;
+        float cellSize = step * tileSize;
+        int firstX = cx * chunkTiles, lastX = Math.min(mapWidth, firstX + chunkTiles) - 1;
+        int firstY = cy * chunkTiles, lastY = Math.min(mapHeight, firstY + chunkTiles) - 1;
+        if (Textures.FLOOR != null) {
+            for (int y = firstY; y <= lastY; y += step) {
+                for (int x = firstX; x <= lastX; x += step) {
+                    spriteBatch.draw(Textures.FLOOR, x * tileSize, y * tileSize, cellSize, cellSize);
+                }
+            }
+        }
+
+        // 贴图可能从左边、下边的格子伸进来，所以多看一列一行；上面的行先画，和快照的顺序一样
+        TileLooks looks = snapshot.getTileLooks();
+        for (int layer = 0; layer < TileLooks.LAYERS; layer++) {
+            for (int y = lastY - (lastY - firstY) % step; y >= firstY - step; y -= step) {
+                for (int x = firstX - step; x <= lastX; x += step) {
+                    int look = looks.get(x, y, layer);
+                    if (look == 0) continue;
+                    TextureRegion region = looks.getRegion(look);
+                    float scale = looks.getScale(look);
+                    float w = region.getRegionWidth() * ValleyDayGame.SCALE * scale * step;
+                    float h = region.getRegionHeight() * ValleyDayGame.SCALE * scale * step;
+                    float drawX = x * tileSize, drawY = y * tileSize;
+                    if (scale != 1f) {
+                        // 中文：缩小的贴图（工具）和快照里一样在格子里居中
+                        drawX += (cellSize - w) / 2f;
+                        drawY += (cellSize - h) / 2f;
+                    }
+                    spriteBatch.draw(region, drawX, drawY, w, h);
+                }
+            }
+        }
+
+        spriteBatch.end();
+        Gdx.gl.glDisable(GL20.GL_SCISSOR_TEST);
+        page.end();
+    }
+
+    @Override
+    public void dispose() {
+        for (FrameBuffer page : pages) {
+            if (page != null) page.dispose();
+        }
+    }
+}
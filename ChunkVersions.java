@@ -0,0 +1,104 @@
+package de.tum.cit.aet.valleyday.sim;
+
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.TileChangeListener;
+import de.tum.cit.aet.valleyday.map.TileKeys;
+
+import java.util.Arrays;
+
+/**
+ * Tells the renderer which parts of the map changed, so it can keep pre-rendered chunks until they do.
+ * <p>
+ * The map is divided into square chunks of {@link #CHUNK_TILES} tiles, and every coarser level doubles the
+ * chunk size ({@link #LEVELS} levels in total). Every chunk holds the value of a running counter at the
+ * time one of its tiles last changed. The simulation updates them through {@link TileChangeListener};
+ * each {@link RenderSnapshot} carries a copy, so a renderer that built a chunk from a snapshot
+ * knows exactly which later changes that snapshot already contains.
+ * </p>
+ */
+public final class ChunkVersions implements TileChangeListener {
+
+    /** Size of a level-0 chunk in tiles. */
+    public static final int CHUNK_TILES = 16;
+    /** Number of levels; level {@code l} chunks are {@code CHUNK_TILES << l} tiles wide. */
+    public static final int LEVELS = 7;
+
+    private int[][] versions = new int[LEVELS][0];
+    private final int[] columns = new int[LEVELS];
+    private final int[] rows = new int[LEVELS];
+    /** Counts the changes; a chunk's version is the count at its last change. */
+    private int counter;
+
+    /** Called on the simulation thread. */
+    @Override
+    public void onTileChanged(GameMap map, int x, int y) {
+        counter++;
+        markTile(x, y);
+    }
+
+    /** Called on the simulation thread; the whole batch shares one version, so caches rebuild once. */
+    @Override
+    public void onTilesChanged(GameMap map, long[] keys, int count) {
+        counter++;
+        for (int i = 0; i < count; i++) {
+            markTile(TileKeys.x(keys[i]), TileKeys.y(keys[i]));
+        }
+    }
+
+    private void markTile(int x, int y) {
+        // 中文：比一格大的贴图会伸进右边和上边的格子，所以右上邻格所在的块也算变了
+        mark(x, y);
+        if ((x + 1) % CHUNK_TILES == 0) mark(x + 1, y);
+        if ((y + 1) % CHUNK_TILES == 0) mark(x, y + 1);
+        if ((x + 1) % CHUNK_TILES == 0 && (y + 1) % CHUNK_TILES == 0) mark(x + 1, y + 1);
+    }
+
+    private void mark(int x, int y) {
+        if (x < 0 || y < 0) return;
+        for (int level = 0; level < LEVELS; level++) {
+            int cx = x / (CHUNK_TILES << level);
+            int cy = y / (CHUNK_TILES << level);
+            if (cx >= columns[level] || cy >= rows[level]) return;
+            versions[level][cy * columns[level] + cx] = counter;
+        }
+    }
+
+    /** Called on the simulation thread; every chunk is stale. */
+    @Override
+    public void onMapLoaded(GameMap map) {
+        counter++;
+        for (int level = 0; level < LEVELS; level++) {
+            int size = CHUNK_TILES << level;
+            columns[level] = Math.max(1, (map.getWidth() + size - 1) / size);
+            rows[level] = Math.max(1, (map.getHeight() + size - 1) / size);
+            if (versions[level].length != columns[level] * rows[level]) {
+                versions[level] = new int[columns[level] * rows[level]];
+            }
+            Arrays.fill(versions[level], counter);
+        }
+    }
+
+    /** Makes this a copy of {@code source}, reusing the arrays where the sizes match. */
+    void copyFrom(ChunkVersions source) {
+        counter = source.counter;
+        for (int level = 0; level < LEVELS; level++) {
+            columns[level] = source.columns[level];
+            rows[level] = source.rows[level];
+            if (versions[level].length != source.versions[level].length) {
+                versions[level] = new int[source.versions[level].length];
+            }
+            System.arraycopy(source.versions[level], 0, versions[level], 0, versions[level].length);
+        }
+    }
+
+    /** @return the version of the chunk, or 0 for chunks outside the map */
+    public int get(int level, int cx, int cy) {
+        if (cx < 0 || cy < 0 || cx >= columns[level] || cy >= rows[level]) return 0;
+        return versions[level][cy * columns[level] + cx];
+    }
+
+    /** @return the change counter when the snapshot was taken; a chunk built from it is current up to this */
+    public int getCounter() { return counter; }
+    public int getColumns(int level) { return columns[level]; }
+    public int getRows(int level) { return rows[level]; }
+}
@@ -0,0 +1,284 @@
+package de.tum.cit.aet.valleyday.net;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import de.tum.cit.aet.valleyday.ValleyDayGame;
+import de.tum.cit.aet.valleyday.input.InputCommand;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.Player;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * The receiving side of a co-op session (see {@link CoopHost}).
+ * <p>
+ * The client loads the same map file with the same seed as the host (both from the hello message),
+ * so the static layout and the hidden items match, and then overwrites the mutable layer with the
+ * frames it receives. Frames are read and decoded on a background thread and applied by
+ * {@link #applyPending(GameMap)} on the thread that owns the map.
+ * </p>
+ * <p>
+ * The client plays one player on the host's farm: its key events go to the host with
+ * {@link #sendInput}, the host runs them on its own simulation and sends the result back like any other
+ * change. The map on this side is a replica ({@link GameMap#setReplica(boolean)}): the client's own
+ * player is the map's player, so the camera follows it, and the host and the other clients are guests.
+ * Joining from the menu opens a {@code GameScreen} on such a map.
+ * </p>
+ */
+public class CoopClient implements Closeable {
+
+    private static final Player.Direction[] DIRECTIONS = Player.Direction.values();
+
+    private final Socket socket;
+    private final DataInputStream in;
+    private final DataOutputStream out;
+    private final Inflater inflater = new Inflater();
+    private final ConcurrentLinkedQueue<Frame> frames = new ConcurrentLinkedQueue<>();
+
+    private final String mapPath;
+    private final long seed;
+    private final int mapWidth;
+    private final int mapHeight;
+    /** The player slot the host gave this client, see {@link CoopProtocol}. */
+    private final int slot;
+    /** The other players, by slot; only touched by the thread that owns the map. */
+    private final Player[] others = new Player[CoopProtocol.MAX_PLAYERS];
+
+    private int sentMinX = Integer.MIN_VALUE, sentMinY, sentMaxX, sentMaxY;
+    private volatile long bytesReceived;
+    private volatile long lastTick;
+
+    /** One decoded frame. */
+    private static final class Frame {
+        long tick;
+        int playerCount;
+        int[] playerSlot;
+        boolean[] playerPresent;
+        float[] playerX, playerY;
+        Player.Direction[] direction;
+        int count;
+        int[] x, y, state;
+    }
+
+    private CoopClient(Socket socket) throws IOException {
+        this.socket = socket;
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        if (in.readInt() != CoopProtocol.MAGIC) throw new IOException("Not a Valley Day co-op host");
+        byte version = in.readByte();
+        if (version != CoopProtocol.VERSION) throw new IOException("Unsupported co-op version " + version);
+        this.mapPath = in.readUTF();
+        this.seed = in.readLong();
+        this.mapWidth = in.readShort();
+        this.mapHeight = in.readShort();
+        this.slot = in.readUnsignedByte();
+    }
+
+    /**
+     * Connects to a host on this machine and reads its hello. Call {@link #start()} afterwards.
+     * @param port the port the host listens on
+     */
+    public static CoopClient connect(int port) throws IOException {
+        Socket socket = new Socket(InetAddress.getLoopbackAddress(), port);
+        socket.setTcpNoDelay(true);
+        try {
+            return new CoopClient(socket);
+        } catch (IOException e) {
+            socket.close();
+            throw e;
+        }
+    }
+
+    public static CoopClient connect() throws IOException {
+        return connect(CoopProtocol.DEFAULT_PORT);
+    }
+
+    /** Starts receiving frames in the background. */
+    public void start() {
+        Thread reader = new Thread(this::readLoop, "Coop client");
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void readLoop() {
+        BitReader bits = new BitReader();
+        byte[] compressed = new byte[1024];
+        try {
+            while (true) {
+                int compressedLength = in.readInt();
+                int rawLength = in.readInt();
+                if (compressed.length < compressedLength) compressed = new byte[compressedLength];
+                in.readFully(compressed, 0, compressedLength);
+                bytesReceived += 8 + compressedLength;
+
+                byte[] raw = new byte[rawLength];
+                inflater.setInput(compressed, 0, compressedLength);
+                int read = 0;
+                while (read < rawLength) {
+                    int n = inflater.inflate(raw, read, rawLength - read);
+                    if (n == 0 && inflater.needsInput()) throw new IOException("Truncated frame");
+                    read += n;
+                }
+                bits.reset(raw);
+                frames.add(decode(bits));
+            }
+        } catch (IOException | DataFormatException e) {
+            if (!socket.isClosed()) Gdx.app.log("Coop", "Connection to host lost: " + e.getMessage());
+        }
+    }
+
+    private static Frame decode(BitReader bits) {
+        Frame frame = new Frame();
+        frame.tick = bits.read(32) & 0xFFFFFFFFL;
+        int minX = bits.read(16);
+        int minY = bits.read(16);
+        int bitsX = bits.read(4);
+        int bitsY = bits.read(4);
+        int players = bits.read(4);
+        frame.playerCount = players;
+        frame.playerSlot = new int[players];
+        frame.playerPresent = new boolean[players];
+        frame.playerX = new float[players];
+        frame.playerY = new float[players];
+        frame.direction = new Player.Direction[players];
+        for (int i = 0; i < players; i++) {
+            frame.playerSlot[i] = bits.read(CoopProtocol.SLOT_BITS);
+            frame.playerPresent[i] = bits.readBoolean();
+            if (!frame.playerPresent[i]) continue;
+            frame.playerX[i] = bits.read(16) / (float) CoopProtocol.POSITION_SCALE;
+            frame.playerY[i] = bits.read(16) / (float) CoopProtocol.POSITION_SCALE;
+            frame.direction[i] = DIRECTIONS[bits.read(2)];
+        }
+        frame.count = bits.read(16);
+        frame.x = new int[frame.count];
+        frame.y = new int[frame.count];
+        frame.state = new int[frame.count];
+        for (int i = 0; i < frame.count; i++) {
+            frame.x[i] = minX + bits.read(bitsX);
+            frame.y[i] = minY + bits.read(bitsY);
+            frame.state[i] = bits.read(TileState.BITS);
+        }
+        return frame;
+    }
+
+    /**
+     * Applies every frame received so far to the client's copy of the map.
+     * @param map a map loaded from {@link #getMapPath()} with {@link #getSeed()}
+     * @return the number of frames applied
+     */
+    public int applyPending(GameMap map) {
+        int applied = 0;
+        Frame frame;
+        while ((frame = frames.poll()) != null) {
+            for (int i = 0; i < frame.count; i++) {
+                TileState.apply(map, frame.x[i], frame.y[i], frame.state[i]);
+            }
+            for (int i = 0; i < frame.playerCount; i++) applyPlayer(map, frame, i);
+            lastTick = frame.tick;
+            applied++;
+        }
+        return applied;
+    }
+
+    /** 中文：自己的槽位写到地图的玩家上，别人的写到访客上（按需创建和删除） */
+    private void applyPlayer(GameMap map, Frame frame, int i) {
+        int playerSlot = frame.playerSlot[i];
+        Player player = playerSlot == slot ? map.getPlayer() : others[playerSlot];
+        if (!frame.playerPresent[i]) {
+            if (player != null && playerSlot != slot) {
+                map.removeGuest(player);
+                others[playerSlot] = null;
+            }
+            return;
+        }
+        if (player == null) {
+            if (playerSlot == slot) return;
+            player = map.addGuest();
+            others[playerSlot] = player;
+        }
+        player.restoreState(frame.playerX[i], frame.playerY[i], 0f, 0f, frame.direction[i], 0, player.getElapsedTime());
+    }
+
+    /**
+     * Sends one key event to the host, which applies it to this client's player.
+     * Call it from the same thread as {@link #sendView}.
+     */
+    public void sendInput(InputCommand command) throws IOException {
+        out.writeByte(CoopProtocol.MSG_INPUT);
+        out.writeByte(command.getType().ordinal());
+        out.writeInt(command.getMoveMask());
+        out.flush();
+    }
+
+    /**
+     * Tells the host which tiles the camera shows. Only sends a message when the visible tile range changed.
+     */
+    public void sendView(OrthographicCamera camera) throws IOException {
+        float halfWidth = camera.viewportWidth * camera.zoom / 2f;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2f;
+        int minX = (int) Math.floor((camera.position.x - halfWidth) / ValleyDayGame.PPM);
+        int minY = (int) Math.floor((camera.position.y - halfHeight) / ValleyDayGame.PPM);
+        int maxX = (int) Math.floor((camera.position.x + halfWidth) / ValleyDayGame.PPM);
+        int maxY = (int) Math.floor((camera.position.y + halfHeight) / ValleyDayGame.PPM);
+        sendRegion(minX, minY, maxX, maxY);
+    }
+
+    /** Tells the host which tiles (inclusive) this client wants to see. */
+    public void sendRegion(int minX, int minY, int maxX, int maxY) throws IOException {
+        minX = Math.max(0, minX);
+        minY = Math.max(0, minY);
+        maxX = Math.min(mapWidth - 1, maxX);
+        maxY = Math.min(mapHeight - 1, maxY);
+        if (minX == sentMinX && minY == sentMinY && maxX == sentMaxX && maxY == sentMaxY) return;
+        sentMinX = minX;
+        sentMinY = minY;
+        sentMaxX = maxX;
+        sentMaxY = maxY;
+        out.writeByte(CoopProtocol.MSG_REGION);
+        out.writeShort(minX);
+        out.writeShort(minY);
+        out.writeShort(maxX);
+        out.writeShort(maxY);
+        out.flush();
+    }
+
+    public String getMapPath() {
+        return mapPath;
+    }
+
+    /** @return the host's map file, as a game asset if there is one with that path, else from the disk */
+    public FileHandle getMapFile() {
+        FileHandle internal = Gdx.files.internal(mapPath);
+        return internal.exists() ? internal : Gdx.files.absolute(mapPath);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /** @return bytes received from the host so far, including frame headers */
+    public long getBytesReceived() {
+        return bytesReceived;
+    }
+
+    /** @return the host tick of the last applied frame */
+    public long getLastTick() {
+        return lastTick;
+    }
+
+    @Override
+    public void close() throws IOException {
+        socket.close();
+    }
+}
@@ -0,0 +1,467 @@
+package de.tum.cit.aet.valleyday.net;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+import de.tum.cit.aet.valleyday.input.InputCommand;
+import de.tum.cit.aet.valleyday.input.PlayerControls;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.Player;
+import de.tum.cit.aet.valleyday.map.TileChangeListener;
+import de.tum.cit.aet.valleyday.map.TileIntMap;
+import de.tum.cit.aet.valleyday.map.TileKeys;
+import de.tum.cit.aet.valleyday.sim.Simulation;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.zip.Deflater;
+
+/**
+ * The authoritative side of a co-op session: replicates the mutable layer of a {@link GameMap}
+ * (debris health, crops, tools on the ground, the players) to up to {@link CoopProtocol#MAX_PLAYERS} - 1
+ * {@link CoopClient}s, and lets every client play its own guest player on the host's farm.
+ * <p>
+ * The host collects the tiles that changed through {@link TileChangeListener} and, every
+ * {@link CoopProtocol#SEND_INTERVAL_TICKS} ticks, sends each client only the tiles inside its camera
+ * region whose state differs from what that client was last sent. Every client has its own
+ * "known" table, so a client that scrolls back to an area it saw earlier only receives what changed
+ * in the meantime. Frames are bit-packed and run through one deflate stream per client; an idle farm
+ * costs nothing and a busy one stays in the hundreds of bytes per second.
+ * </p>
+ * <p>
+ * Each client gets a player from {@link GameMap#addGuest()} with its own {@link PlayerControls}. The client's
+ * key events arrive as commands on the reader thread and are handed to those controls on the simulation
+ * thread, so the guests act through exactly the same code as the local player. Guest input is not part of
+ * a replay recorded at the same time.
+ * </p>
+ * The host only listens on the loopback interface. Everything except accepting connections and
+ * reading region updates and input runs on the simulation thread, in {@link #onTickFinished}; create it there
+ * and attach it with {@link Simulation#addListener}. In the game, H on the game screen starts and stops hosting.
+ */
+public class CoopHost implements TileChangeListener, Simulation.Listener, Closeable {
+
+    /** Player state a client has not been told about yet, and a player slot that is empty. */
+    private static final long UNKNOWN = -2;
+    private static final long ABSENT = -1;
+
+    private final Simulation simulation;
+    private final GameMap map;
+    private final ServerSocket serverSocket;
+    private final CopyOnWriteArrayList<Connection> connections = new CopyOnWriteArrayList<>();
+    private Thread acceptThread;
+
+    /* Tiles changed since the last frame; simulation thread only. */
+    private final LongArray dirty = new LongArray();
+    private final TileIntMap dirtyMarks = new TileIntMap();
+    private boolean mapReloaded;
+    private long lastFrameTick;
+
+    /* Scratch buffers reused for every frame. */
+    private final BitWriter bits = new BitWriter();
+    private byte[] compressed = new byte[1024];
+    private final IntArray changedX = new IntArray();
+    private final IntArray changedY = new IntArray();
+    private final IntArray changedState = new IntArray();
+    private final IntArray changedSlots = new IntArray();
+    /** Packed position of the player in every slot at this frame, {@link #ABSENT} for an empty slot. */
+    private final long[] playerStates = new long[CoopProtocol.MAX_PLAYERS];
+
+    /** Which connection plays which slot; slot 0 is the host. Written by the accept and simulation threads. */
+    private final Connection[] slots = new Connection[CoopProtocol.MAX_PLAYERS];
+
+    /**
+     * @param simulation the simulation of the farm to replicate; the host registers itself as its map's
+     *                   tile change listener and adds a guest player for every client
+     * @param port the local port to listen on, 0 for any free port
+     */
+    public CoopHost(Simulation simulation, int port) throws IOException {
+        this.simulation = simulation;
+        this.map = simulation.getMap();
+        this.serverSocket = new ServerSocket(port, 8, InetAddress.getLoopbackAddress());
+        map.addTileChangeListener(this);
+    }
+
+    public CoopHost(Simulation simulation) throws IOException {
+        this(simulation, CoopProtocol.DEFAULT_PORT);
+    }
+
+    /** Starts accepting clients. */
+    public void start() {
+        acceptThread = new Thread(this::acceptLoop, "Coop accept");
+        acceptThread.setDaemon(true);
+        acceptThread.start();
+    }
+
+    private void acceptLoop() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                Connection connection = new Connection(socket);
+                if (!claimSlot(connection)) {
+                    Gdx.app.log("Coop", "Session full, refusing " + socket.getRemoteSocketAddress());
+                    connection.close();
+                    continue;
+                }
+                try {
+                    connection.sendHello(map);
+                } catch (IOException e) {
+                    releaseSlot(connection);
+                    throw e;
+                }
+                connections.add(connection);
+                connection.startReader();
+                Gdx.app.log("Coop", "Client connected from " + socket.getRemoteSocketAddress());
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) Gdx.app.error("Coop", "Accept failed", e);
+            }
+        }
+    }
+
+    private boolean claimSlot(Connection connection) {
+        synchronized (slots) {
+            for (int slot = 1; slot < slots.length; slot++) {
+                if (slots[slot] == null) {
+                    slots[slot] = connection;
+                    connection.slot = slot;
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private void releaseSlot(Connection connection) {
+        synchronized (slots) {
+            if (slots[connection.slot] == connection) slots[connection.slot] = null;
+        }
+    }
+
+    @Override
+    public void onTileChanged(GameMap map, int x, int y) {
+        if (dirtyMarks.containsKey(x, y)) return;
+        dirtyMarks.put(x, y, 1);
+        dirty.add(TileKeys.pack(x, y));
+    }
+
+    @Override
+    public void onMapLoaded(GameMap map) {
+        mapReloaded = true;
+    }
+
+    @Override
+    public void onCommand(long tick, InputCommand command) {
+    }
+
+    @Override
+    public void onTickFinished(Simulation simulation) {
+        // 中文：每个 tick 都处理访客的输入，下一个 tick 生效，和本地按键一样
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            if (connection.socket.isClosed()) {
+                drop(connection, "connection closed");
+                i--;
+                continue;
+            }
+            if (connection.guest == null || !map.getGuests().contains(connection.guest)) joinGuest(connection);
+            InputCommand command;
+            while ((command = connection.inputs.poll()) != null) connection.controls.apply(command);
+        }
+
+        // 快进时一次可能跳过很多 tick，所以按间隔而不是取模
+        if (simulation.getTick() - lastFrameTick < CoopProtocol.SEND_INTERVAL_TICKS) return;
+        lastFrameTick = simulation.getTick();
+        capturePlayers();
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            try {
+                sendFrame(connection, simulation.getTick());
+            } catch (IOException e) {
+                drop(connection, e.getMessage());
+                i--;
+            }
+        }
+        dirty.clear();
+        dirtyMarks.clear();
+        mapReloaded = false;
+    }
+
+    /** Gives a connection its player, again after a map reload dropped the guests. */
+    private void joinGuest(Connection connection) {
+        if (connection.controls != null) simulation.removeGuest(connection.controls);
+        connection.guest = map.addGuest();
+        connection.controls = new PlayerControls(connection.guest);
+        simulation.addGuest(connection.controls);
+    }
+
+    private void leaveGuest(Connection connection) {
+        if (connection.guest == null) return;
+        simulation.removeGuest(connection.controls);
+        map.removeGuest(connection.guest);
+        connection.guest = null;
+        connection.controls = null;
+    }
+
+    private void drop(Connection connection, String reason) {
+        Gdx.app.log("Coop", "Client disconnected: " + reason);
+        leaveGuest(connection);
+        connection.close();
+        connections.remove(connection);
+        releaseSlot(connection);
+    }
+
+    /** Packs every player's position once per frame; all connections compare against the same values. */
+    private void capturePlayers() {
+        Arrays.fill(playerStates, ABSENT);
+        playerStates[0] = packPlayer(map.getPlayer());
+        for (int i = 0; i < connections.size(); i++) {
+            Connection connection = connections.get(i);
+            if (connection.guest != null) playerStates[connection.slot] = packPlayer(connection.guest);
+        }
+    }
+
+    private static long packPlayer(Player player) {
+        if (player == null) return ABSENT;
+        long x = Math.round(player.getX() * CoopProtocol.POSITION_SCALE) & 0xFFFF;
+        long y = Math.round(player.getY() * CoopProtocol.POSITION_SCALE) & 0xFFFF;
+        return x << 18 | y << 2 | player.getDirection().ordinal();
+    }
+
+    private void sendFrame(Connection connection, long tick) throws IOException {
+        if (mapReloaded) connection.resync();
+
+        // 兴趣区域：客户端相机范围加一圈余量，裁到地图内
+        int minX = Math.max(0, connection.minX - CoopProtocol.REGION_MARGIN);
+        int minY = Math.max(0, connection.minY - CoopProtocol.REGION_MARGIN);
+        int maxX = Math.min(map.getWidth() - 1, Math.min(connection.maxX + CoopProtocol.REGION_MARGIN,
+                minX + CoopProtocol.MAX_REGION_SIZE - 1));
+        int maxY = Math.min(map.getHeight() - 1, Math.min(connection.maxY + CoopProtocol.REGION_MARGIN,
+                minY + CoopProtocol.MAX_REGION_SIZE - 1));
+        if (maxX < minX || maxY < minY) return; // 还没收到客户端的区域
+
+        changedX.clear();
+        changedY.clear();
+        changedState.clear();
+        boolean regionChanged = minX != connection.sentMinX || minY != connection.sentMinY
+                || maxX != connection.sentMaxX || maxY != connection.sentMaxY;
+        if (regionChanged) {
+            // 区域移动了：整块比较一遍，只有客户端没见过或已过期的格子才会被发送
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) collect(connection, x, y);
+            }
+            connection.sentMinX = minX;
+            connection.sentMinY = minY;
+            connection.sentMaxX = maxX;
+            connection.sentMaxY = maxY;
+        } else {
+            for (int i = 0; i < dirty.size; i++) {
+                int x = TileKeys.x(dirty.get(i));
+                int y = TileKeys.y(dirty.get(i));
+                if (x >= minX && x <= maxX && y >= minY && y <= maxY) collect(connection, x, y);
+            }
+        }
+
+        changedSlots.clear();
+        for (int slot = 0; slot < playerStates.length; slot++) {
+            if (connection.players[slot] == playerStates[slot]) continue;
+            connection.players[slot] = playerStates[slot];
+            changedSlots.add(slot);
+        }
+        if (changedX.size == 0 && changedSlots.size == 0) return; // 没有变化就什么都不发
+
+        int bitsX = BitWriter.bitsFor(maxX - minX);
+        int bitsY = BitWriter.bitsFor(maxY - minY);
+        bits.reset();
+        bits.write((int) tick, 32);
+        bits.write(minX, 16);
+        bits.write(minY, 16);
+        bits.write(bitsX, 4);
+        bits.write(bitsY, 4);
+        bits.write(changedSlots.size, 4);
+        for (int i = 0; i < changedSlots.size; i++) {
+            int slot = changedSlots.get(i);
+            long state = playerStates[slot];
+            bits.write(slot, CoopProtocol.SLOT_BITS);
+            bits.writeBoolean(state != ABSENT);
+            if (state == ABSENT) continue;
+            bits.write((int) (state >>> 18) & 0xFFFF, 16);
+            bits.write((int) (state >>> 2) & 0xFFFF, 16);
+            bits.write((int) state & 0x3, 2);
+        }
+        bits.write(changedX.size, 16);
+        for (int i = 0; i < changedX.size; i++) {
+            bits.write(changedX.get(i) - minX, bitsX);
+            bits.write(changedY.get(i) - minY, bitsY);
+            bits.write(changedState.get(i), TileState.BITS);
+        }
+        connection.send(bits.bytes(), bits.byteLength(), this);
+    }
+
+    private void collect(Connection connection, int x, int y) {
+        int state = TileState.encode(map, x, y);
+        if (connection.known.get(x, y, TileState.UNKNOWN) == state) return;
+        connection.known.put(x, y, state);
+        changedX.add(x);
+        changedY.add(y);
+        changedState.add(state);
+    }
+
+    /** Deflates a raw frame into the shared scratch buffer; returns the compressed length. */
+    private int deflate(Deflater deflater, byte[] raw, int length) {
+        deflater.setInput(raw, 0, length);
+        int size = 0;
+        while (true) {
+            size += deflater.deflate(compressed, size, compressed.length - size, Deflater.SYNC_FLUSH);
+            if (size < compressed.length) return size;
+            compressed = Arrays.copyOf(compressed, compressed.length * 2);
+        }
+    }
+
+    /** @return the number of connected clients */
+    public int getClientCount() {
+        return connections.size();
+    }
+
+    /** @return bytes sent to all clients so far, including headers */
+    public long getBytesSent() {
+        long total = 0;
+        for (Connection connection : connections) total += connection.bytesSent;
+        return total;
+    }
+
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        map.removeTileChangeListener(this);
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // 关闭时出错没有影响
+        }
+        for (Connection connection : connections) {
+            leaveGuest(connection);
+            connection.close();
+            releaseSlot(connection);
+        }
+        connections.clear();
+    }
+
+    /** One connected client. */
+    private static final class Connection {
+        private static final InputCommand.Type[] COMMAND_TYPES = InputCommand.Type.values();
+
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+
+        /* Camera region in tiles, written by the reader thread. Empty until the first update. */
+        volatile int minX = 0, minY = 0, maxX = -1, maxY = -1;
+
+        /** The client's player slot, set before the hello is sent. */
+        int slot;
+        /** Commands read from the client, applied to {@link #controls} on the simulation thread. */
+        final ConcurrentLinkedQueue<InputCommand> inputs = new ConcurrentLinkedQueue<>();
+
+        /* Simulation thread only. */
+        final TileIntMap known = new TileIntMap();
+        int sentMinX = -1, sentMinY = -1, sentMaxX = -1, sentMaxY = -1;
+        /** What the client was last sent for every player slot. */
+        final long[] players = new long[CoopProtocol.MAX_PLAYERS];
+        Player guest;
+        PlayerControls controls;
+        volatile long bytesSent;
+
+        Connection(Socket socket) throws IOException {
+            this.socket = socket;
+            this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            Arrays.fill(players, UNKNOWN);
+        }
+
+        void sendHello(GameMap map) throws IOException {
+            out.writeInt(CoopProtocol.MAGIC);
+            out.writeByte(CoopProtocol.VERSION);
+            out.writeUTF(map.getMapFile().path());
+            out.writeLong(map.getSeed());
+            out.writeShort(map.getWidth());
+            out.writeShort(map.getHeight());
+            out.writeByte(slot);
+            out.flush();
+        }
+
+        void startReader() {
+            Thread reader = new Thread(() -> {
+                try (DataInputStream in = new DataInputStream(socket.getInputStream())) {
+                    while (true) {
+                        byte message = in.readByte();
+                        if (message == CoopProtocol.MSG_INPUT) {
+                            inputs.add(readInput(in));
+                            continue;
+                        }
+                        if (message != CoopProtocol.MSG_REGION) throw new IOException("Unknown message " + message);
+                        int x0 = in.readShort();
+                        int y0 = in.readShort();
+                        int x1 = in.readShort();
+                        int y1 = in.readShort();
+                        minX = x0;
+                        minY = y0;
+                        maxX = x1;
+                        maxY = y1;
+                    }
+                } catch (IOException e) {
+                    closeSocket(); // 下一次发送时会发现连接已断开并移除
+                }
+            }, "Coop reader " + socket.getRemoteSocketAddress());
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        private static InputCommand readInput(DataInputStream in) throws IOException {
+            int type = in.readUnsignedByte();
+            int mask = in.readInt();
+            if (type >= COMMAND_TYPES.length) throw new IOException("Unknown command " + type);
+            // 中文：时间戳没有用，主机在下一个 tick 统一处理
+            return new InputCommand(COMMAND_TYPES[type], 0, mask);
+        }
+
+        /** Forget everything the client was sent, e.g. after the host reloaded the map. */
+        void resync() {
+            known.clear();
+            sentMinX = -1;
+            Arrays.fill(players, UNKNOWN);
+        }
+
+        void send(byte[] raw, int length, CoopHost host) throws IOException {
+            int size = host.deflate(deflater, raw, length);
+            out.writeInt(size);
+            out.writeInt(length);
+            out.write(host.compressed, 0, size);
+            out.flush();
+            bytesSent += 8 + size;
+        }
+
+        void close() {
+            closeSocket();
+            deflater.end();
+        }
+
+        void closeSocket() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // 已经断开了
+            }
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package de.tum.cit.aet.valleyday.net;
+
+/**
+ * Constants shared by {@link CoopHost} and {@link CoopClient}.
+ * <p>
+ * After connecting, the host sends a hello ({@link #MAGIC}, {@link #VERSION}, map file path, seed,
+ * map width and height, the client's player slot), then a stream of frames. Each frame on the wire is
+ * {@code int compressedLength, int rawLength, byte[compressedLength]}; all frames of a connection
+ * share one deflate stream, so repeated patterns from earlier frames compress to almost nothing.
+ * The raw frame is bit-packed:
+ * </p>
+ * <pre>
+ *   32  tick (low bits)
+ *   16  region origin x, 16 region origin y
+ *    4  bits per x offset, 4 bits per y offset
+ *    4  number of players; per player: 3 slot, 1 present,
+ *       if present: 16 x, 16 y (in 1/{@value #POSITION_SCALE} tiles), 2 direction
+ *   16  number of tiles; per tile: x offset, y offset, {@link TileState#BITS} state
+ * </pre>
+ * Only players that moved, joined or left since the last frame are listed. Slot 0 is the host's own player,
+ * every client plays one of the others.
+ * <p>
+ * The client sends {@link #MSG_REGION} followed by four shorts (min x, min y, max x, max y)
+ * whenever its camera moves to another tile, and {@link #MSG_INPUT} followed by a byte
+ * ({@link de.tum.cit.aet.valleyday.input.InputCommand.Type} ordinal) and an int (move mask) for every
+ * key event. The host feeds the commands to the client's player on its own simulation.
+ * </p>
+ */
+final class CoopProtocol {
+
+    static final int MAGIC = 0x56444350; // "VDCP"
+    static final byte VERSION = 2;
+    static final int DEFAULT_PORT = 47321;
+
+    static final byte MSG_REGION = 1;
+    static final byte MSG_INPUT = 2;
+
+    /** Players per session including the host; slots are written with 3 bits. */
+    static final int MAX_PLAYERS = 8;
+    static final int SLOT_BITS = 3;
+
+    /** Frames go out every third tick, i.e. 20 times a second. */
+    static final int SEND_INTERVAL_TICKS = 3;
+    /** Player positions are quantised to 1/64 of a tile, which is below one screen pixel. */
+    static final int POSITION_SCALE = 64;
+    /** Tiles around the camera that are replicated as well, so scrolling does not show stale tiles. */
+    static final int REGION_MARGIN = 2;
+    /** A region never spans more than this many tiles per axis (offsets fit in 8 bits). */
+    static final int MAX_REGION_SIZE = 256;
+
+    private CoopProtocol() {
+    }
+}
@@ -11,40 +11,149 @@ public class Crop extends GameObject {
     public static final int STAGE_MATURE = 2; // ✅ 只有这个阶段按 A 才能收获
     public static final int STAGE_ROTTEN = 3; // ❌ 烂了，不可收获(或者需要铲掉)
 
-    private int currentStage = STAGE_SEED;
-    
-    // 计时器
-    private float stateTimer = 0f;
-    
     // 配置：每个阶段生长需要几秒
     private static final float TIME_TO_GROW = 5.0f; // 5秒发芽，再过5秒成熟
     // 配置：成熟后多久会腐烂
     private static final float TIME_TO_ROT = 15.0f; // 成熟后15秒不收就烂了
 
+    /* Age (seconds since planting or the last restore) at which each stage begins. */
+    private static final float SPROUT_AGE = TIME_TO_GROW;
+    private static final float MATURE_AGE = 2 * TIME_TO_GROW;
+    private static final float ROTTEN_AGE = MATURE_AGE + TIME_TO_ROT;
+
+    /**
+     * Where the crop's state lives: the columns of the crops archetype while it is on a map, a one-row store of
+     * its own before and after (see {@link GrowthColumns}).
+     */
+    GrowthColumns columns = GrowthColumns.detached();
+
+    /** Creates a crop planted at world time 0. */
     public Crop(float x, float y) {
+        this(x, y, 0);
+    }
+
+    /**
+     * @param plantTime the world time (see {@link GameMap#getClock()}) at which the seed is planted
+     */
+    public Crop(float x, float y, double plantTime) {
         super(x, y);
+        columns.plant(0, plantTime);
+    }
+
+    private int row() {
+        return GrowthColumns.rowOf(this);
     }
 
     public void tick(float deltaTime) {
-        // 如果已经烂了，就不做任何事，等着被铲子铲除
-        if (currentStage == STAGE_ROTTEN) {
-            return;
+        advanceTo(columns.now[row()] + deltaTime);
+    }
+
+    /**
+     * Brings the crop to the given world time in one step, however far away it is.
+     * @param time the world time; going backwards is allowed and recomputes the earlier state
+     */
+    public void advanceTo(double time) {
+        columns.advanceTo(row(), time);
+    }
+
+    /** @return the world time of the next stage change, or infinity once the crop has rotted */
+    double nextEventTime() {
+        return columns.nextEventTime(row());
+    }
+
+    /** @return the age at which a crop in {@code stage} moves on, or infinity for a rotten one */
+    static double nextStageAge(int stage) {
+        switch (stage) {
+            case STAGE_SEED:   return SPROUT_AGE;
+            case STAGE_SPROUT: return MATURE_AGE;
+            case STAGE_MATURE: return ROTTEN_AGE;
+            default:           return Double.POSITIVE_INFINITY;
+        }
+    }
+
+    /** Time of this crop's entry in the {@link CropSchedule}, NaN if it is not scheduled. */
+    double getScheduledAt() {
+        return columns.scheduledAt[row()];
+    }
+
+    void setScheduledAt(double time) {
+        columns.scheduledAt[row()] = time;
+    }
+
+    /**
+     * Changes how fast the crop grows from {@code time} on. The age reached so far is kept;
+     * the caller has to schedule the crop again, since its next stage change moved.
+     * @return whether the rate actually changed
+     */
+    boolean setGrowthRate(float rate, double time) {
+        return columns.setGrowthRate(row(), rate, time);
+    }
+
+    public float getGrowthRate() {
+        return columns.growthRate[row()];
+    }
+
+    /**
+     * @return the age of a crop {@code seconds} after it was {@code age} old: growing at {@code rate}
+     * until it is mature, then rotting at the normal speed
+     */
+    static double ageAfter(double age, double seconds, float rate) {
+        if (age >= MATURE_AGE) return age + seconds;
+        double grown = age + seconds * rate;
+        if (grown <= MATURE_AGE) return grown;
+        double toMature = (MATURE_AGE - age) / rate;
+        return MATURE_AGE + (seconds - toMature);
+    }
+
+    /** @return how long a crop that is {@code age} old takes to reach {@code target}; the inverse of {@link #ageAfter} */
+    static double secondsUntil(double age, double target, float rate) {
+        if (target <= age) return 0;
+        if (age >= MATURE_AGE) return target - age;
+        if (target <= MATURE_AGE) return (target - age) / rate;
+        return (MATURE_AGE - age) / rate + (target - MATURE_AGE);
+    }
+
+    /** @return the stage of a crop {@code age} seconds into its growth cycle */
+    static int stageAt(double age) {
+        if (age < SPROUT_AGE) return STAGE_SEED;
+        if (age < MATURE_AGE) return STAGE_SPROUT;
+        if (age < ROTTEN_AGE) return STAGE_MATURE;
+        return STAGE_ROTTEN;
+    }
+
+    /** @return seconds spent in the current stage; a rotten crop keeps the timer it rotted with */
+    static float timerAt(double age) {
+        if (age < SPROUT_AGE) return (float) Math.max(0, age);
+        if (age < MATURE_AGE) return (float) (age - SPROUT_AGE);
+        if (age < ROTTEN_AGE) return (float) (age - MATURE_AGE);
+        return TIME_TO_ROT;
+    }
+
+    /** @return the age in the growth cycle that corresponds to a stage and its timer */
+    static double ageOf(int stage, float timer) {
+        switch (stage) {
+            case STAGE_SEED:   return timer;
+            case STAGE_SPROUT: return SPROUT_AGE + timer;
+            case STAGE_MATURE: return MATURE_AGE + timer;
+            default:           return ROTTEN_AGE;
         }
+    }
 
-        stateTimer += deltaTime;
-
-        // 逻辑分支
-        if (currentStage < STAGE_MATURE) {
-            // --- 生长阶段 (0 -> 1 -> 2) ---
-            if (stateTimer >= TIME_TO_GROW) {
-                stateTimer = 0; // 重置计时器
-                currentStage++; // 进化！
-            }
-        } else if (currentStage == STAGE_MATURE) {
-            // --- 成熟阶段 (等待腐烂) ---
-            if (stateTimer >= TIME_TO_ROT) {
-                currentStage = STAGE_ROTTEN; // 变质了
-            }
+    /**
+     * Ages a whole set of crops stored as parallel arrays by the same amount, in place.
+     * One pass without a tick loop, so catching up a million crops after hours offline
+     * costs the same as catching up after one second.
+     * @param stages the stage of each crop
+     * @param timers the timer of each crop in its stage
+     * @param rates the growth rate of each crop, which must not change in between (settled soil)
+     * @param count the number of crops
+     * @param seconds how much time passed
+     */
+    static void ageAll(int[] stages, float[] timers, float[] rates, int count, double seconds) {
+        for (int i = 0; i < count; i++) {
+            double age = ageAfter(ageOf(stages[i], timers[i]), seconds, rates[i]);
+            stages[i] = stageAt(age);
+            timers[i] = timerAt(age);
         }
     }
 
@@ -52,29 +161,57 @@ public class Crop extends GameObject {
      * @return 是否可以收获 (必须是成熟且没烂)
      */
     public boolean isHarvestable() {
-        return currentStage == STAGE_MATURE;
+        return getStage() == STAGE_MATURE;
     }
     
     /**
      * @return 是否腐烂
      */
     public boolean isRotten() {
-        return currentStage == STAGE_ROTTEN;
+        return getStage() == STAGE_ROTTEN;
     }
 
     /**
      * 用洒水壶复活 (可选功能)
      */
     public void restore() {
-        if (currentStage == STAGE_ROTTEN) {
-            currentStage = STAGE_SEED; // 重新变回种子
-            stateTimer = 0;
+        if (isRotten()) {
+            int row = row();
+            columns.plant(row, columns.now[row]); // 重新变回种子
+            columns.restoreCount[row]++;
         }
     }
 
+    public int getStage() {
+        return columns.stage[row()];
+    }
+
+    /** @return seconds spent in the current stage */
+    public float getStateTimer() {
+        return columns.stateTimer[row()];
+    }
+
+    /** @return how often the crop was brought back with the watering can */
+    public int getRestoreCount() {
+        return columns.restoreCount[row()];
+    }
+
+    /**
+     * Puts the crop back into a previously captured state (used when seeking a replay).
+     * @param time the current world time
+     * @param rate the growth rate from the soil the crop stands on
+     */
+    void restoreState(int stage, float timer, double time, float rate) {
+        int row = row();
+        columns.ageAtRateChange[row] = ageOf(stage, timer);
+        columns.rateSince[row] = time;
+        columns.growthRate[row] = rate;
+        columns.advanceTo(row, time);
+    }
+
     @Override
     public TextureRegion getCurrentAppearance() {
-        switch (currentStage) {
+        switch (getStage()) {
             case STAGE_SEED:   return Textures.CROP_SEED;
             case STAGE_SPROUT: return Textures.CROP_SPROUT;
             case STAGE_MATURE: return Textures.CROP_MATURE;
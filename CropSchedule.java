@@ -0,0 +1,90 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.Arrays;
+
+/**
+ * The crops of a map ordered by when they next change stage.
+ * <p>
+ * A tick only touches the crops whose next stage change is due, instead of every crop on the map;
+ * on a farm of thousands of crops most ticks touch none. Entries are never removed from the middle
+ * of the heap: rescheduling or removing a crop just changes its {@code scheduledAt} column ({@link GrowthColumns}), and entries that
+ * no longer match it are dropped when they reach the top.
+ * </p>
+ */
+final class CropSchedule {
+
+    private double[] times = new double[64];
+    private Crop[] crops = new Crop[64];
+    private int size;
+
+    /** Queues the crop's next stage change; does nothing for a rotten crop, which never changes by itself. */
+    void schedule(Crop crop) {
+        double time = crop.nextEventTime();
+        crop.setScheduledAt(time);
+        if (Double.isInfinite(time)) return;
+        if (size == times.length) {
+            times = Arrays.copyOf(times, size * 2);
+            crops = Arrays.copyOf(crops, size * 2);
+        }
+        int pos = size++;
+        // 上浮
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (times[parent] <= time) break;
+            times[pos] = times[parent];
+            crops[pos] = crops[parent];
+            pos = parent;
+        }
+        times[pos] = time;
+        crops[pos] = crop;
+    }
+
+    /** Forgets the crop, e.g. after it was harvested. */
+    void cancel(Crop crop) {
+        crop.setScheduledAt(Double.NaN);
+    }
+
+    /**
+     * Removes and returns a crop whose stage change is due at {@code clock}, or null if there is none.
+     * The caller advances the crop and schedules it again.
+     */
+    Crop pollDue(double clock) {
+        while (size > 0 && times[0] <= clock) {
+            double time = times[0];
+            Crop crop = crops[0];
+            removeTop();
+            if (crop.getScheduledAt() == time) { // 过期的条目直接丢掉
+                crop.setScheduledAt(Double.NaN);
+                return crop;
+            }
+        }
+        return null;
+    }
+
+    private void removeTop() {
+        size--;
+        double time = times[size];
+        Crop crop = crops[size];
+        crops[size] = null;
+        int pos = 0;
+        // 下沉
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= size) break;
+            if (child + 1 < size && times[child + 1] < times[child]) child++;
+            if (times[child] >= time) break;
+            times[pos] = times[child];
+            crops[pos] = crops[child];
+            pos = child;
+        }
+        if (size > 0) {
+            times[pos] = time;
+            crops[pos] = crop;
+        }
+    }
+
+    void clear() {
+        Arrays.fill(crops, 0, size, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,101 @@
+package de.tum.cit.aet.valleyday.map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CropScheduleTest {
+
+    @Test
+    void pollsCropsInTheOrderTheyAreDue() {
+        CropSchedule schedule = new CropSchedule();
+        Crop late = new Crop(0, 0, 3);
+        Crop early = new Crop(1, 0, 1);
+        Crop middle = new Crop(2, 0, 2);
+        schedule.schedule(late);
+        schedule.schedule(early);
+        schedule.schedule(middle);
+
+        assertNull(schedule.pollDue(5.5));
+        assertSame(early, schedule.pollDue(6));
+        assertSame(middle, schedule.pollDue(8));
+        assertSame(late, schedule.pollDue(8));
+        assertNull(schedule.pollDue(100));
+    }
+
+    @Test
+    void polledCropIsNoLongerScheduled() {
+        CropSchedule schedule = new CropSchedule();
+        Crop crop = new Crop(0, 0, 0);
+        schedule.schedule(crop);
+        assertEquals(5.0, crop.getScheduledAt(), 1e-9);
+        assertSame(crop, schedule.pollDue(5));
+        assertTrue(Double.isNaN(crop.getScheduledAt()));
+    }
+
+    @Test
+    void reschedulingEarlierDropsTheOldEntry() {
+        CropSchedule schedule = new CropSchedule();
+        Crop crop = new Crop(0, 0, 0);
+        schedule.schedule(crop);
+        crop.setGrowthRate(2f, 0);
+        schedule.schedule(crop);
+
+        assertSame(crop, schedule.pollDue(2.5));
+        // 中文：5 秒的旧条目还在堆里，到时候必须被丢掉，而不是再返回一次
+        assertNull(schedule.pollDue(5));
+    }
+
+    @Test
+    void reschedulingLaterSkipsTheOldEntry() {
+        CropSchedule schedule = new CropSchedule();
+        Crop crop = new Crop(0, 0, 0);
+        schedule.schedule(crop);
+        crop.setGrowthRate(0.5f, 0);
+        schedule.schedule(crop);
+
+        assertNull(schedule.pollDue(5));
+        assertSame(crop, schedule.pollDue(10));
+        assertNull(schedule.pollDue(100));
+    }
+
+    @Test
+    void cancelledCropIsNeverPolled() {
+        CropSchedule schedule = new CropSchedule();
+        Crop cancelled = new Crop(0, 0, 0);
+        Crop kept = new Crop(1, 0, 0);
+        schedule.schedule(cancelled);
+        schedule.schedule(kept);
+        schedule.cancel(cancelled);
+
+        assertSame(kept, schedule.pollDue(5));
+        assertNull(schedule.pollDue(100));
+    }
+
+    @Test
+    void rottenCropIsNotScheduled() {
+        CropSchedule schedule = new CropSchedule();
+        Crop crop = new Crop(0, 0, 0);
+        crop.advanceTo(30);
+        schedule.schedule(crop);
+        assertEquals(Double.POSITIVE_INFINITY, crop.getScheduledAt());
+        assertNull(schedule.pollDue(Double.MAX_VALUE));
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        CropSchedule schedule = new CropSchedule();
+        Crop[] crops = new Crop[200];
+        for (int i = crops.length - 1; i >= 0; i--) {
+            crops[i] = new Crop(i, 0, i);
+            schedule.schedule(crops[i]);
+        }
+        for (int i = 0; i < crops.length; i++) {
+            assertSame(crops[i], schedule.pollDue(crops.length + 5));
+        }
+        assertNull(schedule.pollDue(Double.MAX_VALUE));
+    }
+}
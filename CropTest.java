@@ -0,0 +1,115 @@
+package de.tum.cit.aet.valleyday.map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class CropTest {
+
+    private static final float EPSILON = 1e-4f;
+
+    @Test
+    void advanceToMatchesTickingFrameByFrame() {
+        Crop jumped = new Crop(0, 0, 0);
+        Crop ticked = new Crop(0, 0, 0);
+        jumped.advanceTo(12.5);
+        for (int i = 0; i < 125; i++) ticked.tick(0.1f);
+        assertEquals(ticked.getStage(), jumped.getStage());
+        assertEquals(ticked.getStateTimer(), jumped.getStateTimer(), EPSILON);
+        assertEquals(Crop.STAGE_MATURE, jumped.getStage());
+        assertEquals(2.5f, jumped.getStateTimer(), EPSILON);
+    }
+
+    @Test
+    void advanceToGoesThroughEveryStage() {
+        Crop crop = new Crop(0, 0, 10);
+        crop.advanceTo(14);
+        assertEquals(Crop.STAGE_SEED, crop.getStage());
+        crop.advanceTo(16);
+        assertEquals(Crop.STAGE_SPROUT, crop.getStage());
+        crop.advanceTo(20);
+        assertEquals(Crop.STAGE_MATURE, crop.getStage());
+        assertTrue(crop.isHarvestable());
+        crop.advanceTo(35);
+        assertEquals(Crop.STAGE_ROTTEN, crop.getStage());
+        assertTrue(crop.isRotten());
+        assertFalse(crop.isHarvestable());
+    }
+
+    @Test
+    void advanceToCanGoBackwards() {
+        Crop crop = new Crop(0, 0, 0);
+        crop.advanceTo(3600);
+        assertEquals(Crop.STAGE_ROTTEN, crop.getStage());
+        crop.advanceTo(3);
+        assertEquals(Crop.STAGE_SEED, crop.getStage());
+        assertEquals(3f, crop.getStateTimer(), EPSILON);
+    }
+
+    @Test
+    void growthRateKeepsTheAgeReachedSoFar() {
+        Crop crop = new Crop(0, 0, 0);
+        crop.advanceTo(4);
+        assertTrue(crop.setGrowthRate(2f, 4));
+        assertFalse(crop.setGrowthRate(2f, 4));
+        assertEquals(4.5, crop.nextEventTime(), 1e-9);
+        crop.advanceTo(5);
+        assertEquals(Crop.STAGE_SPROUT, crop.getStage());
+        assertEquals(1f, crop.getStateTimer(), EPSILON);
+    }
+
+    @Test
+    void growthRateDoesNotChangeRotting() {
+        Crop crop = new Crop(0, 0, 0);
+        crop.setGrowthRate(2f, 0);
+        crop.advanceTo(5);
+        assertEquals(Crop.STAGE_MATURE, crop.getStage());
+        assertEquals(20.0, crop.nextEventTime(), 1e-9);
+        crop.advanceTo(20);
+        assertEquals(Crop.STAGE_ROTTEN, crop.getStage());
+        assertEquals(Double.POSITIVE_INFINITY, crop.nextEventTime());
+    }
+
+    @Test
+    void restoreStartsANewCycleAtTheCurrentTime() {
+        Crop crop = new Crop(0, 0, 0);
+        crop.advanceTo(30);
+        crop.restore();
+        assertEquals(Crop.STAGE_SEED, crop.getStage());
+        assertEquals(1, crop.getRestoreCount());
+        crop.advanceTo(35);
+        assertEquals(Crop.STAGE_SPROUT, crop.getStage());
+        assertEquals(0f, crop.getStateTimer(), EPSILON);
+    }
+
+    @Test
+    void restoreStateRoundTripsThroughStageAndTimer() {
+        Crop original = new Crop(0, 0, 0);
+        original.setGrowthRate(1.5f, 0);
+        original.advanceTo(6);
+        Crop copy = new Crop(0, 0, 0);
+        copy.restoreState(original.getStage(), original.getStateTimer(), 6, original.getGrowthRate());
+        original.advanceTo(20);
+        copy.advanceTo(20);
+        assertEquals(original.getStage(), copy.getStage());
+        assertEquals(original.getStateTimer(), copy.getStateTimer(), EPSILON);
+    }
+
+    @Test
+    void ageAfterAndSecondsUntilAreInverse() {
+        float[] rates = {0.25f, 1f, 1.875f};
+        double[] ages = {0, 4, 9.5, 12};
+        for (float rate : rates) {
+            for (double age : ages) {
+                for (int stage = Crop.STAGE_SEED; stage <= Crop.STAGE_MATURE; stage++) {
+                    double target = Crop.nextStageAge(stage);
+                    if (target <= age) continue;
+                    double seconds = Crop.secondsUntil(age, target, rate);
+                    assertEquals(target, Crop.ageAfter(age, seconds, rate), 1e-9);
+                }
+            }
+        }
+    }
+}
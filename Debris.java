@@ -13,10 +13,15 @@ public class Debris extends GameObject {
     private final Body body;
     private boolean removed = false;
     private final DebrisType type;
+    /** The map's set of ticking objects; debris joins it while it shakes. */
+    private ActiveSet activeSet;
     private int health;
     // 震动计时器，模拟清除过程
     private float shakeTimer = 0f;
 
+    /** Shake offsets in tiles, stepped through with the shake timer: same timer, same offset. */
+    private static final float[] SHAKE_OFFSETS = {0.05f, -0.03f, 0.02f, -0.05f, 0.04f, -0.02f};
+
     public enum DebrisType {
         STONE,  // 石头
         WEED,   // 杂草
@@ -54,6 +59,7 @@ public class Debris extends GameObject {
         if (removed) return true;
         this.health -= amount; 
         this.shakeTimer = 0.1f;
+        if (activeSet != null) activeSet.add(this); // 开始震动，需要 tick
         return health <= 0;
     }
 
@@ -70,10 +76,23 @@ public class Debris extends GameObject {
         }
     }
 
+    /** Ticks the shake; the debris goes idle once it has stopped. */
+    @Override
+    boolean tickActive(float deltaTime) {
+        tick(deltaTime);
+        return shakeTimer > 0;
+    }
+
+    /** Called by the map when the debris is placed; from then on it activates itself when hit. */
+    void attach(ActiveSet activeSet) {
+        this.activeSet = activeSet;
+    }
+
     public void remove(World world) {
         if (removed) return;
         removed = true;
         world.destroyBody(body);
+        if (activeSet != null) activeSet.remove(this);
     }
 
     public boolean isRemoved() {
@@ -88,6 +107,23 @@ public class Debris extends GameObject {
         return type; 
     }
 
+    public int getHealth() {
+        return health;
+    }
+
+    public float getShakeTimer() {
+        return shakeTimer;
+    }
+
+    /** Puts the debris back into a previously captured state (used when seeking a replay). */
+    void restoreState(int health, float shakeTimer) {
+        this.health = health;
+        this.shakeTimer = shakeTimer;
+        if (activeSet == null) return;
+        if (shakeTimer > 0) activeSet.add(this);
+        else activeSet.remove(this);
+    }
+
     /* ================= Drawable ================= */
 
     @Override
@@ -101,19 +137,21 @@ public class Debris extends GameObject {
 
     @Override
     public float getX() {
-        float offset = 0;
-        if (shakeTimer > 0) {
-            offset = (float) (Math.random() * 0.1f - 0.05f);
-        }
-        return body.getPosition().x - 0.5f + offset;
+        return body.getPosition().x - 0.5f + shakeOffset(0);
     }
 
     @Override
     public float getY() {
-        float offset = 0;
-        if (shakeTimer > 0) {
-            offset = (float) (Math.random() * 0.1f - 0.05f);
-        }
-        return body.getPosition().y - 0.5f + offset;
+        return body.getPosition().y - 0.5f + shakeOffset(3);
+    }
+
+    /**
+     * 中文：抖动只由计时器决定（每个 tick 换一个偏移），不再每次读取都调用 Math.random，
+     * 回放和快照里看到的位置也就完全一样。
+     */
+    private float shakeOffset(int phase) {
+        if (shakeTimer <= 0) return 0f;
+        int step = (int) (shakeTimer * 60f);
+        return SHAKE_OFFSETS[(step + phase) % SHAKE_OFFSETS.length];
     }
 }
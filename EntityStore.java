@@ -0,0 +1,136 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The static and slow-changing entities of a {@link GameMap}, grouped by class into {@link Archetype}s.
+ * <p>
+ * An archetype stores the objects of one class and their tile positions in dense arrays. A component with
+ * per-entity data keeps it in columns on the archetype as well: the {@link #GROWABLE} ones hold their growth
+ * state in {@link GrowthColumns}, and the soil pass of {@link GameMap} walks those columns through the
+ * {@link #GROWABLE} query. State no pass reads in bulk (debris health, ...) stays on the object.
+ * {@link #query(int)} returns the archetypes that have all the given flags, cached per flag set.
+ * </p>
+ * <p>
+ * Every archetype is also given a render kind ({@link #KIND_FLOWERS}, ...) when it is registered, so the
+ * renderers can tell chests from crops without knowing the entity classes.
+ * </p>
+ * Archetypes are returned in registration order, which is also the layer order of the renderable ones.
+ */
+public final class EntityStore {
+
+    /* Component flags. */
+    /** Drawn through the render snapshot. */
+    public static final int RENDERABLE = 1;
+    /** Changes stage over time, see {@link CropSchedule}; the archetype keeps the state in {@link GrowthColumns}. */
+    public static final int GROWABLE = 1 << 1;
+
+    /* Render kinds; the render snapshot uses the same numbers for its entries. */
+    public static final byte KIND_FLOWERS = 0;
+    public static final byte KIND_ITEM = 1;
+    public static final byte KIND_FENCE = 2;
+    public static final byte KIND_DEBRIS = 3;
+    public static final byte KIND_CHEST = 4;
+    public static final byte KIND_CROP = 5;
+    /** An entity kind no pass treats specially. */
+    public static final byte KIND_OTHER = -1;
+
+    private final List<Archetype<?>> archetypes = new ArrayList<>();
+    private final List<Query> queries = new ArrayList<>();
+
+    /**
+     * Adds an entity kind.
+     * @param type the entity class
+     * @param components the component flags every entity of the kind has
+     * @param kind what the renderers treat the entities as, e.g. {@link #KIND_CHEST}
+     * @return the archetype that stores the entities
+     */
+    public <T extends GameObject> Archetype<T> register(Class<T> type, int components, byte kind) {
+        return register(type, components, kind, null);
+    }
+
+    /**
+     * Adds an entity kind whose archetype keeps per-entity data in columns of its own.
+     * @param columns the columns, e.g. {@link GrowthColumns} for a {@link #GROWABLE} kind; null for none
+     */
+    <T extends GameObject> Archetype<T> register(Class<T> type, int components, byte kind,
+                                                 Archetype.Columns<? super T> columns) {
+        if ((components & GROWABLE) != 0 && !(columns instanceof GrowthColumns)) {
+            throw new IllegalArgumentException(type.getSimpleName() + " is growable but has no growth columns");
+        }
+        Archetype<T> archetype = new Archetype<>(type, components, kind, columns);
+        archetypes.add(archetype);
+        for (int i = 0; i < queries.size(); i++) {
+            queries.get(i).offer(archetype);
+        }
+        return archetype;
+    }
+
+    /**
+     * Returns the archetypes that have all the given components. The same object is returned for the same
+     * flags every time, so a system can keep it in a field.
+     * @param required component flags, e.g. {@code RENDERABLE | GROWABLE}
+     */
+    public Query query(int required) {
+        for (int i = 0; i < queries.size(); i++) {
+            if (queries.get(i).required == required) return queries.get(i);
+        }
+        Query query = new Query(required);
+        for (int i = 0; i < archetypes.size(); i++) {
+            query.offer(archetypes.get(i));
+        }
+        queries.add(query);
+        return query;
+    }
+
+    /** Removes every entity; the archetypes and cached queries stay. */
+    public void clear() {
+        for (int i = 0; i < archetypes.size(); i++) {
+            archetypes.get(i).clear();
+        }
+    }
+
+    /** @return the number of entities over all archetypes */
+    public int size() {
+        int total = 0;
+        for (int i = 0; i < archetypes.size(); i++) {
+            total += archetypes.get(i).size();
+        }
+        return total;
+    }
+
+    /** A cached component query: the matching archetypes, in registration order. */
+    public static final class Query {
+
+        private final int required;
+        private Archetype<?>[] matches = new Archetype<?>[0];
+
+        private Query(int required) {
+            this.required = required;
+        }
+
+        private void offer(Archetype<?> archetype) {
+            if (!archetype.has(required)) return;
+            matches = Arrays.copyOf(matches, matches.length + 1);
+            matches[matches.length - 1] = archetype;
+        }
+
+        /** @return the number of matching archetypes */
+        public int size() {
+            return matches.length;
+        }
+
+        public Archetype<?> get(int index) {
+            return matches[index];
+        }
+
+        /** @return the number of entities over all matching archetypes */
+        public int countEntities() {
+            int total = 0;
+            for (Archetype<?> archetype : matches) total += archetype.size();
+            return total;
+        }
+    }
+}
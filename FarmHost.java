@@ -0,0 +1,179 @@
+package de.tum.cit.aet.valleyday.server;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.TimeUtils;
+import de.tum.cit.aet.valleyday.sim.Simulation;
+
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs many independent {@link FarmInstance}s at the fixed simulation rate, without a window.
+ * <p>
+ * A single clock thread wakes up once per tick and hands every farm that is due to a work-stealing
+ * {@link ForkJoinPool}. A farm that is still running from the last round is not submitted again, so
+ * a slow farm only falls behind itself and never queues up work for the pool. Each round a farm runs
+ * at most {@link #MAX_TICKS_PER_ROUND} ticks; whatever it could not catch up on is skipped and counted.
+ * </p>
+ * Idle farms hibernate (see {@link FarmInstance}), which is what keeps ten thousand of them in memory. At most
+ * {@link #getMaxLive()} farms are awake at any time, so the memory stays bounded even when every farm gets input:
+ * a farm that would wake beyond the limit waits, and {@link HostStats#getDeferredWakes()} shows how often.
+ */
+public class FarmHost {
+
+    private static final long TICK_NANOS = (long) (Simulation.STEP * 1_000_000_000L);
+    /** Per-farm tick budget per round; beyond that the farm skips ahead. */
+    static final int MAX_TICKS_PER_ROUND = 4;
+    /** Live farms allowed by default; a live farm costs a Box2D world and its map, a hibernated one a snapshot. */
+    public static final int DEFAULT_MAX_LIVE = 512;
+
+    private final CopyOnWriteArrayList<FarmInstance> farms = new CopyOnWriteArrayList<>();
+    private final ForkJoinPool pool;
+    private final int maxLive;
+    /** One permit per farm that may be awake, see {@link FarmInstance}. */
+    private final Semaphore livePermits;
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final LongAdder ticks = new LongAdder();
+    private volatile boolean running;
+    private Thread clock;
+
+    /* For the ticks-per-second figure in stats(). */
+    private long lastStatsNanos = TimeUtils.nanoTime();
+    private long lastStatsTicks;
+
+    /** @param threads number of worker threads, usually the number of cores */
+    public FarmHost(int threads) {
+        this(threads, DEFAULT_MAX_LIVE);
+    }
+
+    /**
+     * @param threads number of worker threads, usually the number of cores
+     * @param maxLive how many farms may be awake at once
+     */
+    public FarmHost(int threads, int maxLive) {
+        if (maxLive < 1) throw new IllegalArgumentException("maxLive must be at least 1");
+        this.pool = new ForkJoinPool(threads, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true);
+        this.maxLive = maxLive;
+        this.livePermits = new Semaphore(maxLive);
+    }
+
+    /**
+     * Creates a farm and schedules it from the next round on. Beyond {@link #getMaxLive()} live farms it starts
+     * hibernated. Must be called on a thread with a libGDX context (the map is loaded here).
+     */
+    public FarmInstance addFarm(FileHandle mapFile, long seed, float dayLength, int harvestQuota) {
+        FarmInstance farm = new FarmInstance(nextId.getAndIncrement(), mapFile, seed, dayLength, harvestQuota,
+                livePermits);
+        farm.nextDueNanos = TimeUtils.nanoTime();
+        farms.add(farm);
+        return farm;
+    }
+
+    /** Starts the clock thread. Does nothing if it is already running. */
+    public void start() {
+        if (running) return;
+        running = true;
+        clock = new Thread(this::run, "FarmHost clock");
+        clock.setDaemon(true);
+        clock.start();
+    }
+
+    /** Stops the clock and waits for the farms that are running right now to finish their round. */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(clock);
+        try {
+            clock.join();
+            pool.shutdown();
+            pool.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        long nextRound = TimeUtils.nanoTime();
+        while (running) {
+            long now = TimeUtils.nanoTime();
+            // 中文：快照迭代器，runFarm 里并发移除崩溃的农场不会让下标错位
+            for (FarmInstance farm : farms) {
+                if (farm.nextDueNanos - now > 0) continue;
+                // 中文：上一轮还没跑完的农场这一轮不再提交，池子里不会堆积任务
+                if (!farm.busy.compareAndSet(false, true)) continue;
+                pool.execute(() -> runFarm(farm));
+            }
+            nextRound += TICK_NANOS;
+            if (now - nextRound > TICK_NANOS) nextRound = now; // 时钟线程自己落后了就不补
+            LockSupport.parkNanos(nextRound - TimeUtils.nanoTime());
+        }
+    }
+
+    private void runFarm(FarmInstance farm) {
+        try {
+            // 中文：在任务真正开始时取时间，排队等线程的时间也算进迟到
+            ticks.add(farm.runDue(TimeUtils.nanoTime(), MAX_TICKS_PER_ROUND, TICK_NANOS));
+        } catch (RuntimeException e) {
+            // 一个农场出错不影响其他农场，把它移出调度
+            farms.remove(farm);
+            farm.discard();
+            Gdx.app.error("FarmHost", "Farm " + farm.getId() + " crashed and was removed", e);
+        } finally {
+            farm.busy.set(false);
+        }
+    }
+
+    /**
+     * Collects the current statistics. The ticks-per-second figure and the maxima cover the time since the
+     * previous call; the maxima are reset by it.
+     */
+    public synchronized HostStats stats() {
+        long now = TimeUtils.nanoTime();
+        long total = ticks.sum();
+        double seconds = (now - lastStatsNanos) / 1e9;
+        double ticksPerSecond = seconds > 0 ? (total - lastStatsTicks) / seconds : 0;
+        lastStatsNanos = now;
+        lastStatsTicks = total;
+
+        int hibernated = 0;
+        long maxTick = 0;
+        long maxLateness = 0;
+        long skipped = 0;
+        long tickSum = 0;
+        long deferred = 0;
+        int live = 0;
+        for (FarmInstance farm : farms) {
+            deferred += farm.deferredWakes;
+            if (farm.isHibernated()) {
+                hibernated++;
+                continue;
+            }
+            live++;
+            tickSum += farm.lastTickNanos;
+            maxTick = Math.max(maxTick, farm.maxTickNanos.getAndSet(0));
+            maxLateness = Math.max(maxLateness, farm.maxLatenessNanos.getAndSet(0));
+            skipped += farm.skippedTicks;
+        }
+        return new HostStats(farms.size(), hibernated, maxLive, ticksPerSecond, total,
+                live > 0 ? tickSum / live : 0, maxTick, maxLateness, skipped, deferred);
+    }
+
+    /** @return how many farms may be awake at once */
+    public int getMaxLive() {
+        return maxLive;
+    }
+
+    public int getFarmCount() {
+        return farms.size();
+    }
+
+    public FarmInstance getFarm(int index) {
+        return farms.get(index);
+    }
+}
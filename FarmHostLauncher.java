@@ -0,0 +1,58 @@
+package de.tum.cit.aet.valleyday;
+
+import com.badlogic.gdx.Application;
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.files.FileHandle;
+import de.tum.cit.aet.valleyday.server.FarmHost;
+
+/**
+ * Runs a number of farms on a headless {@link FarmHost} and prints its statistics once per second.
+ * <p>
+ * Usage: {@code FarmHostLauncher <map file> [farms] [threads] [max live farms]}.
+ * Every farm gets its own seed; nobody sends input, so after ten seconds they all hibernate,
+ * which is the situation the memory budget is meant for.
+ * </p>
+ */
+public class FarmHostLauncher {
+
+	public static void main(String[] arg) {
+		if (arg.length < 1) {
+			System.err.println("Usage: FarmHostLauncher <map file> [farms] [threads] [max live farms]");
+			return;
+		}
+		int farmCount = arg.length > 1 ? Integer.parseInt(arg[1]) : 1000;
+		int threads = arg.length > 2 ? Integer.parseInt(arg[2]) : Runtime.getRuntime().availableProcessors();
+		int maxLive = arg.length > 3 ? Integer.parseInt(arg[3]) : FarmHost.DEFAULT_MAX_LIVE;
+
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		config.updatesPerSecond = 1; // The render loop only prints the statistics
+
+		new HeadlessApplication(new ApplicationAdapter() {
+			private FarmHost host;
+
+			@Override
+			public void create() {
+				Gdx.app.setLogLevel(Application.LOG_ERROR);
+				FileHandle mapFile = Gdx.files.absolute(arg[0]);
+				host = new FarmHost(threads, maxLive);
+				for (int i = 0; i < farmCount; i++) {
+					host.addFarm(mapFile, i, 180f, 5);
+				}
+				host.start();
+			}
+
+			@Override
+			public void render() {
+				System.out.println(host.stats());
+			}
+
+			@Override
+			public void dispose() {
+				host.stop();
+			}
+		}, config);
+	}
+}
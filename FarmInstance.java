@@ -0,0 +1,223 @@
+package de.tum.cit.aet.valleyday.server;
+
+import com.badlogic.gdx.files.FileHandle;
+import de.tum.cit.aet.valleyday.input.InputCommand;
+import de.tum.cit.aet.valleyday.input.PlayerControls;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.MapSnapshot;
+import de.tum.cit.aet.valleyday.sim.Simulation;
+import de.tum.cit.aet.valleyday.state.GameState;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * One farm hosted by a {@link FarmHost}: its own seed, map, game state and input queue.
+ * <p>
+ * A farm that has been idle for {@link #HIBERNATE_AFTER_TICKS} ticks and is quiescent
+ * ({@link GameMap#isQuiescent()}) is hibernated: its Box2D world is freed and only a
+ * {@link MapSnapshot}, the game state and the input state are kept. The snapshot stores the debris, crops,
+ * items and animals in primitive arrays, and of the soil only the tiles that are away from their natural
+ * level (12 bytes each). A farm that was watered in a few places hibernates in some kilobytes; one that was
+ * watered all over keeps most of its soil.
+ * The next command wakes it up again by reloading the map and restoring the snapshot; the
+ * crops and the day timer are advanced by the ticks it slept through in closed form, so the result is
+ * the same as if it had been ticking all along.
+ * </p>
+ * <p>
+ * Only as many farms as the host has live permits are awake at once ({@link FarmHost#getMaxLive()}); that is what
+ * bounds the memory, whatever the farms do. A farm created while all permits are taken starts hibernated, and a
+ * hibernated farm that gets input while they are taken keeps its commands queued and sleeps on until a permit is
+ * free (counted in {@link #deferredWakes}).
+ * </p>
+ * A farm is only ever run by one pool thread at a time (guarded by {@link #busy}). Setting {@code busy} back to
+ * false and the next successful {@code compareAndSet} order everything one run wrote before the next run, whichever
+ * pool thread it is on. The fields the clock and stats threads read without taking {@code busy} are volatile.
+ */
+public final class FarmInstance {
+
+    /** Ten seconds without input before a quiescent farm is hibernated. */
+    static final int HIBERNATE_AFTER_TICKS = 600;
+    /** Commands queued beyond this are rejected, so one flooding client cannot grow the heap. */
+    static final int MAX_PENDING_COMMANDS = 256;
+
+    private final int id;
+    private final FileHandle mapFile;
+    private final long seed;
+
+    /** Shared by all farms of the host; a live farm holds one permit. */
+    private final Semaphore livePermits;
+    private final ConcurrentLinkedQueue<InputCommand> inbox = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger pending = new AtomicInteger();
+    final AtomicBoolean busy = new AtomicBoolean();
+
+    /* Live state, null while hibernated. */
+    private Simulation simulation;
+
+    /* Hibernated state, null while live. parkedMap is also read by the stats thread. */
+    private volatile MapSnapshot parkedMap;
+    private GameState parkedState;
+    private PlayerControls parkedControls;
+    private long parkedTick;
+
+    /** Ticks completed, including the ones slept through while hibernated. */
+    private long tick;
+    private long lastInputTick;
+    /** {@code System.nanoTime()} at which the next tick is due; read by the clock thread. */
+    volatile long nextDueNanos;
+
+    /* Statistics, written by the pool thread running the farm, read by the host.
+       The maxima are reset by FarmHost.stats(), so they cover one stats window. */
+    volatile long lastTickNanos;
+    final AtomicLong maxTickNanos = new AtomicLong();
+    final AtomicLong maxLatenessNanos = new AtomicLong();
+    volatile long skippedTicks;
+    /** Rounds in which the farm had input but stayed hibernated because no live permit was free. */
+    volatile long deferredWakes;
+
+    FarmInstance(int id, FileHandle mapFile, long seed, float dayLength, int harvestQuota, Semaphore livePermits) {
+        this.id = id;
+        this.mapFile = mapFile;
+        this.seed = seed;
+        this.livePermits = livePermits;
+        GameMap map = new GameMap(null);
+        map.setMuted(true);
+        map.loadMap(mapFile, seed);
+        this.simulation = new Simulation(map, new GameState(dayLength, harvestQuota));
+        if (!livePermits.tryAcquire()) {
+            // 中文：活着的农场已经满了，新农场直接以休眠状态开始
+            park();
+        }
+    }
+
+    /**
+     * Queues a command for the next tick. Thread-safe.
+     * @return false if the farm's queue is full and the command was dropped
+     */
+    public boolean submit(InputCommand command) {
+        if (pending.incrementAndGet() > MAX_PENDING_COMMANDS) {
+            pending.decrementAndGet();
+            return false;
+        }
+        inbox.add(command);
+        return true;
+    }
+
+    /**
+     * Runs the ticks that are due, at most {@code maxTicks}. Called by the host on a pool thread.
+     * @return the number of ticks run
+     */
+    int runDue(long now, int maxTicks, long tickNanos) {
+        if (parkedMap != null) {
+            boolean deferred = false;
+            if (!inbox.isEmpty() && !livePermits.tryAcquire()) {
+                deferredWakes++; // 中文：没有空位，命令留在队列里，下一轮再试
+                deferred = true;
+            }
+            if (inbox.isEmpty() || deferred) {
+                // 休眠中：只记账，不做任何模拟
+                if (nextDueNanos - now <= 0) {
+                    long due = (now - nextDueNanos) / tickNanos + 1;
+                    tick += due;
+                    nextDueNanos += due * tickNanos;
+                }
+                return 0;
+            }
+            try {
+                wake();
+            } catch (RuntimeException e) {
+                livePermits.release();
+                throw e;
+            }
+        }
+
+        int ran = 0;
+        while (nextDueNanos - now <= 0 && ran < maxTicks) {
+            long lateness = now - nextDueNanos;
+            maxLatenessNanos.accumulateAndGet(lateness, Math::max);
+
+            InputCommand command;
+            while ((command = inbox.poll()) != null) {
+                pending.decrementAndGet();
+                simulation.submit(command);
+                lastInputTick = tick;
+            }
+            long start = System.nanoTime();
+            simulation.tick();
+            long duration = System.nanoTime() - start;
+            lastTickNanos = duration;
+            maxTickNanos.accumulateAndGet(duration, Math::max);
+
+            tick++;
+            nextDueNanos += tickNanos;
+            ran++;
+        }
+        if (nextDueNanos - now <= 0) {
+            // 超出本轮预算的 tick 直接跳过，避免一个慢的农场把整个池子拖住
+            long behind = (now - nextDueNanos) / tickNanos + 1;
+            skippedTicks += behind;
+            nextDueNanos += behind * tickNanos;
+        }
+
+        if (tick - lastInputTick >= HIBERNATE_AFTER_TICKS && simulation.getMap().isQuiescent()) {
+            hibernate();
+        }
+        return ran;
+    }
+
+    private void hibernate() {
+        park();
+        livePermits.release();
+    }
+
+    /** Keeps only the snapshot; does not touch the permits. */
+    private void park() {
+        parkedTick = tick;
+        parkedMap = simulation.getMap().snapshot();
+        parkedState = new GameState(simulation.getGameState());
+        parkedControls = new PlayerControls();
+        parkedControls.copyFrom(simulation.getControls());
+        simulation.getMap().dispose();
+        simulation = null;
+    }
+
+    private void wake() {
+        GameMap map = new GameMap(null);
+        map.setMuted(true);
+        long slept = tick - parkedTick;
+        // 中文：作物状态是时间的闭式函数，睡了多久都一次算完
+        map.restore(mapFile, parkedMap.advancedBy(slept * (double) Simulation.STEP));
+        GameState state = parkedState;
+        // 中文：休眠期间白天计时仍在流逝，一次性补上（updateTime 本身就是 O(1) 的）
+        state.updateTime(slept * Simulation.STEP);
+        simulation = new Simulation(map, state);
+        simulation.restore(tick, parkedControls);
+        parkedMap = null;
+        parkedState = null;
+        parkedControls = null;
+        lastInputTick = tick;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public boolean isHibernated() {
+        return parkedMap != null;
+    }
+
+    /** Gives the farm's live permit back when the host drops it, e.g. after it crashed. */
+    void discard() {
+        if (parkedMap == null && simulation != null) {
+            simulation = null;
+            livePermits.release();
+        }
+    }
+
+    public long getTick() {
+        return tick;
+    }
+}
@@ -62,6 +62,11 @@ public class Fence extends GameObject implements Drawable { // ✅ 必须实现
         return body.getPosition().y - 0.5f;
     }
 
+    /** Destroys the fence's hitbox, e.g. when a reloaded map file no longer contains it. */
+    void remove(World world) {
+        world.destroyBody(body);
+    }
+
     public Body getBody() {
         return body;
     }
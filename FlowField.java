@@ -0,0 +1,136 @@
+package de.tum.cit.aet.valleyday.path;
+
+import java.util.Arrays;
+
+/**
+ * Directions towards one goal for every tile of the map.
+ * <p>
+ * Built once with a Dijkstra sweep outward from the goal; afterwards any number of agents that
+ * share the goal (e.g. a flock of crows heading for the same field) just look up the step to
+ * take on their current tile, which is O(1) per agent regardless of the path length.
+ * Like {@link Path}, a field is immutable apart from its validity flag.
+ * </p>
+ */
+public final class FlowField {
+
+    static final int UNREACHABLE = Integer.MAX_VALUE;
+    private static final int[] DX = {1, -1, 0, 0, 1, 1, -1, -1};
+    private static final int[] DY = {0, 0, 1, -1, 1, -1, 1, -1};
+
+    private final int width;
+    private final int height;
+    private final int goalX;
+    private final int goalY;
+    /** Cost to reach the goal from each tile. */
+    private final int[] cost;
+    /** Index into DX/DY of the step to take on each tile, -1 at the goal and on unreachable tiles. */
+    private final byte[] direction;
+    private volatile boolean valid = true;
+
+    private FlowField(int width, int height, int goalX, int goalY) {
+        this.width = width;
+        this.height = height;
+        this.goalX = goalX;
+        this.goalY = goalY;
+        this.cost = new int[width * height];
+        this.direction = new byte[width * height];
+    }
+
+    static FlowField build(NavGrid grid, int goalX, int goalY) {
+        FlowField field = new FlowField(grid.getWidth(), grid.getHeight(), goalX, goalY);
+        int[] cost = field.cost;
+        Arrays.fill(cost, UNREACHABLE);
+        Arrays.fill(field.direction, (byte) -1);
+        if (!grid.isWalkable(goalX, goalY)) return field;
+
+        int width = grid.getWidth();
+        IntMinHeap open = new IntMinHeap(grid.size());
+        int goal = goalY * width + goalX;
+        cost[goal] = 0;
+        open.pushOrDecrease(goal, 0);
+        while (!open.isEmpty()) {
+            int current = open.pop();
+            int cx = current % width;
+            int cy = current / width;
+            for (int dir = 0; dir < 8; dir++) {
+                int nx = cx + DX[dir];
+                int ny = cy + DY[dir];
+                if (!grid.isWalkable(nx, ny)) continue;
+                boolean diagonal = dir >= 4;
+                if (diagonal && (!grid.isWalkable(cx + DX[dir], cy) || !grid.isWalkable(cx, cy + DY[dir]))) continue;
+                int neighbour = ny * width + nx;
+                int next = cost[current] + (diagonal ? AStar.DIAGONAL : AStar.STRAIGHT);
+                if (next < cost[neighbour]) {
+                    cost[neighbour] = next;
+                    // 中文：邻居要走回 current，方向取反
+                    field.direction[neighbour] = (byte) opposite(dir);
+                    open.pushOrDecrease(neighbour, next);
+                }
+            }
+        }
+        return field;
+    }
+
+    private static int opposite(int dir) {
+        switch (dir) {
+            case 0: return 1;
+            case 1: return 0;
+            case 2: return 3;
+            case 3: return 2;
+            case 4: return 7;
+            case 5: return 6;
+            case 6: return 5;
+            default: return 4;
+        }
+    }
+
+    /** @return the x step (-1, 0 or 1) to take on the tile, 0 at the goal or if it is unreachable */
+    public int getStepX(int x, int y) {
+        int dir = directionAt(x, y);
+        return dir < 0 ? 0 : DX[dir];
+    }
+
+    /** @return the y step (-1, 0 or 1) to take on the tile, 0 at the goal or if it is unreachable */
+    public int getStepY(int x, int y) {
+        int dir = directionAt(x, y);
+        return dir < 0 ? 0 : DY[dir];
+    }
+
+    private int directionAt(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return -1;
+        return direction[y * width + x];
+    }
+
+    public boolean isReachable(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && cost[y * width + x] != UNREACHABLE;
+    }
+
+    public int getGoalX() {
+        return goalX;
+    }
+
+    public int getGoalY() {
+        return goalY;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * @return whether a change of walkability at the tile can change this field:
+     * the tile itself or one of its neighbours is reachable from the goal
+     */
+    boolean isAffectedBy(int x, int y) {
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                if (isReachable(x + dx, y + dy)) return true;
+            }
+        }
+        return false;
+    }
+}
@@ -2,7 +2,6 @@ package de.tum.cit.aet.valleyday.map;
 
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
-import de.tum.cit.aet.valleyday.texture.Drawable;
 import de.tum.cit.aet.valleyday.texture.Textures;
 
 /**
@@ -10,14 +9,10 @@ import de.tum.cit.aet.valleyday.texture.Textures;
  * They do not have a hitbox, so the player does not collide with them.
  * They are purely decorative and serve as a nice floor decoration.
  */
-public class Flowers implements Drawable {
-    
-    private final int x;
-    private final int y;
+public class Flowers extends GameObject {
     
     public Flowers(int x, int y) {
-        this.x = x;
-        this.y = y;
+        super(x, y);
     }
     
     @Override
@@ -25,16 +20,7 @@ public TextureRegion getCurrentAppearance() {
     return Textures.FLOWERS(); // ⚡ 调用时才访问 SpriteSheet
 }
 
-    
-    @Override
-    public float getX() {
-        return x;
-    }
-    
-    @Override
-    public float getY() {
-        return y;
-    }
+
     /** 最小改动：增加 render 方法，直接绘制 */
     public void render(SpriteBatch batch) {
         batch.draw(getCurrentAppearance(), x * 16, y * 16, 16, 16);
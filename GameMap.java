@@ -4,9 +4,17 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.files.FileHandle;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.LongArray;
+import com.badlogic.gdx.utils.TimeUtils;
 import de.tum.cit.aet.valleyday.ValleyDayGame;
+import de.tum.cit.aet.valleyday.audio.SoundEffect;
 import de.tum.cit.aet.valleyday.audio.SoundManager;
+import de.tum.cit.aet.valleyday.input.InputCommand;
+import de.tum.cit.aet.valleyday.path.Path;
+import de.tum.cit.aet.valleyday.path.PathService;
 import de.tum.cit.aet.valleyday.state.GameState; 
 
 import java.util.ArrayList;
@@ -14,16 +22,20 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.CompletableFuture;
 
 public class GameMap {
 
     static { com.badlogic.gdx.physics.box2d.Box2D.init(); }
 
     // ... (常量定义保持不变) ...
-    private static final float TIME_STEP = 1f / Gdx.graphics.getDisplayMode().refreshRate;
+    // 固定物理步长：不再依赖显示器刷新率，同一个输入序列在任何机器上结果都一样（回放需要）
+    private static final float TIME_STEP = 1f / 60f;
     private static final int VELOCITY_ITERATIONS = 6;
     private static final int POSITION_ITERATIONS = 2;
     private float physicsTime = 0;
+    /** Seconds of game time since the map was loaded; crops derive their state from it. */
+    private double clock;
 
     private final ValleyDayGame game;
     private final World world;
@@ -33,115 +45,261 @@ public class GameMap {
         this.gameState = gameState;
     }
 
-    // --- 实体列表 ---
+    /** The file the current map was loaded from, needed to rebuild it when restoring a snapshot. */
+    private FileHandle mapFile;
+    /** The parsed content of {@link #mapFile}, the baseline for {@link #applyTemplate}. */
+    private MapTemplate template;
+    /** Seed used to place the hidden items. The same file and seed always produce the same map. */
+    private long seed;
+    /** When true no sounds or particles are played, e.g. while a replay runs headless or fast-forwards. */
+    private boolean muted;
+
+    public void setMuted(boolean muted) {
+        this.muted = muted;
+    }
+
+    // --- 实体：每种实体一个 archetype，对象和位置紧凑存放；注册顺序就是图层顺序 (地上的 -> 站着的)，各类实体自己的逻辑直接用下面的类型化字段 ---
     private Player player;
-    private List<Chest> chests;
-    private List<Flowers> flowers;
-    private List<Fence> fences;
-    private List<Debris> debrisList;
-    private List<Tool> itemsOnGround;
-    
+    /** Co-op players besides {@link #player}, see {@link #addGuest()}. */
+    private final List<Player> guests = new ArrayList<>();
+    /** Where players appear: the entrance of the map. */
+    private int spawnX, spawnY;
+    /** Set on a co-op client, whose map only mirrors the host, see {@link #setReplica(boolean)}. */
+    private boolean replica;
+    private final EntityStore entities = new EntityStore();
+    private final Archetype<Flowers> flowers = entities.register(Flowers.class, EntityStore.RENDERABLE, EntityStore.KIND_FLOWERS);
+    private final Archetype<Tool> itemsOnGround = entities.register(Tool.class, EntityStore.RENDERABLE, EntityStore.KIND_ITEM);
+    private final Archetype<Fence> fences = entities.register(Fence.class, EntityStore.RENDERABLE, EntityStore.KIND_FENCE);
+    private final Archetype<Debris> debrisList = entities.register(Debris.class, EntityStore.RENDERABLE, EntityStore.KIND_DEBRIS);
+    private final Archetype<Chest> chests = entities.register(Chest.class, EntityStore.RENDERABLE, EntityStore.KIND_CHEST);
+    private final Archetype<Crop> crops = entities.register(Crop.class, EntityStore.RENDERABLE | EntityStore.GROWABLE,
+            EntityStore.KIND_CROP, new GrowthColumns());
+    /** 中文：土壤那一趟按列遍历所有会生长的 archetype */
+    private final EntityStore.Query growable = entities.query(EntityStore.GROWABLE);
 
     // --- 地图基础 ---
     private int width;
     private int height;
-    private Floor[][] floors;
+    /** 中文：地形和行走性放在堆外的 TileStore 里，不再是每格一个 Floor 对象；障碍物和作物在 archetype 里 */
+    private TileStore tiles;
     private OrthographicCamera camera;
-    private Map<Vector2, Integer> mapObjects;
+    /** Furthest the camera can zoom out, enough to see a 2048×2048 farm on a 1080p screen. */
+    private static final float MAX_ZOOM = 128f;
 
     private final Map<Integer, EntityFactory> entityFactories = new HashMap<>();
 
-    // ✅ 核心修改 1: 将 Key 从 Vector2 改为 String，避免浮点数精度导致的"找不到物品"bug
-    // 格式: "x,y" (例如 "3,5")
-    private final Map<String, GameObject> hiddenItems = new HashMap<>();
+    /** Caches that want to know when a tile changes, see {@link TileChangeListener}. */
+    private final List<TileChangeListener> tileChangeListeners = new ArrayList<>();
+
+    // ✅ 隐藏层：key 为 TileKeys.pack(x, y)，整数坐标既没有浮点误差，也不需要拼接字符串
+    private final TileKeyMap<GameObject> hiddenItems = new TileKeyMap<>();
+
+    // 按格子索引的实体，交互时一次查表即可，不用遍历整个列表
+    private final TileKeyMap<Debris> debrisByTile = new TileKeyMap<>();
+    private final TileKeyMap<Crop> cropsByTile = new TileKeyMap<>();
+    private final TileKeyMap<Tool> itemsByTile = new TileKeyMap<>();
+
+    /** 中文：作物按下次换阶段的时间排队，每个 tick 只处理到期的作物 */
+    private final CropSchedule cropSchedule = new CropSchedule();
+    /** 中文：只有正在变化的物体（比如被敲得在震动的障碍物）才在这里，tick 只处理它们 */
+    private final ActiveSet active = new ActiveSet();
+    /** Moisture and fertility per tile; they set how fast the crops grow. */
+    private SoilLayer soil;
+    /** Sensor zones for the tools on the ground and the exit; reports the player walking in and out. */
+    private final TriggerSystem triggers;
+    private final TriggerSystem.Handler triggerHandler = this::onTrigger;
+    private final TriggerSystem.Handler ignoreTriggers = (kind, x, y, entered) -> { };
+    /** Number of players standing in the exit zone, kept up to date by the trigger events. */
+    private int playersInExit;
+    /** Crows and farm animals, see {@link AgentSystem}. */
+    private final AgentSystem agents = new AgentSystem(this);
+    /** 中文：每 400 格放一只动物 */
+    private static final int TILES_PER_ANIMAL = 400;
+
+    /* Click-to-move, see moveTo(). The path service (and its worker thread) is only created on first use. */
+    private PathService pathService;
+    /** Search started by the last {@link #moveTo}, picked up at the start of the next tick. */
+    private CompletableFuture<Path> pendingPath;
+    /** Tiles of the path the player is walking, null when not walking. */
+    private int[] walkXs;
+    private int[] walkYs;
+    /** Index of the waypoint the player is heading for. */
+    private int walkStep;
+    private int walkGoalX;
+    private int walkGoalY;
+    /** How close (in tiles) the player has to get to a waypoint before heading for the next one. */
+    private static final float WAYPOINT_RADIUS = 0.1f;
+
+    /* 中文：范围操作进行中时，格子通知和音效先攒起来，结束时一次性处理 */
+    private boolean batching;
+    private final LongArray batchKeys = new LongArray();
+    private SoundEffect batchSound;
+    private int batchSoundX;
+    private int batchSoundY;
 
     public GameMap(ValleyDayGame game) {
         // ... (构造函数内容保持不变) ...
         this.game = game;
         this.world = new World(Vector2.Zero, true);
-        this.chests = new ArrayList<>();
-        this.flowers = new ArrayList<>();
-        this.fences = new ArrayList<>();
-        this.crops = new ArrayList<>();
-        this.debrisList = new ArrayList<>();
-        this.mapObjects = new HashMap<>();
-        this.itemsOnGround = new ArrayList<>();
+        this.triggers = new TriggerSystem(world);
         this.camera = new OrthographicCamera();
         this.camera.setToOrtho(false, Gdx.graphics.getWidth(), Gdx.graphics.getHeight());
         registerFactories();
+        tileChangeListeners.add(agents); // 中文：乌鸦靠格子变化知道哪里有熟了的作物
     }
 
     // ... (registerFactories 保持不变) ...
     private void registerFactories() {
         entityFactories.put(0, (map, world, x, y) -> {
             map.getFences().add(new Fence(world, x, y));
-            map.getFloor(x, y).setWalkable(false);
+            map.setWalkable(x, y, false);
         });
         entityFactories.put(1, (map, world, x, y) -> {
-            map.getDebris().add(new Debris(world, x, y, Debris.DebrisType.WEED));
-            map.getFloor(x, y).setWalkable(false);
+            map.addDebris(new Debris(world, x, y, Debris.DebrisType.WEED), x, y);
+            map.setWalkable(x, y, false);
         });
         entityFactories.put(3, (map, world, x, y) -> {
-            map.getDebris().add(new Debris(world, x, y, Debris.DebrisType.STONE));
-            map.getFloor(x, y).setWalkable(false);
+            map.addDebris(new Debris(world, x, y, Debris.DebrisType.STONE), x, y);
+            map.setWalkable(x, y, false);
         });
         entityFactories.put(4, (map, world, x, y) -> {
-            map.getDebris().add(new Debris(world, x, y, Debris.DebrisType.MOUND));
-            map.getFloor(x, y).setWalkable(false);
+            map.addDebris(new Debris(world, x, y, Debris.DebrisType.MOUND), x, y);
+            map.setWalkable(x, y, false);
         });
         entityFactories.put(5, (map, world, x, y) -> map.getFlowers().add(new Flowers(x, y)));
         entityFactories.put(7, (map, world, x, y) -> {
             map.getChests().add(new Chest(world, x, y));
-            map.getFloor(x, y).setWalkable(false);
+            map.setWalkable(x, y, false);
         });
     }
 
-    // 辅助方法：生成唯一的 Key
-    private String getTileKey(int x, int y) {
-        return x + "," + y;
+    public void addTileChangeListener(TileChangeListener listener) {
+        tileChangeListeners.add(listener);
+    }
+
+    public void removeTileChangeListener(TileChangeListener listener) {
+        tileChangeListeners.remove(listener);
+    }
+
+    private void notifyTileChanged(int x, int y) {
+        if (batching) {
+            batchKeys.add(TileKeys.pack(x, y));
+            return;
+        }
+        for (int i = 0; i < tileChangeListeners.size(); i++) {
+            tileChangeListeners.get(i).onTileChanged(this, x, y);
+        }
+    }
+
+    /** 中文：逻辑可能在模拟线程上运行，这里只把请求放进队列，由渲染线程统一播放 */
+    private void playSound(SoundEffect effect, int x, int y) {
+        if (muted) return;
+        if (batching) {
+            // 一批操作只响一次，保留第一个
+            if (batchSound == null) {
+                batchSound = effect;
+                batchSoundX = x;
+                batchSoundY = y;
+            }
+            return;
+        }
+        SoundManager.post(effect, x, y);
+    }
+
+    private void beginBatch() {
+        batching = true;
     }
 
+    /** Applies what the batch collected: one notification and one sound. */
+    private void endBatch() {
+        batching = false;
+        if (batchKeys.size > 0) {
+            for (int i = 0; i < tileChangeListeners.size(); i++) {
+                tileChangeListeners.get(i).onTilesChanged(this, batchKeys.items, batchKeys.size);
+            }
+            batchKeys.clear();
+        }
+        if (batchSound != null) {
+            playSound(batchSound, batchSoundX, batchSoundY);
+            batchSound = null;
+        }
+    }
+
+    /** 中文：和音效一样只排队，粒子由渲染线程生成和绘制 */
+    private void spawnParticles(ParticleEvent event, int x, int y) {
+        if (muted) return;
+        ParticleEvents.post(event, x, y);
+    }
+
+    private void notifyMapLoaded() {
+        for (int i = 0; i < tileChangeListeners.size(); i++) {
+            tileChangeListeners.get(i).onMapLoaded(this);
+        }
+    }
+
+    private void addDebris(Debris debris, int x, int y) {
+        debris.attach(active);
+        debrisList.add(debris);
+        debrisByTile.put(x, y, debris);
+    }
+
+    /** Reuses the current tile store if the size still fits, otherwise creates one for the new size. */
+    private void createTileStore() {
+        if (tiles != null && tiles.getWidth() == width && tiles.getHeight() == height) {
+            tiles.clear();
+            return;
+        }
+        tiles = TileStore.allocate(width, height);
+    }
+
+    /**
+     * Loads a map with a random seed for the hidden items.
+     * @param fileHandle the map file
+     */
     public void loadMap(FileHandle fileHandle) {
-        // ... (读取文件和解析 mapObjects 的部分保持不变) ...
+        loadMap(fileHandle, new Random().nextLong());
+    }
+
+    /**
+     * Loads a map. Loading the same file with the same seed always produces the same map,
+     * which is what replays rely on.
+     * @param fileHandle the map file
+     * @param seed the seed used to hide the tools under the debris
+     */
+    public void loadMap(FileHandle fileHandle, long seed) {
         if (fileHandle == null) return;
-        String content = fileHandle.readString();
-        String[] lines = content.split("\\r?\\n");
-        fences.clear(); flowers.clear(); chests.clear(); debrisList.clear(); mapObjects.clear();crops.clear();
-        itemsOnGround.clear(); 
+        this.mapFile = fileHandle;
+        this.seed = seed;
+        this.physicsTime = 0;
+        this.clock = 0;
+        destroyAllBodies();
+        triggers.clear(); // 传感器 body 已经跟着一起销毁了
+        playersInExit = 0;
+        guests.clear(); // 中文：body 已经销毁了，联机主机会在下一个 tick 重新加入访客
+        long loadStart = TimeUtils.nanoTime();
+        // 中文：解析结果缓存在模板里，再次进入同一张地图时只需要重建运行时状态
+        MapTemplate template = MapTemplateCache.shared().get(fileHandle);
+        this.template = template;
+        long templateNanos = TimeUtils.nanoTime() - loadStart;
+        entities.clear();
         hiddenItems.clear(); // 清空隐藏层
-        
-
-        int maxX = 0; int maxY = 0;
-        for (String line : lines) {
-             // ... (解析逻辑不变) ...
-             if (line.trim().isEmpty() || line.startsWith("#")) continue;
-             try {
-                String[] parts = line.split("=");
-                if (parts.length == 2) {
-                    String[] coords = parts[0].trim().split(",");
-                    int x = Integer.parseInt(coords[0].trim());
-                    int y = Integer.parseInt(coords[1].trim());
-                    int typeId = Integer.parseInt(parts[1].trim());
-                    if (x > maxX) maxX = x;
-                    if (y > maxY) maxY = y;
-                    mapObjects.put(new Vector2(x, y), typeId);
-                }
-             } catch (Exception e) {}
-        }
+        debrisByTile.clear(); cropsByTile.clear(); itemsByTile.clear();
+        cropSchedule.clear(); active.clear();
+        stopWalking();
 
-        this.width = maxX + 1;
-        this.height = maxY + 1;
-        this.floors = new Floor[height][width];
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) floors[y][x] = new Floor(true);
-        }
+        this.width = template.getWidth();
+        this.height = template.getHeight();
+        createTileStore();
+        this.soil = new SoilLayer(width, height);
 
-        int entranceX = 1; int entranceY = 1;
-        for (Map.Entry<Vector2, Integer> entry : mapObjects.entrySet()) {
-            int x = (int) entry.getKey().x;
-            int y = (int) entry.getKey().y;
-            int id = entry.getValue();
+        int entranceX = 1;
+        int entranceY = 1;
+        for (int i = 0; i < template.size(); i++) {
+            int x = template.getX(i);
+            int y = template.getY(i);
+            int id = template.getTypeId(i);
             if (x < 0 || x >= width || y < 0 || y >= height) continue;
+            tiles.setTerrain(x, y, id);
 
             EntityFactory factory = entityFactories.get(id);
             if (factory != null) {
@@ -151,127 +309,286 @@ public class GameMap {
             }
         }
 
-        distributeHiddenItems();
+        distributeHiddenItems(seed);
+        // 中文：入口同时也是出口，收够作物以后走回来就赢了
+        triggers.add(TriggerSystem.Kind.EXIT, entranceX, entranceY);
 
         this.player = new Player(this.world, entranceX, entranceY);
+        this.spawnX = entranceX;
+        this.spawnY = entranceY;
+        agents.reset(width, height, seed);
+        agents.spawnAnimals(width * height / TILES_PER_ANIMAL, seed);
         updateCamera();
-        Gdx.app.log("GameMap", "✅ Map Loaded! Objects: " + mapObjects.size());
+        notifyMapLoaded();
+        Gdx.app.log("GameMap", "✅ Map Loaded! Objects: " + template.size() + " in "
+                + (TimeUtils.nanoTime() - loadStart) / 1000 + " us (template " + templateNanos / 1000 + " us; "
+                + MapTemplateCache.shared().getStats() + ")");
+        Gdx.app.log("GameMap", "Tile store: " + tiles.sizeBytes() + " bytes off-heap");
     }
 
-    private void distributeHiddenItems() {
+    /**
+     * Applies an edited version of the current map file without reloading: only the tiles whose
+     * object changed are touched. Their fences, debris, chests and flowers are removed together with
+     * their Box2D bodies, walkability is reset, and the new objects are created through the usual factories.
+     * Crops on tiles that become blocked are removed; every other crop, the player, the items and all
+     * timers keep their state. A tool hidden under debris that disappears is revealed.
+     * The changed tiles are reported through {@link TileChangeListener} in one batch once they are all done,
+     * so path and render caches rebuild just those tiles, once.
+     * <p>
+     * If the map size changed the map is reloaded from scratch instead.
+     * </p>
+     * @param newTemplate the re-parsed map file
+     * @return the number of tiles that changed
+     */
+    public int applyTemplate(MapTemplate newTemplate) {
+        if (template == null || newTemplate == template) return 0;
+        if (newTemplate.getWidth() != width || newTemplate.getHeight() != height) {
+            Gdx.app.log("GameMap", "Map size changed, reloading " + mapFile.path());
+            loadMap(mapFile, seed);
+            return width * height;
+        }
+
+        // 1. 新旧两份模板逐格比较，只记下类型变了的格子
+        TileIntMap before = new TileIntMap(template.size());
+        for (int i = 0; i < template.size(); i++) before.put(template.getX(i), template.getY(i), template.getTypeId(i));
+        TileIntMap changed = new TileIntMap();
+        for (int i = 0; i < newTemplate.size(); i++) {
+            int x = newTemplate.getX(i);
+            int y = newTemplate.getY(i);
+            int id = newTemplate.getTypeId(i);
+            if (before.get(x, y, -1) != id) changed.put(x, y, id);
+            before.remove(x, y);
+        }
+        before.forEach((x, y, id) -> changed.put(x, y, -1)); // 新文件里删掉的格子
+        this.template = newTemplate;
+        if (changed.size() == 0) return 0;
+
+        // 中文：整批改完再通知一次，监听者看到的是改完的样子
+        beginBatch();
+        try {
+            // 2. 拆掉这些格子上的静态物体（每个 archetype 只扫一遍紧凑的位置数组；倒着删，换过来的都已经看过）
+            for (int i = fences.size() - 1; i >= 0; i--) {
+                long key = fences.getTileKey(i);
+                if (changed.containsKey(TileKeys.x(key), TileKeys.y(key))) fences.remove(i).remove(world);
+            }
+            for (int i = chests.size() - 1; i >= 0; i--) {
+                long key = chests.getTileKey(i);
+                if (changed.containsKey(TileKeys.x(key), TileKeys.y(key))) chests.remove(i).remove(world);
+            }
+            for (int i = flowers.size() - 1; i >= 0; i--) {
+                long key = flowers.getTileKey(i);
+                if (changed.containsKey(TileKeys.x(key), TileKeys.y(key))) flowers.remove(i);
+            }
+
+            // 3. 逐格处理障碍物并用工厂建出新物体
+            changed.forEach((x, y, id) -> {
+                if (x < 0 || x >= width || y < 0 || y >= height) return;
+                Debris debris = debrisByTile.remove(x, y);
+                if (debris != null) {
+                    debris.remove(world);
+                    debrisList.remove(debris);
+                    revealHiddenItem(x, y);
+                }
+                tiles.setWalkable(x, y, true);
+                tiles.setTerrain(x, y, id);
+
+                EntityFactory factory = id >= 0 ? entityFactories.get(id) : null;
+                if (factory != null) {
+                    factory.create(this, world, x, y);
+                }
+                if (!tiles.isWalkable(x, y)) {
+                    Crop crop = cropsByTile.remove(x, y);
+                    if (crop != null) {
+                        crops.remove(crop);
+                        cropSchedule.cancel(crop);
+                    }
+                }
+                notifyTileChanged(x, y);
+            });
+        } finally {
+            endBatch();
+        }
+        agents.relocateStranded(); // 中文：新放的围栏下面可能站着动物
+        Gdx.app.log("GameMap", "Hot-reloaded " + changed.size() + " tiles of " + newTemplate.getPath());
+        return changed.size();
+    }
+
+    /** 重新加载地图前清掉旧的 Box2D body，否则每次加载都会在 world 里留下一整套旧地图 */
+    private void destroyAllBodies() {
+        Array<Body> bodies = new Array<>();
+        world.getBodies(bodies);
+        for (Body body : bodies) {
+            world.destroyBody(body);
+        }
+    }
+
+    private void distributeHiddenItems(long seed) {
         List<Tool.ToolType> requiredTools = new ArrayList<>();
         requiredTools.add(Tool.ToolType.SHOVEL);
         requiredTools.add(Tool.ToolType.WATERING_CAN);
 
-        List<String> availablePositions = new ArrayList<>();
+        LongArray availablePositions = new LongArray(debrisList.size());
         for (Debris debris : debrisList) {
-            int x = Math.round(debris.getX());
-            int y = Math.round(debris.getY());
-            String key = getTileKey(x, y);
+            long key = TileKeys.pack(Math.round(debris.getX()), Math.round(debris.getY()));
 
             if (!hiddenItems.containsKey(key)) {
                 availablePositions.add(key);
             }
         }
 
-        Random random = new Random();
+        Random random = new Random(seed);
         for (Tool.ToolType type : requiredTools) {
-            if (availablePositions.isEmpty()) {
+            if (availablePositions.size == 0) {
                 Gdx.app.log("GameMap", "⚠️ Not enough debris to hide " + type);
                 break;
             }
-            int index = random.nextInt(availablePositions.size());
-            String key = availablePositions.get(index);
-            availablePositions.remove(index);
-
-            // 解析 Key 回坐标
-            String[] parts = key.split(",");
-            int x = Integer.parseInt(parts[0]);
-            int y = Integer.parseInt(parts[1]);
+            // removeIndex 会把最后一个元素换过来，O(1) 且顺序无关紧要
+            long key = availablePositions.removeIndex(random.nextInt(availablePositions.size));
+            int x = TileKeys.x(key);
+            int y = TileKeys.y(key);
 
             Tool tool = new Tool(x, y, type);
             hiddenItems.put(key, tool);
-            Gdx.app.log("GameMap", "Hidden " + type + " at " + key);
+            Gdx.app.log("GameMap", "Hidden " + type + " at " + x + "," + y);
         }
     }
 
     private void revealHiddenItem(int x, int y) {
-        String key = getTileKey(x, y);
-        if (hiddenItems.containsKey(key)) {
-            GameObject item = hiddenItems.get(key);
-            if (item instanceof Tool) {
-                itemsOnGround.add((Tool) item);
-                Gdx.app.log("GameMap", "Revealed Tool: " + ((Tool) item).getType());
-            }
-            hiddenItems.remove(key);
+        GameObject item = hiddenItems.remove(x, y);
+        if (item instanceof Tool) {
+            placeItem((Tool) item, x, y);
+            Gdx.app.log("GameMap", "Revealed Tool: " + ((Tool) item).getType());
         }
     }
 
-    /**
-     * ✅ 新增功能：按 A 键拾取物品
-     * 改进逻辑：既可以捡起“面前”的，也可以捡起“脚下”的 (宽松判定)
-     * @return 如果成功捡起物品返回 true，否则返回 false
-     */
-    public boolean pickupItem() {
-        if (player == null) return false;
+    /** Puts a tool on the ground, with a trigger zone so the player picks it up by walking over it. */
+    private void placeItem(Tool tool, int x, int y) {
+        itemsOnGround.add(tool);
+        itemsByTile.put(x, y, tool);
+        triggers.add(TriggerSystem.Kind.ITEM, x, y);
+    }
+
+    private void removeItem(Tool tool, int x, int y) {
+        itemsOnGround.remove(tool);
+        itemsByTile.remove(x, y);
+        triggers.remove(TriggerSystem.Kind.ITEM, x, y);
+    }
+
+    /** Reacts to the player entering or leaving a trigger zone; called once per tick after the physics step. */
+    private void onTrigger(TriggerSystem.Kind kind, int x, int y, boolean entered) {
+        switch (kind) {
+            case ITEM:
+                if (entered) pickupAt(x, y, x, y); // 走上去就自动捡起来
+                break;
+            case EXIT:
+                playersInExit = Math.max(0, playersInExit + (entered ? 1 : -1));
+                break;
+            default:
+                break;
+        }
+    }
 
-        // 1. 获取玩家当前脚下坐标
-        int playerX = Math.round(player.getX());
-        int playerY = Math.round(player.getY());
+    /** 中文：A 键一次操作的结果 */
+    public enum UseResult { NONE, PICKED_UP, HARVESTED, RESTORED, WATERED, PLANTED }
 
-        // 2. 计算目标格子 (玩家正前方)
-        int targetX = playerX;
-        int targetY = playerY;
+    /** Moisture added by one use of the watering can, and fertility added when planting with fertiliser. */
+    private static final float WATER_AMOUNT = 0.4f;
+    private static final float FERTILISER_AMOUNT = 0.5f;
 
+    /**
+     * 计算玩家正前方格子的 key，所有交互都只算一次。
+     * @return the packed key of the tile in front of the player
+     */
+    private long targetTileKey(Player player) {
+        int targetX = Math.round(player.getX());
+        int targetY = Math.round(player.getY());
         switch (player.getDirection()) {
             case UP:    targetY += 1; break;
             case DOWN:  targetY -= 1; break;
             case LEFT:  targetX -= 1; break;
             case RIGHT: targetX += 1; break;
         }
+        return TileKeys.pack(targetX, targetY);
+    }
 
-        // 3. 遍历地上的物品
-        for (int i = itemsOnGround.size() - 1; i >= 0; i--) {
-            Tool tool = itemsOnGround.get(i);
-            int toolX = Math.round(tool.getX());
-            int toolY = Math.round(tool.getY());
-
-            // ✅ 核心修改：宽松判定逻辑
-            // isAtTarget: 工具在玩家正前方
-            // isUnderFeet: 工具在玩家正脚下
-            boolean isAtTarget = (toolX == targetX && toolY == targetY);
-            boolean isUnderFeet = (toolX == playerX && toolY == playerY);
-
-            // 只要满足其中一种情况，就捡起来
-            if (isAtTarget || isUnderFeet) {
-                
-                // 4. 更新游戏状态
-                if (gameState != null) {
-                    switch (tool.getType()) {
-                        case SHOVEL:
-                            gameState.collectShovel(); 
-                            Gdx.app.log("Pickup", "Got Shovel!");
-                            break;
-                        case WATERING_CAN:
-                            gameState.collectWateringCan(); 
-                            Gdx.app.log("Pickup", "Got Watering Can!");
-                            break;
-                        default:
-                            break; 
-                    }
-                }
-            
-                // 5. 从地面移除 (视觉上消失)
-                itemsOnGround.remove(i);
-                
-                // 6. 播放音效 (如果 SoundManager 还没做 pickup 也可以先注释掉)
-                SoundManager.playDebrisClear(); 
-
-                return true; // ✅ 成功捡起，返回 true
+    /**
+     * A 键的完整逻辑：先捡起物品，再收获 / 处理腐烂作物，最后在空地播种。
+     * As before the input rework, picking something up does not end the press: it goes on to the crop or
+     * plants on the same tile. The target tile is resolved once and every step is a constant-time lookup in
+     * the tile indexes, instead of three separate scans over the item, crop and debris lists.
+     * @return what the key press did; {@link UseResult#PICKED_UP} whenever an item was picked up, since that is
+     *         what resets the cooldown
+     */
+    public UseResult use() {
+        return use(player);
+    }
+
+    /** {@link #use()} for any player on the map, e.g. a co-op guest. */
+    public UseResult use(Player player) {
+        if (player == null) return UseResult.NONE;
+
+        long target = targetTileKey(player);
+        int targetX = TileKeys.x(target);
+        int targetY = TileKeys.y(target);
+
+        // 中文：和原来一样，捡到东西以后继续往下走，不提前返回
+        boolean pickedUp = pickupAt(Math.round(player.getX()), Math.round(player.getY()), targetX, targetY);
+
+        UseResult result;
+        Crop crop = cropsByTile.get(target);
+        if (crop != null) {
+            result = harvestAt(crop, targetX, targetY);
+        } else {
+            result = plantAt(targetX, targetY) ? UseResult.PLANTED : UseResult.NONE;
+        }
+        return pickedUp ? UseResult.PICKED_UP : result;
+    }
+
+    /**
+     * ✅ 新增功能：按 A 键拾取物品
+     * 改进逻辑：既可以捡起“面前”的，也可以捡起“脚下”的 (宽松判定)
+     * @return 如果成功捡起物品返回 true，否则返回 false
+     */
+    public boolean pickupItem() {
+        if (player == null) return false;
+        long target = targetTileKey(player);
+        return pickupAt(Math.round(player.getX()), Math.round(player.getY()), TileKeys.x(target), TileKeys.y(target));
+    }
+
+    private boolean pickupAt(int playerX, int playerY, int targetX, int targetY) {
+        // ✅ 宽松判定：工具在玩家正前方，或者在玩家正脚下
+        int toolX = targetX;
+        int toolY = targetY;
+        Tool tool = itemsByTile.get(targetX, targetY);
+        if (tool == null) {
+            toolX = playerX;
+            toolY = playerY;
+            tool = itemsByTile.get(playerX, playerY);
+        }
+        if (tool == null) return false; // 没找到东西
+
+        // 更新游戏状态
+        if (gameState != null) {
+            switch (tool.getType()) {
+                case SHOVEL:
+                    gameState.collectShovel();
+                    Gdx.app.log("Pickup", "Got Shovel!");
+                    break;
+                case WATERING_CAN:
+                    gameState.collectWateringCan();
+                    Gdx.app.log("Pickup", "Got Watering Can!");
+                    break;
+                default:
+                    break;
             }
         }
 
-        return false; // 没找到东西，返回 false
+        // 从地面移除 (视觉上消失)
+        removeItem(tool, toolX, toolY);
+        notifyTileChanged(toolX, toolY);
+
+        playSound(SoundEffect.PICKUP, toolX, toolY);
+        return true;
     }
 
     /**
@@ -280,43 +597,30 @@ public class GameMap {
      */
     public boolean plantSeed() {
         if (player == null) return false;
-        
-        // 1. 获取面前的坐标
-        int targetX = Math.round(player.getX());
-        int targetY = Math.round(player.getY());
-        switch (player.getDirection()) {
-            case UP:    targetY += 1; break;
-            case DOWN:  targetY -= 1; break;
-            case LEFT:  targetX -= 1; break;
-            case RIGHT: targetX += 1; break;
-        }
+        long target = targetTileKey(player);
+        return plantAt(TileKeys.x(target), TileKeys.y(target));
+    }
 
-        // 2. 检查位置是否合法
+    private boolean plantAt(int targetX, int targetY) {
         // A. 不能越界
         if (targetX < 0 || targetX >= width || targetY < 0 || targetY >= height) return false;
 
-        // B. 地面必须是泥土 (Walkable)
-        if (!floors[targetY][targetX].isWalkable()) return false; // 如果有围栏或者墙，不能种
+        // B. 地面必须是泥土 (Walkable)，有围栏或者墙不能种
+        if (!tiles.isWalkable(targetX, targetY)) return false;
 
-        // C. 不能在障碍物(Debris)上种
-        for (Debris d : debrisList) {
-            if (Math.round(d.getX()) == targetX && Math.round(d.getY()) == targetY) return false;
-        }
-
-        // D. 不能重叠种植 (已有作物)
-        for (Crop c : crops) {
-            if (Math.round(c.getX()) == targetX && Math.round(c.getY()) == targetY) return false;
-        }
+        // C. 不能在障碍物上种，D. 不能重叠种植，E. 不能在地上的工具上种
+        long key = TileKeys.pack(targetX, targetY);
+        if (debrisByTile.containsKey(key) || cropsByTile.containsKey(key) || itemsByTile.containsKey(key)) return false;
 
-        // E. 不能在地上的工具上种
-        for (Tool t : itemsOnGround) {
-            if (Math.round(t.getX()) == targetX && Math.round(t.getY()) == targetY) return false;
-        }
-
-        // 3. 一切正常，创建一个新作物
-        Crop newCrop = new Crop(targetX, targetY);
+        // 一切正常，创建一个新作物；有肥料就顺手施肥
+        if (gameState != null && gameState.hasFertilizer()) soil.fertilise(targetX, targetY, FERTILISER_AMOUNT);
+        Crop newCrop = new Crop(targetX, targetY, clock);
+        newCrop.setGrowthRate(soil.growthRateAt(targetX, targetY), clock);
         crops.add(newCrop);
-        
+        cropsByTile.put(key, newCrop);
+        cropSchedule.schedule(newCrop);
+        notifyTileChanged(targetX, targetY);
+
         Gdx.app.log("Farming", "Planted seed at " + targetX + "," + targetY);
         return true;
     }
@@ -327,137 +631,670 @@ public class GameMap {
      */
     public boolean harvestCrop() {
         if (player == null) return false;
+        long target = targetTileKey(player);
+        Crop crop = cropsByTile.get(target);
+        if (crop == null) return false;
+        UseResult result = harvestAt(crop, TileKeys.x(target), TileKeys.y(target));
+        return result == UseResult.HARVESTED || result == UseResult.RESTORED;
+    }
 
-        // 1. 获取面前的坐标 (同上)
-        int targetX = Math.round(player.getX());
-        int targetY = Math.round(player.getY());
-        switch (player.getDirection()) {
-            case UP:    targetY += 1; break;
-            case DOWN:  targetY -= 1; break;
-            case LEFT:  targetX -= 1; break;
-            case RIGHT: targetX += 1; break;
+    private UseResult harvestAt(Crop crop, int x, int y) {
+        if (crop.isHarvestable()) {
+            // ✅ 收获成功
+            crops.remove(crop); // archetype 按下标删除，O(1)
+            cropsByTile.remove(x, y);
+            cropSchedule.cancel(crop);
+            notifyTileChanged(x, y);
+            spawnParticles(ParticleEvent.HARVEST, x, y);
+            if (gameState != null) {
+                gameState.increaseHarvestCount(); // 更新进度
+            }
+            Gdx.app.log("Farming", "Harvest Successful!");
+            return UseResult.HARVESTED;
+        }
+        boolean rotten = crop.isRotten();
+        if (waterAt(x, y)) {
+            // ❌ 腐烂了：有洒水壶就复活它；还在长的作物浇水，湿润的土壤让它长得更快（下一次土壤步进时生效）
+            Gdx.app.log("Farming", rotten ? "Restored crop with Water!" : "Watered the crop.");
+            return rotten ? UseResult.RESTORED : UseResult.WATERED;
         }
+        if (rotten) {
+            Gdx.app.log("Farming", "Crop is rotten... need water to restore or shovel to clear.");
+        } else {
+            Gdx.app.log("Farming", "Wait! Not ready yet.");
+        }
+        return UseResult.NONE;
+    }
 
-        // 2. 检查面前有没有作物
-        for (int i = crops.size() - 1; i >= 0; i--) {
-            Crop c = crops.get(i);
-            int cx = Math.round(c.getX());
-            int cy = Math.round(c.getY());
-
-            if (cx == targetX && cy == targetY) {
-                
-                // 3. 检查状态
-                if (c.isHarvestable()) {
-                    // ✅ 收获成功
-                    crops.remove(i);
-                    if (gameState != null) {
-                        gameState.increaseHarvestCount(); // 更新进度
-                    }
-                    Gdx.app.log("Farming", "Harvest Successful!");
-                    // SoundManager.playHarvestSound();
-                    return true;
-                } else if (c.isRotten()) {
-                    // ❌ 腐烂了
-                    // 逻辑选择：
-                    // 1. 如果有铲子，铲除它？
-                    // 2. 如果有洒水壶，复活它？
-                    if (gameState != null && gameState.hasWateringCan()) {
-                         c.restore();
-                         Gdx.app.log("Farming", "Restored crop with Water!");
-                         return true; // 算作一次交互
-                    } else {
-                         Gdx.app.log("Farming", "Crop is rotten... need water to restore or shovel to clear.");
-                    }
-                    return false;
-                } else {
-                    Gdx.app.log("Farming", "Wait! Not ready yet.");
-                    return false;
-                }
-            }
+    /**
+     * 用洒水壶浇一格：腐烂的作物复活，其余作物和空地只是变湿。
+     * @return false if the player has no watering can or there is nothing to water
+     */
+    private boolean waterAt(int x, int y) {
+        if (gameState == null || !gameState.hasWateringCan()) return false;
+        if (x < 0 || x >= width || y < 0 || y >= height) return false;
+        Crop crop = cropsByTile.get(x, y);
+        if (crop == null) {
+            if (!tiles.isWalkable(x, y)) return false; // 障碍物和围栏下面不用浇
+        } else if (crop.isHarvestable()) {
+            return false;
+        } else if (crop.isRotten()) {
+            crop.advanceTo(clock);
+            crop.restore();
+            cropSchedule.schedule(crop);
+            notifyTileChanged(x, y);
         }
-        return false;
+        soil.water(x, y, WATER_AMOUNT);
+        spawnParticles(ParticleEvent.WATERING, x, y);
+        return true;
+    }
+
+    /** 中文：乌鸦把熟了的作物吃掉，和收获一样移除，但不算进收成 */
+    void eatCrop(int x, int y) {
+        Crop crop = cropsByTile.remove(x, y);
+        if (crop == null) return;
+        crops.remove(crop);
+        cropSchedule.cancel(crop);
+        notifyTileChanged(x, y);
+        spawnParticles(ParticleEvent.HARVEST, x, y);
     }
 
     /**
      * 玩家交互逻辑：清除障碍物
      */
     public void interact() {
+        interact(player);
+    }
+
+    /** {@link #interact()} for any player on the map, e.g. a co-op guest. */
+    public void interact(Player player) {
         if (player == null) return;
 
-        int playerTileX = Math.round(player.getX());
-        int playerTileY = Math.round(player.getY());
-        int targetX = playerTileX;
-        int targetY = playerTileY;
+        long target = targetTileKey(player);
+        int targetX = TileKeys.x(target);
+        int targetY = TileKeys.y(target);
 
-        switch (player.getDirection()) {
-            case UP:    targetY += 1; break;
-            case DOWN:  targetY -= 1; break;
-            case LEFT:  targetX -= 1; break;
-            case RIGHT: targetX += 1; break;
+        Debris debris = debrisByTile.get(target);
+        if (debris == null || debris.isRemoved()) return;
+        hitDebris(debris, targetX, targetY);
+    }
+
+    /** 中文：敲一下障碍物，敲碎了就移除并揭示下面藏的物品 */
+    private void hitDebris(Debris debris, int targetX, int targetY) {
+        // ✅ 1. 计算伤害值：默认徒手伤害 1 点
+        int damage = 1;
+
+        // ✅ 2. 工具判定：有铲子时对石头和土堆效果拔群
+        if (gameState != null && gameState.hasShovel()) {
+            if (debris.getType() == Debris.DebrisType.STONE || debris.getType() == Debris.DebrisType.MOUND) {
+                damage = 5; // 设置为 5，意味着 10血的石头只需要敲 2 下
+                Gdx.app.log("GameMap", "Using Shovel! Massive damage.");
+            }
         }
 
-        for (int i = debrisList.size() - 1; i >= 0; i--) {
-            Debris debris = debrisList.get(i);
-            if (debris.isRemoved()) continue;
+        // ✅ 3. 造成伤害
+        boolean destroyed = debris.takeDamage(damage); // 被敲的障碍物自己加入 active，开始震动
 
-            int debrisX = (int) debris.getX();
-            int debrisY = (int) debris.getY();
+        if (!destroyed) {
+            notifyTileChanged(targetX, targetY); // 血量变了
+            spawnParticles(ParticleEvent.DEBRIS_HIT, targetX, targetY);
+        } else {
+            debris.remove(world);
+            debrisList.remove(debris);
+            debrisByTile.remove(targetX, targetY);
 
-            // 检查坐标匹配
-            if (debrisX == targetX && debrisY == targetY) {
+            // 恢复地板行走
+            setWalkable(targetX, targetY, true);
 
-                // ✅ 1. 计算伤害值
-                int damage = 1; // 默认徒手伤害 1 点
+            // 播放音效并揭示隐藏物品
+            playSound(SoundEffect.DEBRIS_CLEAR, targetX, targetY);
+            spawnParticles(ParticleEvent.DEBRIS_BREAK, targetX, targetY);
+            revealHiddenItem(targetX, targetY);
+            notifyTileChanged(targetX, targetY);
 
-                // ✅ 2. 工具判定：如果有铲子，伤害加倍 (或者更高)
-                // 注意：使用 gameState 实例，而不是 GameState 静态类
-                if (gameState != null && gameState.hasShovel()) {
-                    // 对石头和土堆效果拔群
-                    if (debris.getType() == Debris.DebrisType.STONE || debris.getType() == Debris.DebrisType.MOUND) {
-                        damage = 5; // 设置为 5，意味着 10血的石头只需要敲 2 下
-                        Gdx.app.log("GameMap", "Using Shovel! Massive damage.");
-                    }
+            Gdx.app.log("GameMap", "Cleared debris at " + targetX + "," + targetY);
+        }
+    }
+
+    /** 中文：范围操作的种类 */
+    public enum AreaAction {
+        /** Hits every piece of debris once, as {@link #interact()} does for one tile. */
+        SWEEP,
+        /** Waters every crop and every free tile; needs the watering can. */
+        WATER,
+        /** Plants a seed on every free tile. */
+        PLANT,
+        /** Harvests every ripe crop; growing and rotten crops are left alone. */
+        HARVEST
+    }
+
+    /** Size of the shovel sweep, the watered row and the bulk planting / harvesting area, in tiles. */
+    public static final int SWEEP_SIZE = 3;
+    public static final int WATER_ROW_LENGTH = 5;
+    public static final int BULK_SIZE = 3;
+
+    /**
+     * Applies an action to every tile of a rectangle as one batch.
+     * <p>
+     * Each tile is a constant-time lookup in the tile indexes, and removing the debris and crops from their
+     * {@link Archetype}s is O(1) each. The listeners get a single
+     * {@link TileChangeListener#onTilesChanged} for the whole area, and at most one sound is played.
+     * </p>
+     * @param action what to do on each tile
+     * @param x0 one corner of the rectangle, inclusive
+     * @param y0 one corner of the rectangle, inclusive
+     * @param x1 the opposite corner, inclusive
+     * @param y1 the opposite corner, inclusive
+     * @return the number of tiles the action did something to
+     */
+    public int applyArea(AreaAction action, int x0, int y0, int x1, int y1) {
+        int minX = Math.max(0, Math.min(x0, x1));
+        int minY = Math.max(0, Math.min(y0, y1));
+        int maxX = Math.min(width - 1, Math.max(x0, x1));
+        int maxY = Math.min(height - 1, Math.max(y0, y1));
+        if (minX > maxX || minY > maxY) return 0;
+
+        int affected = 0;
+        beginBatch();
+        try {
+            for (int y = minY; y <= maxY; y++) {
+                for (int x = minX; x <= maxX; x++) {
+                    if (applyAt(action, x, y)) affected++;
                 }
+            }
+        } finally {
+            endBatch();
+        }
+        return affected;
+    }
 
-                // ✅ 3. 造成伤害 (传入计算好的 damage)
-                boolean destroyed = debris.takeDamage(damage);
+    private boolean applyAt(AreaAction action, int x, int y) {
+        switch (action) {
+            case SWEEP: {
+                Debris debris = debrisByTile.get(x, y);
+                if (debris == null || debris.isRemoved()) return false;
+                hitDebris(debris, x, y);
+                return true;
+            }
+            case WATER:
+                return waterAt(x, y);
+            case PLANT:
+                return plantAt(x, y);
+            case HARVEST: {
+                Crop crop = cropsByTile.get(x, y);
+                return crop != null && crop.isHarvestable() && harvestAt(crop, x, y) == UseResult.HARVESTED;
+            }
+            default:
+                return false;
+        }
+    }
 
-                if (destroyed) {
-                    debris.remove(world);
-                    debrisList.remove(i);
+    /**
+     * 玩家前方的一块区域：近边就是正前方那一格，{@code depth} 格朝面向延伸，{@code across} 格横向居中。
+     */
+    private int applyInFront(Player player, AreaAction action, int across, int depth) {
+        long target = targetTileKey(player);
+        int targetX = TileKeys.x(target);
+        int targetY = TileKeys.y(target);
+        int dx = 0, dy = 0;
+        switch (player.getDirection()) {
+            case UP:    dy = 1; break;
+            case DOWN:  dy = -1; break;
+            case LEFT:  dx = -1; break;
+            case RIGHT: dx = 1; break;
+        }
+        int half = across / 2;
+        // 中文：横向与面向垂直；左右对称，所以正负号无所谓，直接用 (dy, dx)
+        int x0 = targetX - dy * half;
+        int y0 = targetY - dx * half;
+        int x1 = targetX + dx * (depth - 1) + dy * half;
+        int y1 = targetY + dy * (depth - 1) + dx * half;
+        return applyArea(action, x0, y0, x1, y1);
+    }
 
-                    // 恢复地板行走
-                    if (targetX >= 0 && targetX < width && targetY >= 0 && targetY < height) {
-                        floors[targetY][targetX].setWalkable(true);
-                    }
+    /**
+     * Shovel sweep: hits every piece of debris in the {@link #SWEEP_SIZE}² tiles in front of the player.
+     * Without the shovel it is a normal {@link #interact()}.
+     */
+    public void sweep() {
+        sweep(player);
+    }
 
-                    // 播放音效并揭示隐藏物品
-                    SoundManager.playDebrisClear();
-                    revealHiddenItem(targetX, targetY);
+    /** {@link #sweep()} for any player on the map, e.g. a co-op guest. */
+    public void sweep(Player player) {
+        if (player == null) return;
+        if (gameState == null || !gameState.hasShovel()) {
+            interact(player);
+            return;
+        }
+        applyInFront(player, AreaAction.SWEEP, SWEEP_SIZE, SWEEP_SIZE);
+    }
 
-                    Gdx.app.log("GameMap", "Cleared debris at " + targetX + "," + targetY);
-                } else {
-                    // 没敲碎时，播放敲击声 (可选)
-                    // SoundManager.playHitSound();
-                }
+    /**
+     * Waters the row of {@link #WATER_ROW_LENGTH} tiles the player faces.
+     * @return the number of tiles watered, 0 without the watering can
+     */
+    public int waterRow() {
+        return waterRow(player);
+    }
 
-                return; // 交互结束
+    /** {@link #waterRow()} for any player on the map, e.g. a co-op guest. */
+    public int waterRow(Player player) {
+        if (player == null) return 0;
+        return applyInFront(player, AreaAction.WATER, 1, WATER_ROW_LENGTH);
+    }
+
+    /**
+     * Bulk use: harvests every ripe crop in the {@link #BULK_SIZE}² tiles in front of the player,
+     * or plants the free tiles of that area if there was nothing to harvest.
+     * @return what the key press did
+     */
+    public UseResult bulkUse() {
+        return bulkUse(player);
+    }
+
+    /** {@link #bulkUse()} for any player on the map, e.g. a co-op guest. */
+    public UseResult bulkUse(Player player) {
+        if (player == null) return UseResult.NONE;
+        if (applyInFront(player, AreaAction.HARVEST, BULK_SIZE, BULK_SIZE) > 0) return UseResult.HARVESTED;
+        return applyInFront(player, AreaAction.PLANT, BULK_SIZE, BULK_SIZE) > 0 ? UseResult.PLANTED : UseResult.NONE;
+    }
+
+    /**
+     * Adds a co-op player at the entrance. Guests are not part of {@link #snapshot()}, and a
+     * {@link #loadMap} drops them; whoever added them adds them again.
+     * @return the new player; drive it with the player overloads of the actions, e.g. {@link #use(Player)}
+     */
+    public Player addGuest() {
+        Player guest = new Player(world, spawnX, spawnY);
+        guests.add(guest);
+        return guest;
+    }
+
+    /** Removes a player added with {@link #addGuest()} together with its body. Does nothing for unknown players. */
+    public void removeGuest(Player guest) {
+        if (guests.remove(guest)) guest.remove(world);
+    }
+
+    /**
+     * Marks this map as a co-op replica: tiles and players are overwritten by the host's frames, so the map
+     * no longer runs any game logic of its own. Crops do not grow, the soil does not spread, animals and crows
+     * stay where they are and walking over an item does not pick it up. Only the clock, the animations and
+     * the shaking of hit debris go on.
+     */
+    public void setReplica(boolean replica) {
+        this.replica = replica;
+    }
+
+    /** @return the path finder for this map; its worker thread is started on the first call */
+    public PathService getPathService() {
+        if (pathService == null) pathService = new PathService(this);
+        return pathService;
+    }
+
+    /**
+     * Lets the player walk to a tile (click-to-move). The path is searched on the path service's worker
+     * and picked up at the start of the next tick by {@link #steerAlongPath()}. The worker applies tile
+     * changes and searches in the order they were submitted, so the result only depends on the map at
+     * this tick and replays stay deterministic.
+     * @param x target tile x
+     * @param y target tile y
+     */
+    public void moveTo(int x, int y) {
+        if (player == null) return;
+        walkGoalX = x;
+        walkGoalY = y;
+        walkXs = null;
+        walkYs = null;
+        pendingPath = getPathService().findPath(Math.round(player.getX()), Math.round(player.getY()), x, y);
+    }
+
+    /** Cancels click-to-move, e.g. when an arrow key is pressed. */
+    public void stopWalking() {
+        pendingPath = null;
+        walkXs = null;
+        walkYs = null;
+    }
+
+    /** @return whether the player is walking a path or waiting for one */
+    public boolean isWalking() {
+        return pendingPath != null || walkXs != null;
+    }
+
+    /**
+     * Steers the player one tick along the click-to-move path.
+     * @return the move mask ({@link InputCommand} bits) for this tick,
+     *         0 when there is no path or the player has arrived
+     */
+    public int steerAlongPath() {
+        if (player == null) return 0;
+        if (pendingPath != null) {
+            takePath(pendingPath.join()); // 中文：上一个 tick 发出的搜索，通常早就算完了
+            pendingPath = null;
+        }
+        if (walkXs == null) return 0;
+        while (walkStep < walkXs.length) {
+            int nextX = walkXs[walkStep];
+            int nextY = walkYs[walkStep];
+            if (!isWalkable(nextX, nextY)) {
+                // 中文：路上的格子被堵了（在逻辑线程上判断，不看工作线程的失效标记，回放才确定）
+                moveTo(walkGoalX, walkGoalY);
+                return 0;
+            }
+            float dx = nextX - player.getX();
+            float dy = nextY - player.getY();
+            if (Math.abs(dx) > WAYPOINT_RADIUS || Math.abs(dy) > WAYPOINT_RADIUS) {
+                int mask = 0;
+                if (dx < -WAYPOINT_RADIUS) mask |= InputCommand.MOVE_LEFT;
+                if (dx > WAYPOINT_RADIUS) mask |= InputCommand.MOVE_RIGHT;
+                if (dy > WAYPOINT_RADIUS) mask |= InputCommand.MOVE_UP;
+                if (dy < -WAYPOINT_RADIUS) mask |= InputCommand.MOVE_DOWN;
+                return mask;
             }
+            walkStep++;
         }
+        stopWalking();
+        return 0;
+    }
+
+    /** Copies the waypoints out of a path, so the walk state is plain arrays that snapshots can hold. */
+    private void takePath(Path path) {
+        if (!path.isFound()) {
+            stopWalking();
+            return;
+        }
+        walkXs = new int[path.length()];
+        walkYs = new int[path.length()];
+        for (int i = 0; i < walkXs.length; i++) {
+            walkXs[i] = path.getX(i);
+            walkYs[i] = path.getY(i);
+        }
+        walkStep = 1; // 第 0 个是起点
+    }
+
+    /**
+     * Captures the mutable state of the map (player, debris, crops, items) at the end of a tick.
+     * @return a snapshot that can be passed to {@link #restore(MapSnapshot)}
+     */
+    public MapSnapshot snapshot() {
+        int debrisCount = debrisByTile.size();
+        long[] debrisKeys = new long[debrisCount];
+        int[] debrisHealth = new int[debrisCount];
+        float[] debrisShake = new float[debrisCount];
+        debrisByTile.keys(debrisKeys);
+        for (int i = 0; i < debrisCount; i++) {
+            Debris d = debrisByTile.get(debrisKeys[i]);
+            debrisHealth[i] = d.getHealth();
+            debrisShake[i] = d.getShakeTimer();
+        }
+
+        int cropCount = cropsByTile.size();
+        long[] cropKeys = new long[cropCount];
+        int[] cropStages = new int[cropCount];
+        float[] cropTimers = new float[cropCount];
+        cropsByTile.keys(cropKeys);
+        for (int i = 0; i < cropCount; i++) {
+            Crop c = cropsByTile.get(cropKeys[i]);
+            c.advanceTo(clock); // 计时器只在换阶段时更新，这里补到当前时间
+            cropStages[i] = c.getStage();
+            cropTimers[i] = c.getStateTimer();
+        }
+
+        long[] hiddenKeys = new long[hiddenItems.size()];
+        GameObject[] hidden = new GameObject[hiddenKeys.length];
+        hiddenItems.keys(hiddenKeys);
+        for (int i = 0; i < hiddenKeys.length; i++) hidden[i] = hiddenItems.get(hiddenKeys[i]);
+
+        if (pendingPath != null) {
+            // 中文：提前取出搜索结果，和下一个 tick 再取是一样的（结果只取决于发出搜索时的地图）
+            takePath(pendingPath.join());
+            pendingPath = null;
+        }
+        int[] soilTiles = soil.copyChangedTiles();
+        return new MapSnapshot(seed, physicsTime, clock, player,
+                debrisKeys, debrisHealth, debrisShake,
+                cropKeys, cropStages, cropTimers,
+                itemsOnGround.toArray(new Tool[0]), hiddenKeys, hidden,
+                width, height, soilTiles, soil.copyMoisture(soilTiles), soil.copyFertility(soilTiles),
+                soil.getPending(),
+                agents.snapshot(),
+                walkXs, walkYs, walkStep, walkGoalX, walkGoalY);
+    }
+
+    /**
+     * Puts the map back into the state captured by {@link #snapshot()}.
+     * The map file is reloaded with the snapshot's seed, then the removed debris, the crops,
+     * the revealed items and the player are applied on top.
+     * Box2D contact caches are not part of the snapshot, so a restored run can drift by
+     * sub-pixel amounts from the original while the player is pushing against a wall.
+     * @param snapshot a snapshot taken on a map loaded from the same file
+     */
+    public void restore(MapSnapshot snapshot) {
+        restore(mapFile, snapshot);
+    }
+
+    /**
+     * Same as {@link #restore(MapSnapshot)}, for a map object that has not loaded the file yet.
+     * @param file the file the snapshot's map was loaded from
+     * @param snapshot the snapshot to apply
+     */
+    public void restore(FileHandle file, MapSnapshot snapshot) {
+        loadMap(file, snapshot.seed);
+        this.physicsTime = snapshot.physicsTime;
+        this.clock = snapshot.clock;
+
+        // 障碍物只会减少：快照里没有的就是已经被清除的
+        TileKeyMap<Debris> remaining = new TileKeyMap<>(snapshot.debrisKeys.length);
+        for (int i = 0; i < snapshot.debrisKeys.length; i++) {
+            Debris d = debrisByTile.get(snapshot.debrisKeys[i]);
+            if (d == null) continue;
+            d.restoreState(snapshot.debrisHealth[i], snapshot.debrisShake[i]);
+            remaining.put(snapshot.debrisKeys[i], d);
+        }
+        for (int i = debrisList.size() - 1; i >= 0; i--) {
+            Debris d = debrisList.get(i);
+            long key = TileKeys.pack(Math.round(d.getX()), Math.round(d.getY()));
+            if (remaining.containsKey(key)) continue;
+            d.remove(world);
+            debrisList.remove(i);
+            debrisByTile.remove(key);
+            setWalkable(TileKeys.x(key), TileKeys.y(key), true);
+        }
+
+        if (snapshot.soilWidth == width && snapshot.soilHeight == height) {
+            soil.restore(snapshot.soilTiles, snapshot.soilMoisture, snapshot.soilFertility, snapshot.soilPending);
+        }
+
+        for (int i = 0; i < snapshot.cropKeys.length; i++) {
+            Crop crop = new Crop(TileKeys.x(snapshot.cropKeys[i]), TileKeys.y(snapshot.cropKeys[i]));
+            crop.restoreState(snapshot.cropStages[i], snapshot.cropTimers[i], clock,
+                    snapshot.soilGrowthRate(snapshot.cropKeys[i]));
+            crops.add(crop);
+            cropsByTile.put(snapshot.cropKeys[i], crop);
+            cropSchedule.schedule(crop);
+        }
+
+        for (Tool tool : snapshot.itemsOnGround) {
+            placeItem(tool, Math.round(tool.getX()), Math.round(tool.getY()));
+        }
+
+        hiddenItems.clear();
+        for (int i = 0; i < snapshot.hiddenKeys.length; i++) {
+            hiddenItems.put(snapshot.hiddenKeys[i], snapshot.hiddenItems[i]);
+        }
+
+        agents.restore(snapshot.agents);
+        walkXs = snapshot.walkXs; // 中文：路径数组不会被修改，可以和快照共用
+        walkYs = snapshot.walkYs;
+        walkStep = snapshot.walkStep;
+        walkGoalX = snapshot.walkGoalX;
+        walkGoalY = snapshot.walkGoalY;
+        player.restoreState(snapshot.playerX, snapshot.playerY, snapshot.playerVelocityX, snapshot.playerVelocityY,
+                snapshot.playerDirection, snapshot.playerMoveMask, snapshot.playerElapsedTime);
+        updateCamera();
+        notifyMapLoaded(); // 中文：恢复后清除的障碍物和 loadMap 时不同，所有缓存都要重建
+    }
+
+    /**
+     * Overwrites the mutable layer of one tile with the state received from a co-op host.
+     * Debris can only lose health or disappear here; a crop or item is created if the host has one.
+     * Hidden items are not replicated, so a tile whose debris is cleared this way reveals nothing
+     * by itself; the host sends the revealed tool as its own change.
+     * @param debrisHealth remaining debris health, 0 if there is no debris
+     * @param cropStage the crop stage, or -1 if there is no crop
+     * @param itemType the tool lying on the tile, or null
+     */
+    public void applyRemoteTile(int x, int y, int debrisHealth, int cropStage, Tool.ToolType itemType) {
+        long key = TileKeys.pack(x, y);
+
+        Debris debris = debrisByTile.get(key);
+        if (debris != null) {
+            if (debrisHealth > 0) {
+                debris.restoreState(debrisHealth, 0f);
+            } else {
+                debris.remove(world);
+                debrisList.remove(debris);
+                debrisByTile.remove(key);
+                setWalkable(x, y, true);
+            }
+        }
+
+        Crop crop = cropsByTile.get(key);
+        if (cropStage < 0 && crop != null) {
+            crops.remove(crop);
+            cropsByTile.remove(key);
+            cropSchedule.cancel(crop);
+        } else if (cropStage >= 0) {
+            if (crop == null) {
+                crop = new Crop(x, y);
+                crops.add(crop);
+                cropsByTile.put(key, crop);
+            }
+            crop.restoreState(cropStage, 0f, clock, soil.growthRateAt(x, y));
+            cropSchedule.schedule(crop);
+        }
+
+        Tool tool = itemsByTile.get(key);
+        if (tool != null && tool.getType() != itemType) {
+            removeItem(tool, x, y);
+            tool = null;
+        }
+        if (tool == null && itemType != null) {
+            hiddenItems.remove(key);
+            placeItem(new Tool(x, y, itemType), x, y);
+        }
+        notifyTileChanged(x, y);
     }
-    
 
     // ... (tick, physics, updateCamera, getters 保持不变) ...
     public void tick(float frameTime) {
+        clock += frameTime;
         if (player != null) player.tick(frameTime);
-        for (Debris d : debrisList) d.tick(frameTime);
-        for (Crop c : crops) {
-        c.tick(frameTime);
-    }
+        for (int i = 0; i < guests.size(); i++) guests.get(i).tick(frameTime);
+        active.tick(frameTime);
+        if (replica) {
+            // 中文：客户端只镜像主机，作物、土壤、动物和拾取都以主机发来的为准
+            doPhysicsStep(frameTime);
+            triggers.processEvents(ignoreTriggers);
+            return;
+        }
+        if (soil.update(frameTime)) updateGrowthRates();
+        advanceCrops();
         doPhysicsStep(frameTime);
-        
+        // 中文：物理步进时排队的进出事件，在这里统一处理，不再每帧扫描所有道具
+        triggers.processEvents(triggerHandler);
+        if (playersInExit > 0 && gameState != null && gameState.isExitUnlocked() && !gameState.isVictory()) {
+            gameState.triggerVictory();
+            Gdx.app.log("GameMap", "Reached the exit!");
+        }
+        if (player != null) agents.update(frameTime, player.getX(), player.getY(), player.getMoveMask() != 0);
+    }
+
+    /**
+     * Gives every crop in the rectangle the last soil step covered the growth rate of its tile. Runs at most once per
+     * {@link SoilLayer#STEP_SECONDS} and only while the soil is still changing.
+     */
+    private void updateGrowthRates() {
+        for (int a = 0; a < growable.size(); a++) {
+            Archetype<?> archetype = growable.get(a);
+            GrowthColumns growth = (GrowthColumns) archetype.getColumns();
+            for (int i = 0; i < archetype.size(); i++) {
+                long key = archetype.getTileKey(i); // 中文：位置和生长状态都直接从 archetype 的紧凑数组里读
+                int x = TileKeys.x(key), y = TileKeys.y(key);
+                if (!soil.wasStepped(x, y)) continue; // 这一步没算到的格子土壤没变
+                if (growth.setGrowthRate(i, soil.growthRateAt(x, y), clock)) {
+                    growth.advanceTo(i, clock);
+                    cropSchedule.schedule((Crop) archetype.get(i)); // 下次换阶段的时间变了，旧条目会自动作废
+                }
+            }
+        }
+    }
+
+    /** Advances only the crops whose next stage change is due, see {@link CropSchedule}. */
+    private void advanceCrops() {
+        Crop c;
+        while ((c = cropSchedule.pollDue(clock)) != null) {
+            int stage = c.getStage();
+            c.advanceTo(clock);
+            cropSchedule.schedule(c);
+            // 中文：作物换阶段也算格子变化，联机复制靠这个通知
+            if (c.getStage() != stage) notifyTileChanged(Math.round(c.getX()), Math.round(c.getY()));
+        }
+    }
+
+    /**
+     * Jumps the game clock forward without ticking, e.g. after the game was closed for a while.
+     * Only the crops with a stage change in between are touched, each in one O(1) step;
+     * the player and physics do not move.
+     * @param seconds how much game time passed
+     */
+    public void advanceClock(double seconds) {
+        clock += seconds;
+        if (!replica) advanceCrops();
+    }
+
+    /**
+     * The cheap tick of an idle map (see {@link #isQuiescent()}): the clock and the crops move on, the
+     * player's animation clock runs on and Box2D is not stepped at all, since nothing in it would move.
+     * @param seconds game time to advance, one {@link de.tum.cit.aet.valleyday.sim.Simulation#STEP} per tick
+     */
+    public void skipIdle(float seconds) {
+        if (player != null) player.tick(seconds);
+        for (int i = 0; i < guests.size(); i++) guests.get(i).tick(seconds);
+        advanceClock(seconds);
+    }
+
+    /** @return seconds of game time since the map was loaded */
+    public double getClock() {
+        return clock;
     }
     
+    /**
+     * Whether nothing on the map changes on its own, apart from crops: every player stands still and no
+     * object is active (see {@link ActiveSet}, e.g. debris still shaking from a hit), the soil has settled and
+     * the animals are asleep with no crow around (see {@link AgentSystem#isSettled()}). Crops only depend on the clock, so a host may park a quiescent map until the next
+     * command arrives and catch the crops up afterwards with {@link MapSnapshot#advancedBy(double)}
+     * or {@link #advanceClock(double)}.
+     */
+    public boolean isQuiescent() {
+        if (player != null && isMoving(player)) return false;
+        for (int i = 0; i < guests.size(); i++) {
+            if (isMoving(guests.get(i))) return false;
+        }
+        return active.isEmpty() && soil.isSettled() && agents.isSettled() && !isWalking();
+    }
+
+    private static boolean isMoving(Player player) {
+        return player.getMoveMask() != 0 || player.getVelocityX() != 0 || player.getVelocityY() != 0;
+    }
+
+    /** Frees the Box2D world. The map cannot be used afterwards. */
+    public void dispose() {
+        if (pathService != null) pathService.dispose();
+        tileChangeListeners.clear();
+        world.dispose();
+    }
+
     private void doPhysicsStep(float frameTime) {
         this.physicsTime += frameTime;
         while (this.physicsTime >= TIME_STEP) {
@@ -468,30 +1305,90 @@ public class GameMap {
     
     public void updateCamera() {
         if (player == null) return;
-        float targetX = player.getX() * ValleyDayGame.PPM + (ValleyDayGame.PPM / 2f);
-        float targetY = player.getY() * ValleyDayGame.PPM + (ValleyDayGame.PPM / 2f);
-        float halfW = camera.viewportWidth / 2f;
-        float halfH = camera.viewportHeight / 2f;
+        updateCamera(player.getX(), player.getY());
+    }
+
+    /**
+     * Centres the camera on the given position, clamped to the map.
+     * The renderer calls this with the player position from the latest snapshot,
+     * since the player itself belongs to the simulation thread.
+     * @param playerX x-coordinate in tile units
+     * @param playerY y-coordinate in tile units
+     */
+    public void updateCamera(float playerX, float playerY) {
+        float targetX = playerX * ValleyDayGame.PPM + (ValleyDayGame.PPM / 2f);
+        float targetY = playerY * ValleyDayGame.PPM + (ValleyDayGame.PPM / 2f);
+        float halfW = camera.viewportWidth * camera.zoom / 2f;
+        float halfH = camera.viewportHeight * camera.zoom / 2f;
         float mapPixelWidth = width * ValleyDayGame.PPM;
         float mapPixelHeight = height * ValleyDayGame.PPM;
-        float clampedX = com.badlogic.gdx.math.MathUtils.clamp(targetX, halfW, Math.max(halfW, mapPixelWidth - halfW));
-        float clampedY = com.badlogic.gdx.math.MathUtils.clamp(targetY, halfH, Math.max(halfH, mapPixelHeight - halfH));
+        // 中文：视野比地图还大时把地图居中，否则跟随玩家但不超出地图边缘
+        float clampedX = mapPixelWidth <= 2 * halfW ? mapPixelWidth / 2f
+                : com.badlogic.gdx.math.MathUtils.clamp(targetX, halfW, mapPixelWidth - halfW);
+        float clampedY = mapPixelHeight <= 2 * halfH ? mapPixelHeight / 2f
+                : com.badlogic.gdx.math.MathUtils.clamp(targetY, halfH, mapPixelHeight - halfH);
         camera.position.set(clampedX, clampedY, 0);
         camera.update();
     }
+
+    /**
+     * Sets the camera zoom, clamped between 1 (one texture pixel is {@link ValleyDayGame#SCALE} screen pixels)
+     * and the zoom at which the whole map fits on the screen.
+     * Takes effect with the next {@link #updateCamera(float, float)}.
+     * @param zoom world pixels per screen pixel
+     */
+    public void setZoom(float zoom) {
+        float fitWidth = width * ValleyDayGame.PPM / camera.viewportWidth;
+        float fitHeight = height * ValleyDayGame.PPM / camera.viewportHeight;
+        float maxZoom = Math.min(MAX_ZOOM, Math.max(1f, Math.max(fitWidth, fitHeight)));
+        camera.zoom = com.badlogic.gdx.math.MathUtils.clamp(zoom, 1f, maxZoom);
+    }
+
+    public float getZoom() {
+        return camera.zoom;
+    }
     
     // Getters
-    public Floor getFloor(int x, int y) { if (x < 0 || x >= width || y < 0 || y >= height) return null; return floors[y][x]; }
+    /** @return whether the tile can be walked on; tiles outside the map are never walkable */
+    public boolean isWalkable(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return false;
+        return tiles.isWalkable(x, y);
+    }
+
+    /** Sets whether the tile can be walked on; positions outside the map are ignored. */
+    public void setWalkable(int x, int y, boolean walkable) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return;
+        tiles.setWalkable(x, y, walkable);
+    }
+
+    /** @return the object type id the map file places on the tile, or -1 for plain floor */
+    public int getTerrain(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) return -1;
+        return tiles.getTerrain(x, y);
+    }
+
+    public TileStore getTileStore() {
+        return tiles;
+    }
+
     public Player getPlayer() { return player; }
+    public List<Player> getGuests() { return guests; }
     public List<Chest> getChests() { return chests; }
     public List<Flowers> getFlowers() { return flowers; }
     public List<Fence> getFences() { return fences; }
     public List<Debris> getDebris() { return debrisList; }
     public List<Tool> getItemsOnGround() { return itemsOnGround; }
-    private List<Crop> crops;
     public OrthographicCamera getCamera() { return camera; }
     public int getWidth() { return width; }
     public int getHeight() { return height; }
     public List<Crop> getCrops() { return crops; }
+    public EntityStore getEntities() { return entities; }
+    public AgentSystem getAgents() { return agents; }
+    public Debris getDebrisAt(int x, int y) { return debrisByTile.get(x, y); }
+    public Crop getCropAt(int x, int y) { return cropsByTile.get(x, y); }
+    public SoilLayer getSoil() { return soil; }
+    public Tool getItemAt(int x, int y) { return itemsByTile.get(x, y); }
+    public long getSeed() { return seed; }
+    public FileHandle getMapFile() { return mapFile; }
     
 }
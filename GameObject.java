@@ -8,6 +8,10 @@ public abstract class GameObject implements Drawable {
 
     protected final int x;
     protected final int y;
+    /** Position in the map's {@link ActiveSet}, -1 while the object is idle. */
+    int activeIndex = -1;
+    /** Slot in its {@link Archetype}, -1 while the object is not on a map. */
+    int entityIndex = -1;
 
     /**
      * Creates a new game object at the given tile position.
@@ -29,4 +33,14 @@ public abstract class GameObject implements Drawable {
     public float getY() {
         return y;
     }
+
+    /**
+     * Advances whatever the object is doing on its own. Only called while the object is in the map's
+     * {@link ActiveSet}; static objects never override this and are never ticked.
+     * @param deltaTime seconds since the last tick
+     * @return whether the object is still changing and must be ticked again
+     */
+    boolean tickActive(float deltaTime) {
+        return false;
+    }
 }
@@ -4,21 +4,36 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Input;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.utils.ScreenUtils;
+import com.badlogic.gdx.utils.TimeUtils;
 import de.tum.cit.aet.valleyday.ValleyDayGame;
+import de.tum.cit.aet.valleyday.audio.MusicManager;
+import de.tum.cit.aet.valleyday.audio.SoundManager;
+import de.tum.cit.aet.valleyday.input.InputCommand;
+import de.tum.cit.aet.valleyday.input.InputCommandBuffer;
 import de.tum.cit.aet.valleyday.map.GameMap;
-import de.tum.cit.aet.valleyday.texture.Drawable;
+import de.tum.cit.aet.valleyday.map.MapWatcher;
+import de.tum.cit.aet.valleyday.net.CoopClient;
+import de.tum.cit.aet.valleyday.net.CoopHost;
+import de.tum.cit.aet.valleyday.replay.ReplayRecorder;
+import de.tum.cit.aet.valleyday.sim.RenderSnapshot;
+import de.tum.cit.aet.valleyday.sim.Simulation;
+import de.tum.cit.aet.valleyday.sim.SimulationThread;
 import de.tum.cit.aet.valleyday.texture.Textures;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import de.tum.cit.aet.valleyday.state.GameState;
 
 
 /**
  * The GameScreen class is responsible for rendering the gameplay screen.
- * It handles the game logic and rendering of the game elements.
+ * The game logic runs on a {@link SimulationThread}; this screen only forwards input to it
+ * and draws the latest {@link RenderSnapshot} it published.
  */
 public class GameScreen implements Screen {
 
@@ -31,28 +46,80 @@ public class GameScreen implements Screen {
     private final GameMap map;
     private final GameState gameState; // ✅ 新增：全局游戏状态
     private final Hud hud;
+    /** Day/night tint and light sources, composited over the world in one pass. */
+    private final LightingPass lighting;
+    /** Draws the world at 16px per tile and scales it up, toggled with F7. */
+    private final LowResWorldPass lowResWorld;
+    private boolean lowResEnabled = true;
+    /** Pre-rendered chunks for zoomed-out views. */
+    private final ChunkImpostors impostors;
+    /** Overview of the whole farm, updated tile by tile from the simulation. */
+    private final Minimap minimap;
+    /** Smoothed frame time in milliseconds for each world mode, so the two can be compared on the HUD. */
+    private float lowResFrameMillis;
+    private float fullResFrameMillis;
 
-    // ✅ 新增：交互冷却时间相关变量
-    private float interactTimer = 0f;
-    // 设置为 0.25f 表示每 0.2 秒才能清除一次（类似于挥动工具的速度）
-    private static final float INTERACT_COOLDOWN = 0.25f;
+    /** Collects key events; the simulation thread drains them tick by tick. */
+    private final InputCommandBuffer inputBuffer = new InputCommandBuffer();
+    /** Runs the game logic in fixed ticks. */
+    private final Simulation simulation;
+    /** Runs {@link #simulation} on its own thread while this screen is shown. */
+    private final SimulationThread simulationThread;
+    /** Records the session so it can be replayed (F9 saves it), null if the map has no file. */
+    private final ReplayRecorder recorder;
+    /** Applies edits of the map file to the running map, null if the file is not on disk. */
+    private final MapWatcher mapWatcher;
+    /** Replicates this farm to co-op clients while hosting (H toggles it); set on the simulation thread. */
+    private volatile CoopHost coopHost;
+    /** The host whose farm this screen plays on, null when playing locally. */
+    private final CoopClient coopClient;
+    /** Applies the host's frames on the simulation thread, posted once per rendered frame. */
+    private final Runnable applyHostFrames = () -> coopClient.applyPending(map);
+    /** Key events on their way to the host, reused every frame. */
+    private final List<InputCommand> hostInput = new ArrayList<>();
 
     /**
      * Constructor for GameScreen. Sets up the camera and font.
      */
     public GameScreen(ValleyDayGame game) {
+        this(game, null);
+    }
+
+    /**
+     * Creates a game screen that joins a co-op host. The map must already be loaded from the host's
+     * map file and seed. The keyboard drives this client's player on the host; tiles and players come back
+     * from the host, and the local map only mirrors them.
+     * @param coopClient a started client, closed together with the screen
+     */
+    public GameScreen(ValleyDayGame game, CoopClient coopClient) {
         this.game = game;
+        this.coopClient = coopClient;
         this.spriteBatch = game.getSpriteBatch();
         this.map = game.getMap(); // 获取已加载好数据的地图
          // ✅ 新增：初始化 GameState
     // 300f = 5 分钟白天时间
     // 10 = 解锁出口所需作物数量（你可以之后从 map 里读）
     this.gameState = new GameState(300f, 10);
-    // 3️⃣ 注入 GameState 给 map
-    map.setGameState(gameState); // ✅ 这一行就是关键修改
+    // 3️⃣ 模拟器负责把 GameState 注入给 map
+    map.setReplica(coopClient != null); // 同一个地图对象会在单机和联机之间复用
+    this.simulation = new Simulation(map, gameState);
+    this.recorder = map.getMapFile() != null && coopClient == null ? new ReplayRecorder(simulation) : null;
+    if (recorder != null) simulation.addListener(recorder);
+    Textures.load(); // 模拟线程抓快照时会读贴图常量，贴图必须先在渲染线程建好
+    // 中文：联机时按键发给主机，本地模拟拿一个永远为空的队列
+    this.simulationThread = new SimulationThread(simulation, coopClient == null ? inputBuffer : new InputCommandBuffer());
+    if (coopClient == null) inputBuffer.setCamera(map.getCamera()); // 点击移动：把点击的位置换算成格子
+    // 中文：地图文件改动后直接热更新到正在运行的地图上，由模拟线程执行
+    this.mapWatcher = MapWatcher.forMap(map, simulation::post);
 
-    // ✅ 修改：HUD 现在需要 GameState
-    this.hud = new Hud(spriteBatch, game.getSkin().getFont("font"), gameState);
+    // ✅ HUD 的数值来自快照，不直接读 GameState
+    this.hud = new Hud(spriteBatch, game.getSkin().getFont("font"));
+    this.lighting = new LightingPass(spriteBatch);
+    this.lowResWorld = new LowResWorldPass(spriteBatch);
+    this.impostors = new ChunkImpostors(spriteBatch, Color.DARK_GRAY);
+    this.minimap = new Minimap(spriteBatch);
+    minimap.onMapLoaded(map); // 模拟线程还没启动，这里直接画第一张
+    map.addTileChangeListener(minimap);
     }
 
     /**
@@ -60,77 +127,201 @@ public class GameScreen implements Screen {
      */
     @Override
     public void render(float deltaTime) {
-        // 1. 输入检测
+        // 1. 菜单键属于界面逻辑，不进入模拟的命令队列
         if (Gdx.input.isKeyJustPressed(Input.Keys.ESCAPE)) {
             game.goToMenu();
         }
-        
-        // --- ✅ 修改开始：按住 D 键持续清除逻辑 ---
-        
-        // 更新计时器 (如果大于0，就减去流逝的时间)
-        if (interactTimer > 0) {
-            interactTimer -= deltaTime;
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F9)) {
+            saveReplay();
+        }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.H) && coopClient == null) {
+            toggleHosting();
+        }
+        if (coopClient != null && !followHost()) {
+            return;
+        }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F)) {
+            // 中文：快进 1x → 2x → 4x … → 64x → 1x
+            int speed = simulationThread.getSpeed();
+            simulationThread.setSpeed(speed >= SimulationThread.MAX_SPEED ? 1 : speed * 2);
         }
+        if (Gdx.input.isKeyJustPressed(Input.Keys.F7)) {
+            lowResEnabled = !lowResEnabled;
+        }
+        // 中文：按住 - / = 缩放，每秒缩放四倍
+        if (Gdx.input.isKeyPressed(Input.Keys.MINUS)) {
+            map.setZoom(map.getZoom() * (float) Math.pow(4, deltaTime));
+        }
+        if (Gdx.input.isKeyPressed(Input.Keys.EQUALS)) {
+            map.setZoom(map.getZoom() / (float) Math.pow(4, deltaTime));
+        }
+        recordFrameTime(deltaTime);
 
-        // 使用 isKeyPressed (长按检测) 而不是 isKeyJustPressed (单次点击)
-        if (Gdx.input.isKeyPressed(Input.Keys.D)) {
-            // 只有当计时器归零时，才执行操作
-            if (interactTimer <= 0) {
-                map.interact(); // 执行 GameMap 里的清除逻辑
-                interactTimer = INTERACT_COOLDOWN; // 重置计时器
-            }
+        // 2. 清屏
+        ScreenUtils.clear(Color.DARK_GRAY);
+
+        // 3. 逻辑更新在模拟线程上进行，这里只取最新发布的快照
+        RenderSnapshot snapshot = simulationThread.getExchange().acquire();
+        if (snapshot.hasPlayer()) {
+            map.updateCamera(snapshot.getPlayerX(), snapshot.getPlayerY()); // 摄像机跟随快照里的玩家位置
+            SoundManager.setListener(snapshot.getPlayerX(), snapshot.getPlayerY());
         }
+        updateView(); // 下一个快照只复制屏幕上的格子
+        SoundManager.update(deltaTime); // 播放模拟线程排队的音效
+        ParticleSystem.update(deltaTime); // 粒子也一样：模拟线程排队，这里生成和移动
+        MusicManager.updateForDay(snapshot.getRemainingTime()); // 天快黑时换成夜晚音乐
 
-        // ✅ 新增：A 键：捡起物品 / 播种 / 收获
-        if (Gdx.input.isKeyJustPressed(Input.Keys.A)) {
-            // 利用刚刚修好的 pickupItem 的返回值
-            // 如果捡到了东西 (返回 true)，就直接 return，不再执行后面的逻辑(防止冲突)
-            if (map.pickupItem()) {
-                // 可以在这里重置计时器，防止瞬间连按
-                interactTimer = INTERACT_COOLDOWN; 
-            }
-            
-            // 2. 其次尝试收获 (收割成熟的，或者处理腐烂的)
-            if (map.harvestCrop()) {
-                return;
-            }
+        // 4. 渲染开始：低分辨率模式下世界先画进小缓冲区，再整数倍放大到屏幕
+        // 中文：按快照取的方式来画，缩放刚变的那一帧快照还是旧的
+        if (snapshot.isChunked()) {
+            // 远景用预渲染的块，重建要用自己的 FrameBuffer，所以放在世界渲染之前
+            impostors.prepare(map.getCamera(), snapshot, map.getWidth(), map.getHeight());
+        }
+        if (lowResEnabled) {
+            lowResWorld.begin(map.getCamera(), Color.DARK_GRAY);
+            renderMap(snapshot);
+            lowResWorld.end();
+        } else {
+            spriteBatch.setProjectionMatrix(map.getCamera().combined);
+            renderMap(snapshot);
+        }
+        lighting.render(map.getCamera(), snapshot);
+        hud.setFrameTimes(lowResEnabled, lowResFrameMillis, fullResFrameMillis);
+        hud.render(snapshot);
+        minimap.render(snapshot);
+    }
 
-            // 3. 最后尝试播种 (如果面前是空地)
-            if (map.plantSeed()) {
-                return;
-            }
+    /** Folds the last frame's duration into the average of the mode it was drawn in. */
+    private void recordFrameTime(float deltaTime) {
+        float millis = deltaTime * 1000f;
+        // 中文：指数滑动平均，大约最近 30 帧
+        if (lowResEnabled) {
+            lowResFrameMillis = lowResFrameMillis == 0 ? millis : lowResFrameMillis + (millis - lowResFrameMillis) / 30f;
+        } else {
+            fullResFrameMillis = fullResFrameMillis == 0 ? millis : fullResFrameMillis + (millis - fullResFrameMillis) / 30f;
         }
+    }
 
-        // --- ✅ 修改结束 ---
+    /** Writes the session recorded so far to {@code replays/} in the local storage. */
+    private void saveReplay() {
+        if (recorder == null) return;
+        // 中文：录像数据由模拟线程写入，保存时先暂停模拟
+        simulationThread.stop();
+        String name = "replays/replay-" + TimeUtils.millis() + ".vdr";
+        try {
+            recorder.getReplay().save(Gdx.files.local(name));
+            Gdx.app.log("Replay", "Saved " + name + " (" + recorder.getReplay().getLength() + " ticks)");
+        } catch (IOException e) {
+            Gdx.app.error("Replay", "Could not save " + name, e);
+        }
+        simulationThread.start();
+    }
 
-        // 2. 清屏
-        ScreenUtils.clear(Color.DARK_GRAY);
-        float frameTime = Math.min(deltaTime, 0.250f);
+    /**
+     * Starts or stops hosting a co-op session on {@link CoopHost}'s default port.
+     * The host is created and attached on the simulation thread, which owns the map's listeners.
+     */
+    private void toggleHosting() {
+        simulation.post(() -> {
+            if (coopHost != null) {
+                simulation.removeListener(coopHost);
+                coopHost.close();
+                coopHost = null;
+                Gdx.app.log("Coop", "Stopped hosting");
+                return;
+            }
+            try {
+                CoopHost host = new CoopHost(simulation);
+                host.start();
+                simulation.addListener(host);
+                coopHost = host;
+                Gdx.app.log("Coop", "Hosting on port " + host.getPort());
+            } catch (IOException e) {
+                Gdx.app.error("Coop", "Could not host", e);
+            }
+        });
+    }
 
-        // 3. 逻辑更新
-        // ✅ 更新全局游戏时间（白天倒计时）
-        gameState.updateTime(frameTime);
-        map.tick(frameTime);
-        map.updateCamera(); // 让地图自己管理摄像机跟随
+    /**
+     * Hands the frames received from the host to the simulation thread, sends the key events to the host
+     * and reports the camera region.
+     * @return false if the connection is gone and the screen switched back to the menu
+     */
+    private boolean followHost() {
+        simulation.post(applyHostFrames);
+        try {
+            inputBuffer.drainUntil(TimeUtils.nanoTime(), hostInput::add);
+            for (int i = 0; i < hostInput.size(); i++) coopClient.sendInput(hostInput.get(i));
+            hostInput.clear();
+            coopClient.sendView(map.getCamera());
+            return true;
+        } catch (IOException e) {
+            Gdx.app.error("Coop", "Lost the connection to the host", e);
+            game.goToMenu();
+            return false;
+        }
+    }
 
-        // 4. 渲染开始
-        renderMap();
-        hud.render();
+    /**
+     * Tells the simulation thread which tiles the camera sees, so the next snapshot copies only those.
+     * A new {@link RenderSnapshot.View} is only made when the rect or the zoom level changes.
+     */
+    private void updateView() {
+        OrthographicCamera camera = map.getCamera();
+        float tileSize = ValleyDayGame.PPM;
+        float halfWidth = camera.viewportWidth * camera.zoom / 2f;
+        float halfHeight = camera.viewportHeight * camera.zoom / 2f;
+        int minX = (int) Math.floor((camera.position.x - halfWidth) / tileSize);
+        int maxX = (int) Math.floor((camera.position.x + halfWidth) / tileSize);
+        int minY = (int) Math.floor((camera.position.y - halfHeight) / tileSize);
+        int maxY = (int) Math.floor((camera.position.y + halfHeight) / tileSize);
+        boolean chunked = isZoomedOut();
+        RenderSnapshot.View view = simulationThread.getView();
+        if (view == null || !view.sameAs(minX, minY, maxX, maxY, chunked)) {
+            simulationThread.setView(new RenderSnapshot.View(minX, minY, maxX, maxY, chunked));
+        }
     }
 
-    private void renderMap() {
-        // 使用 map 里的 camera 矩阵
-        spriteBatch.setProjectionMatrix(map.getCamera().combined);
+    private boolean isZoomedOut() {
+        return map.getZoom() >= ChunkImpostors.LOD_ZOOM;
+    }
+
+    /** Draws the floor and the snapshot; the projection has been set by the caller. */
+    private void renderMap(RenderSnapshot snapshot) {
         spriteBatch.begin();
 
+        if (snapshot.isChunked()) {
+            // 远景：每个块一张预渲染的贴图，玩家和动物这些会动的单独画在上面
+            impostors.draw();
+            for (int i = 0; i < snapshot.size(); i++) {
+                if (!RenderSnapshot.isMoving(snapshot.getKind(i))) continue;
+                spriteBatch.draw(snapshot.getRegion(i), snapshot.getX(i), snapshot.getY(i),
+                        snapshot.getWidth(i), snapshot.getHeight(i));
+            }
+            ParticleSystem.draw(spriteBatch);
+            spriteBatch.end();
+            return;
+        }
+
         // 1. 绘制地板 (最底层)
         TextureRegion floorTex = Textures.FLOOR; 
         
         // 使用全局 PPM (64)
         float tileSize = ValleyDayGame.PPM; 
 
-        for (int y = 0; y < map.getHeight(); y++) {
-            for (int x = 0; x < map.getWidth(); x++) {
+        // 只画屏幕上能看到的格子和物体
+        OrthographicCamera camera = map.getCamera();
+        float viewLeft = camera.position.x - camera.viewportWidth * camera.zoom / 2f;
+        float viewRight = camera.position.x + camera.viewportWidth * camera.zoom / 2f;
+        float viewBottom = camera.position.y - camera.viewportHeight * camera.zoom / 2f;
+        float viewTop = camera.position.y + camera.viewportHeight * camera.zoom / 2f;
+        int firstX = Math.max(0, (int) Math.floor(viewLeft / tileSize));
+        int lastX = Math.min(map.getWidth() - 1, (int) Math.floor(viewRight / tileSize));
+        int firstY = Math.max(0, (int) Math.floor(viewBottom / tileSize));
+        int lastY = Math.min(map.getHeight() - 1, (int) Math.floor(viewTop / tileSize));
+
+        for (int y = firstY; y <= lastY; y++) {
+            for (int x = firstX; x <= lastX; x++) {
                 // 直接计算像素坐标
                 float drawX = x * tileSize;
                 float drawY = y * tileSize;
@@ -142,77 +333,73 @@ public class GameScreen implements Screen {
             }
         }
 
-        // 2. 绘制各种物体 (注意遮挡顺序：地上的 -> 站着的)
-        drawList(map.getFlowers()); // 花是地上的，先画
-        drawList(map.getItemsOnGround());
-        drawList(map.getFences());
-        drawList(map.getDebris());
-        drawList(map.getChests());
-        drawList(map.getCrops());
-        
-        // 3. 绘制玩家
-        if (map.getPlayer() != null) {
-            draw(spriteBatch, map.getPlayer());
-        }
-
-        spriteBatch.end();
-    }
-    
-    // 辅助方法：批量绘制列表
-    private void drawList(List<? extends Drawable> list) {
-        for (Drawable d : list) {
-            draw(spriteBatch, d);
+        // 2. 绘制各种物体和玩家：快照里已经按遮挡顺序 (地上的 -> 站着的) 排好，位置也换算成了像素
+        for (int i = 0; i < snapshot.size(); i++) {
+            float x = snapshot.getX(i), y = snapshot.getY(i);
+            if (x > viewRight || y > viewTop
+                    || x + snapshot.getWidth(i) < viewLeft || y + snapshot.getHeight(i) < viewBottom) continue;
+            spriteBatch.draw(snapshot.getRegion(i), x, y, snapshot.getWidth(i), snapshot.getHeight(i));
         }
-    }
 
-    private static void draw(SpriteBatch spriteBatch, Drawable drawable) {
-        TextureRegion texture = drawable.getCurrentAppearance();
-        if (texture == null) return; // 防止空指针
+        // 3. 粒子在最上面，和物体在同一个批次里
+        ParticleSystem.draw(spriteBatch);
 
-        // 1. 基础计算 (保持 Player, Debris, Fence 等原有逻辑不变)
-        // 这样 Player 就不会偏移了
-        float x = drawable.getX() * ValleyDayGame.PPM;
-        float y = drawable.getY() * ValleyDayGame.PPM;
-        
-        float width = texture.getRegionWidth() * ValleyDayGame.SCALE;
-        float height = texture.getRegionHeight() * ValleyDayGame.SCALE;
-
-        // 2. 特殊处理：如果是工具 (Tool)，进行“缩小”和“居中”
-        // 必须引入 Tool 类：import de.tum.cit.aet.valleyday.map.Tool;
-        if (drawable instanceof de.tum.cit.aet.valleyday.map.Tool) {
-            
-            // A. 解决“被放大”的问题：强制缩小工具的显示尺寸
-            // 比如缩小到格子的 60% 大小，这样看起来像个道具，而不是像墙一样大
-            float iconScale = 0.6f; 
-            width *= iconScale;
-            height *= iconScale;
-
-            // B. 解决“偏移”的问题：基于新的大小，重新计算居中位置
-            float tileSize = ValleyDayGame.PPM; // 64px
-            
-            // 计算居中偏移量：(格子宽 - 图片现宽) / 2
-            float offsetX = (tileSize - width) / 2f;
-            float offsetY = (tileSize - height) / 2f;
-
-            x += offsetX;
-            y += offsetY;
-        }
-
-        spriteBatch.draw(texture, x, y, width, height);
+        spriteBatch.end();
     }
 
     @Override
     public void resize(int width, int height) {
         hud.resize(width, height);
+        lighting.resize(width, height);
+        lowResWorld.resize(width, height);
+        minimap.resize(width, height);
         // ✅ 确保地图摄像机随窗口大小改变视野
         map.getCamera().viewportWidth = width;
         map.getCamera().viewportHeight = height;
+        map.setZoom(map.getZoom()); // 窗口变了，能缩到的最远距离也变了
         map.getCamera().update();
     }
 
     @Override public void pause() {}
     @Override public void resume() {}
-    @Override public void show() {}
-    @Override public void hide() {}
-    @Override public void dispose() {}
+    @Override
+    public void show() {
+        // 中文：联机时按键也进这个队列，由 followHost 发给主机
+        Gdx.input.setInputProcessor(inputBuffer);
+        simulationThread.start();
+        if (mapWatcher != null) mapWatcher.start();
+    }
+
+    @Override
+    public void hide() {
+        if (mapWatcher != null) mapWatcher.stop();
+        simulationThread.stop();
+        inputBuffer.clear();
+        simulation.resetControls();
+        ParticleSystem.clear();
+    }
+
+    @Override
+    public void dispose() {
+        if (mapWatcher != null) mapWatcher.stop();
+        simulationThread.dispose();
+        // 中文：模拟线程已停，地图和监听器回到当前线程，直接关闭
+        if (coopHost != null) {
+            simulation.removeListener(coopHost);
+            coopHost.close();
+            coopHost = null;
+        }
+        if (coopClient != null) {
+            try {
+                coopClient.close();
+            } catch (IOException ignored) {
+                // 连接已经断了
+            }
+        }
+        lighting.dispose();
+        lowResWorld.dispose();
+        impostors.dispose();
+        map.removeTileChangeListener(minimap);
+        minimap.dispose();
+    }
 }
@@ -0,0 +1,153 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.Arrays;
+
+/**
+ * The growth state of the entities of a {@link EntityStore#GROWABLE} archetype, one row per slot in parallel arrays.
+ * <p>
+ * The soil pass and the schedule work on these columns directly (see {@code GameMap.updateGrowthRates}), so a pass
+ * over all crops reads a few primitive arrays instead of chasing one object per crop. A {@link Crop} is a handle
+ * onto its row: while it is on a map its state lives here, before it is added and after it is removed it lives in
+ * a one-row instance of its own ({@link #detached()}).
+ * </p>
+ * The crop math (ages, stages, rates) is the same closed form as before, see {@link Crop#ageAfter}.
+ */
+final class GrowthColumns implements Archetype.Columns<Crop> {
+
+    /*
+     * 中文：作物状态不逐帧累加，而是由 (种下/复活的时间, 当前时间) 直接算出来，
+     * 所以跳过几个小时和逐帧跑完结果一样，而且只要 O(1)。
+     * 土壤会改变生长速度：速度变化时记下当时的年龄，之后从那里继续线性外推。
+     */
+    /** World time of the last growth rate change (or planting, or the last restore). */
+    double[] rateSince;
+    /** Age in the growth cycle at {@link #rateSince}. */
+    double[] ageAtRateChange;
+    /** World time the crop was last advanced to. */
+    double[] now;
+    /** Time of the crop's entry in the {@link CropSchedule}, NaN if it is not scheduled. */
+    double[] scheduledAt;
+    /** How fast the crop grows until it is mature, from the soil it stands on; rotting is not affected. */
+    float[] growthRate;
+    /** Seconds spent in the current stage, cached by {@link #advanceTo}. */
+    float[] stateTimer;
+    /** The current stage, cached by {@link #advanceTo}. */
+    byte[] stage;
+    int[] restoreCount;
+
+    /** Whether this is the private one-row store of a crop that is not on a map. */
+    private final boolean single;
+
+    GrowthColumns() {
+        this(16, false);
+    }
+
+    private GrowthColumns(int capacity, boolean single) {
+        this.single = single;
+        rateSince = new double[capacity];
+        ageAtRateChange = new double[capacity];
+        now = new double[capacity];
+        scheduledAt = new double[capacity];
+        growthRate = new float[capacity];
+        stateTimer = new float[capacity];
+        stage = new byte[capacity];
+        restoreCount = new int[capacity];
+        Arrays.fill(scheduledAt, Double.NaN);
+        Arrays.fill(growthRate, 1f);
+    }
+
+    /** @return a one-row store for a crop that is not in an archetype; its row is 0 */
+    static GrowthColumns detached() {
+        return new GrowthColumns(1, true);
+    }
+
+    /** @return the row of the crop in the columns it points at */
+    static int rowOf(Crop crop) {
+        return crop.columns.single ? 0 : crop.entityIndex;
+    }
+
+    @Override
+    public void ensureCapacity(int capacity) {
+        if (capacity <= rateSince.length) return;
+        int old = rateSince.length;
+        rateSince = Arrays.copyOf(rateSince, capacity);
+        ageAtRateChange = Arrays.copyOf(ageAtRateChange, capacity);
+        now = Arrays.copyOf(now, capacity);
+        scheduledAt = Arrays.copyOf(scheduledAt, capacity);
+        growthRate = Arrays.copyOf(growthRate, capacity);
+        stateTimer = Arrays.copyOf(stateTimer, capacity);
+        stage = Arrays.copyOf(stage, capacity);
+        restoreCount = Arrays.copyOf(restoreCount, capacity);
+        Arrays.fill(scheduledAt, old, capacity, Double.NaN);
+        Arrays.fill(growthRate, old, capacity, 1f);
+    }
+
+    @Override
+    public void attach(Crop crop, int slot) {
+        copy(crop.columns, rowOf(crop), this, slot);
+        crop.columns = this;
+    }
+
+    @Override
+    public void detach(Crop crop, int slot) {
+        GrowthColumns own = detached();
+        copy(this, slot, own, 0);
+        crop.columns = own;
+    }
+
+    @Override
+    public void move(int from, int to) {
+        copy(this, from, this, to);
+    }
+
+    private static void copy(GrowthColumns from, int fromRow, GrowthColumns to, int toRow) {
+        to.rateSince[toRow] = from.rateSince[fromRow];
+        to.ageAtRateChange[toRow] = from.ageAtRateChange[fromRow];
+        to.now[toRow] = from.now[fromRow];
+        to.scheduledAt[toRow] = from.scheduledAt[fromRow];
+        to.growthRate[toRow] = from.growthRate[fromRow];
+        to.stateTimer[toRow] = from.stateTimer[fromRow];
+        to.stage[toRow] = from.stage[fromRow];
+        to.restoreCount[toRow] = from.restoreCount[fromRow];
+    }
+
+    /** Starts a new growth cycle at {@code time}, as a seed. */
+    void plant(int row, double time) {
+        rateSince[row] = time;
+        ageAtRateChange[row] = 0;
+        now[row] = time;
+        stage[row] = Crop.STAGE_SEED;
+        stateTimer[row] = 0f;
+    }
+
+    /**
+     * Brings the row to the given world time in one step, however far away it is.
+     * @param time the world time; going backwards is allowed and recomputes the earlier state
+     */
+    void advanceTo(int row, double time) {
+        now[row] = time;
+        double age = Crop.ageAfter(ageAtRateChange[row], time - rateSince[row], growthRate[row]);
+        stage[row] = (byte) Crop.stageAt(age);
+        stateTimer[row] = Crop.timerAt(age);
+    }
+
+    /**
+     * Changes how fast the row grows from {@code time} on. The age reached so far is kept;
+     * the caller has to schedule the crop again, since its next stage change moved.
+     * @return whether the rate actually changed
+     */
+    boolean setGrowthRate(int row, float rate, double time) {
+        if (rate == growthRate[row]) return false;
+        ageAtRateChange[row] = Crop.ageAfter(ageAtRateChange[row], time - rateSince[row], growthRate[row]);
+        rateSince[row] = time;
+        growthRate[row] = rate;
+        return true;
+    }
+
+    /** @return the world time of the row's next stage change, or infinity once it has rotted */
+    double nextEventTime(int row) {
+        double target = Crop.nextStageAge(stage[row]);
+        if (Double.isInfinite(target)) return target;
+        return rateSince[row] + Crop.secondsUntil(ageAtRateChange[row], target, growthRate[row]);
+    }
+}
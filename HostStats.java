@@ -0,0 +1,58 @@
+package de.tum.cit.aet.valleyday.server;
+
+/**
+ * A point-in-time summary of a {@link FarmHost}. Latencies are in nanoseconds.
+ * Skipped ticks only count farms that are live right now; deferred wakes count all farms since they were created.
+ */
+public final class HostStats {
+
+    private final int farms;
+    private final int hibernated;
+    private final int maxLive;
+    private final double ticksPerSecond;
+    private final long totalTicks;
+    private final long averageTickNanos;
+    private final long maxTickNanos;
+    private final long maxLatenessNanos;
+    private final long skippedTicks;
+    private final long deferredWakes;
+
+    HostStats(int farms, int hibernated, int maxLive, double ticksPerSecond, long totalTicks,
+              long averageTickNanos, long maxTickNanos, long maxLatenessNanos, long skippedTicks, long deferredWakes) {
+        this.farms = farms;
+        this.hibernated = hibernated;
+        this.maxLive = maxLive;
+        this.ticksPerSecond = ticksPerSecond;
+        this.totalTicks = totalTicks;
+        this.averageTickNanos = averageTickNanos;
+        this.maxTickNanos = maxTickNanos;
+        this.maxLatenessNanos = maxLatenessNanos;
+        this.skippedTicks = skippedTicks;
+        this.deferredWakes = deferredWakes;
+    }
+
+    public int getFarms() { return farms; }
+    public int getHibernated() { return hibernated; }
+    public int getLive() { return farms - hibernated; }
+    /** The most farms the host lets be awake at once. */
+    public int getMaxLive() { return maxLive; }
+    public double getTicksPerSecond() { return ticksPerSecond; }
+    public long getTotalTicks() { return totalTicks; }
+    /** Average duration of the most recent tick over all live farms. */
+    public long getAverageTickNanos() { return averageTickNanos; }
+    /** Longest single tick of any farm since the previous stats. */
+    public long getMaxTickNanos() { return maxTickNanos; }
+    /** How late any farm started a tick compared to when it was due, worst case since the previous stats. */
+    public long getMaxLatenessNanos() { return maxLatenessNanos; }
+    public long getSkippedTicks() { return skippedTicks; }
+    /** Rounds in which a farm with input stayed hibernated because {@link #getMaxLive()} farms were awake. */
+    public long getDeferredWakes() { return deferredWakes; }
+
+    @Override
+    public String toString() {
+        return String.format("%d farms (%d/%d live, %d hibernated), %.0f ticks/s, tick avg %d us / max %d us, "
+                        + "max lateness %d us, skipped %d, deferred wakes %d",
+                farms, getLive(), maxLive, hibernated, ticksPerSecond, averageTickNanos / 1000, maxTickNanos / 1000,
+                maxLatenessNanos / 1000, skippedTicks, deferredWakes);
+    }
+}
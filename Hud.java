@@ -4,6 +4,7 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.graphics.OrthographicCamera;
 import com.badlogic.gdx.graphics.g2d.BitmapFont;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import de.tum.cit.aet.valleyday.sim.RenderSnapshot;
 
 /**
  * A Heads-Up Display (HUD) that displays information on the screen.
@@ -17,6 +18,10 @@ public class Hud {
     private final BitmapFont font;
     /** The camera used to render the HUD. */
     private final OrthographicCamera camera;
+    /* Render mode and frame times, set by the GameScreen every frame. */
+    private boolean lowResWorld;
+    private float lowResFrameMillis;
+    private float fullResFrameMillis;
     
     public Hud(SpriteBatch spriteBatch, BitmapFont font) {
         this.spriteBatch = spriteBatch;
@@ -27,17 +32,51 @@ public class Hud {
     /**
      * Renders the HUD on the screen.
      * This uses a different OrthographicCamera so that the HUD is always fixed on the screen.
+     * @param snapshot the latest state published by the simulation; the HUD never reads the live game state
      */
-    public void render() {
+    public void render(RenderSnapshot snapshot) {
         // Render from the camera's perspective
         spriteBatch.setProjectionMatrix(camera.combined);
         // Start drawing
         spriteBatch.begin();
         // Draw the HUD elements
-        font.draw(spriteBatch, "Press Esc to Pause!", 10, Gdx.graphics.getHeight() - 10);
+        float top = Gdx.graphics.getHeight() - 10;
+        font.draw(spriteBatch, "Press Esc to Pause!", 10, top);
+        font.draw(spriteBatch, "Time: " + formatTime(snapshot.getRemainingTime()), 10, top - 40);
+        font.draw(spriteBatch, "Harvest: " + snapshot.getHarvestedCrops() + " / " + snapshot.getHarvestQuota(), 10, top - 80);
+        if (snapshot.isExitUnlocked()) {
+            font.draw(spriteBatch, "The exit is open!", 10, top - 120);
+        }
+        if (snapshot.getSpeed() > 1) {
+            font.draw(spriteBatch, "Speed x" + snapshot.getSpeed() + " (F)", 10, top - 160);
+        }
+        font.draw(spriteBatch, (lowResWorld ? "World 16px" : "World full res") + " (F7)  "
+                + formatMillis(lowResFrameMillis) + " / " + formatMillis(fullResFrameMillis) + " ms", 10, 30);
         // Finish drawing
         spriteBatch.end();
     }
+
+    /**
+     * Sets the frame-time comparison shown at the bottom of the screen.
+     * @param lowResWorld whether the world is currently drawn at low resolution
+     * @param lowResFrameMillis average frame time with the low-resolution world, 0 if not measured yet
+     * @param fullResFrameMillis average frame time with the full-resolution world, 0 if not measured yet
+     */
+    public void setFrameTimes(boolean lowResWorld, float lowResFrameMillis, float fullResFrameMillis) {
+        this.lowResWorld = lowResWorld;
+        this.lowResFrameMillis = lowResFrameMillis;
+        this.fullResFrameMillis = fullResFrameMillis;
+    }
+
+    private static String formatMillis(float millis) {
+        return millis == 0 ? "-" : String.format("%.1f", millis);
+    }
+
+    /** mm:ss, same format as {@code GameState.getFormattedTime()}. */
+    private static String formatTime(float remainingTime) {
+        int totalSeconds = Math.max(0, (int) remainingTime);
+        return String.format("%02d:%02d", totalSeconds / 60, totalSeconds % 60);
+    }
     
     /**
      * Resizes the HUD when the screen size changes.
@@ -0,0 +1,83 @@
+package de.tum.cit.aet.valleyday.input;
+
+/**
+ * A single, timestamped player input.
+ * <p>
+ * Commands are produced by {@link InputCommandBuffer} when libGDX delivers key events
+ * and consumed later by {@link PlayerControls} at fixed simulation ticks, so the game logic
+ * never polls the keyboard directly. Because a command only carries plain values it can also
+ * be stored and fed back in again to replay a session.
+ * </p>
+ */
+public final class InputCommand {
+
+    public enum Type {
+        /** The set of held arrow keys changed; {@link #getMoveMask()} holds the new set. */
+        MOVE,
+        /** The interact key (D) was pressed; clearing repeats while it is held. */
+        INTERACT_START,
+        /** The interact key (D) was released. */
+        INTERACT_STOP,
+        /** The use key (A) was pressed: pick up, harvest or plant, in that order. */
+        USE,
+        /** The sweep key (S) was pressed: clear the debris in front of the player, 3×3 with the shovel. */
+        SWEEP,
+        /** The water key (W) was pressed: water the row of tiles the player faces. */
+        WATER_ROW,
+        /** The bulk use key (Q) was pressed: harvest, or else plant, the 3×3 tiles in front of the player. */
+        BULK_USE,
+        /** A tile was clicked: walk there along a path; {@link #getTargetX()}/{@link #getTargetY()} hold the tile. */
+        MOVE_TO
+    }
+
+    /* Bits of the move mask. */
+    public static final int MOVE_LEFT = 1;
+    public static final int MOVE_RIGHT = 1 << 1;
+    public static final int MOVE_UP = 1 << 2;
+    public static final int MOVE_DOWN = 1 << 3;
+
+    /** Bits per coordinate of a {@link Type#MOVE_TO} target packed into the move mask (maps up to 4096 tiles wide). */
+    private static final int TARGET_BITS = 12;
+    private static final int TARGET_MASK = (1 << TARGET_BITS) - 1;
+
+    private final Type type;
+    private final long timestampNanos;
+    private final int moveMask;
+
+    public InputCommand(Type type, long timestampNanos, int moveMask) {
+        this.type = type;
+        this.timestampNanos = timestampNanos;
+        this.moveMask = moveMask;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /** @return the {@code TimeUtils.nanoTime()} at which the backend received the input event */
+    public long getTimestampNanos() {
+        return timestampNanos;
+    }
+
+    /**
+     * @return the held direction bits for {@link Type#MOVE}, the packed target tile for {@link Type#MOVE_TO}
+     */
+    public int getMoveMask() {
+        return moveMask;
+    }
+
+    /** Packs a {@link Type#MOVE_TO} target into the move mask, so replays store it like any other command. */
+    public static int packTarget(int x, int y) {
+        return (x & TARGET_MASK) | ((y & TARGET_MASK) << TARGET_BITS);
+    }
+
+    /** @return the target tile x, only meaningful for {@link Type#MOVE_TO} */
+    public int getTargetX() {
+        return moveMask & TARGET_MASK;
+    }
+
+    /** @return the target tile y, only meaningful for {@link Type#MOVE_TO} */
+    public int getTargetY() {
+        return (moveMask >>> TARGET_BITS) & TARGET_MASK;
+    }
+}
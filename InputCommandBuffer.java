@@ -0,0 +1,155 @@
+package de.tum.cit.aet.valleyday.input;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.Input;
+import com.badlogic.gdx.InputAdapter;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.math.Vector3;
+import com.badlogic.gdx.utils.TimeUtils;
+import de.tum.cit.aet.valleyday.ValleyDayGame;
+
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Turns libGDX key events into a queue of {@link InputCommand}s.
+ * <p>
+ * Register it with {@code Gdx.input.setInputProcessor}. Every key event is stamped with the time
+ * the backend received it ({@code Gdx.input.getCurrentEventTime()}), not the time the render thread
+ * got round to dispatching it, and the simulation drains the queue tick by tick with {@link #drainUntil}.
+ * A press and release that both happen within one slow frame therefore still reach the game
+ * as two separate commands, each in the tick it was made in, instead of being lost between two
+ * {@code isKeyPressed} polls or landing together in the tick after the frame.
+ * </p>
+ */
+public class InputCommandBuffer extends InputAdapter {
+
+    /** Receives the commands drained for one simulation tick. */
+    public interface Consumer {
+        void accept(InputCommand command);
+    }
+
+    // 中文：用并发队列，生产者是输入事件，消费者是模拟 tick，以后可以放在不同线程
+    private final ConcurrentLinkedQueue<InputCommand> queue = new ConcurrentLinkedQueue<>();
+
+    /** The currently held arrow keys, as {@link InputCommand} move bits. */
+    private int moveMask;
+    /** The camera the map is drawn with, used to turn clicks into tiles; clicks are ignored while it is null. */
+    private OrthographicCamera camera;
+    private final Vector3 touch = new Vector3();
+    /** Timestamp of the last queued command; stamps never go backwards, so the queue stays in time order. */
+    private long lastTimestamp;
+    private boolean stamped;
+
+    /** @param camera the camera the map is drawn with; only used on the render thread, like the camera itself */
+    public void setCamera(OrthographicCamera camera) {
+        this.camera = camera;
+    }
+
+    @Override
+    public boolean keyDown(int keycode) {
+        int bit = moveBit(keycode);
+        if (bit != 0) {
+            setMoveMask(moveMask | bit);
+            return true;
+        }
+        switch (keycode) {
+            case Input.Keys.D:
+                push(InputCommand.Type.INTERACT_START, 0);
+                return true;
+            case Input.Keys.A:
+                push(InputCommand.Type.USE, 0);
+                return true;
+            case Input.Keys.S:
+                push(InputCommand.Type.SWEEP, 0);
+                return true;
+            case Input.Keys.W:
+                push(InputCommand.Type.WATER_ROW, 0);
+                return true;
+            case Input.Keys.Q:
+                push(InputCommand.Type.BULK_USE, 0);
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    @Override
+    public boolean keyUp(int keycode) {
+        int bit = moveBit(keycode);
+        if (bit != 0) {
+            setMoveMask(moveMask & ~bit);
+            return true;
+        }
+        if (keycode == Input.Keys.D) {
+            push(InputCommand.Type.INTERACT_STOP, 0);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean touchDown(int screenX, int screenY, int pointer, int button) {
+        if (camera == null || button != Input.Buttons.LEFT) return false;
+        camera.unproject(touch.set(screenX, screenY, 0));
+        // 中文：格子 (x, y) 画在 [x * PPM, (x + 1) * PPM) 里
+        int tileX = (int) Math.floor(touch.x / ValleyDayGame.PPM);
+        int tileY = (int) Math.floor(touch.y / ValleyDayGame.PPM);
+        if (tileX < 0 || tileY < 0) return false;
+        push(InputCommand.Type.MOVE_TO, InputCommand.packTarget(tileX, tileY));
+        return true;
+    }
+
+    private void setMoveMask(int mask) {
+        if (mask == moveMask) return;
+        moveMask = mask;
+        push(InputCommand.Type.MOVE, mask);
+    }
+
+    private void push(InputCommand.Type type, int mask) {
+        queue.add(new InputCommand(type, timestamp(), mask));
+    }
+
+    /**
+     * @return when the event being dispatched reached the backend, on the {@code TimeUtils.nanoTime()} clock the
+     * simulation ticks on; the current time if the backend does not know (no event being dispatched, no input)
+     */
+    private long timestamp() {
+        long time = Gdx.input != null ? Gdx.input.getCurrentEventTime() : 0;
+        if (time == 0) time = TimeUtils.nanoTime();
+        // 中文：drainUntil 遇到第一个太新的命令就停，所以时间戳必须单调
+        if (stamped && time - lastTimestamp < 0) time = lastTimestamp;
+        lastTimestamp = time;
+        stamped = true;
+        return time;
+    }
+
+    private static int moveBit(int keycode) {
+        switch (keycode) {
+            case Input.Keys.LEFT:  return InputCommand.MOVE_LEFT;
+            case Input.Keys.RIGHT: return InputCommand.MOVE_RIGHT;
+            case Input.Keys.UP:    return InputCommand.MOVE_UP;
+            case Input.Keys.DOWN:  return InputCommand.MOVE_DOWN;
+            default:               return 0;
+        }
+    }
+
+    /**
+     * Hands every queued command that arrived at or before {@code deadlineNanos} to the consumer, oldest first.
+     * A command therefore takes effect at the end of the first tick that covers the moment of its event, i.e.
+     * input is quantised to the tick length, not to the frame.
+     * @param deadlineNanos the simulated time at the end of the tick being processed
+     * @param consumer receives the commands
+     */
+    public void drainUntil(long deadlineNanos, Consumer consumer) {
+        InputCommand next;
+        while ((next = queue.peek()) != null && next.getTimestampNanos() - deadlineNanos <= 0) {
+            consumer.accept(queue.poll());
+        }
+    }
+
+    /** Drops all pending commands and forgets the held keys, e.g. when the game screen is left. */
+    public void clear() {
+        queue.clear();
+        moveMask = 0;
+    }
+}
@@ -0,0 +1,112 @@
+package de.tum.cit.aet.valleyday.path;
+
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of node indices ordered by an int priority, with decrease-key.
+ * <p>
+ * Nodes are plain ints in {@code [0, capacity)}; the heap position of every node is kept in
+ * an array so a node's priority can be lowered in O(log n) without searching for it.
+ * Nothing is boxed, and {@link #clear()} only resets the nodes that were actually used.
+ * </p>
+ */
+final class IntMinHeap {
+
+    private int[] nodes;
+    private int[] priorities;
+    /** Heap position of each node, -1 if the node is not in the heap. */
+    private int[] positions;
+    private int size;
+
+    IntMinHeap(int capacity) {
+        nodes = new int[Math.max(16, Math.min(capacity, 1024))];
+        priorities = new int[nodes.length];
+        positions = new int[capacity];
+        Arrays.fill(positions, -1);
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    boolean contains(int node) {
+        return positions[node] >= 0;
+    }
+
+    /** Adds the node, or lowers its priority if it is already queued with a higher one. */
+    void pushOrDecrease(int node, int priority) {
+        int pos = positions[node];
+        if (pos >= 0) {
+            if (priority < priorities[pos]) {
+                priorities[pos] = priority;
+                siftUp(pos);
+            }
+            return;
+        }
+        if (size == nodes.length) {
+            nodes = Arrays.copyOf(nodes, size * 2);
+            priorities = Arrays.copyOf(priorities, size * 2);
+        }
+        nodes[size] = node;
+        priorities[size] = priority;
+        positions[node] = size;
+        siftUp(size++);
+    }
+
+    /** Removes and returns the node with the lowest priority. */
+    int pop() {
+        int top = nodes[0];
+        positions[top] = -1;
+        size--;
+        if (size > 0) {
+            nodes[0] = nodes[size];
+            priorities[0] = priorities[size];
+            positions[nodes[0]] = 0;
+            siftDown(0);
+        }
+        return top;
+    }
+
+    void clear() {
+        for (int i = 0; i < size; i++) positions[nodes[i]] = -1;
+        size = 0;
+    }
+
+    private void siftUp(int pos) {
+        int node = nodes[pos];
+        int priority = priorities[pos];
+        while (pos > 0) {
+            int parent = (pos - 1) >>> 1;
+            if (priorities[parent] <= priority) break;
+            move(parent, pos);
+            pos = parent;
+        }
+        place(node, priority, pos);
+    }
+
+    private void siftDown(int pos) {
+        int node = nodes[pos];
+        int priority = priorities[pos];
+        int half = size >>> 1;
+        while (pos < half) {
+            int child = 2 * pos + 1;
+            if (child + 1 < size && priorities[child + 1] < priorities[child]) child++;
+            if (priorities[child] >= priority) break;
+            move(child, pos);
+            pos = child;
+        }
+        place(node, priority, pos);
+    }
+
+    private void move(int from, int to) {
+        nodes[to] = nodes[from];
+        priorities[to] = priorities[from];
+        positions[nodes[to]] = to;
+    }
+
+    private void place(int node, int priority, int pos) {
+        nodes[pos] = node;
+        priorities[pos] = priority;
+        positions[node] = pos;
+    }
+}
@@ -0,0 +1,162 @@
+package de.tum.cit.aet.valleyday.screen;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ScreenUtils;
+import de.tum.cit.aet.valleyday.ValleyDayGame;
+import de.tum.cit.aet.valleyday.sim.RenderSnapshot;
+
+/**
+ * Darkens the world as the day runs out and lights it up around the player and the chests.
+ * <p>
+ * The lights are drawn additively into a small light map (a quarter of the screen resolution),
+ * which starts out filled with the ambient colour of the current time of day. The light map is then
+ * multiplied over the finished world pass with a single full-screen draw.
+ * No sprite is tinted individually, so the cost does not depend on how many objects are on screen:
+ * one draw call for all lights (they share one texture) and one for the composite, both on a
+ * low-resolution target. During the bright part of the day the pass is skipped entirely.
+ * </p>
+ */
+public class LightingPass implements Disposable {
+
+    /** The light map is this many times smaller than the screen in each direction. */
+    private static final int DOWNSCALE = 4;
+
+    /** Light radius in tiles. */
+    private static final float PLAYER_LIGHT_RADIUS = 3.5f;
+    private static final float CHEST_LIGHT_RADIUS = 2f;
+
+    /** Day progress after which the light starts to fade. */
+    private static final float DUSK_START = 0.6f;
+
+    private static final Color DAY = new Color(1f, 1f, 1f, 1f);
+    private static final Color DUSK = new Color(0.95f, 0.65f, 0.45f, 1f);
+    private static final Color NIGHT = new Color(0.12f, 0.14f, 0.3f, 1f);
+    private static final Color PLAYER_LIGHT = new Color(1f, 0.9f, 0.7f, 1f);
+    private static final Color CHEST_LIGHT = new Color(1f, 0.75f, 0.4f, 0.8f);
+
+    private final SpriteBatch spriteBatch;
+    /** A soft radial gradient, white in the middle and transparent at the edge. */
+    private final Texture lightTexture;
+    private final Matrix4 screenProjection = new Matrix4();
+    private final Color ambient = new Color();
+    private FrameBuffer lightMap;
+
+    public LightingPass(SpriteBatch spriteBatch) {
+        this.spriteBatch = spriteBatch;
+        this.lightTexture = createLightTexture(64);
+    }
+
+    private static Texture createLightTexture(int size) {
+        Pixmap pixmap = new Pixmap(size, size, Pixmap.Format.RGBA8888);
+        float center = (size - 1) / 2f;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                float dx = (x - center) / center;
+                float dy = (y - center) / center;
+                float falloff = Math.max(0f, 1f - (float) Math.sqrt(dx * dx + dy * dy));
+                // 中文：平方衰减，边缘更柔和
+                pixmap.drawPixel(x, y, Color.rgba8888(1f, 1f, 1f, falloff * falloff));
+            }
+        }
+        Texture texture = new Texture(pixmap);
+        texture.setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        pixmap.dispose();
+        return texture;
+    }
+
+    /**
+     * (Re)creates the light map for a new screen size.
+     * @param width screen width in pixels
+     * @param height screen height in pixels
+     */
+    public void resize(int width, int height) {
+        if (lightMap != null) lightMap.dispose();
+        lightMap = new FrameBuffer(Pixmap.Format.RGBA8888,
+                Math.max(1, width / DOWNSCALE), Math.max(1, height / DOWNSCALE), false);
+        lightMap.getColorBufferTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
+        screenProjection.setToOrtho2D(0, 0, 1, 1);
+    }
+
+    /**
+     * Renders the light map and multiplies it over what has been drawn so far.
+     * Must be called after the world pass and before the HUD, outside of {@code spriteBatch.begin()/end()}.
+     * @param camera the world camera
+     * @param snapshot the latest simulation snapshot, for the time of day, the player and the chests
+     */
+    public void render(OrthographicCamera camera, RenderSnapshot snapshot) {
+        if (lightMap == null) return;
+        ambientFor(snapshot.getDayProgress(), ambient);
+        if (ambient.r >= 1f && ambient.g >= 1f && ambient.b >= 1f) return; // 白天不需要光照
+
+        // 1. 光照贴图：环境光打底，所有光源用同一张贴图叠加，一次 draw call
+        lightMap.begin();
+        ScreenUtils.clear(ambient);
+        spriteBatch.setProjectionMatrix(camera.combined);
+        spriteBatch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE);
+        spriteBatch.begin();
+        float viewLeft = camera.position.x - camera.viewportWidth * camera.zoom / 2f;
+        float viewRight = camera.position.x + camera.viewportWidth * camera.zoom / 2f;
+        float viewBottom = camera.position.y - camera.viewportHeight * camera.zoom / 2f;
+        float viewTop = camera.position.y + camera.viewportHeight * camera.zoom / 2f;
+        for (int i = 0; i < snapshot.size(); i++) {
+            if (snapshot.getKind(i) != RenderSnapshot.KIND_CHEST) continue;
+            float cx = snapshot.getX(i) + snapshot.getWidth(i) / 2f;
+            float cy = snapshot.getY(i) + snapshot.getHeight(i) / 2f;
+            float r = CHEST_LIGHT_RADIUS * ValleyDayGame.PPM;
+            if (cx + r < viewLeft || cx - r > viewRight || cy + r < viewBottom || cy - r > viewTop) continue;
+            drawLight(cx, cy, r, CHEST_LIGHT);
+        }
+        if (snapshot.hasPlayer()) {
+            drawLight((snapshot.getPlayerX() + 0.5f) * ValleyDayGame.PPM, (snapshot.getPlayerY() + 0.5f) * ValleyDayGame.PPM,
+                    PLAYER_LIGHT_RADIUS * ValleyDayGame.PPM, PLAYER_LIGHT);
+        }
+        spriteBatch.end();
+        lightMap.end();
+
+        // 2. 合成：把光照贴图整屏乘到世界上，一次 draw call
+        spriteBatch.setProjectionMatrix(screenProjection);
+        spriteBatch.setBlendFunction(GL20.GL_DST_COLOR, GL20.GL_ZERO);
+        spriteBatch.setColor(Color.WHITE);
+        spriteBatch.begin();
+        spriteBatch.draw(lightMap.getColorBufferTexture(), 0, 0, 1, 1, 0, 0, 1, 1);
+        spriteBatch.end();
+        spriteBatch.setBlendFunction(GL20.GL_SRC_ALPHA, GL20.GL_ONE_MINUS_SRC_ALPHA);
+    }
+
+    private void drawLight(float centerX, float centerY, float radius, Color color) {
+        spriteBatch.setColor(color);
+        spriteBatch.draw(lightTexture, centerX - radius, centerY - radius, radius * 2, radius * 2);
+        spriteBatch.setColor(Color.WHITE);
+    }
+
+    /**
+     * Computes the ambient light for a point in the day: full daylight until {@link #DUSK_START},
+     * then through dusk to night when the time runs out.
+     */
+    static void ambientFor(float dayProgress, Color out) {
+        if (dayProgress <= DUSK_START) {
+            out.set(DAY);
+            return;
+        }
+        float t = Math.min(1f, (dayProgress - DUSK_START) / (1f - DUSK_START));
+        if (t < 0.5f) {
+            out.set(DAY).lerp(DUSK, t * 2f);
+        } else {
+            out.set(DUSK).lerp(NIGHT, (t - 0.5f) * 2f);
+        }
+    }
+
+    @Override
+    public void dispose() {
+        lightTexture.dispose();
+        if (lightMap != null) lightMap.dispose();
+    }
+}
@@ -0,0 +1,103 @@
+package de.tum.cit.aet.valleyday.screen;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.OrthographicCamera;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.graphics.glutils.FrameBuffer;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import com.badlogic.gdx.utils.ScreenUtils;
+import de.tum.cit.aet.valleyday.ValleyDayGame;
+
+/**
+ * Draws the world at the textures' native resolution and scales it up to the screen in one draw.
+ * <p>
+ * Every sprite is drawn {@link ValleyDayGame#SCALE} times larger than its texture, so on a big screen the
+ * world pass shades {@code SCALE²} fragments per texel. Between {@link #begin} and {@link #end} the world
+ * is drawn into an offscreen buffer with one texel per texture pixel instead (16 per tile), which is then
+ * stretched over the screen with nearest filtering by the same integer factor. The picture is identical
+ * pixel for pixel, since the sprites were blocky to begin with, at a sixteenth of the fill cost.
+ * The camera is snapped to whole texels so the scrolling does not shimmer.
+ * </p>
+ * The HUD is drawn afterwards at full resolution, so text stays sharp.
+ */
+public class LowResWorldPass implements Disposable {
+
+    /** Screen pixels per buffer texel; an integer, so the upscale stays pixel-perfect. */
+    private static final int UPSCALE = (int) ValleyDayGame.SCALE;
+
+    private final SpriteBatch spriteBatch;
+    /** The world camera with its viewport rounded up to whole texels. */
+    private final OrthographicCamera bufferCamera = new OrthographicCamera();
+    private final Matrix4 screenProjection = new Matrix4();
+    private FrameBuffer buffer;
+    private int screenWidth;
+    private int screenHeight;
+
+    public LowResWorldPass(SpriteBatch spriteBatch) {
+        this.spriteBatch = spriteBatch;
+    }
+
+    /**
+     * (Re)creates the buffer for a new screen size.
+     * @param width screen width in pixels
+     * @param height screen height in pixels
+     */
+    public void resize(int width, int height) {
+        screenWidth = width;
+        screenHeight = height;
+        if (buffer != null) buffer.dispose();
+        // 中文：向上取整，多出来的不到一个 texel 在放大时裁掉
+        int bufferWidth = Math.max(1, (width + UPSCALE - 1) / UPSCALE);
+        int bufferHeight = Math.max(1, (height + UPSCALE - 1) / UPSCALE);
+        buffer = new FrameBuffer(Pixmap.Format.RGBA8888, bufferWidth, bufferHeight, false);
+        buffer.getColorBufferTexture().setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+        bufferCamera.viewportWidth = bufferWidth * UPSCALE;
+        bufferCamera.viewportHeight = bufferHeight * UPSCALE;
+        screenProjection.setToOrtho2D(0, 0, width, height);
+    }
+
+    /**
+     * Redirects drawing into the low-resolution buffer and sets up {@code spriteBatch} for the world.
+     * @param camera the world camera
+     * @param clearColor the background
+     */
+    public void begin(OrthographicCamera camera, Color clearColor) {
+        // 世界坐标里一个 texel 的大小；摄像机对齐到整 texel，否则滚动时像素会抖
+        float texel = UPSCALE * camera.zoom;
+        bufferCamera.zoom = camera.zoom;
+        bufferCamera.position.set(Math.round(camera.position.x / texel) * texel,
+                Math.round(camera.position.y / texel) * texel, 0);
+        bufferCamera.update();
+
+        buffer.begin();
+        ScreenUtils.clear(clearColor);
+        spriteBatch.setProjectionMatrix(bufferCamera.combined);
+    }
+
+    /**
+     * Stops drawing into the buffer and copies it to the screen, centred like the world camera.
+     * Must be called outside of {@code spriteBatch.begin()/end()}.
+     */
+    public void end() {
+        buffer.end();
+        int width = buffer.getWidth() * UPSCALE;
+        int height = buffer.getHeight() * UPSCALE;
+        spriteBatch.setProjectionMatrix(screenProjection);
+        spriteBatch.setColor(Color.WHITE);
+        spriteBatch.disableBlending(); // 整屏不透明拷贝，不需要混合
+        spriteBatch.begin();
+        // FrameBuffer 的纹理是上下颠倒的，所以 v 从 1 画到 0
+        spriteBatch.draw(buffer.getColorBufferTexture(), (screenWidth - width) / 2, (screenHeight - height) / 2,
+                width, height, 0, 0, buffer.getWidth(), buffer.getHeight(), false, true);
+        spriteBatch.end();
+        spriteBatch.enableBlending();
+    }
+
+    @Override
+    public void dispose() {
+        if (buffer != null) buffer.dispose();
+    }
+}
@@ -0,0 +1,166 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.Arrays;
+
+/**
+ * An immutable copy of the mutable part of a {@link GameMap} at the end of a tick.
+ * <p>
+ * The static layout (fences, chests, flowers) is not stored: it is rebuilt by reloading
+ * the same map file with the same seed, and the snapshot is then applied on top.
+ * Everything is kept in primitive arrays keyed by {@link TileKeys}, so a snapshot of
+ * a large farm is a handful of arrays rather than one object per entity.
+ * </p>
+ * Created with {@link GameMap#snapshot()} and applied with {@link GameMap#restore(MapSnapshot)}.
+ */
+public final class MapSnapshot {
+
+    final long seed;
+    final float physicsTime;
+    final double clock;
+
+    // 玩家
+    final float playerX, playerY, playerVelocityX, playerVelocityY, playerElapsedTime;
+    final Player.Direction playerDirection;
+    final int playerMoveMask;
+
+    // 仍然存在的障碍物
+    final long[] debrisKeys;
+    final int[] debrisHealth;
+    final float[] debrisShake;
+
+    // 作物
+    final long[] cropKeys;
+    final int[] cropStages;
+    final float[] cropTimers;
+
+    // 地上的工具和隐藏层
+    final Tool[] itemsOnGround;
+    final long[] hiddenKeys;
+    final GameObject[] hiddenItems;
+
+    // 土壤：只存偏离基准值的格子（按行的下标，升序），其余都是基准值，见 SoilLayer
+    final int soilWidth;
+    final int soilHeight;
+    final int[] soilTiles;
+    final float[] soilMoisture;
+    final float[] soilFertility;
+    /** Game time since the last soil step, -1 if the soil had settled. */
+    final float soilPending;
+
+    // 乌鸦和动物
+    final AgentSystem.State agents;
+
+    // 点击移动：正在走的路径，没有时为 null
+    final int[] walkXs;
+    final int[] walkYs;
+    final int walkStep, walkGoalX, walkGoalY;
+
+    MapSnapshot(long seed, float physicsTime, double clock, Player player,
+                long[] debrisKeys, int[] debrisHealth, float[] debrisShake,
+                long[] cropKeys, int[] cropStages, float[] cropTimers,
+                Tool[] itemsOnGround, long[] hiddenKeys, GameObject[] hiddenItems,
+                int soilWidth, int soilHeight, int[] soilTiles, float[] soilMoisture, float[] soilFertility,
+                float soilPending,
+                AgentSystem.State agents,
+                int[] walkXs, int[] walkYs, int walkStep, int walkGoalX, int walkGoalY) {
+        this.seed = seed;
+        this.physicsTime = physicsTime;
+        this.clock = clock;
+        this.playerX = player.getX();
+        this.playerY = player.getY();
+        this.playerVelocityX = player.getVelocityX();
+        this.playerVelocityY = player.getVelocityY();
+        this.playerElapsedTime = player.getElapsedTime();
+        this.playerDirection = player.getDirection();
+        this.playerMoveMask = player.getMoveMask();
+        this.debrisKeys = debrisKeys;
+        this.debrisHealth = debrisHealth;
+        this.debrisShake = debrisShake;
+        this.cropKeys = cropKeys;
+        this.cropStages = cropStages;
+        this.cropTimers = cropTimers;
+        this.itemsOnGround = itemsOnGround;
+        this.hiddenKeys = hiddenKeys;
+        this.hiddenItems = hiddenItems;
+        this.soilWidth = soilWidth;
+        this.soilHeight = soilHeight;
+        this.soilTiles = soilTiles;
+        this.soilMoisture = soilMoisture;
+        this.soilFertility = soilFertility;
+        this.soilPending = soilPending;
+        this.agents = agents;
+        this.walkXs = walkXs;
+        this.walkYs = walkYs;
+        this.walkStep = walkStep;
+        this.walkGoalX = walkGoalX;
+        this.walkGoalY = walkGoalY;
+    }
+
+    /** Copy of {@code base} at a later clock with different crop states; everything else is shared. */
+    private MapSnapshot(MapSnapshot base, double clock, int[] cropStages, float[] cropTimers) {
+        this.seed = base.seed;
+        this.physicsTime = base.physicsTime;
+        this.clock = clock;
+        this.playerX = base.playerX;
+        this.playerY = base.playerY;
+        this.playerVelocityX = base.playerVelocityX;
+        this.playerVelocityY = base.playerVelocityY;
+        this.playerElapsedTime = base.playerElapsedTime;
+        this.playerDirection = base.playerDirection;
+        this.playerMoveMask = base.playerMoveMask;
+        this.debrisKeys = base.debrisKeys;
+        this.debrisHealth = base.debrisHealth;
+        this.debrisShake = base.debrisShake;
+        this.cropKeys = base.cropKeys;
+        this.cropStages = cropStages;
+        this.cropTimers = cropTimers;
+        this.itemsOnGround = base.itemsOnGround;
+        this.hiddenKeys = base.hiddenKeys;
+        this.hiddenItems = base.hiddenItems;
+        this.soilWidth = base.soilWidth;
+        this.soilHeight = base.soilHeight;
+        this.soilTiles = base.soilTiles;
+        this.soilMoisture = base.soilMoisture;
+        this.soilFertility = base.soilFertility;
+        this.soilPending = base.soilPending;
+        this.agents = base.agents;
+        this.walkXs = base.walkXs;
+        this.walkYs = base.walkYs;
+        this.walkStep = base.walkStep;
+        this.walkGoalX = base.walkGoalX;
+        this.walkGoalY = base.walkGoalY;
+    }
+
+    /**
+     * Returns this snapshot as it would look after {@code seconds} of game time without input:
+     * every crop is aged in one pass over the arrays, with no tick loop.
+     * Only valid while nothing else changes on its own, see {@link GameMap#isQuiescent()};
+     * in particular the soil has settled, so every crop keeps growing at the rate of its tile, and the
+     * animals are asleep. Crows only come to a live farm, so none arrive in between.
+     * @param seconds game time that passed
+     */
+    public MapSnapshot advancedBy(double seconds) {
+        int[] stages = cropStages.clone();
+        float[] timers = cropTimers.clone();
+        float[] rates = new float[stages.length];
+        for (int i = 0; i < rates.length; i++) rates[i] = soilGrowthRate(cropKeys[i]);
+        Crop.ageAll(stages, timers, rates, stages.length, seconds);
+        return new MapSnapshot(this, clock + seconds, stages, timers);
+    }
+
+    /** @return the growth rate of a crop on the tile, from the captured soil */
+    float soilGrowthRate(long key) {
+        int i = Arrays.binarySearch(soilTiles, TileKeys.y(key) * soilWidth + TileKeys.x(key));
+        if (i < 0) return SoilLayer.growthRate(SoilLayer.BASE_MOISTURE, SoilLayer.BASE_FERTILITY);
+        return SoilLayer.growthRate(soilMoisture[i], soilFertility[i]);
+    }
+
+    /** @return game time at which the snapshot was taken, see {@link GameMap#getClock()} */
+    public double getClock() {
+        return clock;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+}
@@ -0,0 +1,104 @@
+package de.tum.cit.aet.valleyday.map;
+
+import com.badlogic.gdx.math.Vector2;
+import com.badlogic.gdx.physics.box2d.Box2D;
+import com.badlogic.gdx.physics.box2d.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class MapSnapshotTest {
+
+    private static final int SOIL_WIDTH = 4;
+    private static final int SOIL_HEIGHT = 4;
+
+    private World world;
+    private Player player;
+
+    @BeforeAll
+    static void loadNatives() {
+        Box2D.init();
+    }
+
+    @BeforeEach
+    void createPlayer() {
+        world = new World(new Vector2(0, 0), true);
+        player = new Player(world, 1, 1);
+    }
+
+    @AfterEach
+    void disposeWorld() {
+        world.dispose();
+    }
+
+    /** Two crops: one on untouched soil, one on a watered tile that grows 1.5 times as fast. */
+    private MapSnapshot snapshot(int[] stages, float[] timers) {
+        long[] cropKeys = {TileKeys.pack(0, 0), TileKeys.pack(2, 1)};
+        int[] soilTiles = {1 * SOIL_WIDTH + 2};
+        float[] moisture = {1f};
+        float[] fertility = {SoilLayer.BASE_FERTILITY};
+        return new MapSnapshot(42L, 0f, 100.0, player,
+                new long[0], new int[0], new float[0],
+                cropKeys, stages, timers,
+                new Tool[0], new long[0], new GameObject[0],
+                SOIL_WIDTH, SOIL_HEIGHT, soilTiles, moisture, fertility, -1f,
+                null,
+                null, null, 0, 0, 0);
+    }
+
+    @Test
+    void soilGrowthRateReadsTheCapturedTiles() {
+        MapSnapshot snapshot = snapshot(new int[]{Crop.STAGE_SEED, Crop.STAGE_SEED}, new float[]{0f, 0f});
+        assertEquals(1f, snapshot.soilGrowthRate(TileKeys.pack(0, 0)), 1e-6f);
+        assertEquals(SoilLayer.growthRate(1f, SoilLayer.BASE_FERTILITY), snapshot.soilGrowthRate(TileKeys.pack(2, 1)));
+    }
+
+    @Test
+    void advancedByMatchesAdvancingEachCrop() {
+        int[] stages = {Crop.STAGE_SEED, Crop.STAGE_SPROUT};
+        float[] timers = {1f, 2f};
+        MapSnapshot snapshot = snapshot(stages, timers);
+        double seconds = 9.0;
+        MapSnapshot later = snapshot.advancedBy(seconds);
+
+        assertEquals(snapshot.getClock() + seconds, later.getClock(), 1e-9);
+        for (int i = 0; i < stages.length; i++) {
+            Crop crop = new Crop(0, 0, 0);
+            crop.restoreState(stages[i], timers[i], snapshot.getClock(), snapshot.soilGrowthRate(snapshot.cropKeys[i]));
+            crop.advanceTo(snapshot.getClock() + seconds);
+            assertEquals(crop.getStage(), later.cropStages[i]);
+            assertEquals(crop.getStateTimer(), later.cropTimers[i], 1e-4f);
+        }
+    }
+
+    @Test
+    void advancedByLeavesTheOriginalAndSharesTheRest() {
+        int[] stages = {Crop.STAGE_SEED, Crop.STAGE_MATURE};
+        float[] timers = {0f, 3f};
+        MapSnapshot snapshot = snapshot(stages, timers);
+        MapSnapshot later = snapshot.advancedBy(3600);
+
+        assertArrayEquals(new int[]{Crop.STAGE_SEED, Crop.STAGE_MATURE}, snapshot.cropStages);
+        assertArrayEquals(new float[]{0f, 3f}, snapshot.cropTimers);
+        assertArrayEquals(new int[]{Crop.STAGE_ROTTEN, Crop.STAGE_ROTTEN}, later.cropStages);
+        assertSame(snapshot.cropKeys, later.cropKeys);
+        assertSame(snapshot.soilTiles, later.soilTiles);
+        assertEquals(snapshot.getSeed(), later.getSeed());
+    }
+
+    @Test
+    void advancedByInStepsEqualsOneJump() {
+        MapSnapshot snapshot = snapshot(new int[]{Crop.STAGE_SEED, Crop.STAGE_SEED}, new float[]{0f, 0f});
+        MapSnapshot jumped = snapshot.advancedBy(7);
+        MapSnapshot stepped = snapshot.advancedBy(2).advancedBy(2).advancedBy(3);
+        assertArrayEquals(jumped.cropStages, stepped.cropStages);
+        for (int i = 0; i < jumped.cropTimers.length; i++) {
+            assertEquals(jumped.cropTimers[i], stepped.cropTimers[i], 1e-4f);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package de.tum.cit.aet.valleyday.map;
+
+/**
+ * The parsed, immutable content of a map file: its size and the object type id of every listed tile.
+ * <p>
+ * A template holds no runtime state (no Box2D bodies, no entities), so any number of {@link GameMap}s
+ * can be built from one template, on any thread. The entries are kept in the order the parser's
+ * {@link TileIntMap} iterates them, which is the order the entities are created in; keeping it means
+ * a map built from a cached template is identical to one parsed from the file, down to where the
+ * seed hides the tools.
+ * </p>
+ */
+public final class MapTemplate {
+
+    private final String path;
+    private final long contentHash;
+    private final int width;
+    private final int height;
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] typeIds;
+
+    private MapTemplate(String path, long contentHash, int width, int height, int[] xs, int[] ys, int[] typeIds) {
+        this.path = path;
+        this.contentHash = contentHash;
+        this.width = width;
+        this.height = height;
+        this.xs = xs;
+        this.ys = ys;
+        this.typeIds = typeIds;
+    }
+
+    /**
+     * Parses the content of a map file, one {@code x,y=typeId} entry per line.
+     * Empty lines, comments and malformed lines are skipped.
+     */
+    static MapTemplate parse(String path, long contentHash, String content) {
+        TileIntMap objects = new TileIntMap();
+        int maxX = 0;
+        int maxY = 0;
+        for (String line : content.split("\\r?\\n")) {
+            if (line.trim().isEmpty() || line.startsWith("#")) continue;
+            try {
+                String[] parts = line.split("=");
+                if (parts.length == 2) {
+                    String[] coords = parts[0].trim().split(",");
+                    int x = Integer.parseInt(coords[0].trim());
+                    int y = Integer.parseInt(coords[1].trim());
+                    int typeId = Integer.parseInt(parts[1].trim());
+                    if (x > maxX) maxX = x;
+                    if (y > maxY) maxY = y;
+                    objects.put(x, y, typeId);
+                }
+            } catch (Exception e) {
+                // 格式不对的行直接跳过
+            }
+        }
+
+        int[] xs = new int[objects.size()];
+        int[] ys = new int[xs.length];
+        int[] typeIds = new int[xs.length];
+        int[] count = {0};
+        objects.forEach((x, y, id) -> {
+            int i = count[0]++;
+            xs[i] = x;
+            ys[i] = y;
+            typeIds[i] = id;
+        });
+        return new MapTemplate(path, contentHash, maxX + 1, maxY + 1, xs, ys, typeIds);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    public long getContentHash() {
+        return contentHash;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** @return the number of listed tiles */
+    public int size() {
+        return typeIds.length;
+    }
+
+    public int getX(int i) {
+        return xs[i];
+    }
+
+    public int getY(int i) {
+        return ys[i];
+    }
+
+    public int getTypeId(int i) {
+        return typeIds[i];
+    }
+
+    /** @return an estimate of the heap the template occupies, used for the cache budget */
+    public long estimateMemoryBytes() {
+        return 64 + 3L * (16 + 4L * typeIds.length) + 2L * path.length();
+    }
+}
@@ -0,0 +1,147 @@
+package de.tum.cit.aet.valleyday.map;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.TimeUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+
+/**
+ * A bounded LRU cache of {@link MapTemplate}s, keyed by file path and checked against the content hash.
+ * <p>
+ * Re-entering a recently played map then skips reading and parsing the file; only the runtime state
+ * (entities and Box2D bodies) is built. A file whose size and modification time are unchanged is
+ * trusted without reading it. Otherwise it is read and hashed, and only parsed again if the hash differs,
+ * so an edited map file is never served stale. Internal files report no modification time and are
+ * always hashed, which is still far cheaper than parsing.
+ * </p>
+ * Templates are evicted least-recently-used first once their estimated size exceeds the budget.
+ * All methods are synchronized; several farms may load maps at the same time (see the server package).
+ */
+public final class MapTemplateCache {
+
+    /** Default budget, enough for dozens of large maps. */
+    public static final long DEFAULT_BUDGET_BYTES = 8L * 1024 * 1024;
+
+    private static final MapTemplateCache SHARED = new MapTemplateCache(DEFAULT_BUDGET_BYTES);
+
+    private static final class Entry {
+        final MapTemplate template;
+        final long length;
+        final long lastModified;
+
+        Entry(MapTemplate template, long length, long lastModified) {
+            this.template = template;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+
+    private final long budgetBytes;
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long usedBytes;
+
+    /* Metrics. */
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long parseNanos;
+    private long lastLoadNanos;
+
+    public MapTemplateCache(long budgetBytes) {
+        this.budgetBytes = budgetBytes;
+    }
+
+    /** @return the cache the game maps use by default */
+    public static MapTemplateCache shared() {
+        return SHARED;
+    }
+
+    /**
+     * Returns the template for a map file, parsing it only if it is not cached or has changed.
+     * @param file the map file
+     */
+    public synchronized MapTemplate get(FileHandle file) {
+        long start = TimeUtils.nanoTime();
+        String key = file.path();
+        Entry entry = entries.get(key);
+        long length = file.length();
+        long lastModified = file.lastModified();
+
+        // 1. 大小和修改时间都没变：不读文件直接命中
+        if (entry != null && lastModified != 0 && entry.lastModified == lastModified && entry.length == length) {
+            hits++;
+            lastLoadNanos = TimeUtils.nanoTime() - start;
+            return entry.template;
+        }
+
+        // 2. 读文件算哈希，内容相同仍然算命中，不再解析
+        byte[] bytes = file.readBytes();
+        long hash = hash(bytes);
+        if (entry != null && entry.template.getContentHash() == hash) {
+            hits++;
+            entries.put(key, new Entry(entry.template, length, lastModified));
+            lastLoadNanos = TimeUtils.nanoTime() - start;
+            return entry.template;
+        }
+
+        // 3. 真正的未命中：解析并放入缓存
+        misses++;
+        long parseStart = TimeUtils.nanoTime();
+        MapTemplate template = MapTemplate.parse(key, hash, new String(bytes, StandardCharsets.UTF_8));
+        parseNanos += TimeUtils.nanoTime() - parseStart;
+        if (entry != null) usedBytes -= entry.template.estimateMemoryBytes();
+        entries.put(key, new Entry(template, length, lastModified));
+        usedBytes += template.estimateMemoryBytes();
+        evict();
+        lastLoadNanos = TimeUtils.nanoTime() - start;
+        return template;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> it = entries.entrySet().iterator();
+        // 至少保留刚放进去的那一个（它在访问顺序的最后）
+        while (usedBytes > budgetBytes && entries.size() > 1 && it.hasNext()) {
+            Entry eldest = it.next().getValue();
+            it.remove();
+            usedBytes -= eldest.template.estimateMemoryBytes();
+            evictions++;
+        }
+    }
+
+    private static long hash(byte[] bytes) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, bytes.length);
+        return (crc.getValue() << 32) ^ bytes.length;
+    }
+
+    /** Drops every cached template. */
+    public synchronized void clear() {
+        entries.clear();
+        usedBytes = 0;
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** @return how long the most recent {@link #get} took, including reading and hashing */
+    public synchronized long getLastLoadNanos() {
+        return lastLoadNanos;
+    }
+
+    /** @return a one-line summary of hits, misses, evictions, parse time and memory use */
+    public synchronized String getStats() {
+        long total = hits + misses;
+        return String.format("%d hits / %d misses (%.0f%%), %d evicted, %.1f ms parsing, %d templates, %d / %d KB",
+                hits, misses, total == 0 ? 0f : 100f * hits / total, evictions, parseNanos / 1e6,
+                entries.size(), usedBytes / 1024, budgetBytes / 1024);
+    }
+}
@@ -0,0 +1,122 @@
+package de.tum.cit.aet.valleyday.map;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the file of a {@link GameMap} and applies edits to the running map (see {@link GameMap#applyTemplate}).
+ * <p>
+ * A background thread waits on a {@link WatchService} for the map's directory. When the file changes it
+ * waits for the editor to finish writing, re-parses the file through the {@link MapTemplateCache} (which
+ * skips the parse if the content did not actually change) and hands the new template to the thread that
+ * owns the map through the given executor, e.g. {@code simulation::post}.
+ * </p>
+ * Meant for designing maps; a session that was hot-reloaded cannot be replayed faithfully.
+ */
+public class MapWatcher {
+
+    /** Editors often write a file in several steps; wait this long after the last event before reading it. */
+    private static final long SETTLE_MILLIS = 150;
+
+    private final GameMap map;
+    private final FileHandle file;
+    private final Executor logicExecutor;
+    private WatchService watchService;
+    private Thread thread;
+
+    private MapWatcher(GameMap map, FileHandle file, Executor logicExecutor) {
+        this.map = map;
+        this.file = file;
+        this.logicExecutor = logicExecutor;
+    }
+
+    /**
+     * Creates a watcher for the map's current file.
+     * @param map the map to update
+     * @param logicExecutor runs the update on the thread that owns the map
+     * @return the watcher, or null if the map's file is not a plain file on disk (e.g. inside a jar)
+     */
+    public static MapWatcher forMap(GameMap map, Executor logicExecutor) {
+        FileHandle file = map.getMapFile();
+        if (file == null) return null;
+        File onDisk = file.file();
+        if (!onDisk.isFile() || onDisk.getAbsoluteFile().getParentFile() == null) return null;
+        return new MapWatcher(map, file, logicExecutor);
+    }
+
+    /** Starts watching. Does nothing if already started. */
+    public void start() {
+        if (thread != null) return;
+        Path path = file.file().getAbsoluteFile().toPath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            path.getParent().register(watchService,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_CREATE);
+        } catch (IOException e) {
+            Gdx.app.error("MapWatcher", "Cannot watch " + path, e);
+            return;
+        }
+        thread = new Thread(() -> watch(path.getFileName()), "Map watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    private void watch(Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                boolean touched = pollEvents(key, fileName);
+                // 等编辑器写完：一段时间内没有新事件才去读文件
+                WatchKey more;
+                while ((more = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+                    touched |= pollEvents(more, fileName);
+                }
+                if (!touched) continue;
+
+                MapTemplate template;
+                try {
+                    template = MapTemplateCache.shared().get(file);
+                } catch (RuntimeException e) {
+                    Gdx.app.error("MapWatcher", "Could not read " + file.path(), e);
+                    continue;
+                }
+                logicExecutor.execute(() -> map.applyTemplate(template));
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // stop() 结束线程
+        }
+    }
+
+    private static boolean pollEvents(WatchKey key, Path fileName) {
+        boolean touched = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context())) touched = true;
+        }
+        key.reset();
+        return touched;
+    }
+
+    /** Stops watching. */
+    public void stop() {
+        if (thread == null) return;
+        try {
+            watchService.close();
+        } catch (IOException ignored) {
+            // 关闭时出错没有影响
+        }
+        thread.interrupt();
+        thread = null;
+    }
+}
@@ -0,0 +1,40 @@
+package de.tum.cit.aet.valleyday.audio;
+
+import com.badlogic.gdx.files.FileHandle;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+/**
+ * A file whose content has already been read into memory, so opening it on the render thread
+ * does not touch the disk. The name is kept so that libGDX still picks the decoder by extension.
+ */
+final class MemoryFileHandle extends FileHandle {
+
+    private final byte[] bytes;
+
+    MemoryFileHandle(String name, byte[] bytes) {
+        super(name);
+        this.bytes = bytes;
+    }
+
+    @Override
+    public InputStream read() {
+        return new ByteArrayInputStream(bytes);
+    }
+
+    @Override
+    public byte[] readBytes() {
+        return bytes.clone();
+    }
+
+    @Override
+    public long length() {
+        return bytes.length;
+    }
+
+    @Override
+    public boolean exists() {
+        return true;
+    }
+}
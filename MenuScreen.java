@@ -14,7 +14,8 @@ import com.badlogic.gdx.utils.ScreenUtils;
 import com.badlogic.gdx.utils.viewport.ScreenViewport;
 import com.badlogic.gdx.utils.viewport.Viewport;
 import de.tum.cit.aet.valleyday.ValleyDayGame;
-import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.audio.MusicManager;
+import de.tum.cit.aet.valleyday.audio.MusicTrack;
 
 import com.badlogic.gdx.files.FileHandle;
 
@@ -44,16 +45,18 @@ public class MenuScreen implements Screen {
         TextButton map1Button = new TextButton("Load Map 1", game.getSkin());
         TextButton map2Button = new TextButton("Load Map 2", game.getSkin());
 
+        TextButton joinButton = new TextButton("Join Co-op", game.getSkin());
+
         table.add(map1Button).width(300).row();
         table.add(map2Button).width(300).row();
+        table.add(joinButton).width(300).row();
 
         // 点击事件：直接在游戏里加载地图文件，不弹系统窗口
         map1Button.addListener(new ChangeListener() {
             @Override
             public void changed(ChangeEvent event, Actor actor) {
                 FileHandle mapFile = Gdx.files.internal("maps/map-1.properties"); // 游戏内地图
-                game.setMap(new GameMap(game));
-                game.goToGame(); // 进入游戏
+                game.loadMap(mapFile); // 进入游戏
             }
         });
 
@@ -61,8 +64,15 @@ public class MenuScreen implements Screen {
             @Override
             public void changed(ChangeEvent event, Actor actor) {
                 FileHandle mapFile = Gdx.files.internal("maps/map-2.properties"); // 游戏内地图
-               game.setMap(new GameMap(game));
-                game.goToGame();
+                game.loadMap(mapFile);
+            }
+        });
+
+        // 中文：加入本机上正在主持的联机农场（观战）
+        joinButton.addListener(new ChangeListener() {
+            @Override
+            public void changed(ChangeEvent event, Actor actor) {
+                game.joinCoop();
             }
         });
 
@@ -100,6 +110,7 @@ public class MenuScreen implements Screen {
     @Override
     public void show() {
         Gdx.input.setInputProcessor(stage);
+        MusicManager.play(MusicTrack.MENU);
     }
 
     @Override
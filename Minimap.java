@@ -0,0 +1,390 @@
+package de.tum.cit.aet.valleyday.screen;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.GL20;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import com.badlogic.gdx.math.Matrix4;
+import com.badlogic.gdx.utils.Disposable;
+import de.tum.cit.aet.valleyday.map.Crop;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.TileChangeListener;
+import de.tum.cit.aet.valleyday.map.TileKeys;
+import de.tum.cit.aet.valleyday.sim.RenderSnapshot;
+import de.tum.cit.aet.valleyday.texture.Drawable;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.ShortBuffer;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * An overview of the whole farm in the corner of the screen, one texel per tile.
+ * <p>
+ * The image is painted in full only when a map is loaded. After that the simulation reports every
+ * changed tile through {@link TileChangeListener} (debris cleared, seeds planted, crops harvested,
+ * crops changing stage); the colour of that tile is worked out right there, on the simulation thread,
+ * and queued. Once per frame the render thread writes the queued texels into its copy of the image and
+ * uploads just those texels to the texture. A frame without changes costs one quad, however large the map.
+ * </p>
+ * If the queue overflows (e.g. a hot reload that touched a large part of the map), the simulation paints
+ * just the rows of the tiles it could not queue into a strip and the renderer copies that strip in, after
+ * the changes that were queued before it. Loading a map paints every row the same way, in one bulk pass
+ * over the pixel buffer, and the renderer uploads it with a single call.
+ */
+public class Minimap implements TileChangeListener, Disposable {
+
+    /** Longest side of the minimap on screen, in pixels. */
+    private static final int MAX_SIZE = 200;
+    private static final int MARGIN = 10;
+    /** Changed tiles that fit between two frames; more than that and the rows of the rest are repainted. */
+    private static final int QUEUE_CAPACITY = 1 << 16;
+    /** Above this many changes in a frame the dirty rows are uploaded in one go instead of texel by texel. */
+    private static final int MAX_TEXEL_UPLOADS = 256;
+
+    private static final int GRASS = Color.rgba8888(0.42f, 0.62f, 0.25f, 1f);
+    private static final int FENCE = Color.rgba8888(0.35f, 0.25f, 0.15f, 1f);
+    private static final int CHEST = Color.rgba8888(0.85f, 0.55f, 0.2f, 1f);
+    private static final int FLOWERS = Color.rgba8888(0.9f, 0.55f, 0.7f, 1f);
+    private static final int EXIT = Color.rgba8888(0.25f, 0.45f, 0.85f, 1f);
+    private static final int WEED = Color.rgba8888(0.25f, 0.4f, 0.15f, 1f);
+    private static final int STONE = Color.rgba8888(0.55f, 0.55f, 0.55f, 1f);
+    private static final int MOUND = Color.rgba8888(0.5f, 0.35f, 0.2f, 1f);
+    private static final int ITEM = Color.rgba8888(1f, 0.9f, 0.2f, 1f);
+    private static final int[] CROP_STAGES = {
+            Color.rgba8888(0.6f, 0.45f, 0.3f, 1f),  // 种子
+            Color.rgba8888(0.55f, 0.85f, 0.35f, 1f), // 发芽
+            Color.rgba8888(0.95f, 0.75f, 0.15f, 1f), // 成熟
+            Color.rgba8888(0.3f, 0.25f, 0.2f, 1f),   // 烂了
+    };
+
+    /** Rows of the image painted by the simulation, and the queue position they are current at. */
+    private static final class Patch {
+        final Pixmap pixmap;
+        /** Row of the image (0 = top, i.e. the highest y of the map) the strip starts at. */
+        final int firstRow;
+        /** Whether the strip is the whole image of a newly loaded map. */
+        final boolean full;
+        final int tail;
+
+        Patch(Pixmap pixmap, int firstRow, boolean full, int tail) {
+            this.pixmap = pixmap;
+            this.firstRow = firstRow;
+            this.full = full;
+            this.tail = tail;
+        }
+    }
+
+    /* Simulation -> render: single-producer single-consumer ring of packed (x, y, colour). */
+    private final long[] queue = new long[QUEUE_CAPACITY];
+    private final AtomicInteger queueHead = new AtomicInteger();
+    private final AtomicInteger queueTail = new AtomicInteger();
+    /** Queue entries before this position are covered by a pending full image; simulation thread only. */
+    private int repaintedUpTo;
+    private final AtomicReference<Patch> pendingPatch = new AtomicReference<>();
+
+    /* Render thread only. */
+    private final SpriteBatch spriteBatch;
+    private final Matrix4 screenProjection = new Matrix4();
+    private final Texture pixel;
+    private Pixmap image;
+    private Texture texture;
+    private int screenWidth;
+    private int screenHeight;
+
+    public Minimap(SpriteBatch spriteBatch) {
+        this.spriteBatch = spriteBatch;
+        Pixmap white = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+        white.setColor(Color.WHITE);
+        white.fill();
+        this.pixel = new Texture(white);
+        white.dispose();
+    }
+
+    // --- simulation thread ---
+
+    /** Called on the simulation thread. */
+    @Override
+    public void onTileChanged(GameMap map, int x, int y) {
+        if (x < 0 || y < 0 || x >= map.getWidth() || y >= map.getHeight()) return;
+        if (freeSlots() == 0) {
+            // 中文：队列满了说明这一帧改动太多，只重画这一行
+            repaintRows(map, map.getHeight() - 1 - y, map.getHeight() - 1 - y);
+            return;
+        }
+        enqueue(map, x, y);
+    }
+
+    /** Called on the simulation thread; a batch that does not fit into the queue repaints its rows instead. */
+    @Override
+    public void onTilesChanged(GameMap map, long[] keys, int count) {
+        if (count <= freeSlots()) {
+            for (int i = 0; i < count; i++) {
+                int x = TileKeys.x(keys[i]), y = TileKeys.y(keys[i]);
+                if (x >= 0 && y >= 0 && x < map.getWidth() && y < map.getHeight()) enqueue(map, x, y);
+            }
+            return;
+        }
+        int minY = Integer.MAX_VALUE, maxY = -1;
+        for (int i = 0; i < count; i++) {
+            int y = TileKeys.y(keys[i]);
+            if (y < 0 || y >= map.getHeight()) continue;
+            minY = Math.min(minY, y);
+            maxY = Math.max(maxY, y);
+        }
+        if (maxY >= 0) repaintRows(map, map.getHeight() - 1 - maxY, map.getHeight() - 1 - minY);
+    }
+
+    /** Called on the simulation thread; paints the whole map. */
+    @Override
+    public void onMapLoaded(GameMap map) {
+        Pixmap full = paint(map, 0, Math.max(1, map.getHeight()));
+        repaintedUpTo = queueTail.get();
+        Patch replaced = pendingPatch.getAndSet(new Patch(full, 0, true, repaintedUpTo));
+        if (replaced != null) replaced.pixmap.dispose(); // 渲染线程还没拿到，可以直接释放
+    }
+
+    private int freeSlots() {
+        return QUEUE_CAPACITY - (queueTail.get() - Math.max(queueHead.get(), repaintedUpTo));
+    }
+
+    private void enqueue(GameMap map, int x, int y) {
+        int tail = queueTail.get();
+        queue[tail & (QUEUE_CAPACITY - 1)] = ((long) x << 48) | ((long) y << 32) | (colorOf(map, x, y) & 0xFFFFFFFFL);
+        queueTail.lazySet(tail + 1);
+    }
+
+    /**
+     * Paints the image rows {@code firstRow..lastRow} and hands them to the renderer. A strip the renderer has not
+     * taken yet is merged in: the new strip covers the rows of both, painted as they are now.
+     */
+    private void repaintRows(GameMap map, int firstRow, int lastRow) {
+        Patch pending = pendingPatch.getAndSet(null);
+        if (pending != null) {
+            pending.pixmap.dispose();
+            if (pending.full) {
+                onMapLoaded(map); // 整张图还没被取走，重画整张就包含了这几行
+                return;
+            }
+            lastRow = Math.max(lastRow, pending.firstRow + pending.pixmap.getHeight() - 1);
+            firstRow = Math.min(firstRow, pending.firstRow);
+        }
+        Pixmap strip = paint(map, firstRow, lastRow - firstRow + 1);
+        pendingPatch.set(new Patch(strip, firstRow, false, queueTail.get()));
+    }
+
+    /**
+     * Paints {@code rows} rows of the image starting at {@code firstRow}, writing the texels straight into the
+     * pixel buffer instead of one native call per texel.
+     */
+    private static Pixmap paint(GameMap map, int firstRow, int rows) {
+        int width = map.getWidth(), height = map.getHeight();
+        Pixmap strip = new Pixmap(Math.max(1, width), rows, Pixmap.Format.RGB565);
+        ShortBuffer texels = texels(strip);
+        // 先按地形逐格画，再把列表里的障碍物、作物和道具盖上去，不用每格查三次表
+        for (int row = 0; row < rows && firstRow + row < height; row++) {
+            int y = height - 1 - (firstRow + row);
+            int offset = row * width;
+            for (int x = 0; x < width; x++) {
+                texels.put(offset + x, rgb565(baseColorOf(map, x, y)));
+            }
+        }
+        overlay(texels, map, map.getDebris(), firstRow, rows);
+        overlay(texels, map, map.getItemsOnGround(), firstRow, rows);
+        overlay(texels, map, map.getCrops(), firstRow, rows);
+        return strip;
+    }
+
+    private static void overlay(ShortBuffer texels, GameMap map, List<? extends Drawable> objects,
+                                int firstRow, int rows) {
+        int width = map.getWidth(), height = map.getHeight();
+        for (int i = 0; i < objects.size(); i++) {
+            int x = Math.round(objects.get(i).getX());
+            int y = Math.round(objects.get(i).getY());
+            if (x < 0 || y < 0 || x >= width || y >= height) continue;
+            int row = height - 1 - y - firstRow;
+            if (row < 0 || row >= rows) continue;
+            texels.put(row * width + x, rgb565(colorOf(map, x, y)));
+        }
+    }
+
+    /** @return the pixel buffer of an RGB565 pixmap as texels; the pixmap stores them in native byte order */
+    private static ShortBuffer texels(Pixmap pixmap) {
+        return pixmap.getPixels().duplicate().order(ByteOrder.nativeOrder()).asShortBuffer();
+    }
+
+    /** Same conversion as {@link Pixmap#drawPixel} does for an RGB565 pixmap. */
+    private static short rgb565(int rgba8888) {
+        int r = rgba8888 >>> 27;
+        int g = (rgba8888 >>> 18) & 0x3F;
+        int b = (rgba8888 >>> 11) & 0x1F;
+        return (short) ((r << 11) | (g << 5) | b);
+    }
+
+    /** @return the tile's colour on the minimap, as RGBA8888 */
+    static int colorOf(GameMap map, int x, int y) {
+        Crop crop = map.getCropAt(x, y);
+        if (crop != null) return CROP_STAGES[Math.min(CROP_STAGES.length - 1, crop.getStage())];
+        if (map.getItemAt(x, y) != null) return ITEM;
+        if (map.getDebrisAt(x, y) != null) {
+            switch (map.getTerrain(x, y)) {
+                case 3: return STONE;
+                case 4: return MOUND;
+                default: return WEED;
+            }
+        }
+        return baseColorOf(map, x, y);
+    }
+
+    /** The colour of the tile from its terrain alone, ignoring debris, crops and items. */
+    private static int baseColorOf(GameMap map, int x, int y) {
+        switch (map.getTerrain(x, y)) {
+            case 0: return FENCE;
+            case 5: return FLOWERS;
+            case 6: return EXIT;
+            case 7: return CHEST;
+            default: return GRASS; // 空地，或者障碍物已经清掉了
+        }
+    }
+
+    // --- render thread ---
+
+    /**
+     * Places the minimap in the bottom-right corner of a screen of the given size.
+     */
+    public void resize(int width, int height) {
+        screenWidth = width;
+        screenHeight = height;
+        screenProjection.setToOrtho2D(0, 0, width, height);
+    }
+
+    /**
+     * Applies the queued changes and draws the minimap with the player on it. Render thread only,
+     * outside of {@code spriteBatch.begin()/end()}.
+     */
+    public void render(RenderSnapshot snapshot) {
+        update();
+        if (texture == null) return;
+
+        float scale = (float) MAX_SIZE / Math.max(image.getWidth(), image.getHeight());
+        float width = image.getWidth() * scale;
+        float height = image.getHeight() * scale;
+        float left = screenWidth - MARGIN - width;
+        float bottom = MARGIN;
+
+        spriteBatch.setProjectionMatrix(screenProjection);
+        spriteBatch.begin();
+        spriteBatch.setColor(0f, 0f, 0f, 0.6f);
+        spriteBatch.draw(pixel, left - 2, bottom - 2, width + 4, height + 4);
+        spriteBatch.setColor(Color.WHITE);
+        spriteBatch.draw(texture, left, bottom, width, height);
+        if (snapshot.hasPlayer()) {
+            // 玩家是活动的，不写进贴图，每帧单独画一个点
+            float dot = Math.max(3f, scale);
+            spriteBatch.setColor(Color.RED);
+            spriteBatch.draw(pixel, left + (snapshot.getPlayerX() + 0.5f) * scale - dot / 2,
+                    bottom + (snapshot.getPlayerY() + 0.5f) * scale - dot / 2, dot, dot);
+            spriteBatch.setColor(Color.WHITE);
+        }
+        spriteBatch.end();
+    }
+
+    /**
+     * Swaps in a new full image if there is one, then writes and uploads the queued texels. A strip of repainted
+     * rows goes in after the changes queued before it and before those queued after it.
+     */
+    private void update() {
+        Patch patch = pendingPatch.getAndSet(null);
+        if (patch != null && patch.full) {
+            if (image != null) image.dispose();
+            image = patch.pixmap;
+            if (texture != null && texture.getWidth() == image.getWidth() && texture.getHeight() == image.getHeight()) {
+                texture.draw(image, 0, 0);
+            } else {
+                if (texture != null) texture.dispose();
+                texture = new Texture(image);
+                texture.setFilter(Texture.TextureFilter.Nearest, Texture.TextureFilter.Nearest);
+            }
+            queueHead.set(patch.tail); // 之前排队的改动已经画在整张图里了
+            patch = null;
+        }
+        if (image == null) {
+            if (patch != null) patch.pixmap.dispose();
+            return;
+        }
+        if (patch == null) {
+            applyQueued(queueTail.get());
+            return;
+        }
+        applyQueued(patch.tail);
+        applyRows(patch);
+        applyQueued(queueTail.get());
+    }
+
+    /** Writes and uploads the queued texels up to queue position {@code tail}. */
+    private void applyQueued(int tail) {
+        int head = queueHead.get();
+        if (head == tail) return;
+        int changes = tail - head;
+        int minRow = Integer.MAX_VALUE, maxRow = -1;
+        Gdx.gl.glPixelStorei(GL20.GL_UNPACK_ALIGNMENT, 1);
+        texture.bind();
+        for (int i = head; i != tail; i++) {
+            long entry = queue[i & (QUEUE_CAPACITY - 1)];
+            int x = (int) (entry >>> 48);
+            int row = image.getHeight() - 1 - (int) ((entry >>> 32) & 0xFFFF);
+            if (x >= image.getWidth() || row < 0) continue; // 换了地图以后的旧改动
+            image.drawPixel(x, row, (int) entry);
+            if (changes <= MAX_TEXEL_UPLOADS) {
+                uploadRegion(x, row, 1, 1);
+            } else {
+                minRow = Math.min(minRow, row);
+                maxRow = Math.max(maxRow, row);
+            }
+        }
+        // 中文：改动很多时按整行上传，行在 Pixmap 里是连续的，一次 glTexSubImage2D 就够
+        if (maxRow >= 0) uploadRegion(0, minRow, image.getWidth(), maxRow - minRow + 1);
+        queueHead.lazySet(tail);
+    }
+
+    /** Copies a strip of repainted rows into {@link #image} and uploads them. */
+    private void applyRows(Patch patch) {
+        Pixmap strip = patch.pixmap;
+        int rows = Math.min(strip.getHeight(), image.getHeight() - patch.firstRow);
+        if (strip.getWidth() == image.getWidth() && rows > 0) {
+            int bytesPerRow = image.getWidth() * 2; // RGB565
+            ByteBuffer source = strip.getPixels().duplicate();
+            source.position(0).limit(rows * bytesPerRow);
+            ByteBuffer target = image.getPixels().duplicate();
+            target.position(patch.firstRow * bytesPerRow);
+            target.put(source);
+            Gdx.gl.glPixelStorei(GL20.GL_UNPACK_ALIGNMENT, 1);
+            texture.bind();
+            uploadRegion(0, patch.firstRow, image.getWidth(), rows);
+        }
+        strip.dispose();
+    }
+
+    /** Uploads a rectangle of {@link #image} that is either one texel or whole rows. */
+    private void uploadRegion(int x, int row, int width, int rows) {
+        ByteBuffer pixels = image.getPixels();
+        int bytesPerPixel = 2; // RGB565
+        pixels.position((row * image.getWidth() + x) * bytesPerPixel);
+        Gdx.gl.glTexSubImage2D(GL20.GL_TEXTURE_2D, 0, x, row, width, rows,
+                image.getGLFormat(), image.getGLType(), pixels);
+        pixels.position(0);
+    }
+
+    @Override
+    public void dispose() {
+        Patch patch = pendingPatch.getAndSet(null);
+        if (patch != null) patch.pixmap.dispose();
+        if (image != null) image.dispose();
+        if (texture != null) texture.dispose();
+        pixel.dispose();
+    }
+}
@@ -0,0 +1,158 @@
+package de.tum.cit.aet.valleyday.audio;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.files.FileHandle;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Plays the {@link MusicTrack}s with crossfades, without ever reading a music file on the render thread.
+ * <p>
+ * A track is opened only when it is needed. {@link #prefetch} reads the next track's file into memory
+ * on a background thread; {@link #play} then starts it from memory and crossfades over
+ * {@link #CROSSFADE_SECONDS}. If the requested track is not buffered yet, the current music simply keeps
+ * playing until it is. At most the playing track, the one fading out and the buffered next one are resident;
+ * everything else is disposed.
+ * </p>
+ * All methods except the loading itself run on the render thread; {@link #update(float)} is called once per frame.
+ */
+public final class MusicManager {
+
+    public static final float CROSSFADE_SECONDS = 2f;
+    /** Below this much remaining daylight the night music plays. */
+    public static final float NIGHT_REMAINING_TIME = 60f;
+    /** How long before the switch the night music starts buffering. */
+    private static final float PREFETCH_LEAD = 20f;
+
+    private static final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Music loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /* The track that is playing (or fading in). */
+    private static MusicTrack currentTrack;
+    private static Music current;
+    /* The track that is fading out, null when no crossfade is running. */
+    private static MusicTrack fadingTrack;
+    private static Music fading;
+    private static float fadeTime;
+
+    /* The buffered next track. */
+    private static MusicTrack nextTrack;
+    private static Future<byte[]> nextBytes;
+    /** The track {@link #play} asked for but which is still buffering. */
+    private static MusicTrack wanted;
+
+    private MusicManager() {
+    }
+
+    /**
+     * Starts reading a track into memory in the background so that a later {@link #play} can switch instantly.
+     * Replaces a previously buffered track.
+     */
+    public static void prefetch(MusicTrack track) {
+        if (track == currentTrack || track == nextTrack) return;
+        if (nextBytes != null) nextBytes.cancel(false);
+        nextTrack = track;
+        FileHandle file = track.file(); // 中文：只解析路径，读文件在后台线程
+        nextBytes = loader.submit(file::readBytes);
+    }
+
+    /**
+     * Crossfades to the given track, as soon as it is buffered. Does nothing if it is already playing.
+     */
+    public static void play(MusicTrack track) {
+        if (track == currentTrack) {
+            wanted = null;
+            return;
+        }
+        prefetch(track);
+        wanted = track;
+    }
+
+    /**
+     * Picks the day or night music from the remaining daylight and buffers the night music ahead of time.
+     * @param remainingTime seconds of daylight left, see {@code GameState.getRemainingTime()}
+     */
+    public static void updateForDay(float remainingTime) {
+        if (remainingTime <= NIGHT_REMAINING_TIME) {
+            play(MusicTrack.NIGHT);
+        } else {
+            play(MusicTrack.DAY);
+            // 白天音乐已经在播了才预读夜晚音乐，否则会顶掉正在缓冲的白天音乐
+            if (currentTrack == MusicTrack.DAY && remainingTime <= NIGHT_REMAINING_TIME + PREFETCH_LEAD) {
+                prefetch(MusicTrack.NIGHT);
+            }
+        }
+    }
+
+    /**
+     * Starts a buffered track once it is ready and advances the crossfade.
+     * @param delta seconds since the last frame
+     */
+    public static void update(float delta) {
+        if (wanted != null && wanted == nextTrack && nextBytes.isDone()) {
+            startNext();
+        }
+        if (current == null) return;
+
+        fadeTime += delta;
+        float t = Math.min(1f, fadeTime / CROSSFADE_SECONDS);
+        current.setVolume(currentTrack.volume * t);
+        if (fading != null) {
+            fading.setVolume(fadingTrack.volume * (1f - t));
+            if (t >= 1f) {
+                fading.dispose();
+                fading = null;
+                fadingTrack = null;
+            }
+        }
+    }
+
+    private static void startNext() {
+        MusicTrack track = nextTrack;
+        byte[] bytes;
+        try {
+            bytes = nextBytes.get(); // 已经读完了，不会阻塞
+        } catch (Exception e) {
+            Gdx.app.error("MusicManager", "Could not load " + track, e);
+            nextTrack = null;
+            nextBytes = null;
+            wanted = null;
+            return;
+        }
+        nextTrack = null;
+        nextBytes = null;
+        wanted = null;
+
+        // 上一次交叉淡入淡出还没结束：直接停掉正在淡出的那首，内存里最多两首
+        if (fading != null) fading.dispose();
+        fading = current;
+        fadingTrack = currentTrack;
+
+        current = Gdx.audio.newMusic(new MemoryFileHandle(track.file().name(), bytes));
+        currentTrack = track;
+        current.setLooping(true);
+        current.setVolume(0f);
+        current.play();
+        fadeTime = 0f;
+    }
+
+    public static MusicTrack getCurrentTrack() {
+        return currentTrack;
+    }
+
+    public static void dispose() {
+        loader.shutdownNow();
+        if (current != null) current.dispose();
+        if (fading != null) fading.dispose();
+        current = null;
+        fading = null;
+        currentTrack = null;
+        fadingTrack = null;
+    }
+}
@@ -1,34 +1,34 @@
 package de.tum.cit.aet.valleyday.audio;
 
 import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.audio.Music;
+import com.badlogic.gdx.files.FileHandle;
 
 /**
- * This enum is used to manage the music tracks in the game.
- * Currently, only one track is used, but this could be extended to include multiple tracks.
- * Using an enum for this purpose is a good practice, as it allows for easy management of the music tracks
- * and prevents the same track from being loaded into memory multiple times.
+ * The music tracks of the game. The enum only describes the tracks; nothing is loaded until
+ * {@link MusicManager} needs a track, so listing a track here costs nothing at startup.
  * See the assets/audio folder for the actual music files.
- * Feel free to add your own music tracks and use them in the game!
  */
 public enum MusicTrack {
-    
-    BACKGROUND("background.mp3", 0.2f);
-    
-    /** The music file owned by this variant. */
-    private final Music music;
-    
+
+    MENU("background.mp3", 0.2f),
+    DAY("day.mp3", 0.2f),
+    NIGHT("night.mp3", 0.15f);
+
+    /** Played instead of a track whose file is missing, so a new track can be listed before its file exists. */
+    private static final String FALLBACK = "background.mp3";
+
+    private final String fileName;
+    /** Volume of the track once it is fully faded in. */
+    final float volume;
+
     MusicTrack(String fileName, float volume) {
-        this.music = Gdx.audio.newMusic(Gdx.files.internal("audio/" + fileName));
-        this.music.setLooping(true);
-        this.music.setVolume(volume);
+        this.fileName = fileName;
+        this.volume = volume;
     }
-    
-    /**
-     * Play this music track.
-     * This will not stop other music from playing - if you add more tracks, you will have to handle that yourself.
-     */
-    public void play() {
-        this.music.play();
+
+    /** @return the file to stream the track from */
+    FileHandle file() {
+        FileHandle file = Gdx.files.internal("audio/" + fileName);
+        return file.exists() ? file : Gdx.files.internal("audio/" + FALLBACK);
     }
 }
@@ -0,0 +1,63 @@
+package de.tum.cit.aet.valleyday.path;
+
+import de.tum.cit.aet.valleyday.map.GameMap;
+
+/**
+ * A compact copy of the map's walkability, one byte per tile, indexed by {@code y * width + x}.
+ * <p>
+ * The path finder works on this copy instead of the {@code Floor} objects so that it can run
+ * on its own thread. It is only ever touched by the {@link PathService} worker.
+ * </p>
+ */
+public final class NavGrid {
+
+    private final int width;
+    private final int height;
+    private final byte[] walkable;
+
+    private NavGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.walkable = new byte[width * height];
+    }
+
+    /** Copies the current walkability of every tile of the map. Must be called on the logic thread. */
+    public static NavGrid copyOf(GameMap map) {
+        NavGrid grid = new NavGrid(map.getWidth(), map.getHeight());
+        for (int y = 0; y < grid.height; y++) {
+            for (int x = 0; x < grid.width; x++) {
+                grid.walkable[y * grid.width + x] = (byte) (map.isWalkable(x, y) ? 1 : 0);
+            }
+        }
+        return grid;
+    }
+
+    public boolean isWalkable(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height && walkable[y * width + x] != 0;
+    }
+
+    boolean isWalkable(int index) {
+        return walkable[index] != 0;
+    }
+
+    /** @return true if the value actually changed */
+    boolean setWalkable(int x, int y, boolean value) {
+        int index = y * width + x;
+        byte b = (byte) (value ? 1 : 0);
+        if (walkable[index] == b) return false;
+        walkable[index] = b;
+        return true;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int size() {
+        return walkable.length;
+    }
+}
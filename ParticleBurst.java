@@ -0,0 +1,55 @@
+package de.tum.cit.aet.valleyday.screen;
+
+import com.badlogic.gdx.graphics.Color;
+import de.tum.cit.aet.valleyday.map.ParticleEvent;
+
+/**
+ * What the {@link ParticleEvent}s of the map look like and how {@link ParticleSystem} spawns each of them.
+ * A burst is a number of square particles thrown out of the middle of a tile.
+ */
+public enum ParticleBurst {
+
+    //          event                      count speed life  gravity size  colour
+    DEBRIS_HIT  (ParticleEvent.DEBRIS_HIT,   4,   2.0f, 0.25f, -6f,  0.08f, new Color(0.55f, 0.45f, 0.35f, 1f)),
+    DEBRIS_BREAK(ParticleEvent.DEBRIS_BREAK, 24,  3.5f, 0.6f,  -9f,  0.12f, new Color(0.5f, 0.38f, 0.25f, 1f)),
+    HARVEST     (ParticleEvent.HARVEST,      16,  2.5f, 0.7f,  -4f,  0.1f,  new Color(0.95f, 0.8f, 0.2f, 1f)),
+    WATERING    (ParticleEvent.WATERING,     20,  1.5f, 0.5f,  -12f, 0.07f, new Color(0.4f, 0.65f, 1f, 0.9f));
+
+    /** The burst of each event, indexed by its ordinal; an event without a burst is null and shows nothing. */
+    private static final ParticleBurst[] BY_EVENT = new ParticleBurst[ParticleEvent.values().length];
+
+    static {
+        for (ParticleBurst burst : values()) BY_EVENT[burst.event.ordinal()] = burst;
+    }
+
+    /** The map event this burst shows. */
+    final ParticleEvent event;
+
+    /** Particles per burst while the budget is not under pressure. */
+    final int count;
+    /** Highest initial speed in tiles per second. */
+    final float speed;
+    /** Lifetime in seconds; each particle lives between half and all of it. */
+    final float life;
+    /** Vertical acceleration in tiles per second². */
+    final float gravity;
+    /** Edge length in tiles. */
+    final float size;
+    /** Colour as a packed float for {@code SpriteBatch.setPackedColor}. */
+    final float packedColor;
+
+    ParticleBurst(ParticleEvent event, int count, float speed, float life, float gravity, float size, Color color) {
+        this.event = event;
+        this.count = count;
+        this.speed = speed;
+        this.life = life;
+        this.gravity = gravity;
+        this.size = size;
+        this.packedColor = color.toFloatBits();
+    }
+
+    /** @return the burst that shows the event, or null */
+    static ParticleBurst of(ParticleEvent event) {
+        return BY_EVENT[event.ordinal()];
+    }
+}
@@ -0,0 +1,16 @@
+package de.tum.cit.aet.valleyday.map;
+
+/**
+ * Something on the map that deserves a visual effect, posted through {@link ParticleEvents}.
+ * Only the kind of event lives here; how it looks is up to the renderer ({@code ParticleBurst}).
+ */
+public enum ParticleEvent {
+    /** The shovel hit debris that is not cleared yet. */
+    DEBRIS_HIT,
+    /** Debris was cleared. */
+    DEBRIS_BREAK,
+    /** A crop was harvested or eaten. */
+    HARVEST,
+    /** A tile was watered. */
+    WATERING
+}
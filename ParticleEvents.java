@@ -0,0 +1,84 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The queue between the game logic and the particle renderer.
+ * <p>
+ * Like {@code SoundManager.post}, the logic only {@link #post posts} an event (kind and tile) into a fixed-size
+ * single-producer single-consumer ring buffer; it never touches the renderer. The render thread takes the events
+ * out with {@link #drain(Sink)} once per frame. Events that arrive while the buffer is full are dropped and counted.
+ * </p>
+ */
+public final class ParticleEvents {
+
+    /** Events that arrive within one frame beyond this are dropped. */
+    private static final int QUEUE_CAPACITY = 128;
+
+    private static final ParticleEvent[] EVENTS = ParticleEvent.values();
+
+    private static final int[] queuedEvent = new int[QUEUE_CAPACITY];
+    private static final float[] queuedX = new float[QUEUE_CAPACITY];
+    private static final float[] queuedY = new float[QUEUE_CAPACITY];
+    private static final AtomicInteger queueHead = new AtomicInteger();
+    private static final AtomicInteger queueTail = new AtomicInteger();
+
+    /** Written by the producer only. */
+    private static volatile int overflowed;
+
+    /** Receives the drained events; a static method reference, so draining does not allocate. */
+    public interface Sink {
+        /**
+         * @param centerX x-coordinate of the middle of the tile, in tiles
+         * @param centerY y-coordinate of the middle of the tile, in tiles
+         */
+        void accept(ParticleEvent event, float centerX, float centerY);
+    }
+
+    private ParticleEvents() {
+    }
+
+    /**
+     * Queues an event in the middle of a tile. Logic thread only.
+     * @param tileX x-coordinate of the tile
+     * @param tileY y-coordinate of the tile
+     */
+    public static void post(ParticleEvent event, float tileX, float tileY) {
+        int tail = queueTail.get();
+        if (tail - queueHead.get() >= QUEUE_CAPACITY) {
+            overflowed++;
+            return;
+        }
+        int slot = tail & (QUEUE_CAPACITY - 1);
+        queuedEvent[slot] = event.ordinal();
+        queuedX[slot] = tileX + 0.5f;
+        queuedY[slot] = tileY + 0.5f;
+        queueTail.lazySet(tail + 1);
+    }
+
+    /**
+     * Hands every queued event to the sink, oldest first. Render thread only.
+     * @return the number of events drained
+     */
+    public static int drain(Sink sink) {
+        int head = queueHead.get();
+        int tail = queueTail.get();
+        int drained = tail - head;
+        for (; head != tail; head++) {
+            int slot = head & (QUEUE_CAPACITY - 1);
+            sink.accept(EVENTS[queuedEvent[slot]], queuedX[slot], queuedY[slot]);
+        }
+        queueHead.lazySet(head);
+        return drained;
+    }
+
+    /** Drops every pending event, e.g. when leaving the game screen. Render thread only. */
+    public static void clear() {
+        queueHead.set(queueTail.get());
+    }
+
+    /** @return how many events were dropped because the queue was full */
+    public static int getOverflows() {
+        return overflowed;
+    }
+}
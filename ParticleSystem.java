@@ -0,0 +1,166 @@
+package de.tum.cit.aet.valleyday.screen;
+
+import com.badlogic.gdx.graphics.Color;
+import com.badlogic.gdx.graphics.Pixmap;
+import com.badlogic.gdx.graphics.Texture;
+import com.badlogic.gdx.graphics.g2d.SpriteBatch;
+import de.tum.cit.aet.valleyday.ValleyDayGame;
+import de.tum.cit.aet.valleyday.map.ParticleEvent;
+import de.tum.cit.aet.valleyday.map.ParticleEvents;
+
+/**
+ * Spawns, moves and draws the {@link ParticleBurst}s.
+ * <p>
+ * The game logic only posts an event (kind and tile) to {@link ParticleEvents}, in the map package, and never
+ * sees this class. The render thread drains those events and spawns the matching {@link ParticleBurst}s in
+ * {@link #update(float)}, and draws all particles in {@link #draw(SpriteBatch)}: they share one white texel,
+ * so that is a single batched draw call.
+ * A particle is one index into preallocated primitive arrays; nothing is allocated per particle or per frame.
+ * </p>
+ * <p>
+ * All bursts share a budget of {@link #MAX_PARTICLES}. Once half of it is in use, new bursts get
+ * proportionally fewer particles, so clearing debris as fast as possible (or fast-forwarding) thins the
+ * effects out instead of cutting them off; only a completely full budget drops a burst.
+ * </p>
+ */
+public final class ParticleSystem {
+
+    /** Particles alive at the same time over all bursts. */
+    public static final int MAX_PARTICLES = 2048;
+    /* Live particles, render thread only. Positions and velocities in tile units. */
+    private static final float[] x = new float[MAX_PARTICLES];
+    private static final float[] y = new float[MAX_PARTICLES];
+    private static final float[] velocityX = new float[MAX_PARTICLES];
+    private static final float[] velocityY = new float[MAX_PARTICLES];
+    private static final float[] gravity = new float[MAX_PARTICLES];
+    private static final float[] age = new float[MAX_PARTICLES];
+    private static final float[] life = new float[MAX_PARTICLES];
+    private static final float[] size = new float[MAX_PARTICLES];
+    private static final float[] color = new float[MAX_PARTICLES];
+    private static int count;
+
+    private static Texture pixel;
+    /** 中文：xorshift 随机数，特效不需要可复现，但也不必每次都走 Math.random 的同步 */
+    private static int random = 0x2545F491;
+
+    /* Counters for tuning the budget. */
+    private static int spawned, thinned, dropped;
+
+    private ParticleSystem() {
+    }
+
+    /**
+     * Spawns the bursts of the queued map events and moves every particle. Render thread only.
+     * @param delta seconds since the last frame
+     */
+    public static void update(float delta) {
+        ParticleEvents.drain(ParticleSystem::spawn);
+
+        for (int i = 0; i < count; ) {
+            age[i] += delta;
+            if (age[i] >= life[i]) {
+                removeAt(i); // 最后一个挪到这里，i 不加一
+                continue;
+            }
+            velocityY[i] += gravity[i] * delta;
+            x[i] += velocityX[i] * delta;
+            y[i] += velocityY[i] * delta;
+            i++;
+        }
+    }
+
+    private static void spawn(ParticleEvent event, float centerX, float centerY) {
+        ParticleBurst burst = ParticleBurst.of(event);
+        if (burst == null) return;
+        int n = burst.count;
+        int half = MAX_PARTICLES / 2;
+        if (count > half) {
+            // 预算紧张：按剩余空间比例减少粒子数
+            n = (n * (MAX_PARTICLES - count) + half - 1) / half;
+            thinned++;
+        }
+        n = Math.min(n, MAX_PARTICLES - count);
+        if (n <= 0) {
+            dropped++;
+            return;
+        }
+        for (int k = 0; k < n; k++) {
+            int i = count++;
+            float angle = nextFloat() * 6.2831855f;
+            float speed = burst.speed * (0.3f + 0.7f * nextFloat());
+            x[i] = centerX;
+            y[i] = centerY;
+            velocityX[i] = (float) Math.cos(angle) * speed;
+            velocityY[i] = Math.abs((float) Math.sin(angle)) * speed; // 往上飞，再被重力拉下来
+            gravity[i] = burst.gravity;
+            age[i] = 0f;
+            life[i] = burst.life * (0.5f + 0.5f * nextFloat());
+            size[i] = burst.size;
+            color[i] = burst.packedColor;
+        }
+        spawned += n;
+    }
+
+    private static void removeAt(int i) {
+        int last = --count;
+        x[i] = x[last];
+        y[i] = y[last];
+        velocityX[i] = velocityX[last];
+        velocityY[i] = velocityY[last];
+        gravity[i] = gravity[last];
+        age[i] = age[last];
+        life[i] = life[last];
+        size[i] = size[last];
+        color[i] = color[last];
+    }
+
+    private static float nextFloat() {
+        random ^= random << 13;
+        random ^= random >>> 17;
+        random ^= random << 5;
+        return (random >>> 8) / (float) (1 << 24);
+    }
+
+    /**
+     * Draws every particle. Must be called between {@code spriteBatch.begin()} and {@code end()}
+     * with the world projection set.
+     */
+    public static void draw(SpriteBatch spriteBatch) {
+        if (count == 0) return;
+        if (pixel == null) pixel = createPixel();
+        float ppm = ValleyDayGame.PPM;
+        for (int i = 0; i < count; i++) {
+            float s = size[i] * ppm * (1f - age[i] / life[i] * 0.5f); // 慢慢变小
+            spriteBatch.setPackedColor(color[i]);
+            spriteBatch.draw(pixel, x[i] * ppm - s / 2, y[i] * ppm - s / 2, s, s);
+        }
+        spriteBatch.setColor(Color.WHITE);
+    }
+
+    private static Texture createPixel() {
+        Pixmap white = new Pixmap(1, 1, Pixmap.Format.RGBA8888);
+        white.setColor(Color.WHITE);
+        white.fill();
+        Texture texture = new Texture(white);
+        white.dispose();
+        return texture;
+    }
+
+    /** Removes every particle and pending event, e.g. when leaving the game screen. Render thread only. */
+    public static void clear() {
+        count = 0;
+        ParticleEvents.clear();
+    }
+
+    /** @return a one-line summary of the counters, for tuning the budget */
+    public static String getStats() {
+        return "particles " + count + "/" + MAX_PARTICLES + ", spawned " + spawned + ", thinned bursts " + thinned
+                + ", dropped bursts " + dropped + ", queue overflows " + ParticleEvents.getOverflows();
+    }
+
+    public static void dispose() {
+        if (pixel != null) pixel.dispose();
+        pixel = null;
+        count = 0;
+    }
+}
@@ -0,0 +1,82 @@
+package de.tum.cit.aet.valleyday.path;
+
+/**
+ * A path over the tile grid, from start to goal inclusive.
+ * <p>
+ * Paths are shared between everyone who asked for the same start and goal, so they are immutable,
+ * except for the {@link #isValid()} flag: the {@link PathService} clears it when a tile change may have
+ * blocked or shortened the path. Agents holding a path should check it and ask again when it turns false.
+ * </p>
+ */
+public final class Path {
+
+    /** Returned when the goal cannot be reached. */
+    public static final Path NONE = new Path(new int[0], new int[0], Integer.MAX_VALUE);
+
+    private final int[] xs;
+    private final int[] ys;
+    /** Total cost in path finder units (10 per straight step, 14 per diagonal step). */
+    private final int cost;
+    private final int minX, minY, maxX, maxY;
+    private volatile boolean valid = true;
+
+    Path(int[] xs, int[] ys, int cost) {
+        this.xs = xs;
+        this.ys = ys;
+        this.cost = cost;
+        int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+        for (int i = 0; i < xs.length; i++) {
+            x0 = Math.min(x0, xs[i]);
+            y0 = Math.min(y0, ys[i]);
+            x1 = Math.max(x1, xs[i]);
+            y1 = Math.max(y1, ys[i]);
+        }
+        this.minX = x0;
+        this.minY = y0;
+        this.maxX = x1;
+        this.maxY = y1;
+    }
+
+    public boolean isFound() {
+        return xs.length > 0;
+    }
+
+    public int length() {
+        return xs.length;
+    }
+
+    public int getX(int step) {
+        return xs[step];
+    }
+
+    public int getY(int step) {
+        return ys[step];
+    }
+
+    public int getCost() {
+        return cost;
+    }
+
+    public boolean isValid() {
+        return valid;
+    }
+
+    void invalidate() {
+        valid = false;
+    }
+
+    /**
+     * @return whether blocking the given tile breaks the path: the path steps on it, or cuts its corner
+     *         with a diagonal step, which the path finder only allows while both side tiles are walkable
+     */
+    boolean isBlockedBy(int x, int y) {
+        if (x < minX || x > maxX || y < minY || y > maxY) return false;
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] == x && ys[i] == y) return true;
+            if (i == 0 || xs[i] == xs[i - 1] || ys[i] == ys[i - 1]) continue;
+            // 中文：斜着走的一步，两侧的格子任何一个被堵住这一步就不合法了
+            if ((xs[i - 1] == x && ys[i] == y) || (xs[i] == x && ys[i - 1] == y)) return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,234 @@
+package de.tum.cit.aet.valleyday.path;
+
+import com.badlogic.gdx.utils.Disposable;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.TileChangeListener;
+import de.tum.cit.aet.valleyday.map.TileKeys;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Finds paths and flow fields over the map's walkable tiles, off the game thread.
+ * <p>
+ * All searches, the walkability copy ({@link NavGrid}) and the result caches live on a single
+ * worker thread, so none of them need locks: the game thread only submits work and reads the
+ * returned futures. Tile changes reported by the {@link GameMap} are forwarded to the worker in the
+ * same queue, which keeps them ordered with the searches. A batch of changes from one area action
+ * is applied as one task with one pass over the caches.
+ * </p>
+ * <p>
+ * Cached results are dropped only when a change can actually affect them:
+ * a tile that becomes blocked invalidates the paths that cross it or cut its corner diagonally, a tile
+ * that becomes walkable invalidates the paths it could shorten (the tile lies within the ellipse of all
+ * routes no longer than the cached one). Flow fields are dropped when the tile touches their reachable area.
+ * Invalidated results are also flagged, so agents that still hold them know to ask again.
+ * </p>
+ * <p>
+ * Each map owns one service, created on first use by {@link GameMap#getPathService()} and disposed
+ * with the map; the player's click-to-move ({@link GameMap#moveTo}) is its caller.
+ * </p>
+ */
+public class PathService implements TileChangeListener, Disposable {
+
+    private static final int MAX_CACHED_PATHS = 2048;
+    private static final int MAX_CACHED_FIELDS = 16;
+
+    private final GameMap map;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "PathService");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /* Everything below is only touched on the worker thread. */
+    private NavGrid grid;
+    private AStar aStar;
+    private final LinkedHashMap<Long, Path> paths = new LinkedHashMap<Long, Path>(256, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Path> eldest) {
+            return size() > MAX_CACHED_PATHS;
+        }
+    };
+    private final LinkedHashMap<Long, FlowField> fields = new LinkedHashMap<Long, FlowField>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, FlowField> eldest) {
+            return size() > MAX_CACHED_FIELDS;
+        }
+    };
+
+    /**
+     * Creates the service and starts listening to tile changes of the map.
+     * @param map a loaded map
+     */
+    public PathService(GameMap map) {
+        this.map = map;
+        map.addTileChangeListener(this);
+        if (map.getWidth() > 0) onMapLoaded(map);
+    }
+
+    /**
+     * Finds a path between two tiles.
+     * @return a future completed on the worker thread; holds {@link Path#NONE} if the goal is unreachable
+     *         or either tile lies outside the map
+     */
+    public CompletableFuture<Path> findPath(int startX, int startY, int goalX, int goalY) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (grid == null) return Path.NONE;
+            // 中文：越界的坐标会在 pairKey 里和别的格子撞车，直接拒绝
+            if (!isInside(startX, startY) || !isInside(goalX, goalY)) return Path.NONE;
+            long key = pairKey(startX, startY, goalX, goalY);
+            Path path = paths.get(key);
+            if (path == null) {
+                path = aStar.find(startX, startY, goalX, goalY);
+                paths.put(key, path);
+            }
+            return path;
+        }, worker);
+    }
+
+    /**
+     * Gets the flow field towards a goal, building it if it is not cached.
+     * @return a future completed on the worker thread; holds null if the goal lies outside the map
+     */
+    public CompletableFuture<FlowField> flowField(int goalX, int goalY) {
+        return CompletableFuture.supplyAsync(() -> {
+            if (grid == null || !isInside(goalX, goalY)) return null;
+            long key = ((long) goalX << 32) | (goalY & 0xFFFFFFFFL);
+            FlowField field = fields.get(key);
+            if (field == null) {
+                field = FlowField.build(grid, goalX, goalY);
+                fields.put(key, field);
+            }
+            return field;
+        }, worker);
+    }
+
+    private boolean isInside(int x, int y) {
+        return x >= 0 && y >= 0 && x < grid.getWidth() && y < grid.getHeight();
+    }
+
+    /** Only valid for tiles inside the grid, see {@link #isInside}. */
+    private long pairKey(int startX, int startY, int goalX, int goalY) {
+        int width = grid.getWidth();
+        return ((long) (startY * width + startX) << 32) | ((goalY * width + goalX) & 0xFFFFFFFFL);
+    }
+
+    @Override
+    public void onMapLoaded(GameMap map) {
+        NavGrid copy = NavGrid.copyOf(map); // 中文：在逻辑线程上拷贝，之后只在工作线程上使用
+        worker.execute(() -> {
+            grid = copy;
+            aStar = new AStar(copy);
+            paths.values().forEach(Path::invalidate);
+            fields.values().forEach(FlowField::invalidate);
+            paths.clear();
+            fields.clear();
+        });
+    }
+
+    @Override
+    public void onTileChanged(GameMap map, int x, int y) {
+        boolean walkable = map.isWalkable(x, y);
+        worker.execute(() -> applyChange(x, y, walkable));
+    }
+
+    /** 中文：一批格子只发一个任务，缓存也只扫一遍 */
+    @Override
+    public void onTilesChanged(GameMap map, long[] keys, int count) {
+        int[] xs = new int[count];
+        int[] ys = new int[count];
+        boolean[] walkable = new boolean[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = TileKeys.x(keys[i]);
+            ys[i] = TileKeys.y(keys[i]);
+            walkable[i] = map.isWalkable(xs[i], ys[i]);
+        }
+        worker.execute(() -> applyChanges(xs, ys, walkable, count));
+    }
+
+    /** The single-tile case of {@link #applyChanges}, without the arrays. */
+    private void applyChange(int x, int y, boolean walkable) {
+        if (grid == null || !isInside(x, y)) return;
+        if (!grid.setWalkable(x, y, walkable)) return;
+        for (Iterator<Map.Entry<Long, Path>> it = paths.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Path> entry = it.next();
+            Path path = entry.getValue();
+            if (isStale(path, entry.getKey(), x, y, walkable)) {
+                if (path != Path.NONE) path.invalidate();
+                it.remove();
+            }
+        }
+        for (Iterator<FlowField> it = fields.values().iterator(); it.hasNext(); ) {
+            FlowField field = it.next();
+            if (field.isAffectedBy(x, y)) {
+                field.invalidate();
+                it.remove();
+            }
+        }
+    }
+
+    private void applyChanges(int[] xs, int[] ys, boolean[] walkable, int count) {
+        if (grid == null) return;
+        // 先写进网格，只留下行走性真的变了的格子（种了作物之类的不算）
+        int changed = 0;
+        for (int i = 0; i < count; i++) {
+            int x = xs[i];
+            int y = ys[i];
+            if (!isInside(x, y)) continue;
+            if (!grid.setWalkable(x, y, walkable[i])) continue;
+            xs[changed] = x;
+            ys[changed] = y;
+            walkable[changed] = walkable[i];
+            changed++;
+        }
+        if (changed == 0) return;
+
+        for (Iterator<Map.Entry<Long, Path>> it = paths.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<Long, Path> entry = it.next();
+            Path path = entry.getValue();
+            boolean stale = false;
+            for (int i = 0; i < changed && !stale; i++) {
+                stale = isStale(path, entry.getKey(), xs[i], ys[i], walkable[i]);
+            }
+            if (stale) {
+                if (path != Path.NONE) path.invalidate();
+                it.remove();
+            }
+        }
+
+        for (Iterator<FlowField> it = fields.values().iterator(); it.hasNext(); ) {
+            FlowField field = it.next();
+            boolean affected = false;
+            for (int i = 0; i < changed && !affected; i++) {
+                affected = field.isAffectedBy(xs[i], ys[i]);
+            }
+            if (affected) {
+                field.invalidate();
+                it.remove();
+            }
+        }
+    }
+
+    /** @return whether a change of the tile's walkability can break or shorten the cached path */
+    private boolean isStale(Path path, long pairKey, int x, int y, boolean walkable) {
+        if (!walkable) return path.isBlockedBy(x, y);
+        if (!path.isFound()) return true; // 新开的路可能让原来到不了的目标变得可达
+        int width = grid.getWidth();
+        int start = (int) (pairKey >>> 32);
+        int goal = (int) pairKey;
+        int viaTile = AStar.heuristic(start % width, start / width, x, y)
+                + AStar.heuristic(x, y, goal % width, goal / width);
+        return viaTile < path.getCost();
+    }
+
+    @Override
+    public void dispose() {
+        map.removeTileChangeListener(this);
+        worker.shutdownNow();
+    }
+}
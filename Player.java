@@ -1,12 +1,11 @@
 package de.tum.cit.aet.valleyday.map;
 
-import com.badlogic.gdx.Gdx;
-import com.badlogic.gdx.Input;
 import com.badlogic.gdx.graphics.g2d.TextureRegion;
 import com.badlogic.gdx.physics.box2d.Body;
 import com.badlogic.gdx.physics.box2d.BodyDef;
 import com.badlogic.gdx.physics.box2d.CircleShape;
 import com.badlogic.gdx.physics.box2d.World;
+import de.tum.cit.aet.valleyday.input.InputCommand;
 import de.tum.cit.aet.valleyday.texture.Animations;
 import de.tum.cit.aet.valleyday.texture.Drawable;
 
@@ -27,10 +26,23 @@ public class Player implements Drawable {
     private static final float MOVE_SPEED = 2.0f;
     // ==========================================
 
+    /** The direction the player is facing. Interactions target the tile in front of the player. */
+    public enum Direction { UP, DOWN, LEFT, RIGHT }
+
+    private Direction direction = Direction.DOWN;
+
+    /** The held arrow keys as {@link InputCommand} move bits, set by the controls every simulation tick. */
+    private int moveMask;
+
     public Player(World world, float x, float y) {
         this.hitbox = createHitbox(world, x, y);
     }
 
+    /** Destroys the hitbox, e.g. when a co-op guest leaves. The player cannot be used afterwards. */
+    public void remove(World world) {
+        world.destroyBody(hitbox);
+    }
+
     /**
      * Creates a Box2D body for the player.
      * This is what the physics engine uses to move the player around and detect collisions with other bodies.
@@ -63,7 +75,16 @@ public class Player implements Drawable {
     }
 
     /**
-     * Move the player around in a circle by updating the linear velocity of its hitbox every frame.
+     * Sets which arrow keys are currently held.
+     * The player does not read the keyboard itself, so the same movement can be driven by a recording.
+     * @param moveMask a combination of the {@link InputCommand} MOVE_* bits
+     */
+    public void setMoveMask(int moveMask) {
+        this.moveMask = moveMask;
+    }
+
+    /**
+     * Updates the linear velocity of the hitbox from the held arrow keys.
      * This doesn't actually move the player, but it tells the physics engine how the player should move next frame.
      * @param frameTime the time since the last frame.
      */
@@ -71,27 +92,64 @@ public class Player implements Drawable {
         this.elapsedTime += frameTime;
 
         // ================= 修改内容 =================
-        // 中文说明：删除自动转圈逻辑，改为键盘控制（方向键）
+        // 中文说明：方向键状态由 PlayerControls 在固定 tick 写入，这里不再轮询键盘
         float xVelocity = 0;
         float yVelocity = 0;
 
-        if (Gdx.input.isKeyPressed(Input.Keys.LEFT)) {
+        if ((moveMask & InputCommand.MOVE_LEFT) != 0) {
             xVelocity -= MOVE_SPEED;
+            direction = Direction.LEFT;
         }
-        if (Gdx.input.isKeyPressed(Input.Keys.RIGHT)) {
+        if ((moveMask & InputCommand.MOVE_RIGHT) != 0) {
             xVelocity += MOVE_SPEED;
+            direction = Direction.RIGHT;
         }
-        if (Gdx.input.isKeyPressed(Input.Keys.UP)) {
+        if ((moveMask & InputCommand.MOVE_UP) != 0) {
             yVelocity += MOVE_SPEED;
+            direction = Direction.UP;
         }
-        if (Gdx.input.isKeyPressed(Input.Keys.DOWN)) {
+        if ((moveMask & InputCommand.MOVE_DOWN) != 0) {
             yVelocity -= MOVE_SPEED;
+            direction = Direction.DOWN;
         }
 
         this.hitbox.setLinearVelocity(xVelocity, yVelocity);
         // ==========================================
     }
 
+    public Direction getDirection() {
+        return direction;
+    }
+
+    public int getMoveMask() {
+        return moveMask;
+    }
+
+    /** @return the current velocity of the hitbox, in tiles per second */
+    public float getVelocityX() {
+        return hitbox.getLinearVelocity().x;
+    }
+
+    public float getVelocityY() {
+        return hitbox.getLinearVelocity().y;
+    }
+
+    public float getElapsedTime() {
+        return elapsedTime;
+    }
+
+    /**
+     * Puts the player back into a previously captured state (used when seeking a replay).
+     */
+    public void restoreState(float x, float y, float xVelocity, float yVelocity,
+                             Direction direction, int moveMask, float elapsedTime) {
+        this.hitbox.setTransform(x, y, 0);
+        this.hitbox.setLinearVelocity(xVelocity, yVelocity);
+        this.direction = direction;
+        this.moveMask = moveMask;
+        this.elapsedTime = elapsedTime;
+    }
+
     @Override
     public TextureRegion getCurrentAppearance() {
         // Get the frame of the walk down animation that corresponds to the current time.
@@ -0,0 +1,193 @@
+package de.tum.cit.aet.valleyday.input;
+
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.Player;
+
+/**
+ * Applies {@link InputCommand}s to the map at fixed simulation ticks.
+ * <p>
+ * Holds the input state that used to be spread over {@code GameScreen.render} and {@code Player.tick}:
+ * the held arrow keys, whether the interact key is held, and the interact cooldown.
+ * It contains no libGDX input code, so it behaves the same whether the commands come from
+ * the keyboard, from a recording or from a co-op guest.
+ * </p>
+ */
+public class PlayerControls {
+
+    /** Minimum time between two interactions while D is held (roughly the speed of swinging a tool). */
+    public static final float INTERACT_COOLDOWN = 0.25f;
+
+    /** The player these controls act for, null for the map's own player. */
+    private final Player player;
+
+    private int moveMask;
+    /** Arrow keys pressed since the last tick, so a tap released within the same tick still moves for one tick. */
+    private int movePressed;
+    private boolean interactHeld;
+    /** Set by a D press so that a tap shorter than one tick still clears once. */
+    private boolean interactPending;
+    private float interactTimer;
+    private boolean usePending;
+    /** Queued area actions (S, W, Q); the sweep shares the interact cooldown with D and waits for it to run out. */
+    private boolean sweepPending;
+    private boolean waterRowPending;
+    private boolean bulkUsePending;
+    /** Tile of a click that has not been handed to the map yet, see {@link GameMap#moveTo}. */
+    private boolean moveToPending;
+    private int moveToX;
+    private int moveToY;
+
+    /** Controls for the map's own player. */
+    public PlayerControls() {
+        this(null);
+    }
+
+    /**
+     * Controls for another player on the map, e.g. a co-op guest (see {@link GameMap#addGuest()}).
+     * Click-to-move belongs to the map's own player, so {@link InputCommand.Type#MOVE_TO} is ignored here.
+     * @param player the player to act for, null for the map's own player
+     */
+    public PlayerControls(Player player) {
+        this.player = player;
+    }
+
+    /** Records the effect of one command; the actual work happens in {@link #tick}. */
+    public void apply(InputCommand command) {
+        switch (command.getType()) {
+            case MOVE:
+                movePressed |= command.getMoveMask() & ~moveMask;
+                moveMask = command.getMoveMask();
+                break;
+            case INTERACT_START:
+                interactHeld = true;
+                interactPending = true;
+                break;
+            case INTERACT_STOP:
+                interactHeld = false;
+                break;
+            case USE:
+                usePending = true;
+                break;
+            case SWEEP:
+                sweepPending = true;
+                break;
+            case WATER_ROW:
+                waterRowPending = true;
+                break;
+            case BULK_USE:
+                bulkUsePending = true;
+                break;
+            case MOVE_TO:
+                moveToPending = true;
+                moveToX = command.getTargetX();
+                moveToY = command.getTargetY();
+                break;
+        }
+    }
+
+    /**
+     * Advances the controls by one simulation tick and performs the queued actions on the map.
+     * @param map the map to act on
+     * @param delta the fixed tick length in seconds
+     */
+    public void tick(GameMap map, float delta) {
+        Player target = player != null ? player : map.getPlayer();
+        if (moveToPending) {
+            moveToPending = false;
+            if (player == null) map.moveTo(moveToX, moveToY);
+        }
+        int keys = moveMask | movePressed;
+        if (keys != 0 && player == null) {
+            map.stopWalking(); // 中文：按方向键就取消点击移动
+        }
+        if (target != null) {
+            target.setMoveMask(keys != 0 || player != null ? keys : map.steerAlongPath());
+        }
+        movePressed = 0;
+
+        if (interactTimer > 0) {
+            interactTimer -= delta;
+        }
+        if ((interactHeld || interactPending) && interactTimer <= 0) {
+            map.interact(target);
+            interactTimer = INTERACT_COOLDOWN;
+        }
+        interactPending = false;
+
+        if (usePending) {
+            usePending = false;
+            if (map.use(target) == GameMap.UseResult.PICKED_UP) {
+                // 中文：捡起物品后重置冷却，防止瞬间连按
+                interactTimer = INTERACT_COOLDOWN;
+            }
+        }
+
+        // 中文：范围操作在 GameMap 里整批执行，这里每次按键只调用一次
+        if (sweepPending && interactTimer <= 0) {
+            sweepPending = false; // 中文：冷却中按下的 S 留到冷却结束再扫，不会被吞掉
+            map.sweep(target);
+            interactTimer = INTERACT_COOLDOWN;
+        }
+        if (waterRowPending) {
+            waterRowPending = false;
+            map.waterRow(target);
+        }
+        if (bulkUsePending) {
+            bulkUsePending = false;
+            map.bulkUse(target);
+        }
+    }
+
+    /**
+     * @return true if no key is held and no action is queued, so ticks would only run down the cooldown
+     */
+    public boolean isIdle() {
+        return moveMask == 0 && movePressed == 0 && !interactHeld && !interactPending && !usePending
+                && !sweepPending && !waterRowPending && !bulkUsePending && !moveToPending;
+    }
+
+    /**
+     * The tick of idle controls: only the cooldown runs down. Only valid while {@link #isIdle()}.
+     * @param map the map to act on
+     * @param delta the tick length in seconds
+     */
+    public void skip(GameMap map, float delta) {
+        Player target = player != null ? player : map.getPlayer();
+        if (target != null) {
+            target.setMoveMask(0);
+        }
+        if (interactTimer > 0) {
+            interactTimer -= delta;
+        }
+    }
+
+    /** Copies the complete input state of another instance, used for replay snapshots. */
+    public void copyFrom(PlayerControls other) {
+        moveMask = other.moveMask;
+        movePressed = other.movePressed;
+        interactHeld = other.interactHeld;
+        interactPending = other.interactPending;
+        interactTimer = other.interactTimer;
+        usePending = other.usePending;
+        sweepPending = other.sweepPending;
+        waterRowPending = other.waterRowPending;
+        bulkUsePending = other.bulkUsePending;
+        moveToPending = other.moveToPending;
+        moveToX = other.moveToX;
+        moveToY = other.moveToY;
+    }
+
+    /** Forgets all held keys and pending actions. */
+    public void reset() {
+        moveMask = 0;
+        movePressed = 0;
+        interactHeld = false;
+        interactPending = false;
+        usePending = false;
+        sweepPending = false;
+        waterRowPending = false;
+        bulkUsePending = false;
+        moveToPending = false;
+        interactTimer = 0;
+    }
+}
@@ -0,0 +1,274 @@
+package de.tum.cit.aet.valleyday.sim;
+
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import de.tum.cit.aet.valleyday.ValleyDayGame;
+import de.tum.cit.aet.valleyday.map.AgentSystem;
+import de.tum.cit.aet.valleyday.map.Archetype;
+import de.tum.cit.aet.valleyday.map.EntityStore;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.Player;
+import de.tum.cit.aet.valleyday.map.Tool;
+import de.tum.cit.aet.valleyday.state.GameState;
+import de.tum.cit.aet.valleyday.texture.Drawable;
+import de.tum.cit.aet.valleyday.texture.Textures;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Everything the renderer needs to draw one frame, copied out of the simulation at the end of a tick.
+ * <p>
+ * The game logic runs on its own thread ({@link SimulationThread}), so the renderer must not read
+ * {@link GameMap} or {@link GameState} directly. Instead the simulation fills one of three
+ * snapshots (see {@link SnapshotExchange}) with screen-space rectangles in draw order and the HUD values.
+ * The arrays are reused from tick to tick and only grow, so capturing does not allocate.
+ * </p>
+ * <p>
+ * Only the part of the map the renderer shows is copied (see {@link View}): the objects are walked row by row
+ * through {@link Archetype#drawOrderFrom}, so a tick costs the objects on screen, not the whole farm. When zoomed
+ * out the pre-rendered chunks are drawn from {@link TileLooks} instead, and only what moves is copied.
+ * </p>
+ */
+public final class RenderSnapshot {
+
+    /*
+     * What an entry is, so passes like the lighting can pick out the objects they care about. Map entities carry
+     * the kind their archetype was registered with ({@link Archetype#getKind()}).
+     */
+    public static final byte KIND_FLOWERS = EntityStore.KIND_FLOWERS;
+    public static final byte KIND_ITEM = EntityStore.KIND_ITEM;
+    public static final byte KIND_FENCE = EntityStore.KIND_FENCE;
+    public static final byte KIND_DEBRIS = EntityStore.KIND_DEBRIS;
+    public static final byte KIND_CHEST = EntityStore.KIND_CHEST;
+    public static final byte KIND_CROP = EntityStore.KIND_CROP;
+    public static final byte KIND_PLAYER = 6;
+    public static final byte KIND_ANIMAL = 7;
+    public static final byte KIND_CROW = 8;
+    /** An entity kind no pass treats specially. */
+    public static final byte KIND_OTHER = EntityStore.KIND_OTHER;
+
+    /** Tools are drawn at 60% of a tile, centred (see the old GameScreen.draw). */
+    static final float TOOL_ICON_SCALE = 0.6f;
+    /** Tiles copied around the view: sprites reach into their neighbours, and the camera moves on before the next frame. */
+    private static final int VIEW_MARGIN = 2;
+
+    /**
+     * The tiles the renderer shows, handed to the simulation so it only copies what is on screen.
+     * Immutable, so the render thread can swap in a new one at any time.
+     */
+    public static final class View {
+        final int minX, minY, maxX, maxY;
+        /** Whether the static objects come from the pre-rendered chunks, so only moving ones are copied. */
+        final boolean chunked;
+
+        /**
+         * @param minX first visible tile column
+         * @param minY first visible tile row
+         * @param maxX last visible tile column, inclusive
+         * @param maxY last visible tile row, inclusive
+         * @param chunked whether the static objects are drawn from {@link TileLooks}
+         */
+        public View(int minX, int minY, int maxX, int maxY, boolean chunked) {
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.chunked = chunked;
+        }
+
+        public boolean sameAs(int minX, int minY, int maxX, int maxY, boolean chunked) {
+            return this.minX == minX && this.minY == minY && this.maxX == maxX && this.maxY == maxY
+                    && this.chunked == chunked;
+        }
+    }
+
+    /* Drawables, in draw order. Positions and sizes are in world pixels. */
+    private int count;
+    private TextureRegion[] regions = new TextureRegion[256];
+    private float[] x = new float[256];
+    private float[] y = new float[256];
+    private float[] width = new float[256];
+    private float[] height = new float[256];
+    private byte[] kinds = new byte[256];
+
+    /** Whether the static objects were left out because they are drawn from {@link TileLooks}. */
+    private boolean chunked;
+
+    /* Player, in tile units, for the camera. */
+    private float playerX;
+    private float playerY;
+    private boolean hasPlayer;
+
+    /* HUD values. */
+    private float remainingTime;
+    private float dayProgress;
+    private int harvestedCrops;
+    private int harvestQuota;
+    private boolean hasShovel;
+    private boolean hasWateringCan;
+    private boolean exitUnlocked;
+    private boolean victory;
+    private boolean gameOver;
+
+    /** Simulation tick this snapshot was taken after. */
+    private long tick;
+    /** Fast-forward factor the simulation ran at, set by {@link SimulationThread}. */
+    int speed = 1;
+    /** Which chunks of the map changed when, copied by {@link SimulationThread}. */
+    final ChunkVersions chunkVersions = new ChunkVersions();
+    /** What every tile looks like, for the pre-rendered chunks; copied by {@link SimulationThread}. */
+    final TileLooks tileLooks = new TileLooks();
+
+    /** Set by the simulation when it publishes the snapshot, cleared by the renderer when it takes it. */
+    boolean fresh;
+
+    /**
+     * Copies the current state of the farm. Must be called on the simulation thread.
+     * @param view the tiles on screen, null to copy the whole map (before the renderer reported its view)
+     */
+    void capture(GameMap map, GameState gameState, long tick, View view) {
+        this.tick = tick;
+        count = 0;
+        int minX = 0, minY = 0, maxX = map.getWidth() - 1, maxY = map.getHeight() - 1;
+        if (view != null) {
+            minX = Math.max(minX, view.minX - VIEW_MARGIN);
+            minY = Math.max(minY, view.minY - VIEW_MARGIN);
+            maxX = Math.min(maxX, view.maxX + VIEW_MARGIN);
+            maxY = Math.min(maxY, view.maxY + VIEW_MARGIN);
+        }
+        chunked = view != null && view.chunked;
+        // 所有能画的实体一次查询拿到，archetype 的注册顺序就是图层顺序（花是地上的，先画）
+        EntityStore.Query renderable = map.getEntities().query(EntityStore.RENDERABLE);
+        for (int a = 0; a < renderable.size(); a++) {
+            Archetype<?> archetype = renderable.get(a);
+            byte kind = archetype.getKind();
+            // 中文：远景的静态物体画在预渲染的块里；宝箱是光源，光照还要用，所以照样复制
+            if (chunked && kind != KIND_CHEST) continue;
+            addRange(archetype, kind, minX, minY, maxX, maxY);
+        }
+        addAgents(map.getAgents(), AgentSystem.ANIMAL, Textures.ANIMAL, KIND_ANIMAL, minX, minY, maxX, maxY);
+
+        hasPlayer = map.getPlayer() != null;
+        if (hasPlayer) {
+            playerX = map.getPlayer().getX();
+            playerY = map.getPlayer().getY();
+            add(map.getPlayer(), KIND_PLAYER);
+        }
+        List<Player> guests = map.getGuests(); // 联机的其他玩家
+        for (int i = 0; i < guests.size(); i++) add(guests.get(i), KIND_PLAYER);
+        addAgents(map.getAgents(), AgentSystem.CROW, Textures.CROW, KIND_CROW, minX, minY, maxX, maxY); // 乌鸦在天上，最后画
+
+        remainingTime = gameState.getRemainingTime();
+        dayProgress = gameState.getDayProgress();
+        harvestedCrops = gameState.getHarvestedCrops();
+        harvestQuota = gameState.getHarvestQuota();
+        hasShovel = gameState.hasShovel();
+        hasWateringCan = gameState.hasWateringCan();
+        exitUnlocked = gameState.isExitUnlocked();
+        victory = gameState.isVictory();
+        gameOver = gameState.isGameOver();
+    }
+
+    /**
+     * 中文：archetype 删除时会把最后一个换过来，槽位顺序不稳定，所以按位置排好的顺序画，重叠的图不会跳来跳去。
+     * Walks the rectangle row by row, each row found with two binary searches in the draw order.
+     */
+    private void addRange(Archetype<?> archetype, byte kind, int minX, int minY, int maxX, int maxY) {
+        int[] order = archetype.drawOrder();
+        for (int y = maxY; y >= minY; y--) {
+            int end = archetype.drawOrderFrom(maxX + 1, y);
+            for (int i = archetype.drawOrderFrom(minX, y); i < end; i++) {
+                add(archetype.get(order[i]), kind);
+            }
+        }
+    }
+
+    /** 中文：代理没有对象，直接从数组里读位置 */
+    private void addAgents(AgentSystem agents, byte agentKind, TextureRegion texture, byte kind,
+                           int minX, int minY, int maxX, int maxY) {
+        float drawWidth = texture.getRegionWidth() * ValleyDayGame.SCALE;
+        float drawHeight = texture.getRegionHeight() * ValleyDayGame.SCALE;
+        for (int i = 0; i < agents.size(); i++) {
+            if (agents.getKind(i) != agentKind) continue;
+            float ax = agents.getX(i), ay = agents.getY(i);
+            if (ax < minX || ay < minY || ax > maxX + 1 || ay > maxY + 1) continue;
+            if (count == regions.length) grow();
+            regions[count] = texture;
+            x[count] = ax * ValleyDayGame.PPM;
+            y[count] = ay * ValleyDayGame.PPM;
+            width[count] = drawWidth;
+            height[count] = drawHeight;
+            kinds[count] = kind;
+            count++;
+        }
+    }
+
+    private void add(Drawable drawable, byte kind) {
+        TextureRegion texture = drawable.getCurrentAppearance();
+        if (texture == null) return; // 防止空指针
+
+        float drawX = drawable.getX() * ValleyDayGame.PPM;
+        float drawY = drawable.getY() * ValleyDayGame.PPM;
+        float drawWidth = texture.getRegionWidth() * ValleyDayGame.SCALE;
+        float drawHeight = texture.getRegionHeight() * ValleyDayGame.SCALE;
+
+        // 工具缩小并在格子里居中，看起来像个道具，而不是像墙一样大
+        if (drawable instanceof Tool) {
+            drawWidth *= TOOL_ICON_SCALE;
+            drawHeight *= TOOL_ICON_SCALE;
+            drawX += (ValleyDayGame.PPM - drawWidth) / 2f;
+            drawY += (ValleyDayGame.PPM - drawHeight) / 2f;
+        }
+
+        if (count == regions.length) grow();
+        regions[count] = texture;
+        x[count] = drawX;
+        y[count] = drawY;
+        width[count] = drawWidth;
+        height[count] = drawHeight;
+        kinds[count] = kind;
+        count++;
+    }
+
+    private void grow() {
+        int capacity = regions.length * 2;
+        regions = Arrays.copyOf(regions, capacity);
+        x = Arrays.copyOf(x, capacity);
+        y = Arrays.copyOf(y, capacity);
+        width = Arrays.copyOf(width, capacity);
+        height = Arrays.copyOf(height, capacity);
+        kinds = Arrays.copyOf(kinds, capacity);
+    }
+
+    public int size() { return count; }
+    public TextureRegion getRegion(int i) { return regions[i]; }
+    public float getX(int i) { return x[i]; }
+    public float getY(int i) { return y[i]; }
+    public float getWidth(int i) { return width[i]; }
+    public float getHeight(int i) { return height[i]; }
+    public byte getKind(int i) { return kinds[i]; }
+
+    /** @return whether entries of this kind move every tick (player, animals, crows), so they cannot be pre-rendered */
+    public static boolean isMoving(byte kind) {
+        return kind >= KIND_PLAYER;
+    }
+
+    public boolean hasPlayer() { return hasPlayer; }
+    public float getPlayerX() { return playerX; }
+    public float getPlayerY() { return playerY; }
+
+    public float getRemainingTime() { return remainingTime; }
+    public float getDayProgress() { return dayProgress; }
+    public int getHarvestedCrops() { return harvestedCrops; }
+    public int getHarvestQuota() { return harvestQuota; }
+    public boolean hasShovel() { return hasShovel; }
+    public boolean hasWateringCan() { return hasWateringCan; }
+    public boolean isExitUnlocked() { return exitUnlocked; }
+    public boolean isVictory() { return victory; }
+    public boolean isGameOver() { return gameOver; }
+    public long getTick() { return tick; }
+    public int getSpeed() { return speed; }
+    public ChunkVersions getChunkVersions() { return chunkVersions; }
+    public TileLooks getTileLooks() { return tileLooks; }
+    public boolean isChunked() { return chunked; }
+}
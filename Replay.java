@@ -0,0 +1,133 @@
+package de.tum.cit.aet.valleyday.replay;
+
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.IntArray;
+import com.badlogic.gdx.utils.LongArray;
+import de.tum.cit.aet.valleyday.input.InputCommand;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+
+/**
+ * A recorded session: everything needed to run it again tick for tick.
+ * <p>
+ * A replay stores the map path, the seed used to hide the tools, the start values of the
+ * {@code GameState} and the input stream as (tick, command) pairs. Commands are kept in
+ * primitive arrays, so an hour of play (~216k ticks) costs a few hundred kilobytes at most.
+ * </p>
+ */
+public class Replay {
+
+    private static final int MAGIC = 0x56445250; // "VDRP"
+    private static final int VERSION = 1;
+
+    private final String mapPath;
+    private final long seed;
+    private final float initialTime;
+    private final int harvestQuota;
+
+    /** Tick at which each command was applied, in ascending order. */
+    private final LongArray ticks = new LongArray();
+    /** {@link InputCommand.Type} ordinal in the low byte, move mask above it. */
+    private final IntArray commands = new IntArray();
+    /** Number of ticks the recorded session lasted. */
+    private long length;
+
+    public Replay(String mapPath, long seed, float initialTime, int harvestQuota) {
+        this.mapPath = mapPath;
+        this.seed = seed;
+        this.initialTime = initialTime;
+        this.harvestQuota = harvestQuota;
+    }
+
+    void add(long tick, InputCommand command) {
+        ticks.add(tick);
+        commands.add(command.getType().ordinal() | (command.getMoveMask() << 8));
+        length = Math.max(length, tick);
+    }
+
+    void setLength(long length) {
+        this.length = length;
+    }
+
+    public int getCommandCount() {
+        return ticks.size;
+    }
+
+    public long getCommandTick(int index) {
+        return ticks.get(index);
+    }
+
+    /**
+     * Rebuilds the command at the given index. The timestamp is the tick number,
+     * since during playback the tick is the only clock that matters.
+     */
+    public InputCommand getCommand(int index) {
+        int packed = commands.get(index);
+        return new InputCommand(InputCommand.Type.values()[packed & 0xFF], ticks.get(index), packed >>> 8);
+    }
+
+    /** @return index of the first command recorded at or after the given tick */
+    public int firstCommandAt(long tick) {
+        int lo = 0, hi = ticks.size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (ticks.get(mid) < tick) lo = mid + 1; else hi = mid;
+        }
+        return lo;
+    }
+
+    public String getMapPath() { return mapPath; }
+    public long getSeed() { return seed; }
+    public float getInitialTime() { return initialTime; }
+    public int getHarvestQuota() { return harvestQuota; }
+    public long getLength() { return length; }
+
+    /**
+     * Writes the replay in a compact binary format.
+     * @param file the target file, it is overwritten
+     */
+    public void save(FileHandle file) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(file.write(false, 64 * 1024))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeUTF(mapPath);
+            out.writeLong(seed);
+            out.writeFloat(initialTime);
+            out.writeInt(harvestQuota);
+            out.writeLong(length);
+            out.writeInt(ticks.size);
+            long previous = 0;
+            for (int i = 0; i < ticks.size; i++) {
+                // 中文：tick 单调递增，只存与上一条的差值
+                out.writeInt((int) (ticks.get(i) - previous));
+                out.writeShort(commands.get(i));
+                previous = ticks.get(i);
+            }
+        }
+    }
+
+    /**
+     * Reads a replay written by {@link #save(FileHandle)}.
+     * @throws IOException if the file is not a replay or uses an unknown version
+     */
+    public static Replay load(FileHandle file) throws IOException {
+        try (DataInputStream in = new DataInputStream(file.read(64 * 1024))) {
+            if (in.readInt() != MAGIC) throw new IOException("Not a replay file: " + file.path());
+            int version = in.readInt();
+            if (version != VERSION) throw new IOException("Unsupported replay version " + version);
+            Replay replay = new Replay(in.readUTF(), in.readLong(), in.readFloat(), in.readInt());
+            long length = in.readLong();
+            int count = in.readInt();
+            long tick = 0;
+            for (int i = 0; i < count; i++) {
+                tick += in.readInt();
+                replay.ticks.add(tick);
+                replay.commands.add(in.readShort() & 0xFFFF);
+            }
+            replay.length = length;
+            return replay;
+        }
+    }
+}
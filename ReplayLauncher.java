@@ -0,0 +1,56 @@
+package de.tum.cit.aet.valleyday;
+
+import com.badlogic.gdx.ApplicationAdapter;
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.backends.headless.HeadlessApplication;
+import com.badlogic.gdx.backends.headless.HeadlessApplicationConfiguration;
+import com.badlogic.gdx.utils.TimeUtils;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.replay.Replay;
+import de.tum.cit.aet.valleyday.replay.ReplayPlayer;
+
+import java.io.IOException;
+
+/**
+ * Runs a recorded replay without a window, as fast as possible.
+ * <p>
+ * Usage: {@code ReplayLauncher <replay file> [stop tick]}.
+ * Prints how long the simulation took, the final game state and the slowest tick,
+ * which is the place to start when chasing a frame spike.
+ * </p>
+ */
+public class ReplayLauncher {
+
+	public static void main(String[] arg) {
+		if (arg.length < 1) {
+			System.err.println("Usage: ReplayLauncher <replay file> [stop tick]");
+			return;
+		}
+		HeadlessApplicationConfiguration config = new HeadlessApplicationConfiguration();
+		config.updatesPerSecond = -1; // We drive the simulation ourselves, no render loop needed
+
+		new HeadlessApplication(new ApplicationAdapter() {
+			@Override
+			public void create() {
+				try {
+					Replay replay = Replay.load(Gdx.files.absolute(arg[0]));
+					ReplayPlayer player = new ReplayPlayer(replay, new GameMap(null));
+					long stopTick = arg.length > 1 ? Long.parseLong(arg[1]) : replay.getLength();
+
+					long start = TimeUtils.millis();
+					player.runTo(stopTick);
+					long elapsed = TimeUtils.millis() - start;
+
+					Gdx.app.log("Replay", "Simulated " + player.getSimulation().getTick() + " ticks in " + elapsed + " ms");
+					Gdx.app.log("Replay", "Harvested " + player.getSimulation().getGameState().getHarvestedCrops()
+							+ ", time left " + player.getSimulation().getGameState().getFormattedTime());
+					Gdx.app.log("Replay", "Slowest tick: " + player.getSlowestTick()
+							+ " (" + player.getSlowestTickNanos() / 1000 + " us)");
+				} catch (IOException e) {
+					Gdx.app.error("Replay", "Could not read " + arg[0], e);
+				}
+				Gdx.app.exit();
+			}
+		}, config);
+	}
+}
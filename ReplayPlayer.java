@@ -0,0 +1,165 @@
+package de.tum.cit.aet.valleyday.replay;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.TimeUtils;
+import de.tum.cit.aet.valleyday.input.PlayerControls;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.MapSnapshot;
+import de.tum.cit.aet.valleyday.sim.Simulation;
+import de.tum.cit.aet.valleyday.state.GameState;
+
+/**
+ * Plays a {@link Replay} back through a {@link Simulation}.
+ * <p>
+ * Playback can run as fast as the CPU allows ({@link #runTo(long)}) or paced against real time
+ * ({@link #update(float)}). While playing forward a checkpoint of the map, the game state and the
+ * controls is taken every {@link #CHECKPOINT_INTERVAL} ticks, so {@link #seek(long)} only has to
+ * re-simulate from the nearest earlier checkpoint instead of from the start.
+ * The player also remembers the slowest tick it ran, which is usually the one worth investigating.
+ * </p>
+ */
+public class ReplayPlayer {
+
+    /** One minute of game time between checkpoints. */
+    public static final int CHECKPOINT_INTERVAL = 60 * 60;
+
+    private static final class Checkpoint {
+        final long tick;
+        final MapSnapshot map;
+        final GameState state;
+        final PlayerControls controls = new PlayerControls();
+
+        Checkpoint(Simulation simulation) {
+            this.tick = simulation.getTick();
+            this.map = simulation.getMap().snapshot();
+            this.state = new GameState(simulation.getGameState());
+            this.controls.copyFrom(simulation.getControls());
+        }
+    }
+
+    private final Replay replay;
+    private final Simulation simulation;
+    /** Checkpoints in ascending tick order. */
+    private final Array<Checkpoint> checkpoints = new Array<>();
+    /** Index of the next command to submit. */
+    private int nextCommand;
+    /** Real time not yet consumed by a tick, for {@link #update}. */
+    private float accumulator;
+    /** Playback speed for {@link #update}, 1 = real time. */
+    private float speed = 1f;
+
+    private long slowestTickNanos;
+    private long slowestTick = -1;
+
+    /**
+     * Loads the replay's map with its seed into the given map and prepares playback from tick 0.
+     * @param replay the recording
+     * @param map the map to drive, it is reloaded
+     */
+    public ReplayPlayer(Replay replay, GameMap map) {
+        this.replay = replay;
+        map.setMuted(true);
+        map.loadMap(resolve(replay.getMapPath()), replay.getSeed());
+        this.simulation = new Simulation(map, new GameState(replay.getInitialTime(), replay.getHarvestQuota()));
+        checkpoints.add(new Checkpoint(simulation));
+    }
+
+    private static FileHandle resolve(String path) {
+        FileHandle internal = Gdx.files.internal(path);
+        return internal.exists() ? internal : Gdx.files.absolute(path);
+    }
+
+    /** Runs exactly one tick, submitting the commands recorded for it first. */
+    public void step() {
+        long tick = simulation.getTick();
+        while (nextCommand < replay.getCommandCount() && replay.getCommandTick(nextCommand) == tick) {
+            simulation.submit(replay.getCommand(nextCommand++));
+        }
+
+        long start = TimeUtils.nanoTime();
+        simulation.tick();
+        long duration = TimeUtils.nanoTime() - start;
+        if (duration > slowestTickNanos) {
+            slowestTickNanos = duration;
+            slowestTick = tick;
+        }
+
+        long done = simulation.getTick();
+        if (done % CHECKPOINT_INTERVAL == 0 && done > checkpoints.peek().tick) {
+            checkpoints.add(new Checkpoint(simulation));
+        }
+    }
+
+    /**
+     * Simulates as fast as possible until the given tick (or the end of the replay) is reached.
+     * @param targetTick the tick to stop at
+     */
+    public void runTo(long targetTick) {
+        long end = Math.min(targetTick, replay.getLength());
+        while (simulation.getTick() < end) {
+            step();
+        }
+    }
+
+    /** Simulates the whole replay at maximum speed. */
+    public void runToEnd() {
+        runTo(replay.getLength());
+    }
+
+    /**
+     * Advances playback by real time, scaled by {@link #setSpeed(float)}. Call once per frame.
+     * @param delta seconds since the last call
+     */
+    public void update(float delta) {
+        accumulator += Math.min(delta, 0.25f) * speed;
+        while (accumulator >= Simulation.STEP && !isFinished()) {
+            step();
+            accumulator -= Simulation.STEP;
+        }
+    }
+
+    /**
+     * Jumps to the given tick. Going backwards (or far forward past a known checkpoint)
+     * restores the nearest checkpoint at or before the target and simulates the rest.
+     * @param targetTick the tick to jump to
+     */
+    public void seek(long targetTick) {
+        Checkpoint best = checkpoints.first();
+        for (Checkpoint checkpoint : checkpoints) {
+            if (checkpoint.tick > targetTick) break;
+            best = checkpoint;
+        }
+        long current = simulation.getTick();
+        if (targetTick < current || best.tick > current) {
+            simulation.getMap().restore(best.map);
+            simulation.getGameState().copyFrom(best.state);
+            simulation.restore(best.tick, best.controls);
+            nextCommand = replay.firstCommandAt(best.tick);
+        }
+        runTo(targetTick);
+        accumulator = 0;
+    }
+
+    public void setSpeed(float speed) {
+        this.speed = speed;
+    }
+
+    public boolean isFinished() {
+        return simulation.getTick() >= replay.getLength();
+    }
+
+    public Simulation getSimulation() {
+        return simulation;
+    }
+
+    /** @return the tick that took the longest to simulate so far, or -1 before the first tick */
+    public long getSlowestTick() {
+        return slowestTick;
+    }
+
+    public long getSlowestTickNanos() {
+        return slowestTickNanos;
+    }
+}
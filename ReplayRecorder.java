@@ -0,0 +1,37 @@
+package de.tum.cit.aet.valleyday.replay;
+
+import de.tum.cit.aet.valleyday.input.InputCommand;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.sim.Simulation;
+
+/**
+ * Records the input stream of a {@link Simulation} into a {@link Replay}.
+ * <p>
+ * Attach it with {@link Simulation#addListener} right after the map is loaded.
+ * Every submitted command is stored with the tick it belongs to, the seed comes from the map.
+ * </p>
+ */
+public class ReplayRecorder implements Simulation.Listener {
+
+    private final Replay replay;
+
+    public ReplayRecorder(Simulation simulation) {
+        GameMap map = simulation.getMap();
+        this.replay = new Replay(map.getMapFile().path(), map.getSeed(),
+                simulation.getGameState().getRemainingTime(), simulation.getGameState().getHarvestQuota());
+    }
+
+    @Override
+    public void onCommand(long tick, InputCommand command) {
+        replay.add(tick, command);
+    }
+
+    @Override
+    public void onTickFinished(Simulation simulation) {
+        replay.setLength(simulation.getTick());
+    }
+
+    public Replay getReplay() {
+        return replay;
+    }
+}
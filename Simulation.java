@@ -0,0 +1,177 @@
+package de.tum.cit.aet.valleyday.sim;
+
+import de.tum.cit.aet.valleyday.input.InputCommand;
+import de.tum.cit.aet.valleyday.input.PlayerControls;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.state.GameState;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Advances one farm ({@link GameMap} + {@link GameState}) in fixed-size ticks.
+ * <p>
+ * This is the only place where the game logic moves forward. The game screen feeds it
+ * the commands from the keyboard, a replay feeds it recorded commands, and both get exactly
+ * the same result because nothing in here reads the clock or the keyboard.
+ * </p>
+ */
+public class Simulation {
+
+    /** Length of one simulation tick in seconds. */
+    public static final float STEP = 1f / 60f;
+
+    /** Notified about every command and every finished tick, e.g. to record a replay. */
+    public interface Listener {
+        void onCommand(long tick, InputCommand command);
+
+        /** Called after every tick. */
+        void onTickFinished(Simulation simulation);
+    }
+
+    private final GameMap map;
+    private final GameState gameState;
+    private final PlayerControls controls = new PlayerControls();
+    /** Work handed in from other threads, run at the start of the next tick. */
+    private final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+
+    /** Number of ticks completed since the map was loaded. */
+    private long tick;
+    /** Replay recorder, co-op host, ...; only touched on the simulation thread, like the map's listeners. */
+    private final List<Listener> listeners = new ArrayList<>();
+    /** Controls of co-op guests, ticked after {@link #controls}; simulation thread only. Not recorded in replays. */
+    private final List<PlayerControls> guests = new ArrayList<>();
+
+    public Simulation(GameMap map, GameState gameState) {
+        this.map = map;
+        this.gameState = gameState;
+        map.setGameState(gameState);
+    }
+
+    /**
+     * Queues a command for the next tick.
+     * @param command the command, applied before the logic of the next {@link #tick()} runs
+     */
+    public void submit(InputCommand command) {
+        controls.apply(command);
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onCommand(tick, command);
+        }
+    }
+
+    /**
+     * Runs {@code ticks} ticks, e.g. several per frame while fast-forwarding.
+     * @param ticks number of ticks to advance
+     */
+    public void advance(int ticks) {
+        for (int i = 0; i < ticks; i++) {
+            tick();
+        }
+    }
+
+    /**
+     * Runs one fixed tick of game logic.
+     * <p>
+     * While the controls are idle and the map is quiescent, the tick only runs the clocks: the day timer, the
+     * cooldown and the crops move on by {@link #STEP} and Box2D is not stepped. Replays, hosted farms and the
+     * game thread all come through here, so an idle tick adds up exactly the same way everywhere, and
+     * waiting on crops at 64x costs little more than at 1x.
+     * </p>
+     */
+    public void tick() {
+        runTasks();
+        if (controls.isIdle() && guestsIdle() && map.isQuiescent()) {
+            controls.skip(map, STEP);
+            for (int i = 0; i < guests.size(); i++) guests.get(i).skip(map, STEP);
+            gameState.updateTime(STEP);
+            map.skipIdle(STEP);
+        } else {
+            controls.tick(map, STEP);
+            for (int i = 0; i < guests.size(); i++) guests.get(i).tick(map, STEP);
+            // ✅ 更新全局游戏时间（白天倒计时）
+            gameState.updateTime(STEP);
+            map.tick(STEP);
+        }
+        tick++;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onTickFinished(this);
+        }
+    }
+
+    private boolean guestsIdle() {
+        for (int i = 0; i < guests.size(); i++) {
+            if (!guests.get(i).isIdle()) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Runs a piece of work on the thread that ticks the simulation, before the next tick.
+     * Safe to call from any thread; this is how other threads may change the map or the game state.
+     * Also usable as an {@link java.util.concurrent.Executor}: {@code simulation::post}.
+     */
+    public void post(Runnable task) {
+        tasks.add(task);
+    }
+
+    private void runTasks() {
+        Runnable task;
+        while ((task = tasks.poll()) != null) task.run();
+    }
+
+    /** Forgets held keys and pending actions, e.g. when the game screen is hidden. */
+    public void resetControls() {
+        controls.reset();
+    }
+
+    /**
+     * Restores the tick counter and the input state, used when seeking a replay.
+     * The map and game state are restored separately through their own snapshots.
+     */
+    public void restore(long tick, PlayerControls controlsState) {
+        this.tick = tick;
+        this.controls.copyFrom(controlsState);
+    }
+
+    /**
+     * Adds a listener. Call it before the simulation runs on another thread, or from a task
+     * {@link #post posted} to it.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Adds the controls of a co-op guest; they are ticked together with the local controls.
+     * Same threading rules as {@link #addListener}.
+     * @param guest controls created for a player from {@link GameMap#addGuest()}
+     */
+    public void addGuest(PlayerControls guest) {
+        guests.add(guest);
+    }
+
+    public void removeGuest(PlayerControls guest) {
+        guests.remove(guest);
+    }
+
+    public long getTick() {
+        return tick;
+    }
+
+    public GameMap getMap() {
+        return map;
+    }
+
+    public GameState getGameState() {
+        return gameState;
+    }
+
+    public PlayerControls getControls() {
+        return controls;
+    }
+}
@@ -0,0 +1,152 @@
+package de.tum.cit.aet.valleyday.sim;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.utils.TimeUtils;
+import de.tum.cit.aet.valleyday.input.InputCommandBuffer;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Runs a {@link Simulation} on its own thread at a fixed rate and publishes a {@link RenderSnapshot}
+ * after every batch of ticks.
+ * <p>
+ * The render thread and the simulation overlap: a slow tick on a big farm delays the next snapshot,
+ * not the frame. Input flows in through the (thread-safe) {@link InputCommandBuffer}, state flows out
+ * through the {@link SnapshotExchange}; apart from those two, the map and the game state belong to
+ * this thread while it runs.
+ * </p>
+ */
+public class SimulationThread {
+
+    private static final long STEP_NANOS = (long) (Simulation.STEP * 1_000_000_000L);
+    /** If the simulation falls further behind than this, it skips ahead instead of trying to catch up. */
+    private static final int MAX_CATCH_UP_TICKS = 15;
+    /** Highest fast-forward factor. */
+    public static final int MAX_SPEED = 64;
+
+    private final Simulation simulation;
+    private final InputCommandBuffer input;
+    private final SnapshotExchange exchange = new SnapshotExchange();
+    /** Updated by the map's tile changes on this thread, copied into every snapshot. */
+    private final ChunkVersions chunkVersions = new ChunkVersions();
+    /** Updated the same way, shared chunk by chunk with every snapshot. */
+    private final TileLooks tileLooks = new TileLooks();
+    /** The tiles on screen, set by the render thread; null copies the whole map. */
+    private volatile RenderSnapshot.View view;
+    private volatile boolean running;
+    /** Simulation ticks per real tick, 1 for normal speed. */
+    private volatile int speed = 1;
+    private Thread thread;
+
+    public SimulationThread(Simulation simulation, InputCommandBuffer input) {
+        this.simulation = simulation;
+        this.input = input;
+        chunkVersions.onMapLoaded(simulation.getMap());
+        simulation.getMap().addTileChangeListener(chunkVersions);
+        tileLooks.onMapLoaded(simulation.getMap());
+        simulation.getMap().addTileChangeListener(tileLooks);
+        // 中文：先发布一次，渲染线程第一帧就有东西可画
+        publish();
+    }
+
+    /** Starts ticking. Does nothing if the thread is already running. */
+    public void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::run, "Simulation");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Stops ticking and waits for the current tick to finish.
+     * Afterwards the map and game state may be used from the calling thread again.
+     */
+    public void stop() {
+        if (!running) return;
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        thread = null;
+    }
+
+    /**
+     * Stops ticking for good and detaches from the map. The map outlives the thread (the game keeps one
+     * map across screens), so without this every new game would leave another listener behind.
+     */
+    public void dispose() {
+        stop();
+        simulation.getMap().removeTileChangeListener(chunkVersions);
+        simulation.getMap().removeTileChangeListener(tileLooks);
+    }
+
+    private void run() {
+        long nextTick = TimeUtils.nanoTime();
+        try {
+            while (running) {
+                long now = TimeUtils.nanoTime();
+                if (now - nextTick > MAX_CATCH_UP_TICKS * STEP_NANOS) {
+                    nextTick = now - STEP_NANOS; // 落后太多就跳过，而不是一口气补几百个 tick
+                }
+                int ticks = 0;
+                while (nextTick - now <= 0) {
+                    input.drainUntil(nextTick, simulation::submit);
+                    simulation.advance(speed);
+                    nextTick += STEP_NANOS;
+                    ticks++;
+                }
+                if (ticks > 0) publish();
+                LockSupport.parkNanos(nextTick - TimeUtils.nanoTime());
+            }
+        } catch (RuntimeException e) {
+            running = false;
+            Gdx.app.error("Simulation", "Simulation thread crashed", e);
+        }
+    }
+
+    private void publish() {
+        RenderSnapshot snapshot = exchange.back();
+        snapshot.capture(simulation.getMap(), simulation.getGameState(), simulation.getTick(), view);
+        snapshot.speed = speed;
+        snapshot.chunkVersions.copyFrom(chunkVersions);
+        snapshot.tileLooks.copyFrom(tileLooks);
+        exchange.publish();
+    }
+
+    /**
+     * Sets the fast-forward factor. Input is still read once per real tick, so at high speed
+     * a key press lands on a coarser grid of simulation ticks.
+     * @param speed simulation ticks per real tick, clamped to 1..{@link #MAX_SPEED}
+     */
+    public void setSpeed(int speed) {
+        this.speed = Math.max(1, Math.min(MAX_SPEED, speed));
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    /**
+     * Tells the simulation which tiles are on screen, so snapshots only copy those. Called by the render thread;
+     * the next snapshot uses it.
+     */
+    public void setView(RenderSnapshot.View view) {
+        this.view = view;
+    }
+
+    public RenderSnapshot.View getView() {
+        return view;
+    }
+
+    public SnapshotExchange getExchange() {
+        return exchange;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+}
@@ -0,0 +1,45 @@
+package de.tum.cit.aet.valleyday.sim;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A lock-free triple buffer of {@link RenderSnapshot}s between the simulation and the renderer.
+ * <p>
+ * The simulation always writes into its own back buffer and then swaps it with the middle one;
+ * the renderer swaps its front buffer with the middle one whenever a fresh snapshot is waiting.
+ * Neither side ever waits for the other: if the simulation publishes twice before a frame is drawn,
+ * the older snapshot is simply overwritten, and if no new one arrived the renderer keeps drawing
+ * the last one.
+ * </p>
+ */
+public final class SnapshotExchange {
+
+    /** Only touched by the simulation thread. */
+    private RenderSnapshot back = new RenderSnapshot();
+    private final AtomicReference<RenderSnapshot> middle = new AtomicReference<>(new RenderSnapshot());
+    /** Only touched by the render thread. */
+    private RenderSnapshot front = new RenderSnapshot();
+
+    /** @return the snapshot the simulation may fill; only valid until the next {@link #publish()} */
+    RenderSnapshot back() {
+        return back;
+    }
+
+    /** Hands the filled back buffer to the renderer. Simulation thread only. */
+    void publish() {
+        back.fresh = true;
+        back = middle.getAndSet(back);
+    }
+
+    /**
+     * Returns the newest published snapshot. Render thread only.
+     * The returned snapshot stays untouched by the simulation until the next call.
+     */
+    public RenderSnapshot acquire() {
+        if (middle.get().fresh) {
+            front = middle.getAndSet(front);
+            front.fresh = false;
+        }
+        return front;
+    }
+}
@@ -0,0 +1,300 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.Arrays;
+
+/**
+ * Moisture and fertility of every tile, which set how fast the crops on it grow.
+ * <p>
+ * Both values lie between 0 and 1 and are kept in one flat {@code float[]} each, row by row.
+ * Watering and fertiliser raise them on a few tiles; over time they spread to the neighbours and
+ * fall back to the natural level of the soil (moisture evaporates quickly, fertility is used up slowly).
+ * Every {@link #STEP_SECONDS} of game time one explicit diffusion step runs.
+ * </p>
+ * <p>
+ * A step only covers the dirty rectangle: the bounding box of the tiles away from the base, plus one tile around
+ * it, since a step spreads a value by one tile. Every other tile is exactly at the base and would not change.
+ * A tile that comes within {@link #SNAP} of the base is set to the base, so the rectangle shrinks again as a
+ * watered patch dries up, and a step costs the size of the patch, not of the farm.
+ * Only additions and multiplications in a fixed order are used (no fused multiply-add), so every JVM
+ * computes bit-identical results and replays stay deterministic. Once the layer has settled
+ * (nothing changes by more than {@link #SETTLED}), no steps run until the next watering or fertiliser.
+ * </p>
+ */
+public final class SoilLayer {
+
+    /** Game time between two diffusion steps. */
+    public static final float STEP_SECONDS = 1f;
+
+    /** The level the soil returns to by itself; at this level crops grow at the normal speed. */
+    static final float BASE_MOISTURE = 0.5f;
+    static final float BASE_FERTILITY = 0.5f;
+
+    /* Per step: the share exchanged with each neighbour, and the share of the difference to the base that is lost. */
+    private static final float MOISTURE_DIFFUSION = 0.1f;
+    private static final float MOISTURE_EVAPORATION = 0.05f;
+    private static final float FERTILITY_DIFFUSION = 0.02f;
+    private static final float FERTILITY_DECAY = 0.005f;
+
+    /**
+     * A step that changes no tile by more than this settles the layer. A thousandth of the range changes a
+     * growth rate by well under a percent; a fully watered tile settles in about 60 steps.
+     */
+    private static final float SETTLED = 1e-3f;
+    /** A tile this close to the base is set to the base, so the dirty rectangle can shrink. */
+    static final float SNAP = 1e-3f;
+
+    private final int width;
+    private final int height;
+    private final float[] moisture;
+    private final float[] fertility;
+    /** Where a step writes the dirty rectangle before it is copied back. */
+    private final float[] scratch;
+    /** Whether the values are still changing and steps have to run. */
+    private boolean active;
+    /** Game time since the last step. */
+    private float pending;
+    /* Bounding box of the tiles that may be away from the base; empty while minX > maxX. */
+    private int minX, minY, maxX = -1, maxY = -1;
+    /* The rectangle the last step covered; growth rates outside it did not change. */
+    private int stepMinX, stepMinY, stepMaxX = -1, stepMaxY = -1;
+
+    SoilLayer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.moisture = new float[width * height];
+        this.fertility = new float[width * height];
+        this.scratch = new float[width * height];
+        Arrays.fill(moisture, BASE_MOISTURE);
+        Arrays.fill(fertility, BASE_FERTILITY);
+    }
+
+    /**
+     * Growth speed of a crop on soil with the given values: 1 on untouched soil,
+     * up to 1.5 × 1.25 on wet and fertilised soil, down to a quarter on dry, exhausted soil.
+     */
+    static float growthRate(float moisture, float fertility) {
+        return Math.max(0.25f, (0.5f + moisture) * (0.75f + 0.5f * fertility));
+    }
+
+    public float growthRateAt(int x, int y) {
+        return growthRate(getMoisture(x, y), getFertility(x, y));
+    }
+
+    public float getMoisture(int x, int y) {
+        return moisture[y * width + x];
+    }
+
+    public float getFertility(int x, int y) {
+        return fertility[y * width + x];
+    }
+
+    /** Adds moisture to the tile and, at half the amount, to its neighbours. */
+    public void water(int x, int y, float amount) {
+        add(moisture, x, y, amount);
+    }
+
+    /** Adds fertility to the tile and, at half the amount, to its neighbours. */
+    public void fertilise(int x, int y, float amount) {
+        add(fertility, x, y, amount);
+    }
+
+    private void add(float[] values, int x, int y, float amount) {
+        for (int dy = -1; dy <= 1; dy++) {
+            for (int dx = -1; dx <= 1; dx++) {
+                int tx = x + dx, ty = y + dy;
+                if (tx < 0 || ty < 0 || tx >= width || ty >= height) continue;
+                float share = (dx == 0 && dy == 0) ? amount : amount / 2f;
+                int i = ty * width + tx;
+                values[i] = Math.min(1f, values[i] + share);
+            }
+        }
+        include(Math.max(0, x - 1), Math.max(0, y - 1), Math.min(width - 1, x + 1), Math.min(height - 1, y + 1));
+        active = true;
+    }
+
+    /** Grows the dirty rectangle to cover the given one. */
+    private void include(int x0, int y0, int x1, int y1) {
+        if (minX > maxX) {
+            minX = x0;
+            minY = y0;
+            maxX = x1;
+            maxY = y1;
+            return;
+        }
+        minX = Math.min(minX, x0);
+        minY = Math.min(minY, y0);
+        maxX = Math.max(maxX, x1);
+        maxY = Math.max(maxY, y1);
+    }
+
+    /**
+     * Advances the layer by a tick.
+     * @param deltaTime game time since the last call
+     * @return whether a step ran, i.e. whether growth rates may have changed
+     */
+    boolean update(float deltaTime) {
+        if (!active) return false;
+        pending += deltaTime;
+        if (pending < STEP_SECONDS) return false;
+        pending -= STEP_SECONDS;
+
+        // 中文：一步最多扩散一格，所以只算脏区域外加一圈，其余的格子都正好是基准值
+        stepMinX = Math.max(0, minX - 1);
+        stepMinY = Math.max(0, minY - 1);
+        stepMaxX = Math.min(width - 1, maxX + 1);
+        stepMaxY = Math.min(height - 1, maxY + 1);
+        float changed = diffuse(moisture, scratch, width, height, stepMinX, stepMinY, stepMaxX, stepMaxY,
+                MOISTURE_DIFFUSION, MOISTURE_EVAPORATION, BASE_MOISTURE);
+        changed = Math.max(changed, diffuse(fertility, scratch, width, height, stepMinX, stepMinY, stepMaxX, stepMaxY,
+                FERTILITY_DIFFUSION, FERTILITY_DECAY, BASE_FERTILITY));
+        shrink(stepMinX, stepMinY, stepMaxX, stepMaxY);
+
+        if (changed < SETTLED || minX > maxX) {
+            active = false;
+            pending = 0f;
+        }
+        return true;
+    }
+
+    /** Sets the dirty rectangle to the bounding box of the tiles in the given one that are away from the base. */
+    private void shrink(int x0, int y0, int x1, int y1) {
+        minX = width;
+        minY = height;
+        maxX = -1;
+        maxY = -1;
+        for (int y = y0; y <= y1; y++) {
+            int row = y * width;
+            for (int x = x0; x <= x1; x++) {
+                if (moisture[row + x] == BASE_MOISTURE && fertility[row + x] == BASE_FERTILITY) continue;
+                if (x < minX) minX = x;
+                if (x > maxX) maxX = x;
+                if (y < minY) minY = y;
+                maxY = y;
+            }
+        }
+        if (maxX < 0) minX = 0; // 空的矩形：minX > maxX
+    }
+
+    /** @return whether the last step covered the tile, i.e. whether its growth rate may have changed */
+    public boolean wasStepped(int x, int y) {
+        return x >= stepMinX && x <= stepMaxX && y >= stepMinY && y <= stepMaxY;
+    }
+
+    /**
+     * One explicit step of diffusion with relaxation towards {@code base}, in place over the tiles
+     * {@code [x0, x1] × [y0, y1]}: {@code v' = v + d·(left + right + down + up − 4v) + r·(base − v)}, with the
+     * border tiles mirroring themselves (nothing flows out of the map). A result within {@link #SNAP} of the base
+     * becomes the base. The new values go to {@code scratch} first and are copied back row by row, so every tile
+     * reads its neighbours' old values.
+     * @return the largest change of any tile
+     */
+    static float diffuse(float[] values, float[] scratch, int width, int height, int x0, int y0, int x1, int y1,
+                         float d, float r, float base) {
+        float maxChange = 0f;
+        for (int y = y0; y <= y1; y++) {
+            int row = y * width;
+            int down = (y > 0 ? y - 1 : y) * width;
+            int up = (y < height - 1 ? y + 1 : y) * width;
+            if (width == 1) {
+                float v = values[row];
+                float n = v + d * ((values[down] + values[up]) - 2f * v) + r * (base - v);
+                n = Math.abs(n - base) < SNAP ? base : n;
+                scratch[row] = n;
+                maxChange = Math.max(maxChange, Math.abs(n - v));
+                continue;
+            }
+            // 中文：内层循环是紧凑数组上的直线代码；左右边界单独处理
+            int from = Math.max(1, x0), to = Math.min(width - 2, x1);
+            for (int x = from; x <= to; x++) {
+                int i = row + x;
+                float v = values[i];
+                float n = v + d * ((values[i - 1] + values[i + 1] + values[down + x] + values[up + x]) - 4f * v) + r * (base - v);
+                n = Math.abs(n - base) < SNAP ? base : n;
+                scratch[i] = n;
+                maxChange = Math.max(maxChange, Math.abs(n - v));
+            }
+            if (x0 == 0) maxChange = Math.max(maxChange, edge(values, scratch, row, 0, 1, down, up, d, r, base));
+            if (x1 == width - 1) {
+                maxChange = Math.max(maxChange, edge(values, scratch, row, width - 1, width - 2, down, up, d, r, base));
+            }
+        }
+        for (int y = y0; y <= y1; y++) {
+            System.arraycopy(scratch, y * width + x0, values, y * width + x0, x1 - x0 + 1);
+        }
+        return maxChange;
+    }
+
+    /** The step for a tile in the first or last column; the missing neighbour is the tile itself. */
+    private static float edge(float[] src, float[] dst, int row, int x, int inner, int down, int up,
+                              float d, float r, float base) {
+        int i = row + x;
+        float v = src[i];
+        float n = v + d * ((v + src[row + inner] + src[down + x] + src[up + x]) - 4f * v) + r * (base - v);
+        n = Math.abs(n - base) < SNAP ? base : n;
+        dst[i] = n;
+        return Math.abs(n - v);
+    }
+
+    /** @return whether the layer stopped changing; a settled layer does not need ticking */
+    public boolean isSettled() {
+        return !active;
+    }
+
+    /*
+     * Snapshot support. Only the tiles away from the base level are stored: untouched soil stays exactly at
+     * the base (a diffusion step leaves a tile whose neighbours are all at the base unchanged), so a settled
+     * farm is a few watered patches, not two full layers.
+     */
+
+    /** @return the indices (row by row, ascending) of the tiles whose moisture or fertility is not the base */
+    int[] copyChangedTiles() {
+        int count = 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int i = y * width + minX; i <= y * width + maxX; i++) {
+                if (moisture[i] != BASE_MOISTURE || fertility[i] != BASE_FERTILITY) count++;
+            }
+        }
+        int[] tiles = new int[count];
+        int n = 0;
+        for (int y = minY; y <= maxY; y++) {
+            for (int i = y * width + minX; i <= y * width + maxX; i++) {
+                if (moisture[i] != BASE_MOISTURE || fertility[i] != BASE_FERTILITY) tiles[n++] = i;
+            }
+        }
+        return tiles;
+    }
+
+    float[] copyMoisture(int[] tiles) { return gather(moisture, tiles); }
+    float[] copyFertility(int[] tiles) { return gather(fertility, tiles); }
+    float getPending() { return active ? pending : -1f; }
+
+    private static float[] gather(float[] values, int[] tiles) {
+        float[] result = new float[tiles.length];
+        for (int i = 0; i < tiles.length; i++) result[i] = values[tiles[i]];
+        return result;
+    }
+
+    /**
+     * Puts the layer back into a captured state: the listed tiles get their values, all others the base.
+     * {@code pending} is -1 for a settled layer.
+     */
+    void restore(int[] tiles, float[] moisture, float[] fertility, float pending) {
+        Arrays.fill(this.moisture, BASE_MOISTURE);
+        Arrays.fill(this.fertility, BASE_FERTILITY);
+        minX = 0;
+        minY = 0;
+        maxX = -1;
+        maxY = -1;
+        for (int i = 0; i < tiles.length; i++) {
+            this.moisture[tiles[i]] = moisture[i];
+            this.fertility[tiles[i]] = fertility[i];
+            int x = tiles[i] % width, y = tiles[i] / width;
+            include(x, y, x, y);
+        }
+        this.active = pending >= 0;
+        this.pending = Math.max(0f, pending);
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
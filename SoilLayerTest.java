@@ -0,0 +1,156 @@
+package de.tum.cit.aet.valleyday.map;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SoilLayerTest {
+
+    private static final float BASE = 0.5f;
+    private static final float D = 0.1f;
+    private static final float R = 0.05f;
+
+    private static float[] field(int width, int height) {
+        float[] values = new float[width * height];
+        Arrays.fill(values, BASE);
+        return values;
+    }
+
+    /** The textbook step over the whole grid into a new array, border tiles mirroring themselves. */
+    private static float[] reference(float[] values, int width, int height) {
+        float[] result = new float[values.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                float v = values[y * width + x];
+                float left = values[y * width + Math.max(0, x - 1)];
+                float right = values[y * width + Math.min(width - 1, x + 1)];
+                float down = values[Math.max(0, y - 1) * width + x];
+                float up = values[Math.min(height - 1, y + 1) * width + x];
+                float n = v + D * ((left + right + down + up) - 4f * v) + R * (BASE - v);
+                result[y * width + x] = Math.abs(n - BASE) < SoilLayer.SNAP ? BASE : n;
+            }
+        }
+        return result;
+    }
+
+    @Test
+    void diffuseOverTheWholeGridMatchesTheTextbookStep() {
+        int width = 7, height = 5;
+        float[] values = field(width, height);
+        values[2 * width + 3] = 1f;
+        values[0] = 0.9f;
+        values[height * width - 1] = 0.1f;
+        float[] expected = reference(values, width, height);
+
+        SoilLayer.diffuse(values, new float[values.length], width, height, 0, 0, width - 1, height - 1, D, R, BASE);
+        assertArrayEquals(expected, values);
+    }
+
+    @Test
+    void diffuseOverTheDirtyRectangleEqualsTheWholeGrid() {
+        int width = 16, height = 12;
+        float[] whole = field(width, height);
+        whole[5 * width + 6] = 1f;
+        whole[6 * width + 7] = 0.8f;
+        float[] part = whole.clone();
+
+        for (int step = 0; step < 5; step++) {
+            SoilLayer.diffuse(whole, new float[whole.length], width, height, 0, 0, width - 1, height - 1, D, R, BASE);
+            // 中文：脏区域每一步往外扩一格
+            int margin = step + 1;
+            SoilLayer.diffuse(part, new float[part.length], width, height,
+                    6 - margin, 5 - margin, 7 + margin, 6 + margin, D, R, BASE);
+            assertArrayEquals(whole, part);
+        }
+    }
+
+    @Test
+    void diffuseLeavesTilesOutsideTheRectangleAlone() {
+        int width = 6, height = 6;
+        float[] values = field(width, height);
+        values[2 * width + 2] = 1f;
+        values[5 * width + 5] = 0.9f;
+        SoilLayer.diffuse(values, new float[values.length], width, height, 1, 1, 3, 3, D, R, BASE);
+        assertEquals(0.9f, values[5 * width + 5]);
+        assertEquals(BASE, values[0]);
+        assertTrue(values[2 * width + 1] > BASE);
+    }
+
+    @Test
+    void diffuseSnapsToTheBase() {
+        int width = 3, height = 3;
+        float[] values = field(width, height);
+        values[4] = BASE + SoilLayer.SNAP;
+        float change = SoilLayer.diffuse(values, new float[values.length], width, height, 0, 0, 2, 2, D, R, BASE);
+        for (float value : values) assertEquals(BASE, value);
+        assertEquals(SoilLayer.SNAP, change, 1e-6f);
+    }
+
+    @Test
+    void diffuseKeepsAnUntouchedFieldExactlyAtTheBase() {
+        int width = 5, height = 4;
+        float[] values = field(width, height);
+        float change = SoilLayer.diffuse(values, new float[values.length], width, height, 0, 0, 4, 3, D, R, BASE);
+        assertEquals(0f, change);
+        assertArrayEquals(field(width, height), values);
+    }
+
+    @Test
+    void diffuseHandlesASingleColumn() {
+        int width = 1, height = 4;
+        float[] values = field(width, height);
+        values[1] = 1f;
+        float[] expected = reference(values, width, height);
+        SoilLayer.diffuse(values, new float[values.length], width, height, 0, 0, 0, 3, D, R, BASE);
+        // 单列走的是另一条公式（左右邻居就是自己），只能在舍入误差内相等
+        assertArrayEquals(expected, values, 1e-6f);
+    }
+
+    @Test
+    void wateredPatchSpreadsOutAndSettles() {
+        SoilLayer soil = new SoilLayer(20, 20);
+        soil.water(10, 10, 0.5f);
+        assertFalse(soil.isSettled());
+        assertEquals(9, soil.copyChangedTiles().length);
+
+        int steps = 0;
+        while (!soil.isSettled() && steps < 1000) {
+            if (soil.update(SoilLayer.STEP_SECONDS)) steps++;
+        }
+        assertTrue(soil.isSettled());
+        assertFalse(soil.wasStepped(0, 0));
+        assertTrue(soil.wasStepped(10, 10));
+        assertTrue(soil.getMoisture(10, 10) < 0.52f);
+        assertTrue(soil.getMoisture(11, 10) > BASE);
+    }
+
+    @Test
+    void restoreRebuildsTheChangedTiles() {
+        SoilLayer soil = new SoilLayer(8, 8);
+        soil.water(3, 3, 0.4f);
+        soil.fertilise(6, 6, 0.2f);
+        soil.update(SoilLayer.STEP_SECONDS);
+        int[] tiles = soil.copyChangedTiles();
+        float[] moisture = soil.copyMoisture(tiles);
+        float[] fertility = soil.copyFertility(tiles);
+
+        SoilLayer copy = new SoilLayer(8, 8);
+        copy.restore(tiles, moisture, fertility, soil.getPending());
+        assertArrayEquals(tiles, copy.copyChangedTiles());
+        for (int i = 0; i < 5; i++) {
+            soil.update(SoilLayer.STEP_SECONDS);
+            copy.update(SoilLayer.STEP_SECONDS);
+        }
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                assertEquals(soil.getMoisture(x, y), copy.getMoisture(x, y));
+                assertEquals(soil.getFertility(x, y), copy.getFertility(x, y));
+            }
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package de.tum.cit.aet.valleyday.audio;
+
+/**
+ * The sound effects of the game and how {@link SoundManager} treats each of them.
+ * See the assets/audio folder for the actual files.
+ */
+public enum SoundEffect {
+
+    //          file               volume priority voices duration
+    DEBRIS_CLEAR("debris_clear.wav", 0.8f, 1,       3,     0.4f),
+    PICKUP      ("pickup.wav",       0.9f, 2,       2,     0.5f);
+
+    final String fileName;
+    /** Volume at the listener's position, before distance attenuation. */
+    final float volume;
+    /** A sound may steal the voice of a playing sound with a lower or equal priority. */
+    final int priority;
+    /** At most this many instances of the sound play at once; the oldest one is cut off for a new one. */
+    final int maxVoices;
+    /**
+     * How long the sound plays in seconds. libGDX does not report when a sound ends,
+     * so a voice counts as busy for this long.
+     */
+    final float duration;
+
+    SoundEffect(String fileName, float volume, int priority, int maxVoices, float duration) {
+        this.fileName = fileName;
+        this.volume = volume;
+        this.priority = priority;
+        this.maxVoices = maxVoices;
+        this.duration = duration;
+    }
+}
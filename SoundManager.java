@@ -0,0 +1,226 @@
+package de.tum.cit.aet.valleyday.audio;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.audio.Sound;
+import com.badlogic.gdx.files.FileHandle;
+import com.badlogic.gdx.utils.GdxRuntimeException;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Plays the {@link SoundEffect}s.
+ * <p>
+ * The game logic never calls the audio device. It only {@link #post posts} a request (effect and tile)
+ * into a fixed-size ring buffer, which costs a few array writes and never blocks. Once per frame the
+ * render thread calls {@link #update(float)}, which goes through the requests:
+ * </p>
+ * <ul>
+ *     <li>requests farther from the listener than {@link #HEARING_RADIUS} tiles are dropped before
+ *     anything touches the device;</li>
+ *     <li>each effect has a voice cap; a new instance beyond the cap cuts off the oldest one of the same effect;</li>
+ *     <li>when all {@link #MAX_VOICES} voices are busy, the new sound steals the oldest voice with a lower or
+ *     equal priority, or is dropped if there is none;</li>
+ *     <li>volume falls off with the distance to the listener, pan follows the horizontal offset.</li>
+ * </ul>
+ * Every effect is loaded once in {@link #load()}; libGDX plays several instances of one {@link Sound}
+ * itself, so the voices are bookkeeping over those instances rather than extra copies of the audio data.
+ */
+public final class SoundManager {
+
+    /** Voices that may play at the same time over all effects. */
+    public static final int MAX_VOICES = 12;
+    /** Sounds farther away than this many tiles are not played at all. */
+    public static final float HEARING_RADIUS = 12f;
+    /** Requests that arrive within one frame beyond this are dropped. */
+    private static final int QUEUE_CAPACITY = 64;
+
+    private static final SoundEffect[] EFFECTS = SoundEffect.values();
+    private static final Sound[] sounds = new Sound[EFFECTS.length];
+
+    /* Pending requests: a single-producer single-consumer ring buffer (logic thread -> render thread). */
+    private static final int[] queuedEffect = new int[QUEUE_CAPACITY];
+    private static final float[] queuedX = new float[QUEUE_CAPACITY];
+    private static final float[] queuedY = new float[QUEUE_CAPACITY];
+    /** 中文：是否有位置；没有位置的音效（界面音效）在听者处播放 */
+    private static final boolean[] queuedPositional = new boolean[QUEUE_CAPACITY];
+    private static final AtomicInteger queueHead = new AtomicInteger();
+    private static final AtomicInteger queueTail = new AtomicInteger();
+
+    /* Voices; render thread only. effect == -1 marks a free voice. */
+    private static final int[] voiceEffect = new int[MAX_VOICES];
+    private static final long[] voiceId = new long[MAX_VOICES];
+    private static final float[] voiceEnd = new float[MAX_VOICES];
+    private static final float[] voiceStart = new float[MAX_VOICES];
+
+    /** Seconds since {@link #load()}, advanced by {@link #update(float)}. */
+    private static float time;
+    private static float listenerX;
+    private static float listenerY;
+    private static boolean hasListener;
+
+    /* Counters for tuning the caps. */
+    private static int played, culled, stolen, dropped;
+    /** Written by the producer only. */
+    private static volatile int overflowed;
+
+    private SoundManager() {
+    }
+
+    /** Loads every effect. A missing file only disables that effect. */
+    public static void load() {
+        for (int i = 0; i < EFFECTS.length; i++) {
+            FileHandle file = Gdx.files.internal("audio/" + EFFECTS[i].fileName);
+            try {
+                sounds[i] = Gdx.audio.newSound(file);
+            } catch (GdxRuntimeException e) {
+                Gdx.app.error("SoundManager", "Could not load " + file.path(), e);
+            }
+        }
+        for (int i = 0; i < MAX_VOICES; i++) voiceEffect[i] = -1;
+    }
+
+    /**
+     * Queues an effect at a tile. Safe to call from the logic thread; never touches the audio device.
+     * @param x x-coordinate of the source in tile units
+     * @param y y-coordinate of the source in tile units
+     */
+    public static void post(SoundEffect effect, float x, float y) {
+        enqueue(effect, x, y, true);
+    }
+
+    /** Queues an effect without a position, played at full volume in the centre. */
+    public static void post(SoundEffect effect) {
+        enqueue(effect, 0, 0, false);
+    }
+
+    private static void enqueue(SoundEffect effect, float x, float y, boolean positional) {
+        int tail = queueTail.get();
+        if (tail - queueHead.get() >= QUEUE_CAPACITY) {
+            overflowed++; // 这一帧的请求太多了，直接丢掉
+            return;
+        }
+        int slot = tail & (QUEUE_CAPACITY - 1);
+        queuedEffect[slot] = effect.ordinal();
+        queuedX[slot] = x;
+        queuedY[slot] = y;
+        queuedPositional[slot] = positional;
+        queueTail.lazySet(tail + 1);
+    }
+
+    /**
+     * Where the player hears from, in tile units. Call on the render thread before {@link #update}.
+     */
+    public static void setListener(float x, float y) {
+        listenerX = x;
+        listenerY = y;
+        hasListener = true;
+    }
+
+    /**
+     * Frees the voices whose sound has ended and plays the queued requests. Render thread only.
+     * @param delta seconds since the last frame
+     */
+    public static void update(float delta) {
+        time += delta;
+        for (int i = 0; i < MAX_VOICES; i++) {
+            if (voiceEffect[i] >= 0 && voiceEnd[i] <= time) voiceEffect[i] = -1; // 不需要调用声卡
+        }
+
+        int head = queueHead.get();
+        int tail = queueTail.get();
+        for (; head != tail; head++) {
+            int slot = head & (QUEUE_CAPACITY - 1);
+            playNow(EFFECTS[queuedEffect[slot]], queuedX[slot], queuedY[slot], queuedPositional[slot]);
+        }
+        queueHead.lazySet(head);
+    }
+
+    private static void playNow(SoundEffect effect, float x, float y, boolean positional) {
+        Sound sound = sounds[effect.ordinal()];
+        if (sound == null) return;
+
+        float volume = effect.volume;
+        float pan = 0f;
+        if (positional && hasListener) {
+            float dx = x - listenerX;
+            float dy = y - listenerY;
+            float distance = (float) Math.sqrt(dx * dx + dy * dy);
+            if (distance > HEARING_RADIUS) {
+                culled++;
+                return;
+            }
+            float falloff = 1f - distance / HEARING_RADIUS;
+            volume *= falloff * falloff;
+            pan = Math.max(-1f, Math.min(1f, dx / HEARING_RADIUS * 2f));
+        }
+
+        int voice = findVoice(effect);
+        if (voice < 0) {
+            dropped++;
+            return;
+        }
+        if (voiceEffect[voice] >= 0) {
+            sounds[voiceEffect[voice]].stop(voiceId[voice]);
+            stolen++;
+        }
+        voiceEffect[voice] = effect.ordinal();
+        voiceId[voice] = sound.play(volume, 1f, pan);
+        voiceStart[voice] = time;
+        voiceEnd[voice] = time + effect.duration;
+        played++;
+    }
+
+    /**
+     * @return the voice to use for a new instance of the effect, -1 if it must be dropped;
+     * the voice may still be playing, in which case it is stolen
+     */
+    private static int findVoice(SoundEffect effect) {
+        // 1. 同一种音效超过上限：挤掉最老的那个
+        int sameCount = 0;
+        int oldestSame = -1;
+        for (int i = 0; i < MAX_VOICES; i++) {
+            if (voiceEffect[i] != effect.ordinal()) continue;
+            sameCount++;
+            if (oldestSame < 0 || voiceStart[i] < voiceStart[oldestSame]) oldestSame = i;
+        }
+        if (sameCount >= effect.maxVoices) return oldestSame;
+
+        // 2. 有空闲的声道就用
+        for (int i = 0; i < MAX_VOICES; i++) {
+            if (voiceEffect[i] < 0) return i;
+        }
+
+        // 3. 全满：抢优先级不高于自己的最老的声道
+        int victim = -1;
+        for (int i = 0; i < MAX_VOICES; i++) {
+            SoundEffect playing = EFFECTS[voiceEffect[i]];
+            if (playing.priority > effect.priority) continue;
+            if (victim < 0 || EFFECTS[voiceEffect[victim]].priority > playing.priority
+                    || (EFFECTS[voiceEffect[victim]].priority == playing.priority && voiceStart[i] < voiceStart[victim])) {
+                victim = i;
+            }
+        }
+        return victim;
+    }
+
+    /**
+     * The sound of clearing debris, kept for callers without a position.
+     * Must be called on the render thread, like before.
+     */
+    public static void playDebrisClear() {
+        playNow(SoundEffect.DEBRIS_CLEAR, 0, 0, false);
+    }
+
+    /** @return a one-line summary of how many sounds were played, culled, stolen and dropped */
+    public static String getStats() {
+        return "played " + played + ", culled " + culled + ", stolen " + stolen + ", dropped " + dropped
+                + ", queue overflows " + overflowed;
+    }
+
+    public static void dispose() {
+        for (int i = 0; i < sounds.length; i++) {
+            if (sounds[i] != null) sounds[i].dispose();
+            sounds[i] = null;
+        }
+    }
+}
@@ -14,9 +14,27 @@ import de.tum.cit.aet.valleyday.map.Chest;
 public class Textures {
     
    
-    // 不要在类加载时立即访问 SpriteSheet
+    // 不要在类加载时立即访问 SpriteSheet；第一次调用时创建，之后复用同一个 region
+    private static TextureRegion flowers;
+
     public static TextureRegion FLOWERS() {
-        return SpriteSheet.BASIC_TILES.at(2, 5); // ⚡ 调用时才取
+        if (flowers == null) {
+            flowers = SpriteSheet.BASIC_TILES.at(2, 5); // ⚡ 调用时才取
+        }
+        return flowers;
+    }
+
+    /**
+     * Creates the sprite sheet textures and every region and animation built from them right now.
+     * <p>
+     * Textures are GL objects and may only be created on the render thread, but the simulation thread reads these
+     * constants when it captures a snapshot; the first read would run the class initialisers there. Call this on the
+     * render thread before the simulation thread starts.
+     * </p>
+     */
+    public static void load() {
+        FLOWERS(); // 类初始化顺带把 SpriteSheet 的所有贴图建好
+        Animations.CHARACTER_WALK_DOWN.getKeyFrame(0f); // 读一次就会初始化 Animations
     }
 
    
@@ -57,6 +75,10 @@ public class Textures {
     public static final TextureRegion CROP_ROTTEN = SpriteSheet.CROPS.at(5, 1);
 
 
+    //Agents（暂时借用现有图块，等有了动物和乌鸦的贴图再换）
+    public static final TextureRegion ANIMAL = SpriteSheet.BASICS.at(3, 11);
+    public static final TextureRegion CROW = SpriteSheet.BASIC_TILES.at(9, 6);
+
     //Entrance
 
     //Exit
@@ -0,0 +1,41 @@
+package de.tum.cit.aet.valleyday.map;
+
+/**
+ * Gets notified when the content of a tile on the {@link GameMap} changes,
+ * e.g. debris is cleared, a seed is planted or a crop is harvested.
+ * <p>
+ * Caches built from the map (path finding, render caches) register one of these with
+ * {@link GameMap#addTileChangeListener} and rebuild only what the changed tile affects.
+ * Notifications arrive on the thread that runs the game logic.
+ * </p>
+ */
+public interface TileChangeListener {
+
+    /**
+     * Called after the tile at the given position changed.
+     * @param map the map the tile belongs to
+     * @param x x-coordinate on the map grid
+     * @param y y-coordinate on the map grid
+     */
+    void onTileChanged(GameMap map, int x, int y);
+
+    /**
+     * Called once after an area action changed several tiles at once.
+     * The default forwards every tile to {@link #onTileChanged}; caches whose rebuild has a fixed cost
+     * per notification override it to rebuild once for the whole batch.
+     * @param map the map the tiles belong to
+     * @param keys packed tile keys (see {@link TileKeys}); only the first {@code count} are valid
+     * @param count number of changed tiles
+     */
+    default void onTilesChanged(GameMap map, long[] keys, int count) {
+        for (int i = 0; i < count; i++) {
+            onTileChanged(map, TileKeys.x(keys[i]), TileKeys.y(keys[i]));
+        }
+    }
+
+    /**
+     * Called after a whole map was (re)loaded; every cached tile is stale.
+     * @param map the map that was loaded
+     */
+    void onMapLoaded(GameMap map);
+}
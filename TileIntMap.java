@@ -0,0 +1,147 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.Arrays;
+
+/**
+ * A map from tile positions to primitive {@code int} values (for example the object type ids read from a map file).
+ * <p>
+ * Same open-addressing layout as {@link TileKeyMap}, but the values live in an {@code int[]}
+ * so neither the key nor the value is ever boxed. A separate occupancy array marks used slots
+ * because every int is a legal value.
+ * </p>
+ */
+public class TileIntMap {
+
+    /** Callback used for bulk iteration without creating entry objects. */
+    public interface Visitor {
+        void accept(int x, int y, int value);
+    }
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int[] values;
+    private boolean[] used;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public TileIntMap() {
+        this(16);
+    }
+
+    /** @param expectedSize number of entries the map should hold without growing */
+    public TileIntMap(int expectedSize) {
+        allocate(TileKeys.tableSizeFor(expectedSize, LOAD_FACTOR));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        used = new boolean[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    private int find(long key) {
+        int slot = TileKeys.hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) return slot;
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    /** @return the value stored for the tile, or {@code defaultValue} if there is none */
+    public int get(int x, int y, int defaultValue) {
+        int slot = find(TileKeys.pack(x, y));
+        return slot < 0 ? defaultValue : values[slot];
+    }
+
+    public boolean containsKey(int x, int y) {
+        return find(TileKeys.pack(x, y)) >= 0;
+    }
+
+    public void put(int x, int y, int value) {
+        long key = TileKeys.pack(x, y);
+        int slot = TileKeys.hash(key) & mask;
+        while (used[slot]) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        used[slot] = true;
+        if (++size > resizeThreshold) grow();
+    }
+
+    /** @return true if the tile had a value */
+    public boolean remove(int x, int y) {
+        int gap = find(TileKeys.pack(x, y));
+        if (gap < 0) return false;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (!used[slot]) break;
+            int home = TileKeys.hash(keys[slot]) & mask;
+            boolean movable = gap <= slot ? (home <= gap || home > slot) : (home <= gap && home > slot);
+            if (movable) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        used[gap] = false;
+        size--;
+        return true;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        boolean[] oldUsed = used;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (!oldUsed[i]) continue;
+            int slot = TileKeys.hash(oldKeys[i]) & mask;
+            while (used[slot]) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+            used[slot] = true;
+        }
+    }
+
+    /** Visits every entry in table order. The map must not be modified while iterating. */
+    public void forEach(Visitor visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (used[i]) visitor.accept(TileKeys.x(keys[i]), TileKeys.y(keys[i]), values[i]);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(used, false);
+        size = 0;
+    }
+
+    /** Approximate retained size of this map in bytes (64-bit JVM, compressed oops). */
+    public long estimateMemoryBytes() {
+        return 16L + 3 * 16L + keys.length * (8L + 4L + 1L);
+    }
+
+    /**
+     * Approximate retained size of a {@code HashMap<Vector2, Integer>} with the same number of entries:
+     * a 32 byte node, a 24 byte Vector2 and a 16 byte Integer (outside the small-value cache)
+     * plus a table slot per entry at the default 0.75 load factor.
+     */
+    public static long estimateVector2HashMapBytes(int entries) {
+        int table = TileKeys.tableSizeFor(entries, 0.75f);
+        return 48L + 16L + table * 4L + entries * (32L + 24L + 16L);
+    }
+}
@@ -0,0 +1,203 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.util.Arrays;
+
+/**
+ * A map from tile positions to objects, backed by open addressing over primitive {@code long} keys.
+ * <p>
+ * Unlike {@code HashMap<String, V>} or {@code HashMap<Vector2, V>}, looking up a tile
+ * never allocates: the key is packed with {@link TileKeys#pack(int, int)} and probed linearly
+ * in two parallel arrays. Removal uses backward-shift deletion, so no tombstones accumulate.
+ * Null values are not allowed, a null slot marks an empty bucket.
+ * </p>
+ *
+ * @param <V> the type of value stored per tile
+ */
+public class TileKeyMap<V> {
+
+    /** Callback used for bulk iteration without creating entry objects. */
+    public interface Visitor<V> {
+        void accept(int x, int y, V value);
+    }
+
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private Object[] values;
+    private int mask;
+    private int size;
+    private int resizeThreshold;
+
+    public TileKeyMap() {
+        this(16);
+    }
+
+    /** @param expectedSize number of entries the map should hold without growing */
+    public TileKeyMap(int expectedSize) {
+        allocate(TileKeys.tableSizeFor(expectedSize, LOAD_FACTOR));
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new Object[capacity];
+        mask = capacity - 1;
+        resizeThreshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    public V get(int x, int y) {
+        return get(TileKeys.pack(x, y));
+    }
+
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = TileKeys.hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) return (V) values[slot];
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    public boolean containsKey(int x, int y) {
+        return get(TileKeys.pack(x, y)) != null;
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    public V put(int x, int y, V value) {
+        return put(TileKeys.pack(x, y), value);
+    }
+
+    /**
+     * Associates the value with the tile key.
+     * @return the previous value, or null if the tile was empty
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        if (value == null) throw new IllegalArgumentException("TileKeyMap does not accept null values");
+        int slot = TileKeys.hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                values[slot] = value;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size > resizeThreshold) grow();
+        return null;
+    }
+
+    public V remove(int x, int y) {
+        return remove(TileKeys.pack(x, y));
+    }
+
+    /** @return the removed value, or null if the tile was empty */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = TileKeys.hash(key) & mask;
+        while (values[slot] != null) {
+            if (keys[slot] == key) {
+                V previous = (V) values[slot];
+                shiftBack(slot);
+                size--;
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+    /** Closes the gap left at {@code gap} by moving later entries of the same probe run backwards. */
+    private void shiftBack(int gap) {
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & mask;
+            if (values[slot] == null) break;
+            int home = TileKeys.hash(keys[slot]) & mask;
+            // 中文：只有当 home 不在 (gap, slot] 区间内时，这个元素才能前移到 gap
+            boolean movable = gap <= slot ? (home <= gap || home > slot) : (home <= gap && home > slot);
+            if (movable) {
+                keys[gap] = keys[slot];
+                values[gap] = values[slot];
+                gap = slot;
+            }
+        }
+        values[gap] = null;
+    }
+
+    private void grow() {
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        allocate(keys.length << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] == null) continue;
+            int slot = TileKeys.hash(oldKeys[i]) & mask;
+            while (values[slot] != null) slot = (slot + 1) & mask;
+            keys[slot] = oldKeys[i];
+            values[slot] = oldValues[i];
+        }
+    }
+
+    /**
+     * Visits every entry in table order.
+     * The map must not be modified while iterating.
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(Visitor<? super V> visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                visitor.accept(TileKeys.x(keys[i]), TileKeys.y(keys[i]), (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Copies all keys into the given array (which must hold at least {@link #size()} elements).
+     * Useful when the caller wants to modify the map while walking its keys.
+     * @return the number of keys written
+     */
+    public int keys(long[] out) {
+        int n = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) out[n++] = keys[i];
+        }
+        return n;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /**
+     * Approximate retained size of this map in bytes (64-bit JVM, compressed oops),
+     * not counting the values themselves.
+     */
+    public long estimateMemoryBytes() {
+        return 16L + 2 * 16L + keys.length * 8L + values.length * 4L;
+    }
+
+    /**
+     * Approximate retained size of a {@code HashMap<String, V>} keyed by {@code "x,y"} strings
+     * holding the same number of entries: a 32 byte node, a 24 byte String with a ~24 byte
+     * backing array, and a table slot per entry at the default 0.75 load factor.
+     * Used to report the saving over the previous representation.
+     */
+    public static long estimateStringHashMapBytes(int entries) {
+        int table = TileKeys.tableSizeFor(entries, 0.75f);
+        return 48L + 16L + table * 4L + entries * (32L + 24L + 24L);
+    }
+}
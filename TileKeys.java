@@ -0,0 +1,51 @@
+package de.tum.cit.aet.valleyday.map;
+
+/**
+ * Packs tile coordinates into a single primitive {@code long} key.
+ * <p>
+ * The x-coordinate is stored in the upper 32 bits and the y-coordinate in the lower 32 bits,
+ * so every (x, y) pair on the grid maps to a unique key without allocating a String or a Vector2.
+ * </p>
+ */
+public final class TileKeys {
+
+    private TileKeys() {}
+
+    /**
+     * Packs a tile position into a key.
+     * @param x x-coordinate on the map grid
+     * @param y y-coordinate on the map grid
+     * @return the packed key
+     */
+    public static long pack(int x, int y) {
+        return ((long) x << 32) | (y & 0xFFFFFFFFL);
+    }
+
+    /** @return the x-coordinate stored in the given key */
+    public static int x(long key) {
+        return (int) (key >> 32);
+    }
+
+    /** @return the y-coordinate stored in the given key */
+    public static int y(long key) {
+        return (int) key;
+    }
+
+    /**
+     * Mixes the bits of a key so that neighbouring tiles spread over the whole table.
+     * 中文：相邻格子的 key 只差 1，必须打散，否则线性探测会堆积。
+     */
+    static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xFF51AFD7ED558CCDL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+
+    /** @return the smallest power of two table size that keeps {@code expected} entries under the load factor */
+    static int tableSizeFor(int expected, float loadFactor) {
+        int needed = (int) Math.ceil(Math.max(expected, 1) / loadFactor);
+        int size = Integer.highestOneBit(Math.max(needed - 1, 1)) << 1;
+        return Math.max(size, 8);
+    }
+}
@@ -0,0 +1,229 @@
+package de.tum.cit.aet.valleyday.sim;
+
+import com.badlogic.gdx.Gdx;
+import com.badlogic.gdx.graphics.g2d.TextureRegion;
+import de.tum.cit.aet.valleyday.map.Archetype;
+import de.tum.cit.aet.valleyday.map.Crop;
+import de.tum.cit.aet.valleyday.map.Debris;
+import de.tum.cit.aet.valleyday.map.EntityStore;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.GameObject;
+import de.tum.cit.aet.valleyday.map.TileChangeListener;
+import de.tum.cit.aet.valleyday.map.TileIntMap;
+import de.tum.cit.aet.valleyday.map.TileKeys;
+import de.tum.cit.aet.valleyday.map.Tool;
+import de.tum.cit.aet.valleyday.texture.Drawable;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * What every tile of the map looks like, for renderers that draw a whole chunk at once ({@code ChunkImpostors}).
+ * <p>
+ * Each tile has {@link #LAYERS} layers, and each layer holds an index into a palette of texture regions
+ * (0 = nothing). The grid is cut into the level-0 chunks of {@link ChunkVersions}, one byte array per chunk.
+ * The simulation keeps it up to date through {@link TileChangeListener}: a changed tile costs a few lookups in
+ * the map's tile indexes, not a pass over the entities. The ground and fixture layers only change on a load or
+ * a hot reload.
+ * </p>
+ * <p>
+ * Snapshots share the chunk arrays with the simulation: {@link #copyFrom} copies the array of references, and the
+ * simulation copies a chunk before its first write after that (copy on write), so a published copy never changes.
+ * </p>
+ */
+public final class TileLooks implements TileChangeListener {
+
+    /** Flowers: drawn first, under everything else. */
+    public static final int GROUND = 0;
+    /** Fences, chests and everything else the map file places and nothing removes. */
+    public static final int FIXTURE = 1;
+    /** Debris, crops and tools on the ground. */
+    public static final int OBJECT = 2;
+    public static final int LAYERS = 3;
+
+    private static final int CHUNK_TILES = ChunkVersions.CHUNK_TILES;
+    /** Palette indices are stored in one byte. */
+    private static final int MAX_LOOKS = 256;
+
+    private int width, height, columns;
+    private byte[][] chunks = new byte[0][];
+    /** Per chunk, whether a copy refers to the array, so it has to be copied before the next write. */
+    private boolean[] shared = new boolean[0];
+
+    /* The palette; a few dozen entries, copied along with the chunk references. */
+    private final TextureRegion[] regions = new TextureRegion[MAX_LOOKS];
+    private final float[] scales = new float[MAX_LOOKS];
+    private int looks = 1;
+    private final IdentityHashMap<TextureRegion, Integer> lookOf = new IdentityHashMap<>();
+
+    /** Sum of the mod counts of the archetypes in the ground and fixture layers; they only ever go up. */
+    private long fixtureVersion = -1;
+
+    /** Called on the simulation thread; rebuilds every layer in one pass over the entities. */
+    @Override
+    public void onMapLoaded(GameMap map) {
+        width = map.getWidth();
+        height = map.getHeight();
+        columns = Math.max(1, (width + CHUNK_TILES - 1) / CHUNK_TILES);
+        int rows = Math.max(1, (height + CHUNK_TILES - 1) / CHUNK_TILES);
+        chunks = new byte[columns * rows][];
+        for (int i = 0; i < chunks.length; i++) chunks[i] = new byte[CHUNK_TILES * CHUNK_TILES * LAYERS];
+        shared = new boolean[chunks.length];
+
+        EntityStore.Query renderable = map.getEntities().query(EntityStore.RENDERABLE);
+        for (int a = 0; a < renderable.size(); a++) {
+            Archetype<?> archetype = renderable.get(a);
+            int layer = layerOf(archetype.getKind());
+            for (int i = 0; i < archetype.size(); i++) {
+                long key = archetype.getTileKey(i);
+                set(TileKeys.x(key), TileKeys.y(key), layer, lookOf(archetype.get(i)));
+            }
+        }
+        fixtureVersion = fixtureVersion(map);
+    }
+
+    /** Called on the simulation thread. */
+    @Override
+    public void onTileChanged(GameMap map, int x, int y) {
+        updateObject(map, x, y);
+        long version = fixtureVersion(map);
+        if (version != fixtureVersion) {
+            TileIntMap changed = new TileIntMap();
+            changed.put(x, y, 1);
+            updateFixtures(map, changed, version);
+        }
+    }
+
+    /** Called on the simulation thread. */
+    @Override
+    public void onTilesChanged(GameMap map, long[] keys, int count) {
+        for (int i = 0; i < count; i++) updateObject(map, TileKeys.x(keys[i]), TileKeys.y(keys[i]));
+        long version = fixtureVersion(map);
+        if (version != fixtureVersion) {
+            // 中文：只有热更新会改动固定物体，这时把这批格子的固定层重新扫一遍
+            TileIntMap changed = new TileIntMap(count);
+            for (int i = 0; i < count; i++) changed.put(TileKeys.x(keys[i]), TileKeys.y(keys[i]), 1);
+            updateFixtures(map, changed, version);
+        }
+    }
+
+    /** The object layer comes straight from the map's tile indexes; a tool lies on top of anything else. */
+    private void updateObject(GameMap map, int x, int y) {
+        Tool tool = map.getItemAt(x, y);
+        Crop crop = map.getCropAt(x, y);
+        Debris debris = map.getDebrisAt(x, y);
+        int look = 0;
+        if (tool != null) look = lookOf(tool);
+        else if (crop != null) look = lookOf(crop);
+        else if (debris != null && !debris.isRemoved()) look = lookOf(debris);
+        set(x, y, OBJECT, look);
+    }
+
+    /** Re-reads the ground and fixture layers of the changed tiles in one pass over those archetypes. */
+    private void updateFixtures(GameMap map, TileIntMap changed, long version) {
+        changed.forEach((x, y, value) -> {
+            set(x, y, GROUND, 0);
+            set(x, y, FIXTURE, 0);
+        });
+        EntityStore.Query renderable = map.getEntities().query(EntityStore.RENDERABLE);
+        for (int a = 0; a < renderable.size(); a++) {
+            Archetype<?> archetype = renderable.get(a);
+            int layer = layerOf(archetype.getKind());
+            if (layer == OBJECT) continue;
+            for (int i = 0; i < archetype.size(); i++) {
+                long key = archetype.getTileKey(i);
+                if (changed.containsKey(TileKeys.x(key), TileKeys.y(key))) {
+                    set(TileKeys.x(key), TileKeys.y(key), layer, lookOf(archetype.get(i)));
+                }
+            }
+        }
+        fixtureVersion = version;
+    }
+
+    private static long fixtureVersion(GameMap map) {
+        long version = 0;
+        EntityStore.Query renderable = map.getEntities().query(EntityStore.RENDERABLE);
+        for (int a = 0; a < renderable.size(); a++) {
+            Archetype<?> archetype = renderable.get(a);
+            if (layerOf(archetype.getKind()) != OBJECT) version += archetype.getModCount();
+        }
+        return version;
+    }
+
+    private static int layerOf(byte kind) {
+        switch (kind) {
+            case RenderSnapshot.KIND_FLOWERS:
+                return GROUND;
+            case RenderSnapshot.KIND_DEBRIS:
+            case RenderSnapshot.KIND_CROP:
+            case RenderSnapshot.KIND_ITEM:
+                return OBJECT;
+            default:
+                return FIXTURE;
+        }
+    }
+
+    /** @return the palette index of the entity's current texture, added on first use */
+    private int lookOf(GameObject object) {
+        if (!(object instanceof Drawable)) return 0;
+        TextureRegion region = ((Drawable) object).getCurrentAppearance();
+        if (region == null) return 0;
+        Integer look = lookOf.get(region);
+        if (look != null) return look;
+        if (looks == MAX_LOOKS) {
+            Gdx.app.error("TileLooks", "More than " + MAX_LOOKS + " textures, drawing the rest as floor");
+            lookOf.put(region, 0);
+            return 0;
+        }
+        regions[looks] = region;
+        // 中文：工具和快照里一样缩小居中
+        scales[looks] = object instanceof Tool ? RenderSnapshot.TOOL_ICON_SCALE : 1f;
+        lookOf.put(region, looks);
+        return looks++;
+    }
+
+    private void set(int x, int y, int layer, int look) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return;
+        int chunk = (y / CHUNK_TILES) * columns + x / CHUNK_TILES;
+        int index = ((y % CHUNK_TILES) * CHUNK_TILES + x % CHUNK_TILES) * LAYERS + layer;
+        if (chunks[chunk][index] == (byte) look) return;
+        if (shared[chunk]) {
+            chunks[chunk] = chunks[chunk].clone(); // 已发布的快照还在用旧数组，写之前先复制
+            shared[chunk] = false;
+        }
+        chunks[chunk][index] = (byte) look;
+    }
+
+    /**
+     * Makes this instance a copy of {@code source}. Costs one reference per chunk; the chunks themselves are shared
+     * and the source copies each one before it next writes to it. Called on the simulation thread.
+     */
+    void copyFrom(TileLooks source) {
+        width = source.width;
+        height = source.height;
+        columns = source.columns;
+        if (chunks.length != source.chunks.length) chunks = new byte[source.chunks.length][];
+        System.arraycopy(source.chunks, 0, chunks, 0, chunks.length);
+        Arrays.fill(source.shared, true);
+        looks = source.looks;
+        System.arraycopy(source.regions, 0, regions, 0, looks);
+        System.arraycopy(source.scales, 0, scales, 0, looks);
+    }
+
+    /** @return the palette index on the layer of the tile, 0 for nothing or a tile outside the map */
+    public int get(int x, int y, int layer) {
+        if (x < 0 || y < 0 || x >= width || y >= height) return 0;
+        byte[] chunk = chunks[(y / CHUNK_TILES) * columns + x / CHUNK_TILES];
+        return chunk[((y % CHUNK_TILES) * CHUNK_TILES + x % CHUNK_TILES) * LAYERS + layer] & 0xFF;
+    }
+
+    /** @return the texture of a palette index other than 0 */
+    public TextureRegion getRegion(int look) {
+        return regions[look];
+    }
+
+    /** @return the size of the texture relative to a map object, e.g. smaller for tools */
+    public float getScale(int look) {
+        return scales[look];
+    }
+}
@@ -0,0 +1,69 @@
+package de.tum.cit.aet.valleyday.net;
+
+import de.tum.cit.aet.valleyday.map.Crop;
+import de.tum.cit.aet.valleyday.map.Debris;
+import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.map.Tool;
+
+/**
+ * The replicated, mutable layer of one tile packed into {@link #BITS} bits:
+ * <pre>
+ *   bits 0-4  debris health (0 = no debris, capped at 31)
+ *   bits 5-7  crop stage + 1 (0 = no crop)
+ *   bits 8-9  tool type ordinal + 1 (0 = nothing on the ground)
+ * </pre>
+ * Fences, chests and flowers never change and are not replicated; clients load them from the same map file.
+ */
+final class TileState {
+
+    static final int BITS = 10;
+    /** A value no real tile encodes to, used for "the client does not know this tile yet". */
+    static final int UNKNOWN = -1;
+
+    private static final Tool.ToolType[] TOOL_TYPES = Tool.ToolType.values();
+
+    /* Field widths of the layout above. */
+    private static final int MAX_CROP_STAGES = 7;
+    private static final int MAX_TOOL_TYPES = 3;
+
+    static {
+        // 中文：字段宽度是固定的，枚举变大时在这里报错，而不是悄悄把别的工具编码成错的类型
+        if (TOOL_TYPES.length > MAX_TOOL_TYPES) {
+            throw new IllegalStateException(TOOL_TYPES.length + " tool types do not fit the 2-bit tool field");
+        }
+        if (Crop.STAGE_ROTTEN + 1 > MAX_CROP_STAGES) {
+            throw new IllegalStateException((Crop.STAGE_ROTTEN + 1) + " crop stages do not fit the 3-bit crop field");
+        }
+    }
+
+    private TileState() {
+    }
+
+    static int encode(GameMap map, int x, int y) {
+        int state = 0;
+        Debris debris = map.getDebrisAt(x, y);
+        if (debris != null && !debris.isRemoved()) state |= Math.min(31, Math.max(1, debris.getHealth()));
+        Crop crop = map.getCropAt(x, y);
+        if (crop != null) state |= (crop.getStage() + 1) << 5;
+        Tool tool = map.getItemAt(x, y);
+        if (tool != null) state |= (tool.getType().ordinal() + 1) << 8;
+        return state;
+    }
+
+    static int debrisHealth(int state) {
+        return state & 0x1F;
+    }
+
+    static int cropStage(int state) {
+        return ((state >>> 5) & 0x7) - 1;
+    }
+
+    static Tool.ToolType itemType(int state) {
+        int ordinal = (state >>> 8) & 0x3;
+        return ordinal == 0 ? null : TOOL_TYPES[ordinal - 1];
+    }
+
+    static void apply(GameMap map, int x, int y, int state) {
+        map.applyRemoteTile(x, y, debrisHealth(state), cropStage(state), itemType(state));
+    }
+}
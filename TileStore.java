@@ -0,0 +1,98 @@
+package de.tum.cit.aet.valleyday.map;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Static per-tile state of a {@link GameMap} in one block of off-heap memory, one fixed-width record per tile.
+ * <p>
+ * A record is {@value #RECORD_BYTES} bytes, indexed by {@code y * width + x}:
+ * </p>
+ * <pre>
+ *   0     terrain id from the map file + 1 (0 = plain floor)
+ *   1     flags, bit 0 = walkable
+ * </pre>
+ * The buffer is direct, so a map of a million tiles costs the garbage collector one object instead
+ * of a million {@code Floor}s. Debris and crops are not kept here: they live in their archetypes and the
+ * map's tile indexes, which are what the game reads, and {@link MapSnapshot} saves them.
+ */
+public final class TileStore {
+
+    public static final int RECORD_BYTES = 2;
+
+    private static final int TERRAIN = 0;
+    private static final int FLAGS = 1;
+
+    private static final byte FLAG_WALKABLE = 1;
+
+    private final int width;
+    private final int height;
+    private final ByteBuffer buffer;
+
+    private TileStore(int width, int height, ByteBuffer buffer) {
+        this.width = width;
+        this.height = height;
+        this.buffer = buffer;
+    }
+
+    /** Creates a store in direct (off-heap) memory. All tiles start as walkable plain floor. */
+    public static TileStore allocate(int width, int height) {
+        TileStore store = new TileStore(width, height, ByteBuffer.allocateDirect(byteSize(width, height)));
+        store.clear();
+        return store;
+    }
+
+    private static int byteSize(int width, int height) {
+        long size = (long) width * height * RECORD_BYTES;
+        if (size > Integer.MAX_VALUE) throw new IllegalArgumentException("Map too large: " + width + "x" + height);
+        return (int) size;
+    }
+
+    /** Resets every tile to walkable plain floor. */
+    public void clear() {
+        int size = width * height * RECORD_BYTES;
+        for (int i = 0; i < size; i += RECORD_BYTES) {
+            buffer.put(i + TERRAIN, (byte) 0);
+            buffer.put(i + FLAGS, FLAG_WALKABLE);
+        }
+    }
+
+    private int offset(int x, int y) {
+        return (y * width + x) * RECORD_BYTES;
+    }
+
+    public boolean contains(int x, int y) {
+        return x >= 0 && x < width && y >= 0 && y < height;
+    }
+
+    /** @return the object type id from the map file, or -1 for plain floor */
+    public int getTerrain(int x, int y) {
+        return (buffer.get(offset(x, y) + TERRAIN) & 0xFF) - 1;
+    }
+
+    public void setTerrain(int x, int y, int typeId) {
+        buffer.put(offset(x, y) + TERRAIN, (byte) (typeId + 1));
+    }
+
+    public boolean isWalkable(int x, int y) {
+        return (buffer.get(offset(x, y) + FLAGS) & FLAG_WALKABLE) != 0;
+    }
+
+    public void setWalkable(int x, int y, boolean walkable) {
+        int at = offset(x, y) + FLAGS;
+        byte flags = buffer.get(at);
+        buffer.put(at, (byte) (walkable ? flags | FLAG_WALKABLE : flags & ~FLAG_WALKABLE));
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /** @return the off-heap size of the store in bytes */
+    public long sizeBytes() {
+        return (long) width * height * RECORD_BYTES;
+    }
+}
@@ -0,0 +1,158 @@
+package de.tum.cit.aet.valleyday.map;
+
+import com.badlogic.gdx.physics.box2d.Body;
+import com.badlogic.gdx.physics.box2d.BodyDef;
+import com.badlogic.gdx.physics.box2d.Contact;
+import com.badlogic.gdx.physics.box2d.ContactImpulse;
+import com.badlogic.gdx.physics.box2d.ContactListener;
+import com.badlogic.gdx.physics.box2d.Fixture;
+import com.badlogic.gdx.physics.box2d.FixtureDef;
+import com.badlogic.gdx.physics.box2d.Manifold;
+import com.badlogic.gdx.physics.box2d.PolygonShape;
+import com.badlogic.gdx.physics.box2d.World;
+import com.badlogic.gdx.utils.Array;
+import com.badlogic.gdx.utils.BooleanArray;
+
+/**
+ * Tile zones that react when the player walks into or out of them, e.g. a tool lying on the ground or the exit.
+ * <p>
+ * Every zone is a Box2D sensor on its tile, so Box2D's broad phase finds the overlaps and nothing has to
+ * compare the player's position with every item each tick. Box2D reports begin and end of a contact to the
+ * {@link ContactListener} in the middle of {@code world.step}, where bodies must not be created or destroyed;
+ * the listener therefore only queues the event. {@link #processEvents} hands the queue to the map once per
+ * tick, after the physics step, so the cost per tick is the number of events, not the number of zones.
+ * </p>
+ */
+public final class TriggerSystem implements ContactListener {
+
+    /** What a zone is for. */
+    public enum Kind {
+        /** A tool on the ground, picked up on contact. */
+        ITEM,
+        /** The entrance, which is the exit once enough crops are harvested. */
+        EXIT
+    }
+
+    /** Receives the queued events in {@link #processEvents}. */
+    public interface Handler {
+        /**
+         * @param kind what the zone is for
+         * @param x x-coordinate of the zone's tile
+         * @param y y-coordinate of the zone's tile
+         * @param entered true when the player entered the zone, false when they left it
+         */
+        void onTrigger(Kind kind, int x, int y, boolean entered);
+    }
+
+    /** The fixture user data of a zone. */
+    private static final class Zone {
+        final Kind kind;
+        final int x;
+        final int y;
+
+        Zone(Kind kind, int x, int y) {
+            this.kind = kind;
+            this.x = x;
+            this.y = y;
+        }
+    }
+
+    /** Half the edge of a zone in tiles; a bit smaller than the tile so brushing past the corner does not count. */
+    private static final float HALF_SIZE = 0.35f;
+    private static final Kind[] KINDS = Kind.values();
+
+    private final World world;
+    /** The sensor body of each zone, per kind and tile. */
+    @SuppressWarnings("unchecked")
+    private final TileKeyMap<Body>[] zones = new TileKeyMap[KINDS.length];
+
+    /* Events of the current tick, in the order Box2D reported them. */
+    private final Array<Zone> events = new Array<>();
+    private final BooleanArray entered = new BooleanArray();
+
+    public TriggerSystem(World world) {
+        this.world = world;
+        for (int i = 0; i < zones.length; i++) zones[i] = new TileKeyMap<>();
+        world.setContactListener(this);
+    }
+
+    /** Places a zone on a tile. Replaces an existing zone of the same kind there. Not during {@code world.step}. */
+    public void add(Kind kind, int x, int y) {
+        remove(kind, x, y);
+        BodyDef bodyDef = new BodyDef();
+        bodyDef.type = BodyDef.BodyType.StaticBody;
+        bodyDef.position.set(x + 0.5f, y + 0.5f);
+        Body body = world.createBody(bodyDef);
+        PolygonShape shape = new PolygonShape();
+        shape.setAsBox(HALF_SIZE, HALF_SIZE);
+        FixtureDef fixtureDef = new FixtureDef();
+        fixtureDef.shape = shape;
+        fixtureDef.isSensor = true; // 只报告重叠，不产生碰撞
+        body.createFixture(fixtureDef).setUserData(new Zone(kind, x, y));
+        shape.dispose();
+        zones[kind.ordinal()].put(x, y, body);
+    }
+
+    /** Removes the zone of the kind on the tile, if there is one. Not during {@code world.step}. */
+    public void remove(Kind kind, int x, int y) {
+        Body body = zones[kind.ordinal()].remove(x, y);
+        if (body != null) world.destroyBody(body);
+    }
+
+    /**
+     * Forgets every zone and pending event without touching the world,
+     * for when the map has just destroyed all bodies itself.
+     */
+    public void clear() {
+        for (TileKeyMap<Body> byTile : zones) byTile.clear();
+        events.clear();
+        entered.clear();
+    }
+
+    /**
+     * Hands the events queued since the last call to the handler, in order. Events caused by the handler
+     * (e.g. the end contact of a zone it removed) are delivered in the same call.
+     */
+    public void processEvents(Handler handler) {
+        for (int i = 0; i < events.size; i++) {
+            Zone zone = events.get(i);
+            handler.onTrigger(zone.kind, zone.x, zone.y, entered.get(i));
+        }
+        events.clear();
+        entered.clear();
+    }
+
+    @Override
+    public void beginContact(Contact contact) {
+        queue(contact, true);
+    }
+
+    @Override
+    public void endContact(Contact contact) {
+        queue(contact, false);
+    }
+
+    /** 中文：只关心玩家和区域之间的接触，其他的（比如玩家撞墙）直接忽略 */
+    private void queue(Contact contact, boolean begin) {
+        Fixture a = contact.getFixtureA();
+        Fixture b = contact.getFixtureB();
+        Zone zone;
+        if (a.getUserData() instanceof Zone && b.getBody().getUserData() instanceof Player) {
+            zone = (Zone) a.getUserData();
+        } else if (b.getUserData() instanceof Zone && a.getBody().getUserData() instanceof Player) {
+            zone = (Zone) b.getUserData();
+        } else {
+            return;
+        }
+        events.add(zone);
+        entered.add(begin);
+    }
+
+    @Override
+    public void preSolve(Contact contact, Manifold oldManifold) {
+    }
+
+    @Override
+    public void postSolve(Contact contact, ContactImpulse impulse) {
+    }
+}
@@ -5,11 +5,13 @@ import com.badlogic.gdx.Gdx;
 import com.badlogic.gdx.Screen;
 import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import com.badlogic.gdx.scenes.scene2d.ui.Skin;
-import de.tum.cit.aet.valleyday.audio.MusicTrack;
+import de.tum.cit.aet.valleyday.audio.MusicManager;
 import de.tum.cit.aet.valleyday.audio.SoundManager;
 import de.tum.cit.aet.valleyday.map.GameMap;
+import de.tum.cit.aet.valleyday.net.CoopClient;
 import de.tum.cit.aet.valleyday.screen.GameScreen;
 import de.tum.cit.aet.valleyday.screen.MenuScreen;
+import de.tum.cit.aet.valleyday.screen.ParticleSystem;
 import de.tum.cit.aet.valleyday.state.GameState;
 import games.spooky.gdx.nativefilechooser.NativeFileChooser;
 
@@ -18,6 +20,7 @@ import games.spooky.gdx.nativefilechooser.NativeFileChooserConfiguration;
 import com.badlogic.gdx.files.FileHandle;
 import java.io.FilenameFilter;
 import java.io.File;
+import java.io.IOException;
 
 /**
  * The ValleyDayGame class represents the core of the Valley Day game.
@@ -75,7 +78,6 @@ public class ValleyDayGame extends Game {
         this.spriteBatch = new SpriteBatch(); // Create SpriteBatch for rendering
         this.skin = new Skin(Gdx.files.internal("skin/craftacular/craftacular-ui.json")); // Load UI skin
         this.map = new GameMap(this); // Create a new game map (you should change this to load the map from a file instead)
-        MusicTrack.BACKGROUND.play(); // Play some background music
         goToMenu(); // Navigate to the menu screen
         SoundManager.load();
 
@@ -112,16 +114,7 @@ public class ValleyDayGame extends Game {
                     public void run() {
                         Gdx.app.log("MapSelector", "Selected map: " + file.path());
                         
-                        // A. 确保地图对象存在
-                        if (map == null) {
-                            map = new GameMap(ValleyDayGame.this);
-                        }
-                        
-                        // B. 让地图去读取这个文件
-                        map.loadMap(file);
-                        
-                        // C. 切换屏幕进入游戏
-                        goToGame();
+                        loadMap(file);
                     }
                 });
             }
@@ -145,6 +138,51 @@ public class ValleyDayGame extends Game {
     
 
     
+    /** Advances the music crossfades, then renders the current screen. */
+    @Override
+    public void render() {
+        MusicManager.update(Gdx.graphics.getDeltaTime());
+        super.render();
+    }
+
+    /**
+     * Loads a map file into the game's map and starts playing it.
+     * Maps played before come from the {@link de.tum.cit.aet.valleyday.map.MapTemplateCache},
+     * so switching between them does not re-parse the file.
+     * @param file the map file
+     */
+    public void loadMap(FileHandle file) {
+        // A. 确保地图对象存在
+        if (map == null) {
+            map = new GameMap(this);
+        }
+        // B. 让地图去读取这个文件（解析结果有缓存）
+        map.loadMap(file);
+        // C. 切换屏幕进入游戏
+        goToGame();
+    }
+
+    /**
+     * Connects to a co-op host on this machine, loads its map and seed and joins it as a guest player.
+     * Stays on the current screen if no host is running.
+     */
+    public void joinCoop() {
+        CoopClient client;
+        try {
+            client = CoopClient.connect();
+        } catch (IOException e) {
+            Gdx.app.error("Coop", "No co-op host to join", e);
+            return;
+        }
+        if (map == null) {
+            map = new GameMap(this);
+        }
+        // 中文：同一个地图文件加同一个种子，静态布局和隐藏道具都和主机一致
+        map.loadMap(client.getMapFile(), client.getSeed());
+        client.start();
+        this.setScreen(new GameScreen(this, client));
+    }
+
     /**
      * Switches to the menu screen.
      */
@@ -195,6 +233,8 @@ public class ValleyDayGame extends Game {
         spriteBatch.dispose(); // Dispose the spriteBatch
         skin.dispose(); // Dispose the skin
         SoundManager.dispose();
-
+        ParticleSystem.dispose();
+        MusicManager.dispose();
+        if (map != null) map.dispose(); // 地图跨屏幕存在，连同它的寻路线程最后释放
     }
 }